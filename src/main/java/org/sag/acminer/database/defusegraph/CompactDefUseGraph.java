@@ -0,0 +1,380 @@
+package org.sag.acminer.database.defusegraph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import soot.Value;
+
+/** A frozen compressed sparse row (CSR) view of the edges of a finished {@link DefUseGraph}. Every node and every
+ * local wrapper is given an int id. The children of a node are grouped by the local they define. The groups of node
+ * n are the ids in [getGroupStart(n), getGroupEnd(n)) and the children of group g are the node ids returned by
+ * getChild(i) for i in [getChildStart(g), getChildEnd(g)). The distinct children of a node regardless of local are
+ * stored the same way using the getDistinctChild methods.
+ * <br><br>
+ * Node ids are assigned in breadth first order from the start nodes, so the start nodes have the ids 0 to the number
+ * of start nodes minus one in the order given by {@link DefUseGraph#getStartNodes()}. The map and set views returned
+ * by this class are read only and are backed by the arrays, so walking the graph through them copies nothing.
+ */
+public final class CompactDefUseGraph {
+
+	private final INode[] nodes;
+	private final Map<INode,Integer> ids;
+	private final LocalWrapper[] locals;
+	private final int[] groupOffsets;
+	private final int[] groupLocals;
+	private final int[] childOffsets;
+	private final int[] children;
+	private final int[] distinctOffsets;
+	private final int[] distinctChildren;
+
+	CompactDefUseGraph(List<StartNode> starts, Map<INode, Map<LocalWrapper, Set<INode>>> edges) {
+		List<INode> nodes = new ArrayList<>();
+		Map<INode,Integer> ids = new HashMap<>();
+		Deque<INode> toVisit = new ArrayDeque<>();
+		for(StartNode sn : starts) {
+			if(!ids.containsKey(sn)) {
+				ids.put(sn, nodes.size());
+				nodes.add(sn);
+				toVisit.add(sn);
+			}
+		}
+		Iterator<INode> rest = edges.keySet().iterator();
+		while(!toVisit.isEmpty() || rest.hasNext()) {
+			if(toVisit.isEmpty()) {
+				//Nodes not reachable from the start nodes still keep their edges
+				INode next = rest.next();
+				if(!ids.containsKey(next)) {
+					ids.put(next, nodes.size());
+					nodes.add(next);
+					toVisit.add(next);
+				}
+				continue;
+			}
+			INode cur = toVisit.poll();
+			for(Set<INode> defs : getEdges(edges, cur).values()) {
+				for(INode child : defs) {
+					if(!ids.containsKey(child)) {
+						ids.put(child, nodes.size());
+						nodes.add(child);
+						toVisit.add(child);
+					}
+				}
+			}
+		}
+
+		int groupCount = 0;
+		int childCount = 0;
+		for(INode cur : nodes) {
+			Map<LocalWrapper, Set<INode>> localToDefs = getEdges(edges, cur);
+			groupCount += localToDefs.size();
+			for(Set<INode> defs : localToDefs.values())
+				childCount += defs.size();
+		}
+
+		List<LocalWrapper> locals = new ArrayList<>();
+		Map<LocalWrapper,Integer> localIds = new HashMap<>();
+		this.groupOffsets = new int[nodes.size() + 1];
+		this.groupLocals = new int[groupCount];
+		this.childOffsets = new int[groupCount + 1];
+		this.children = new int[childCount];
+		this.distinctOffsets = new int[nodes.size() + 1];
+		int[] distinct = new int[childCount];
+		int g = 0;
+		int c = 0;
+		int d = 0;
+		Set<Integer> seen = new HashSet<>();
+		for(int n = 0; n < nodes.size(); n++) {
+			groupOffsets[n] = g;
+			distinctOffsets[n] = d;
+			seen.clear();
+			Map<LocalWrapper, Set<INode>> localToDefs = getEdges(edges, nodes.get(n));
+			for(LocalWrapper lw : localToDefs.keySet()) {
+				Integer localId = localIds.get(lw);
+				if(localId == null) {
+					localId = locals.size();
+					localIds.put(lw, localId);
+					locals.add(lw);
+				}
+				groupLocals[g] = localId;
+				childOffsets[g] = c;
+				for(INode child : localToDefs.get(lw)) {
+					Integer childId = ids.get(child);
+					children[c++] = childId;
+					if(seen.add(childId))
+						distinct[d++] = childId;
+				}
+				g++;
+			}
+		}
+		groupOffsets[nodes.size()] = g;
+		childOffsets[groupCount] = c;
+		distinctOffsets[nodes.size()] = d;
+		this.distinctChildren = d == distinct.length ? distinct : Arrays.copyOf(distinct, d);
+		this.nodes = nodes.toArray(new INode[nodes.size()]);
+		this.ids = ids;
+		this.locals = locals.toArray(new LocalWrapper[locals.size()]);
+	}
+
+	/** Rebuilds a graph from the arrays of a graph previously constructed from the maps (i.e. as read from the binary
+	 * format). Only the node ids and the distinct children are recomputed.
+	 */
+	CompactDefUseGraph(INode[] nodes, LocalWrapper[] locals, int[] groupOffsets, int[] groupLocals, int[] childOffsets, int[] children) {
+		Map<INode,Integer> ids = new HashMap<>();
+		for(int n = 0; n < nodes.length; n++)
+			ids.put(nodes[n], n);
+		this.distinctOffsets = new int[nodes.length + 1];
+		int[] distinct = new int[children.length];
+		int d = 0;
+		Set<Integer> seen = new HashSet<>();
+		for(int n = 0; n < nodes.length; n++) {
+			distinctOffsets[n] = d;
+			seen.clear();
+			for(int i = childOffsets[groupOffsets[n]]; i < childOffsets[groupOffsets[n + 1]]; i++) {
+				if(seen.add(children[i]))
+					distinct[d++] = children[i];
+			}
+		}
+		distinctOffsets[nodes.length] = d;
+		this.distinctChildren = d == distinct.length ? distinct : Arrays.copyOf(distinct, d);
+		this.nodes = nodes;
+		this.ids = ids;
+		this.locals = locals;
+		this.groupOffsets = groupOffsets;
+		this.groupLocals = groupLocals;
+		this.childOffsets = childOffsets;
+		this.children = children;
+	}
+
+	private static Map<LocalWrapper, Set<INode>> getEdges(Map<INode, Map<LocalWrapper, Set<INode>>> edges, INode source) {
+		Map<LocalWrapper, Set<INode>> localToDefs = edges.get(source);
+		if(localToDefs == null || source instanceof LeafNode)
+			return Collections.emptyMap();
+		return localToDefs;
+	}
+
+	/** Returns the number of nodes in the graph. */
+	public int size() {
+		return nodes.length;
+	}
+
+	/** Returns the id of the node or -1 if the node is not in the graph. */
+	public int getId(INode node) {
+		Integer ret = ids.get(node);
+		return ret == null ? -1 : ret;
+	}
+
+	public INode getNode(int id) {
+		return nodes[id];
+	}
+
+	public int getLocalCount() {
+		return locals.length;
+	}
+
+	public LocalWrapper getLocal(int localId) {
+		return locals[localId];
+	}
+
+	public int getGroupStart(int node) {
+		return groupOffsets[node];
+	}
+
+	public int getGroupEnd(int node) {
+		return groupOffsets[node + 1];
+	}
+
+	/** Returns the local id of the local defined by the children of the given group. */
+	public int getGroupLocal(int group) {
+		return groupLocals[group];
+	}
+
+	public int getChildStart(int group) {
+		return childOffsets[group];
+	}
+
+	public int getChildEnd(int group) {
+		return childOffsets[group + 1];
+	}
+
+	public int getChild(int index) {
+		return children[index];
+	}
+
+	public int getDistinctChildStart(int node) {
+		return distinctOffsets[node];
+	}
+
+	public int getDistinctChildEnd(int node) {
+		return distinctOffsets[node + 1];
+	}
+
+	public int getDistinctChild(int index) {
+		return distinctChildren[index];
+	}
+
+	/** Returns a read only view of the local wrappers of a node mapped to the child nodes defining them. */
+	public Map<LocalWrapper, Set<INode>> getChildLocalWrappersToChildNodes(int node) {
+		if(groupOffsets[node] == groupOffsets[node + 1])
+			return Collections.emptyMap();
+		return new ChildMap(node);
+	}
+
+	/** Returns a read only view of the distinct child nodes of a node. */
+	public Set<INode> getChildNodes(int node) {
+		if(distinctOffsets[node] == distinctOffsets[node + 1])
+			return Collections.emptySet();
+		return new NodeRange(distinctChildren, distinctOffsets[node], distinctOffsets[node + 1]);
+	}
+
+	/** Returns a read only view of the child nodes of a node that define the given local or null if the local
+	 * is not used by the node.
+	 */
+	public Set<INode> getChildNodes(int node, Value l) {
+		for(int g = groupOffsets[node]; g < groupOffsets[node + 1]; g++) {
+			if(locals[groupLocals[g]].getLocal().equals(l))
+				return getGroup(g);
+		}
+		return null;
+	}
+
+	private Set<INode> getGroup(int group) {
+		if(childOffsets[group] == childOffsets[group + 1])
+			return Collections.emptySet();
+		return new NodeRange(children, childOffsets[group], childOffsets[group + 1]);
+	}
+
+	/** Rebuilds the map based representation of the edges used by {@link DefUseGraph} before it is frozen. */
+	Map<INode, Map<LocalWrapper, Set<INode>>> toMap() {
+		Map<INode, Map<LocalWrapper, Set<INode>>> ret = new HashMap<>();
+		for(int n = 0; n < nodes.length; n++) {
+			if(groupOffsets[n] != groupOffsets[n + 1]) {
+				Map<LocalWrapper, Set<INode>> localToDefs = new HashMap<>();
+				for(int g = groupOffsets[n]; g < groupOffsets[n + 1]; g++)
+					localToDefs.put(locals[groupLocals[g]], new HashSet<>(getGroup(g)));
+				ret.put(nodes[n], localToDefs);
+			}
+		}
+		return ret;
+	}
+
+	private final class NodeRange extends AbstractSet<INode> {
+		private final int[] array;
+		private final int start;
+		private final int end;
+
+		public NodeRange(int[] array, int start, int end) {
+			this.array = array;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public Iterator<INode> iterator() {
+			return new Iterator<INode>() {
+				private int i = start;
+				@Override
+				public boolean hasNext() {
+					return i < end;
+				}
+				@Override
+				public INode next() {
+					if(i >= end)
+						throw new NoSuchElementException();
+					return nodes[array[i++]];
+				}
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return end - start;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			Integer id = ids.get(o);
+			if(id == null)
+				return false;
+			for(int i = start; i < end; i++) {
+				if(array[i] == id)
+					return true;
+			}
+			return false;
+		}
+	}
+
+	private final class ChildMap extends AbstractMap<LocalWrapper, Set<INode>> {
+		private final int node;
+
+		public ChildMap(int node) {
+			this.node = node;
+		}
+
+		@Override
+		public Set<INode> get(Object key) {
+			for(int g = groupOffsets[node]; g < groupOffsets[node + 1]; g++) {
+				if(locals[groupLocals[g]].equals(key))
+					return getGroup(g);
+			}
+			return null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public int size() {
+			return groupOffsets[node + 1] - groupOffsets[node];
+		}
+
+		@Override
+		public Set<Map.Entry<LocalWrapper, Set<INode>>> entrySet() {
+			return new AbstractSet<Map.Entry<LocalWrapper, Set<INode>>>() {
+				@Override
+				public Iterator<Map.Entry<LocalWrapper, Set<INode>>> iterator() {
+					return new Iterator<Map.Entry<LocalWrapper, Set<INode>>>() {
+						private int g = groupOffsets[node];
+						@Override
+						public boolean hasNext() {
+							return g < groupOffsets[node + 1];
+						}
+						@Override
+						public Map.Entry<LocalWrapper, Set<INode>> next() {
+							if(g >= groupOffsets[node + 1])
+								throw new NoSuchElementException();
+							int cur = g++;
+							return new AbstractMap.SimpleImmutableEntry<LocalWrapper, Set<INode>>(locals[groupLocals[cur]], getGroup(cur));
+						}
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+				@Override
+				public int size() {
+					return ChildMap.this.size();
+				}
+			};
+		}
+	}
+
+}
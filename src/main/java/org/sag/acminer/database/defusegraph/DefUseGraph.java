@@ -3,6 +3,8 @@ package org.sag.acminer.database.defusegraph;
 import java.math.BigInteger;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
@@ -23,6 +25,7 @@ import org.sag.common.xstream.XStreamInOut;
 import org.sag.common.xstream.XStreamInOut.XStreamInOutInterface;
 
 import soot.Local;
+import soot.Value;
 
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
@@ -47,6 +50,10 @@ public class DefUseGraph implements XStreamInOutInterface {
 	@XStreamAlias("StartNodes")
 	private volatile ArrayList<StartNode> starts;
 	
+	//Once set the graph is frozen and useNodesToDefs is null
+	@XStreamOmitField
+	private volatile CompactDefUseGraph compact;
+	
 	public DefUseGraph() {}
 	
 	public DefUseGraph(List<StartNode> starts) {
@@ -58,13 +65,84 @@ public class DefUseGraph implements XStreamInOutInterface {
 		this.useNodesToInlineConstantNodes = new HashMap<>();
 	}
 	
+	//Used by the binary format to construct an already frozen graph
+	DefUseGraph(List<StartNode> starts, Map<INode, Map<InlineConstantLocalWrapper, InlineConstantLeafNode>> useNodesToInlineConstantNodes, 
+			CompactDefUseGraph compact) {
+		this.starts = new ArrayList<>(starts);
+		this.startNodesToDefStrings = null;
+		this.defNodesToUses = null;
+		this.useNodesToDefs = null;
+		this.useNodesToInlineConstantNodes = useNodesToInlineConstantNodes;
+		this.compact = compact;
+	}
+	
 	public List<StartNode> getStartNodes() {
 		return starts;
 	}
 	
+	/** Freezes the graph into a {@link CompactDefUseGraph} if it has not been frozen already and returns the compact
+	 * graph. After this no more children may be added and all lookups of children are answered by the compact graph.
+	 * The map based methods below remain as adapters over the compact graph.
+	 */
+	public synchronized CompactDefUseGraph freeze() {
+		if(compact == null) {
+			compact = new CompactDefUseGraph(starts == null ? Collections.<StartNode>emptyList() : starts, 
+					useNodesToDefs == null ? Collections.<INode, Map<LocalWrapper, Set<INode>>>emptyMap() : useNodesToDefs);
+			useNodesToDefs = null;
+		}
+		return compact;
+	}
+	
+	public boolean isFrozen() {
+		return compact != null;
+	}
+	
+	/** Returns a read only view of the local wrappers to child nodes of the given node. Unlike 
+	 * {@link #getChildLocalWrappersToChildNodes(INode)} nothing is copied so the returned map and 
+	 * sets must not be modified. 
+	 */
+	public Map<LocalWrapper, Set<INode>> getChildLocalWrappersToChildNodesView(INode source) {
+		if(source instanceof LeafNode)
+			return Collections.emptyMap();
+		Map<INode, Map<LocalWrapper, Set<INode>>> edges = useNodesToDefs;
+		if(edges == null) {
+			CompactDefUseGraph c = compact;
+			int id = c.getId(source);
+			return id < 0 ? Collections.<LocalWrapper, Set<INode>>emptyMap() : c.getChildLocalWrappersToChildNodes(id);
+		}
+		Map<LocalWrapper, Set<INode>> localToDefs = edges.get(source);
+		if(localToDefs == null || localToDefs.isEmpty())
+			return Collections.emptyMap();
+		return Collections.unmodifiableMap(localToDefs);
+	}
+	
+	/** Returns a read only view of the child nodes of the given node. Only avoids copying once the graph is frozen. */
+	public Set<INode> getChildNodesView(INode source) {
+		CompactDefUseGraph c = compact;
+		if(c != null && !(source instanceof LeafNode)) {
+			int id = c.getId(source);
+			return id < 0 ? Collections.<INode>emptySet() : c.getChildNodes(id);
+		}
+		return getChildNodes(source);
+	}
+	
+	/** Returns a read only view of the child nodes defining the given local of the given node or null if the node
+	 * does not use the local. This is equivalent to getChildLocalsToChildNodes(source).get(l) without the copy.
+	 */
+	public Set<INode> getChildNodesView(INode source, Value l) {
+		CompactDefUseGraph c = compact;
+		if(c != null) {
+			if(source instanceof LeafNode)
+				return null;
+			int id = c.getId(source);
+			return id < 0 ? null : c.getChildNodes(id, l);
+		}
+		return getChildLocalsToChildNodes(source).get(l);
+	}
+	
 	public Map<LocalWrapper, Set<INode>> getChildLocalWrappersToChildNodes(INode source) {
-		Map<LocalWrapper, Set<INode>> localToDefs = useNodesToDefs.get(source);
-		if(localToDefs == null || localToDefs.isEmpty() || source instanceof LeafNode)
+		Map<LocalWrapper, Set<INode>> localToDefs = getChildLocalWrappersToChildNodesView(source);
+		if(localToDefs.isEmpty())
 			return Collections.emptyMap();
 		Map<LocalWrapper, Set<INode>> ret = new HashMap<>();
 		
@@ -77,24 +155,17 @@ public class DefUseGraph implements XStreamInOutInterface {
 		}
 		return ret;
 	}
-	
-	Map<LocalWrapper, Set<INode>> getChildLocalWrappersToChildNodesInner(INode source) {
-		Map<LocalWrapper, Set<INode>> localToDefs = useNodesToDefs.get(source);
-		if(localToDefs == null || localToDefs.isEmpty() || source instanceof LeafNode)
-			return Collections.emptyMap();
-		return localToDefs;
-	}
 
 	public Set<LocalWrapper> getChildLocalWrappers(INode source) {
-		Map<LocalWrapper, Set<INode>> localToDefs = useNodesToDefs.get(source);
-		if(localToDefs == null || localToDefs.isEmpty() || source instanceof LeafNode)
+		Map<LocalWrapper, Set<INode>> localToDefs = getChildLocalWrappersToChildNodesView(source);
+		if(localToDefs.isEmpty())
 			return Collections.emptySet();
 		return new HashSet<>(localToDefs.keySet());
 	}
 	
 	public Map<Local, Set<INode>> getChildLocalsToChildNodes(INode source) {
-		Map<LocalWrapper, Set<INode>> localToDefs = useNodesToDefs.get(source);
-		if(localToDefs == null || localToDefs.isEmpty() || source instanceof LeafNode)
+		Map<LocalWrapper, Set<INode>> localToDefs = getChildLocalWrappersToChildNodesView(source);
+		if(localToDefs.isEmpty())
 			return Collections.emptyMap();
 		Map<Local, Set<INode>> ret = new HashMap<>();
 		for(LocalWrapper lw : localToDefs.keySet()) {
@@ -104,8 +175,8 @@ public class DefUseGraph implements XStreamInOutInterface {
 	}
 	
 	public Set<Local> getChildLocals(INode source) {
-		Map<LocalWrapper, Set<INode>> localToDefs = useNodesToDefs.get(source);
-		if(localToDefs == null || localToDefs.isEmpty() || source instanceof LeafNode)
+		Map<LocalWrapper, Set<INode>> localToDefs = getChildLocalWrappersToChildNodesView(source);
+		if(localToDefs.isEmpty())
 			return Collections.emptySet();
 		Set<Local> ret = new HashSet<>();
 		for(LocalWrapper lw : localToDefs.keySet()) {
@@ -115,8 +186,8 @@ public class DefUseGraph implements XStreamInOutInterface {
 	}
 	
 	public Set<INode> getChildNodes(INode source) {
-		Map<LocalWrapper, Set<INode>> localToDefs = useNodesToDefs.get(source);
-		if(localToDefs == null || localToDefs.isEmpty() || source instanceof LeafNode)
+		Map<LocalWrapper, Set<INode>> localToDefs = getChildLocalWrappersToChildNodesView(source);
+		if(localToDefs.isEmpty())
 			return Collections.emptySet();
 		Set<INode> ret = new HashSet<>();
 		for(Set<INode> defs : localToDefs.values()) {
@@ -136,11 +207,18 @@ public class DefUseGraph implements XStreamInOutInterface {
 		return ret;
 	}
 	
+	Map<INode, Map<InlineConstantLocalWrapper, InlineConstantLeafNode>> getAllInlineConstantNodes() {
+		return useNodesToInlineConstantNodes == null ? Collections.<INode, Map<InlineConstantLocalWrapper, InlineConstantLeafNode>>emptyMap() 
+				: useNodesToInlineConstantNodes;
+	}
+	
 	public synchronized void addChild(INode source, Local l, INode target) {
 		addChild(source, LocalWrapper.Factory.get(l, source.getSource()), target);
 	}
 	
 	public synchronized void addChild(INode source, LocalWrapper lw, INode target) {
+		if(compact != null)
+			throw new RuntimeException("Error: Cannot add children to a frozen def use graph.");
 		Map<LocalWrapper, Set<INode>> localToDefs = useNodesToDefs.get(source);
 		if(localToDefs == null) {
 			localToDefs = new HashMap<>();
@@ -180,7 +258,7 @@ public class DefUseGraph implements XStreamInOutInterface {
 				INode cur = dataP.getSecond();//Cur node is a use and child nodes are defs
 				if(visited.add(dataP)) {
 					//If we visited a use before then we have already constructed these relationships
-					Map<LocalWrapper, Set<INode>> map = getChildLocalWrappersToChildNodes(cur);
+					Map<LocalWrapper, Set<INode>> map = getChildLocalWrappersToChildNodesView(cur);
 					for(LocalWrapper lw : map.keySet()) {
 						for(INode vn : map.get(lw)) {
 							Pair<LocalWrapper,Set<INode>> p = defNodesToUses.get(start).get(vn);
@@ -215,7 +293,7 @@ public class DefUseGraph implements XStreamInOutInterface {
 				StartNode start = p.getFirst();
 				INode cur = p.getSecond();
 				if(visited.add(p)) {
-					Map<LocalWrapper, Set<INode>> localsToValueNodes = getChildLocalWrappersToChildNodesInner(cur);
+					Map<LocalWrapper, Set<INode>> localsToValueNodes = getChildLocalWrappersToChildNodesView(cur);
 					Set<String> localDefs = this.startNodesToDefStrings.get(start);
 					for(LocalWrapper lw : localsToValueNodes.keySet()) {
 						String lwString = lw.toString();
@@ -268,6 +346,78 @@ public class DefUseGraph implements XStreamInOutInterface {
 		return Collections.emptySet();
 	}
 	
+	/** Returns all nodes reachable from the given roots that are part of a cycle in the graph (i.e. nodes in a 
+	 * strongly connected component with more than one node or nodes with an edge to themselves). Uses an
+	 * iterative version of Tarjan's algorithm over the ids of the frozen graph so deep graphs do not overflow 
+	 * the stack. Freezes the graph if it is not already frozen.
+	 */
+	public Set<INode> getNodesInCycles(Collection<? extends INode> roots) {
+		CompactDefUseGraph c = freeze();
+		int size = c.size();
+		int[] index = new int[size];
+		int[] low = new int[size];
+		Arrays.fill(index, -1);
+		boolean[] onStack = new boolean[size];
+		int[] stack = new int[size];
+		int sp = 0;
+		//Each frame is a node and the position of the next distinct child to visit
+		int[] workNode = new int[size];
+		int[] workPos = new int[size];
+		int wp = 0;
+		Set<INode> ret = new HashSet<>();
+		int next = 0;
+		for(INode rootNode : roots) {
+			int root = c.getId(rootNode);
+			if(root < 0 || index[root] >= 0)
+				continue;
+			index[root] = low[root] = next++;
+			stack[sp++] = root;
+			onStack[root] = true;
+			workNode[wp] = root;
+			workPos[wp++] = c.getDistinctChildStart(root);
+			while(wp > 0) {
+				int v = workNode[wp - 1];
+				int pos = workPos[wp - 1];
+				if(pos < c.getDistinctChildEnd(v)) {
+					workPos[wp - 1] = pos + 1;
+					int w = c.getDistinctChild(pos);
+					if(w == v) {
+						ret.add(c.getNode(v));
+					} else if(index[w] < 0) {
+						index[w] = low[w] = next++;
+						stack[sp++] = w;
+						onStack[w] = true;
+						workNode[wp] = w;
+						workPos[wp++] = c.getDistinctChildStart(w);
+					} else if(onStack[w]) {
+						low[v] = Math.min(low[v], index[w]);
+					}
+				} else {
+					wp--;
+					if(wp > 0) {
+						int u = workNode[wp - 1];
+						low[u] = Math.min(low[u], low[v]);
+					}
+					if(low[v] == index[v]) {
+						int w;
+						int count = 0;
+						int top = sp;
+						do {
+							w = stack[--sp];
+							onStack[w] = false;
+							count++;
+						} while(w != v);
+						if(count > 1) {
+							for(int i = sp; i < top; i++)
+								ret.add(c.getNode(stack[i]));
+						}
+					}
+				}
+			}
+		}
+		return ret;
+	}
+	
 	public Pair<LocalWrapper,Set<INode>> getUsesForDefinition(StartNode start, INode def) {
 		if(defNodesToUses == null)
 			computeDefinitionsToUses();
@@ -435,12 +585,27 @@ public class DefUseGraph implements XStreamInOutInterface {
 	
 	@Override
 	public void writeXML(String filePath, Path path) throws Exception {
-		XStreamInOut.writeXML(this, filePath, path);
+		XStreamInOut.writeXML(thaw(), filePath, path);
 	}
 
+	/** Reads the graph and freezes it so it is ready for use. */
 	@Override
 	public DefUseGraph readXML(String filePath, Path path) throws Exception {
-		return XStreamInOut.readXML(this, filePath, path);
+		DefUseGraph ret = XStreamInOut.readXML(this, filePath, path);
+		ret.freeze();
+		return ret;
+	}
+	
+	//The xml format stores the edges as maps so a frozen graph is written through a copy with the maps rebuilt
+	private DefUseGraph thaw() {
+		CompactDefUseGraph c = compact;
+		if(c == null)
+			return this;
+		DefUseGraph ret = new DefUseGraph();
+		ret.starts = starts;
+		ret.useNodesToInlineConstantNodes = useNodesToInlineConstantNodes;
+		ret.useNodesToDefs = c.toMap();
+		return ret;
 	}
 	
 	public static DefUseGraph readXMLStatic(String filePath, Path path) throws Exception {
@@ -0,0 +1,451 @@
+package org.sag.acminer.database.defusegraph;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sag.acminer.database.defusegraph.id.Identifier;
+import org.sag.acminer.database.defusegraph.id.IdentifierBinaryIO;
+import org.sag.main.sootinit.SootInstanceWrapper;
+
+import soot.Scene;
+import soot.SootField;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.Stmt;
+
+/** Reads and writes a {@link DefUseGraph} in a compact binary format that is loaded through a memory mapped file.
+ * The file consists of a header (magic number and version), a string table holding every signature and identifier
+ * string once, a table of the local wrappers, a node table, the start nodes, the edges in the same compressed sparse
+ * row layout used by {@link CompactDefUseGraph}, and finally the inline constant nodes. All numbers are big endian.
+ * <br><br>
+ * The same information as the xml format is stored so the two formats can be converted between freely using
+ * {@link #convert(Path, Path)}. Like the xml format, soot must be initialized before a graph can be read. Any change
+ * to the layout must increment {@link #VERSION}.
+ */
+public final class DefUseGraphBinaryIO {
+
+	public static final String XML_EXT = ".xml";
+	public static final String BINARY_EXT = ".bin";
+	public static final int MAGIC = 0x44554742;//DUGB
+	public static final int VERSION = 1;
+
+	private static final byte START = 0;
+	private static final byte INVOKE_START = 1;
+	private static final byte FIELD_START = 2;
+	private static final byte NODE = 3;
+	private static final byte INVOKE_NODE = 4;
+	private static final byte FIELD_NODE = 5;
+	private static final byte LEAF = 6;
+	private static final byte INVOKE_LEAF = 7;
+	private static final byte FIELD_LEAF = 8;
+	private static final byte INVOKE_CONSTANT_LEAF = 9;
+	private static final byte INLINE_CONSTANT_LEAF = 10;
+
+	private DefUseGraphBinaryIO() {}
+
+	public static boolean isBinaryFile(Path p) {
+		return p.getFileName().toString().endsWith(BINARY_EXT);
+	}
+
+	/** Reads a graph from the given file choosing the format from the extension of the file. */
+	public static DefUseGraph readAny(Path in) throws Exception {
+		if(isBinaryFile(in))
+			return read(in);
+		return DefUseGraph.readXMLStatic(null, in);
+	}
+
+	/** Writes the graph to the given file choosing the format from the extension of the file. */
+	public static void writeAny(DefUseGraph graph, Path out) throws Exception {
+		if(isBinaryFile(out))
+			write(graph, out);
+		else
+			graph.writeXML(null, out);
+	}
+
+	/** Converts the graph in one file to the format given by the extension of the other file. */
+	public static void convert(Path in, Path out) throws Exception {
+		writeAny(readAny(in), out);
+	}
+
+	public static void write(DefUseGraph graph, Path out) throws IOException {
+		CompactDefUseGraph c = graph.freeze();
+		Map<INode, Map<InlineConstantLocalWrapper, InlineConstantLeafNode>> inline = graph.getAllInlineConstantNodes();
+		Writer w = new Writer();
+
+		//The nodes of the compact graph keep their ids and any node only reachable through the inline map is appended
+		List<INode> nodes = new ArrayList<>();
+		Map<INode,Integer> ids = new HashMap<>();
+		for(int i = 0; i < c.size(); i++) {
+			nodes.add(c.getNode(i));
+			ids.put(c.getNode(i), i);
+		}
+		for(INode use : inline.keySet()) {
+			w.addNode(use, nodes, ids);
+			for(InlineConstantLeafNode n : inline.get(use).values())
+				w.addNode(n, nodes, ids);
+		}
+
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		DataOutputStream bout = new DataOutputStream(body);
+
+		bout.writeInt(nodes.size());
+		bout.writeInt(c.size());
+		for(INode n : nodes)
+			w.writeNode(n, ids, bout);
+
+		List<StartNode> starts = graph.getStartNodes();
+		bout.writeInt(starts.size());
+		for(StartNode sn : starts)
+			bout.writeInt(ids.get(sn));
+
+		int groupCount = c.getGroupStart(c.size());
+		int childCount = c.getChildStart(groupCount);
+		bout.writeInt(groupCount);
+		bout.writeInt(childCount);
+		for(int n = 0; n <= c.size(); n++)
+			bout.writeInt(c.getGroupStart(n));
+		for(int g = 0; g < groupCount; g++)
+			bout.writeInt(w.getLocalWrapperIndex(c.getLocal(c.getGroupLocal(g))));
+		for(int g = 0; g <= groupCount; g++)
+			bout.writeInt(c.getChildStart(g));
+		for(int i = 0; i < childCount; i++)
+			bout.writeInt(c.getChild(i));
+
+		bout.writeInt(inline.size());
+		for(INode use : inline.keySet()) {
+			Map<InlineConstantLocalWrapper, InlineConstantLeafNode> m = inline.get(use);
+			bout.writeInt(ids.get(use));
+			bout.writeInt(m.size());
+			for(InlineConstantLocalWrapper lw : m.keySet()) {
+				bout.writeLong(lw.getNum());
+				bout.writeInt(ids.get(m.get(lw)));
+			}
+		}
+		bout.flush();
+
+		try(DataOutputStream out2 = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(out)))) {
+			out2.writeInt(MAGIC);
+			out2.writeInt(VERSION);
+			List<byte[]> strings = new ArrayList<>(w.strings.size());
+			int offset = 0;
+			out2.writeInt(w.strings.size());
+			for(String s : w.strings) {
+				byte[] b = s.getBytes(StandardCharsets.UTF_8);
+				strings.add(b);
+				out2.writeInt(offset);
+				offset += b.length;
+			}
+			out2.writeInt(offset);
+			for(byte[] b : strings)
+				out2.write(b);
+			out2.writeInt(w.locals.size());
+			for(LocalWrapper lw : w.locals) {
+				out2.writeLong(lw.getNum());
+				out2.writeInt(w.getStringIndex(lw.getOrgString()));
+				out2.writeInt(w.getStringIndex(lw.getSourceSignature()));
+			}
+			body.writeTo(out2);
+		}
+	}
+
+	public static DefUseGraph read(Path in) throws Exception {
+		if(!SootInstanceWrapper.v().isSootInitSet())
+			throw new RuntimeException("Error: Soot needs to be initilized before loading.");
+		try(FileChannel fc = FileChannel.open(in, StandardOpenOption.READ)) {
+			MappedByteBuffer buf = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+			return new Reader(buf, in).read();
+		}
+	}
+
+	private static final class Writer implements IdentifierBinaryIO.Encoder {
+
+		private final List<String> strings = new ArrayList<>();
+		private final Map<String,Integer> stringIds = new HashMap<>();
+		private final List<LocalWrapper> locals = new ArrayList<>();
+		private final Map<LocalWrapper,Integer> localIds = new HashMap<>();
+		private final Map<SootMethod,Map<Unit,Integer>> unitIndexes = new HashMap<>();
+
+		@Override
+		public int getStringIndex(String s) {
+			Integer ret = stringIds.get(s);
+			if(ret == null) {
+				ret = strings.size();
+				strings.add(s);
+				stringIds.put(s, ret);
+			}
+			return ret;
+		}
+
+		@Override
+		public int getLocalWrapperIndex(LocalWrapper lw) {
+			Integer ret = localIds.get(lw);
+			if(ret == null) {
+				ret = locals.size();
+				locals.add(lw);
+				localIds.put(lw, ret);
+				getStringIndex(lw.getOrgString());
+				getStringIndex(lw.getSourceSignature());
+			}
+			return ret;
+		}
+
+		public void addNode(INode n, List<INode> nodes, Map<INode,Integer> ids) {
+			if(!ids.containsKey(n)) {
+				//The main node must be read before the inline constant node that references it
+				if(n instanceof InlineConstantLeafNode)
+					addNode(((InlineConstantLeafNode)n).getNode(), nodes, ids);
+				ids.put(n, nodes.size());
+				nodes.add(n);
+			}
+		}
+
+		private int getUnitIndex(SootMethod source, Unit unit) throws IOException {
+			Map<Unit,Integer> indexes = unitIndexes.get(source);
+			if(indexes == null) {
+				indexes = new HashMap<>();
+				int i = 0;
+				for(Unit u : source.retrieveActiveBody().getUnits())
+					indexes.put(u, i++);
+				unitIndexes.put(source, indexes);
+			}
+			Integer ret = indexes.get(unit);
+			if(ret == null)
+				throw new IOException("Error: Unable to find unit '" + unit + "' in '" + source + "'.");
+			return ret;
+		}
+
+		public void writeNode(INode n, Map<INode,Integer> ids, DataOutputStream out) throws IOException {
+			Class<?> c = n.getClass();
+			if(c == InlineConstantLeafNode.class) {
+				InlineConstantLeafNode icn = (InlineConstantLeafNode)n;
+				out.writeByte(INLINE_CONSTANT_LEAF);
+				out.writeInt(ids.get(icn.getNode()));
+				out.writeInt(icn.getIndex());
+				return;
+			}
+
+			int extra = -1;
+			if(c == StartNode.class) {
+				out.writeByte(START);
+			} else if(c == InvokeStartNode.class) {
+				out.writeByte(INVOKE_START);
+			} else if(c == FieldStartNode.class) {
+				out.writeByte(FIELD_START);
+			} else if(c == Node.class) {
+				out.writeByte(NODE);
+			} else if(c == InvokeNode.class) {
+				out.writeByte(INVOKE_NODE);
+			} else if(c == FieldNode.class) {
+				out.writeByte(FIELD_NODE);
+			} else if(c == LeafNode.class) {
+				out.writeByte(LEAF);
+			} else if(c == InvokeLeafNode.class) {
+				out.writeByte(INVOKE_LEAF);
+			} else if(c == FieldLeafNode.class) {
+				out.writeByte(FIELD_LEAF);
+			} else if(c == InvokeConstantLeafNode.class) {
+				out.writeByte(INVOKE_CONSTANT_LEAF);
+				extra = ((InvokeConstantLeafNode)n).getIndex();
+			} else {
+				throw new IOException("Error: Unhandled node type '" + c.getSimpleName() + "'.");
+			}
+			if(n instanceof IInvokeNode) {
+				SootMethod target = ((IInvokeNode)n).getTarget();
+				extra = target == null ? -1 : getStringIndex(target.getSignature());
+			} else if(n instanceof IFieldNode) {
+				SootField field = ((IFieldNode)n).getField();
+				extra = field == null ? -1 : getStringIndex(field.getSignature());
+			}
+			out.writeInt(getStringIndex(n.getSource().getSignature()));
+			out.writeInt(getUnitIndex(n.getSource(), n.getUnit()));
+			out.writeInt(getStringIndex(n.getUnit().toString()));
+			out.writeInt(extra);
+			IdentifierBinaryIO.write(n.getIdentifier(), out, this);
+		}
+
+	}
+
+	private static final class Reader implements IdentifierBinaryIO.Decoder {
+
+		private final ByteBuffer buf;
+		private final Path path;
+		private int stringOffsetsPos;
+		private int stringDataPos;
+		private String[] strings;
+		private LocalWrapper[] locals;
+		private final Map<String,List<Unit>> units;
+
+		public Reader(ByteBuffer buf, Path path) {
+			this.buf = buf;
+			this.path = path;
+			this.units = new HashMap<>();
+		}
+
+		@Override
+		public String getString(int index) {
+			String ret = strings[index];
+			if(ret == null) {
+				int start = buf.getInt(stringOffsetsPos + index * 4);
+				int end = buf.getInt(stringOffsetsPos + (index + 1) * 4);
+				byte[] b = new byte[end - start];
+				ByteBuffer dup = buf.duplicate();
+				dup.position(stringDataPos + start);
+				dup.get(b);
+				ret = new String(b, StandardCharsets.UTF_8);
+				strings[index] = ret;
+			}
+			return ret;
+		}
+
+		@Override
+		public LocalWrapper getLocalWrapper(int index) {
+			return locals[index];
+		}
+
+		public DefUseGraph read() throws Exception {
+			int magic = buf.getInt();
+			if(magic != MAGIC)
+				throw new IOException("Error: The file '" + path + "' is not a binary def use graph file.");
+			int version = buf.getInt();
+			if(version != VERSION)
+				throw new IOException("Error: The binary def use graph file '" + path + "' has version " + version
+						+ " but only version " + VERSION + " is supported.");
+
+			int stringCount = buf.getInt();
+			strings = new String[stringCount];
+			stringOffsetsPos = buf.position();
+			int stringBytes = buf.getInt(stringOffsetsPos + stringCount * 4);
+			stringDataPos = stringOffsetsPos + (stringCount + 1) * 4;
+			buf.position(stringDataPos + stringBytes);
+
+			locals = new LocalWrapper[buf.getInt()];
+			for(int i = 0; i < locals.length; i++) {
+				long num = buf.getLong();
+				String orgString = getString(buf.getInt());
+				locals[i] = LocalWrapper.resolve(num, orgString, getString(buf.getInt()));
+			}
+
+			INode[] nodes = new INode[buf.getInt()];
+			int compactSize = buf.getInt();
+			for(int i = 0; i < nodes.length; i++)
+				nodes[i] = readNode(nodes);
+
+			List<StartNode> starts = new ArrayList<>();
+			int startCount = buf.getInt();
+			for(int i = 0; i < startCount; i++)
+				starts.add((StartNode)nodes[buf.getInt()]);
+
+			int groupCount = buf.getInt();
+			int childCount = buf.getInt();
+			int[] groupOffsets = readInts(compactSize + 1);
+			int[] groupLocals = readInts(groupCount);
+			int[] childOffsets = readInts(groupCount + 1);
+			int[] children = readInts(childCount);
+			CompactDefUseGraph compact = new CompactDefUseGraph(nodes.length == compactSize ? nodes : Arrays.copyOf(nodes, compactSize),
+					locals, groupOffsets, groupLocals, childOffsets, children);
+
+			int inlineCount = buf.getInt();
+			Map<INode, Map<InlineConstantLocalWrapper, InlineConstantLeafNode>> inline = new HashMap<>();
+			for(int i = 0; i < inlineCount; i++) {
+				INode use = nodes[buf.getInt()];
+				int size = buf.getInt();
+				Map<InlineConstantLocalWrapper, InlineConstantLeafNode> m = new HashMap<>();
+				for(int j = 0; j < size; j++) {
+					long num = buf.getLong();
+					m.put(new InlineConstantLocalWrapper(num), (InlineConstantLeafNode)nodes[buf.getInt()]);
+				}
+				inline.put(use, m);
+			}
+			return new DefUseGraph(starts, inline, compact);
+		}
+
+		private int[] readInts(int size) {
+			int[] ret = new int[size];
+			buf.asIntBuffer().get(ret);
+			buf.position(buf.position() + size * 4);
+			return ret;
+		}
+
+		private INode readNode(INode[] nodes) throws IOException {
+			byte type = buf.get();
+			if(type == INLINE_CONSTANT_LEAF) {
+				INode main = nodes[buf.getInt()];
+				return new InlineConstantLeafNode(main, buf.getInt());
+			}
+			String sourceSig = getString(buf.getInt());
+			int unitIndex = buf.getInt();
+			String unitSig = getString(buf.getInt());
+			int extra = buf.getInt();
+			Identifier identifier = IdentifierBinaryIO.read(buf, this);
+
+			SootMethod source = Scene.v().getMethod(sourceSig);
+			List<Unit> us = units.get(sourceSig);
+			if(us == null) {
+				us = new ArrayList<>(source.retrieveActiveBody().getUnits());
+				units.put(sourceSig, us);
+			}
+			if(unitIndex < 0 || unitIndex >= us.size())
+				throw new IOException("Error: Unable to locate the unit with index " + unitIndex + " in '" + sourceSig + "'.");
+			Unit unit = us.get(unitIndex);
+			if(!unit.toString().equals(unitSig)) //Sanity check because local names need to be consistent
+				throw new IOException("Error: The read in unit signature '" + unitSig +
+						"' does not match the stored unit signature '" + unit.toString() + "' of '" + sourceSig + ".");
+			identifier.initSootComponents(unit);
+
+			switch(type) {
+				case START: return new StartNode(source, unit, identifier);
+				case INVOKE_START: return new InvokeStartNode(source, unit, getTarget(extra, unit), identifier);
+				case FIELD_START: return new FieldStartNode(source, unit, getField(extra, unit), identifier);
+				case NODE: return new Node(source, unit, identifier);
+				case INVOKE_NODE: return new InvokeNode(source, unit, getTarget(extra, unit), identifier);
+				case FIELD_NODE: return new FieldNode(source, unit, getField(extra, unit), identifier);
+				case LEAF: return new LeafNode(source, unit, identifier);
+				case INVOKE_LEAF: return new InvokeLeafNode(source, unit, getTarget(extra, unit), identifier);
+				case FIELD_LEAF: return new FieldLeafNode(source, unit, getField(extra, unit), identifier);
+				case INVOKE_CONSTANT_LEAF: return new InvokeConstantLeafNode(source, unit, extra, identifier);
+				default: throw new IOException("Error: Unknown node type '" + type + "' in '" + path + "'.");
+			}
+		}
+
+		//Targets missing from the scene are phantom and resolved through the reference of the unit as the xml format does
+		private SootMethod getTarget(int index, Unit unit) throws IOException {
+			if(index < 0)
+				return null;
+			String sig = getString(index);
+			if(Scene.v().containsMethod(sig))
+				return Scene.v().getMethod(sig);
+			SootMethod ret = ((Stmt)unit).getInvokeExpr().getMethodRef().resolve();
+			if(ret == null || !ret.getSignature().equals(sig))
+				throw new IOException("Error: Unable to resolve the target method '" + sig + "'.");
+			return ret;
+		}
+
+		private SootField getField(int index, Unit unit) throws IOException {
+			if(index < 0)
+				return null;
+			String sig = getString(index);
+			if(Scene.v().containsField(sig))
+				return Scene.v().getField(sig);
+			SootField ret = ((Stmt)unit).getFieldRef().getFieldRef().resolve();
+			if(ret == null || !ret.getSignature().equals(sig))
+				throw new IOException("Error: Unable to resolve the field '" + sig + "'.");
+			return ret;
+		}
+
+	}
+
+}
@@ -1,6 +1,7 @@
 package org.sag.acminer.database.defusegraph;
 
 import java.io.ObjectStreamException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -31,6 +32,10 @@ public class DefUseGraphDatabase extends FileHashDatabase implements IDefUseGrap
 	
 	@XStreamOmitField
 	private Map<EntryPoint, EntryPointInfo> data;
+	
+	//Only controls the format of newly written graphs, existing graphs are read based on their file extension
+	@XStreamOmitField
+	private volatile boolean binary;
 
 	public DefUseGraphDatabase(boolean isNew) {
 		if(isNew)
@@ -39,6 +44,7 @@ public class DefUseGraphDatabase extends FileHashDatabase implements IDefUseGrap
 			this.data = null;
 		this.info = null;
 		this.fhl = null;
+		this.binary = false;
 	}
 	
 	//ReadResolve is always run when reading from XML even if a constructor is run first
@@ -58,15 +64,68 @@ public class DefUseGraphDatabase extends FileHashDatabase implements IDefUseGrap
 		Objects.requireNonNull(ep);
 		Objects.requireNonNull(graph);
 		loadSootResolvedData();
-		Path output = FileHelpers.getPath(outDir, FileHelpers.getHashOfString("MD5", ep.toString()) + ".xml");
+		Path output = FileHelpers.getPath(outDir, FileHelpers.getHashOfString("MD5", ep.toString()) 
+				+ (binary ? DefUseGraphBinaryIO.BINARY_EXT : DefUseGraphBinaryIO.XML_EXT));
 		if(FileHelpers.checkRWFileExists(output))
 			throw new Exception("Error: A file name collision has occured for '" + ep.toString() + "' at '" + output.toString() + "'");
-		graph.writeXML(null, output);
+		DefUseGraphBinaryIO.writeAny(graph, output);
 		synchronized(this) {
 			data.put(ep, new EntryPointInfo(ep, output));
 		}
 	}
 	
+	@Override
+	public void setBinaryFormat(boolean binary) {
+		this.binary = binary;
+	}
+	
+	@Override
+	public boolean isBinaryFormat() {
+		return binary;
+	}
+	
+	@Override
+	public int convertDefUseGraphs(Path dir, boolean binary) throws Exception {
+		loadSootResolvedData();
+		Map<EntryPoint, EntryPointInfo> toConvert;
+		synchronized(this) {
+			toConvert = new HashMap<>(data);
+		}
+		//Write all converted graphs before touching the originals so a failure leaves the directory and database as they were
+		Map<EntryPoint, Path> ins = new HashMap<>();
+		Map<EntryPoint, Path> outs = new HashMap<>();
+		try {
+			for(EntryPoint ep : toConvert.keySet()) {
+				Path in = toConvert.get(ep).getFilePath(dir);
+				if(DefUseGraphBinaryIO.isBinaryFile(in) == binary)
+					continue;
+				String name = in.getFileName().toString();
+				Path out = FileHelpers.getPath(dir, name.substring(0, name.lastIndexOf('.')) 
+						+ (binary ? DefUseGraphBinaryIO.BINARY_EXT : DefUseGraphBinaryIO.XML_EXT));
+				if(Files.exists(out))
+					throw new Exception("Error: Cannot convert '" + in + "' as '" + out + "' already exists.");
+				outs.put(ep, out);
+				ins.put(ep, in);
+				DefUseGraphBinaryIO.convert(in, out);
+			}
+		} catch(Throwable t) {
+			for(Path out : outs.values()) {
+				Files.deleteIfExists(out);
+			}
+			throw t;
+		}
+		synchronized(this) {
+			for(EntryPoint ep : outs.keySet()) {
+				data.put(ep, new EntryPointInfo(ep, outs.get(ep)));
+			}
+			this.binary = binary;
+		}
+		for(Path in : ins.values()) {
+			Files.delete(in);
+		}
+		return outs.size();
+	}
+	
 	@Override
 	public DefUseGraph getDefUseGraph(EntryPoint ep, Path dir) throws Exception {
 		loadSootResolvedData();
@@ -31,6 +31,19 @@ public class EmptyDefUseGraphDatabase implements IDefUseGraphDatabase {
 		return null;
 	}
 
+	@Override
+	public void setBinaryFormat(boolean binary) {}
+	
+	@Override
+	public boolean isBinaryFormat() {
+		return false;
+	}
+	
+	@Override
+	public int convertDefUseGraphs(Path dir, boolean binary) throws Exception {
+		return 0;
+	}
+
 	@Override
 	public void writeXML(String filePath, Path path) throws Exception {
 		XStreamInOut.writeXML(this, filePath, path);
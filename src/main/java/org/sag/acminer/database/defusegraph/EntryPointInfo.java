@@ -77,7 +77,7 @@ public class EntryPointInfo implements XStreamInOutInterface {
 	
 	public DefUseGraph getDefUseGraphUnchecked(Path dir) {
 		try {
-			return DefUseGraph.readXMLStatic(null, getFilePath(dir));
+			return DefUseGraphBinaryIO.readAny(getFilePath(dir));
 		} catch(Throwable t) {
 			return null;
 		}
@@ -23,6 +23,14 @@ public interface IDefUseGraphDatabase extends XStreamInOutInterface {
 	public boolean equals(Object o);
 	public int hashCode();
 	public DefUseGraph getDefUseGraphUnchecked(EntryPoint ep, Path dir) throws Exception;
+	/** Sets if newly written graphs use the binary format of {@link DefUseGraphBinaryIO} instead of xml. */
+	public void setBinaryFormat(boolean binary);
+	public boolean isBinaryFormat();
+	/** Converts all graphs in the given directory that are not in the requested format and returns the number converted. 
+	 * All graphs are converted before any original is removed so a failure leaves the directory unchanged. The database
+	 * must be written again afterwards as the file names of the converted graphs change. This is only run explicitly
+	 * through the --ConvertDefUseGraphs option of ACMinerAnalysisHelpers and never when a phase loads existing graphs. */
+	public int convertDefUseGraphs(Path dir, boolean binary) throws Exception;
 	
 	public static final class Factory {
 		public static IDefUseGraphDatabase getNew(boolean empty) {
@@ -14,6 +14,8 @@ import org.sag.soot.xstream.SootFieldContainer;
 import org.sag.soot.xstream.SootMethodContainer;
 import org.sag.soot.xstream.SootUnitContainer;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.thoughtworks.xstream.XStream;
 
 import soot.Local;
@@ -44,7 +46,8 @@ public interface INode extends XStreamInOutInterface, Comparable<INode> {
 
 	public static final class Factory {
 		
-		private static Map<INode,INode> existingNodes = null;
+		//Weak so nodes are only kept while some def use graph still uses them (i.e. until the graphs are written and dropped)
+		private static volatile Interner<INode> existingNodes = null;
 		private static Map<INode,INode> nodeToCopy = null;
 		
 		public static void reset() {
@@ -54,7 +57,7 @@ public interface INode extends XStreamInOutInterface, Comparable<INode> {
 		
 		public static void init() {
 			if(existingNodes == null) {
-				existingNodes = new HashMap<>();
+				existingNodes = Interners.newWeakInterner();
 				nodeToCopy = new HashMap<>();
 			}
 		}
@@ -64,15 +67,7 @@ public interface INode extends XStreamInOutInterface, Comparable<INode> {
 			if(existingNodes == null)
 				throw new RuntimeException("Error: The existing nodes list has not been initilized!");
 			
-			InlineConstantLeafNode ret = new InlineConstantLeafNode(cur, index);
-			synchronized(existingNodes) {
-				InlineConstantLeafNode r = (InlineConstantLeafNode)existingNodes.get(ret);
-				if(r != null)
-					ret = r;
-				else
-					existingNodes.put(ret, ret);
-			}
-			return ret;
+			return (InlineConstantLeafNode)existingNodes.intern(new InlineConstantLeafNode(cur, index));
 		}
 		
 		public static final StartNode getNewStart(SootMethod source, Unit unit) {
@@ -130,14 +125,7 @@ public interface INode extends XStreamInOutInterface, Comparable<INode> {
 				throw new RuntimeException("Error: Unhandled unit '" + unit + "' of " + source + "'.");
 			}
 			
-			synchronized(existingNodes) {
-				INode r = existingNodes.get(ret);
-				if(r != null)
-					ret = r;
-				else
-					existingNodes.put(ret, ret);
-			}
-			return ret;
+			return existingNodes.intern(ret);
 		}
 		
 		public static final InlineConstantLeafNode modifyInlineConstantLeafNode(INode cur, int index) {
@@ -47,7 +47,23 @@ public class LocalWrapper implements ILocalWrapper {
 		this.sourceSig = source.getSignature();
 	}
 	
+	//Used by the binary format which stores the same fields as the xml format
+	static LocalWrapper resolve(long num, String orgString, String sourceSig) {
+		LocalWrapper ret = new LocalWrapper();
+		ret.num = num;
+		ret.orgString = orgString;
+		ret.globalString = "$z{" + num + "}";
+		ret.sourceSig = sourceSig;
+		ret.resolveSootComponents();
+		return ret;
+	}
+	
 	protected Object readResolve() throws ObjectStreamException {
+		resolveSootComponents();
+		return this;
+	}
+	
+	private void resolveSootComponents() {
 		if(!SootInstanceWrapper.v().isSootInitSet())
 			throw new RuntimeException("Error: Soot needs to be initilized before loading.");
 		source = Scene.v().getMethod(sourceSig);
@@ -60,7 +76,6 @@ public class LocalWrapper implements ILocalWrapper {
 		}
 		if(local == null) 
 			throw new RuntimeException("Error: Unable to find local '" + orgString + "' in '" + sourceSig + "'.");
-		return this;
 	}
 	
 	protected Object writeReplace() throws ObjectStreamException {
@@ -79,6 +94,10 @@ public class LocalWrapper implements ILocalWrapper {
 		return orgString;
 	}
 	
+	String getSourceSignature() {
+		return sourceSig;
+	}
+	
 	@Override
 	public String toString() {
 		return globalString;
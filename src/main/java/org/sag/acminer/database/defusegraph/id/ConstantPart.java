@@ -15,6 +15,13 @@ public class ConstantPart extends ValuePart {
 		super(c.toString(), curString);
 		this.c = c;
 	}
+
+	//Soot components are set by Identifier.initSootComponents
+	ConstantPart(String orgString, String curString, int index) {
+		super(orgString, curString);
+		this.setIndex(index);
+		this.c = null;
+	}
 	
 	private ConstantPart(ConstantPart p) {
 		super(p.getOrgString(), p.getCurString());
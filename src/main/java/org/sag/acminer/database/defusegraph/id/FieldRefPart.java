@@ -21,6 +21,14 @@ public class FieldRefPart extends ValuePart {
 		this.t = t;
 		this.fr = null;
 	}
+
+	//Soot components are set by Identifier.initSootComponents
+	FieldRefPart(String orgString, String curString, int index) {
+		super(orgString, curString);
+		this.setIndex(index);
+		this.t = null;
+		this.fr = null;
+	}
 	
 	private FieldRefPart(FieldRefPart p) {
 		super(p.getOrgString(), p.getCurString());
@@ -38,14 +38,25 @@ import soot.jimple.InvokeExpr;
 import soot.jimple.Stmt;
 import soot.jimple.SwitchStmt;
 
+import com.google.common.collect.ForwardingIterator;
+import com.google.common.collect.ForwardingListIterator;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 import com.thoughtworks.xstream.annotations.XStreamConverter;
 import com.thoughtworks.xstream.annotations.XStreamOmitField;
 
+/** Equality and hashing of identifiers is based on their string. The string is built once from the parts and cached
+ * until the identifier is modified through one of its own methods. Cached strings are interned so equal identifiers
+ * share one string instance and usually compare by reference. Note parts should not be modified in place once they
+ * are part of an identifier whose string may have been cached. Instead a modified copy of the part should be set.
+ */
 @XStreamAlias("Identifier")
 public class Identifier implements List<Part> {
 	
+	private static final Interner<String> strings = Interners.newWeakInterner();
+	
 	@XStreamAlias("Parts")
 	@XStreamConverter(value=NamedCollectionConverterWithSize.class,strings={"Part"},types={Part.class})
 	private ArrayList<Part> parts;
@@ -53,6 +64,9 @@ public class Identifier implements List<Part> {
 	@XStreamOmitField
 	private boolean inited;
 	
+	@XStreamOmitField
+	private volatile String str;
+	
 	protected Identifier() { this.inited = false; }
 	
 	private Identifier(List<Part> parts) {
@@ -60,6 +74,13 @@ public class Identifier implements List<Part> {
 		this.inited = true;
 	}
 	
+	//Like identifiers read from xml, the soot components of these parts are resolved later by initSootComponents
+	static Identifier makeUnresolved(List<Part> parts) {
+		Identifier ret = new Identifier(parts);
+		ret.inited = false;
+		return ret;
+	}
+
 	public int hashCode() {
 		return toString().hashCode();
 	}
@@ -69,16 +90,26 @@ public class Identifier implements List<Part> {
 			return true;
 		if(o == null || !(o instanceof Identifier))
 			return false;
-		Identifier id = (Identifier)o;
-		return this.toString().equals(id.toString());
+		String s1 = toString();
+		String s2 = o.toString();
+		return s1 == s2 || s1.equals(s2);
 	}
 	
 	public String toString() {
-		StringBuilder sb = new StringBuilder();
-		for(Part p : parts) {
-			sb.append(p.toString());
+		String s = str;
+		if(s == null) {
+			StringBuilder sb = new StringBuilder();
+			for(Part p : parts) {
+				sb.append(p.toString());
+			}
+			s = strings.intern(sb.toString());
+			str = s;
 		}
-		return sb.toString();
+		return s;
+	}
+	
+	private void modified() {
+		str = null;
 	}
 	
 	public Identifier clone() {
@@ -91,7 +122,18 @@ public class Identifier implements List<Part> {
 	
 	@Override
 	public Iterator<Part> iterator() {
-		return parts.iterator();
+		final Iterator<Part> it = parts.iterator();
+		return new ForwardingIterator<Part>() {
+			@Override
+			protected Iterator<Part> delegate() {
+				return it;
+			}
+			@Override
+			public void remove() {
+				it.remove();
+				modified();
+			}
+		};
 	}
 	
 	public int size() {
@@ -120,11 +162,13 @@ public class Identifier implements List<Part> {
 
 	@Override
 	public boolean add(Part e) {
+		modified();
 		return parts.add(e);
 	}
 
 	@Override
 	public boolean remove(Object o) {
+		modified();
 		return parts.remove(o);
 	}
 
@@ -135,26 +179,31 @@ public class Identifier implements List<Part> {
 
 	@Override
 	public boolean addAll(Collection<? extends Part> c) {
+		modified();
 		return parts.addAll(c);
 	}
 
 	@Override
 	public boolean addAll(int index, Collection<? extends Part> c) {
+		modified();
 		return parts.addAll(index, c);
 	}
 
 	@Override
 	public boolean removeAll(Collection<?> c) {
+		modified();
 		return parts.removeAll(c);
 	}
 
 	@Override
 	public boolean retainAll(Collection<?> c) {
+		modified();
 		return parts.retainAll(c);
 	}
 
 	@Override
 	public void clear() {
+		modified();
 		parts.clear();
 	}
 
@@ -165,16 +214,19 @@ public class Identifier implements List<Part> {
 
 	@Override
 	public Part set(int index, Part element) {
+		modified();
 		return parts.set(index, element);
 	}
 
 	@Override
 	public void add(int index, Part element) {
+		modified();
 		parts.add(index, element);
 	}
 
 	@Override
 	public Part remove(int index) {
+		modified();
 		return parts.remove(index);
 	}
 
@@ -190,17 +242,41 @@ public class Identifier implements List<Part> {
 
 	@Override
 	public ListIterator<Part> listIterator() {
-		return parts.listIterator();
+		return listIterator(0);
 	}
 
 	@Override
 	public ListIterator<Part> listIterator(int index) {
-		return parts.listIterator(index);
+		final ListIterator<Part> it = parts.listIterator(index);
+		return new ForwardingListIterator<Part>() {
+			@Override
+			protected ListIterator<Part> delegate() {
+				return it;
+			}
+			@Override
+			public void remove() {
+				it.remove();
+				modified();
+			}
+			@Override
+			public void set(Part e) {
+				it.set(e);
+				modified();
+			}
+			@Override
+			public void add(Part e) {
+				it.add(e);
+				modified();
+			}
+		};
 	}
 
+	/** Returns a read only view of the given range of parts since changes made through
+	 * a sub list would not invalidate the cached string of this identifier.
+	 */
 	@Override
 	public List<Part> subList(int fromIndex, int toIndex) {
-		return parts.subList(fromIndex, toIndex);
+		return Collections.unmodifiableList(parts.subList(fromIndex, toIndex));
 	}
 	
 	public void initSootComponents(Unit u) {
@@ -0,0 +1,198 @@
+package org.sag.acminer.database.defusegraph.id;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sag.acminer.database.defusegraph.LocalWrapper;
+
+/** Reads and writes the parts of an {@link Identifier} for the binary def use graph format. Strings and local
+ * wrappers are written as indexes into tables maintained by the caller through {@link Encoder} and {@link Decoder}.
+ * Like the xml format, only the strings of the parts are stored and the soot components of a read identifier must be
+ * resolved with {@link Identifier#initSootComponents(soot.Unit)}.
+ */
+public final class IdentifierBinaryIO {
+
+	private static final byte LITERAL = 0;
+	private static final byte STRING_CONSTANT = 1;
+	private static final byte PLACEHOLDER_CONSTANT = 2;
+	private static final byte UNKNOWN_CONSTANT = 3;
+	private static final byte PRIMITIVE_CONSTANT = 4;
+	private static final byte TYPE = 5;
+	private static final byte CONSTANT = 6;
+	private static final byte FIELD_REF = 7;
+	private static final byte IDENTITY_REF = 8;
+	private static final byte LOCAL = 9;
+	private static final byte METHOD_REF = 10;
+	private static final byte LOCAL_WRAPPER = 11;
+
+	private static final byte DOUBLE = 0;
+	private static final byte FLOAT = 1;
+	private static final byte LONG = 2;
+	private static final byte INT = 3;
+	private static final byte SHORT = 4;
+	private static final byte BYTE = 5;
+
+	public static interface Encoder {
+		public int getStringIndex(String s);
+		public int getLocalWrapperIndex(LocalWrapper lw);
+	}
+
+	public static interface Decoder {
+		public String getString(int index);
+		public LocalWrapper getLocalWrapper(int index);
+	}
+
+	private IdentifierBinaryIO() {}
+
+	public static void write(Identifier id, DataOutput out, Encoder enc) throws IOException {
+		out.writeInt(id.size());
+		for(Part p : id) {
+			if(p instanceof LiteralPart) {
+				out.writeByte(LITERAL);
+				out.writeInt(enc.getStringIndex(p.getCurString()));
+			} else if(p instanceof StringConstantPart) {
+				out.writeByte(STRING_CONSTANT);
+				out.writeInt(enc.getStringIndex(p.getCurString()));
+			} else if(p instanceof PlaceholderConstantPart) {
+				out.writeByte(PLACEHOLDER_CONSTANT);
+				out.writeInt(enc.getStringIndex(p.getCurString()));
+			} else if(p instanceof UnknownConstantPart) {
+				out.writeByte(UNKNOWN_CONSTANT);
+				out.writeInt(enc.getStringIndex(p.getCurString()));
+			} else if(p instanceof PrimitiveConstantPart) {
+				PrimitiveConstantPart pp = (PrimitiveConstantPart)p;
+				out.writeByte(PRIMITIVE_CONSTANT);
+				out.writeByte(pp.getType());
+				writeNumber(pp.getNumber(), out);
+				out.writeInt(enc.getStringIndex(pp.getCurString()));
+			} else if(p instanceof TypePart) {
+				out.writeByte(TYPE);
+				out.writeInt(enc.getStringIndex(p.getOrgString()));
+				out.writeInt(enc.getStringIndex(p.getCurString()));
+			} else if(p instanceof ValuePart) {
+				ValuePart vp = (ValuePart)p;
+				if(p instanceof ConstantPart)
+					out.writeByte(CONSTANT);
+				else if(p instanceof FieldRefPart)
+					out.writeByte(FIELD_REF);
+				else if(p instanceof IdentityRefPart)
+					out.writeByte(IDENTITY_REF);
+				else if(p instanceof LocalPart)
+					out.writeByte(LOCAL);
+				else if(p instanceof MethodRefPart)
+					out.writeByte(METHOD_REF);
+				else if(p instanceof LocalWrapperPart)
+					out.writeByte(LOCAL_WRAPPER);
+				else
+					throw new IOException("Error: Unhandled part type '" + p.getClass().getSimpleName() + "'.");
+				if(p instanceof LocalWrapperPart)
+					out.writeInt(enc.getLocalWrapperIndex(((LocalWrapperPart)p).getLocalWrapper()));
+				else
+					out.writeInt(enc.getStringIndex(vp.getOrgString()));
+				out.writeInt(enc.getStringIndex(vp.getCurString()));
+				out.writeInt(vp.getIndex());
+			} else {
+				throw new IOException("Error: Unhandled part type '" + p.getClass().getSimpleName() + "'.");
+			}
+		}
+	}
+
+	public static Identifier read(ByteBuffer in, Decoder dec) throws IOException {
+		int size = in.getInt();
+		List<Part> parts = new ArrayList<>(size);
+		for(int i = 0; i < size; i++) {
+			byte type = in.get();
+			switch(type) {
+				case LITERAL:
+					parts.add(new LiteralPart(dec.getString(in.getInt())));
+					break;
+				case STRING_CONSTANT:
+					parts.add(new StringConstantPart(dec.getString(in.getInt())));
+					break;
+				case PLACEHOLDER_CONSTANT:
+					parts.add(new PlaceholderConstantPart(dec.getString(in.getInt())));
+					break;
+				case UNKNOWN_CONSTANT:
+					parts.add(new UnknownConstantPart(dec.getString(in.getInt())));
+					break;
+				case PRIMITIVE_CONSTANT:
+					int t = in.get();
+					Number n = readNumber(in);
+					parts.add(new PrimitiveConstantPart(n, t, dec.getString(in.getInt())));
+					break;
+				case TYPE:
+					String typeOrg = dec.getString(in.getInt());
+					parts.add(new TypePart(typeOrg, dec.getString(in.getInt())));
+					break;
+				case LOCAL_WRAPPER:
+					LocalWrapperPart lwp = new LocalWrapperPart(dec.getLocalWrapper(in.getInt()), dec.getString(in.getInt()));
+					lwp.setIndex(in.getInt());
+					parts.add(lwp);
+					break;
+				case CONSTANT:
+				case FIELD_REF:
+				case IDENTITY_REF:
+				case LOCAL:
+				case METHOD_REF:
+					String org = dec.getString(in.getInt());
+					String cur = dec.getString(in.getInt());
+					int index = in.getInt();
+					if(type == CONSTANT)
+						parts.add(new ConstantPart(org, cur, index));
+					else if(type == FIELD_REF)
+						parts.add(new FieldRefPart(org, cur, index));
+					else if(type == IDENTITY_REF)
+						parts.add(new IdentityRefPart(org, cur, index));
+					else if(type == LOCAL)
+						parts.add(new LocalPart(org, cur, index));
+					else
+						parts.add(new MethodRefPart(org, cur, index));
+					break;
+				default:
+					throw new IOException("Error: Unknown part type '" + type + "'.");
+			}
+		}
+		return Identifier.makeUnresolved(parts);
+	}
+
+	private static void writeNumber(Number n, DataOutput out) throws IOException {
+		if(n instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble(n.doubleValue());
+		} else if(n instanceof Float) {
+			out.writeByte(FLOAT);
+			out.writeFloat(n.floatValue());
+		} else if(n instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong(n.longValue());
+		} else if(n instanceof Integer) {
+			out.writeByte(INT);
+			out.writeInt(n.intValue());
+		} else if(n instanceof Short) {
+			out.writeByte(SHORT);
+			out.writeShort(n.shortValue());
+		} else if(n instanceof Byte) {
+			out.writeByte(BYTE);
+			out.writeByte(n.byteValue());
+		} else {
+			throw new IOException("Error: Unhandled number type '" + n.getClass().getSimpleName() + "'.");
+		}
+	}
+
+	private static Number readNumber(ByteBuffer in) throws IOException {
+		byte type = in.get();
+		switch(type) {
+			case DOUBLE: return Double.valueOf(in.getDouble());
+			case FLOAT: return Float.valueOf(in.getFloat());
+			case LONG: return Long.valueOf(in.getLong());
+			case INT: return Integer.valueOf(in.getInt());
+			case SHORT: return Short.valueOf(in.getShort());
+			case BYTE: return Byte.valueOf(in.get());
+			default: throw new IOException("Error: Unknown number type '" + type + "'.");
+		}
+	}
+
+}
@@ -16,6 +16,13 @@ public class IdentityRefPart extends ValuePart {
 		super(t.toString(), curString);
 		this.t = t;
 	}
+
+	//Soot components are set by Identifier.initSootComponents
+	IdentityRefPart(String orgString, String curString, int index) {
+		super(orgString, curString);
+		this.setIndex(index);
+		this.t = null;
+	}
 	
 	private IdentityRefPart(IdentityRefPart p) {
 		super(p.getOrgString(), p.getCurString());
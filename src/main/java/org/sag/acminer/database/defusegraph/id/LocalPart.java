@@ -15,6 +15,13 @@ public class LocalPart extends ValuePart {
 		super(c.toString(), curString);
 		this.c = c;
 	}
+
+	//Soot components are set by Identifier.initSootComponents
+	LocalPart(String orgString, String curString, int index) {
+		super(orgString, curString);
+		this.setIndex(index);
+		this.c = null;
+	}
 	
 	private LocalPart(LocalPart p) {
 		super(p.getOrgString(), p.getCurString());
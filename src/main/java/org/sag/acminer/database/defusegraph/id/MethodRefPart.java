@@ -21,6 +21,14 @@ public class MethodRefPart extends ValuePart {
 		this.t = t;
 		this.ie = null;
 	}
+
+	//Soot components are set by Identifier.initSootComponents
+	MethodRefPart(String orgString, String curString, int index) {
+		super(orgString, curString);
+		this.setIndex(index);
+		this.t = null;
+		this.ie = null;
+	}
 	
 	private MethodRefPart(MethodRefPart p) {
 		super(p.getOrgString(), p.getCurString());
@@ -61,6 +61,12 @@ public class PrimitiveConstantPart implements Part {
 		}
 	}
 	
+	PrimitiveConstantPart(Number n, int type, String curString) {
+		this.n = n;
+		this.type = type;
+		this.curString = curString;
+	}
+	
 	private PrimitiveConstantPart(PrimitiveConstantPart p) {
 		this.n = p.n;
 		this.curString = p.curString;
@@ -102,6 +108,10 @@ public class PrimitiveConstantPart implements Part {
 		return new PrimitiveConstantPart(this);
 	}
 	
+	int getType() {
+		return type;
+	}
+	
 	public Number getNumber() {
 		return n;
 	}
@@ -22,6 +22,13 @@ public class TypePart implements Part {
 		this.curString = curString;
 		this.orgString = t.toString();
 	}
+
+	//The type is set by Identifier.initSootComponents
+	TypePart(String orgString, String curString) {
+		this.t = null;
+		this.orgString = orgString;
+		this.curString = curString;
+	}
 	
 	private TypePart(TypePart p) {
 		this.t = p.t;
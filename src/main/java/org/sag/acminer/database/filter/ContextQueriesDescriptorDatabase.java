@@ -16,6 +16,7 @@ import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
+import org.sag.acminer.database.filter.entry.CompiledEntry;
 import org.sag.acminer.database.filter.entry.IEntry;
 import org.sag.acminer.database.filter.matcher.SootMatcher;
 import org.sag.common.io.FileHash;
@@ -41,6 +42,8 @@ public class ContextQueriesDescriptorDatabase implements XStreamInOutInterface {
 	//XStream hack so this does not get its own name
 	@XStreamImplicit
 	private List<IEntry> entries;
+	@XStreamOmitField
+	private volatile CompiledEntry compiled;
 	
 	private ContextQueriesDescriptorDatabase() {}//For use with xstream only
 	
@@ -79,10 +82,24 @@ public class ContextQueriesDescriptorDatabase implements XStreamInOutInterface {
 		return matchesDebug(new MethodData(signature), sb); 
 	}
 	
+	/** Evaluates the descriptor using the {@link CompiledEntry} of the descriptor which is compiled on first use. */
 	public boolean matches(IData data) {
-		return entries.get(0).eval(data);
+		CompiledEntry ret = compiled;
+		if(ret == null) {
+			synchronized(this) {
+				ret = compiled;
+				if(ret == null) {
+					ret = CompiledEntry.compile(entries.get(0));
+					compiled = ret;
+				}
+			}
+		}
+		return ret.eval(data);
 	}
 	
+	/** Evaluates the descriptor using the original entries so the trace of the evaluation can be recorded. This returns
+	 * the same result as {@link #matches(IData)}.
+	 */
 	public boolean matchesDebug(IData data, StringBuilder sb) {
 		return entries.get(0).evalDebug(data, sb, new AtomicInteger());
 	}
@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.sag.acminer.database.filter.entry.CompiledEntry;
 import org.sag.acminer.database.filter.entry.IEntry;
 import org.sag.common.io.FileHash;
 import org.sag.common.io.FileHashList;
@@ -27,6 +28,8 @@ public class ControlPredicateFilterDatabase implements XStreamInOutInterface {
 	//XStream hack so this does not get its own name
 	@XStreamImplicit
 	private List<IEntry> entries;
+	@XStreamOmitField
+	private volatile CompiledEntry compiled;
 	
 	private ControlPredicateFilterDatabase() {}//For use with xstream only
 	
@@ -53,10 +56,24 @@ public class ControlPredicateFilterDatabase implements XStreamInOutInterface {
 		this.fhl = fhl;
 	}
 	
+	/** Evaluates the filter using the {@link CompiledEntry} of the filter which is compiled on first use. */
 	public boolean applyFilter(IData data) {
-		return entries.get(0).eval(data);
+		CompiledEntry ret = compiled;
+		if(ret == null) {
+			synchronized(this) {
+				ret = compiled;
+				if(ret == null) {
+					ret = CompiledEntry.compile(entries.get(0));
+					compiled = ret;
+				}
+			}
+		}
+		return ret.eval(data);
 	}
 	
+	/** Evaluates the filter using the original entries so the trace of the evaluation can be recorded. This returns
+	 * the same result as {@link #applyFilter(IData)}.
+	 */
 	public boolean applyFilterDebug(IData data, StringBuilder sb) {
 		return entries.get(0).evalDebug(data, sb, new AtomicInteger());
 	}
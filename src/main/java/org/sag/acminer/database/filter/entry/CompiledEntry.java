@@ -0,0 +1,478 @@
+package org.sag.acminer.database.filter.entry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sag.acminer.database.defusegraph.DefUseGraph;
+import org.sag.acminer.database.defusegraph.INode;
+import org.sag.acminer.database.defusegraph.StartNode;
+import org.sag.acminer.database.filter.IData;
+import org.sag.acminer.database.filter.IData.IDefUseGraphData;
+import org.sag.acminer.database.filter.IData.IMethodData;
+import org.sag.acminer.database.filter.IData.IStmtData;
+import org.sag.acminer.database.filter.entry.IValueUseEntry.NodeMatcher;
+import org.sag.acminer.database.filter.matcher.SootMatcher;
+import org.sag.acminer.database.filter.matcher.SootMatcherIndex;
+import org.sag.acminer.database.filter.restrict.Restrictions;
+
+import soot.SootMethod;
+
+/** An evaluator compiled from a tree of {@link IEntry} that returns the same result as {@link IEntry#eval(IData)} on the
+ * tree but does less work per evaluation:
+ * <ul>
+ * <li>Equal subtrees are compiled to a single node whose result is computed at most once per evaluation.</li>
+ * <li>All {@link IValueUseEntry} share a single walk of the def use graph from the start node per evaluation.</li>
+ * <li>Each {@link Restrictions} is applied at most once per evaluation for a given set of matched nodes.</li>
+ * <li>All {@link KeepMethodIsEntry} and all {@link KeepSourceMethodIsEntry} are matched together through a
+ * {@link SootMatcherIndex} so the method of an evaluation is examined once for all of them.</li>
+ * <li>The children of {@link AndEntry} and {@link OrEntry} are reordered so that those that are cheap and most likely to
+ * decide the result are evaluated first. The order starts from an estimate of the cost of each child and is periodically
+ * recomputed from the measured cost and results of each child. Only a sample of the evaluations is measured so that
+ * the threads evaluating the same compiled form do not contend on the statistics or pay for the timing on every node.</li>
+ * </ul>
+ * Evaluating an entry has no side effects so neither the sharing nor the reordering changes the result. The compiled
+ * form does not produce a trace, so {@link IEntry#evalDebug(IData, StringBuilder, AtomicInteger)} should still be used
+ * on the original tree when one is needed. The compiled form is thread safe.
+ */
+public final class CompiledEntry {
+
+	//One in this many evaluations is measured
+	private static final int sampleInterval = 64;
+	//The number of measured evaluations of a And or Or between each reordering of its children
+	private static final int reorderInterval = 16;
+
+	private final Node root;
+	private final int nodeCount;
+	private final SootMatcherIndex methodIndex;
+	private final SootMatcherIndex sourceIndex;
+
+	private CompiledEntry(Node root, int nodeCount, SootMatcherIndex methodIndex, SootMatcherIndex sourceIndex) {
+		this.root = root;
+		this.nodeCount = nodeCount;
+		this.methodIndex = methodIndex;
+		this.sourceIndex = sourceIndex;
+	}
+
+	public static CompiledEntry compile(IEntry entry) {
+		Map<Key,Node> compiled = new HashMap<>();
+		List<SootMatcher> methodMatchers = new ArrayList<>();
+		List<SootMatcher> sourceMatchers = new ArrayList<>();
+		Node root = compile(entry, compiled, methodMatchers, sourceMatchers);
+		return new CompiledEntry(root, compiled.size(), SootMatcherIndex.build(methodMatchers),
+				SootMatcherIndex.build(sourceMatchers));
+	}
+
+	private static Node compile(IEntry entry, Map<Key,Node> compiled, List<SootMatcher> methodMatchers,
+			List<SootMatcher> sourceMatchers) {
+		Key key = new Key(entry);
+		Node ret = compiled.get(key);
+		if(ret != null)
+			return ret;
+		if(entry instanceof AndEntry || entry instanceof OrEntry) {
+			List<Node> children = new ArrayList<>();
+			for(IEntry e : ((IBooleanEntry)entry).getEntries()) {
+				children.add(compile(e, compiled, methodMatchers, sourceMatchers));
+			}
+			ret = new BooleanNode(compiled.size(), entry, entry instanceof AndEntry, children);
+		} else if(entry instanceof NotEntry) {
+			Node child = compile(((NotEntry)entry).getEntries().get(0), compiled, methodMatchers, sourceMatchers);
+			ret = new NotNode(compiled.size(), entry, child);
+		} else if(entry instanceof KeepMethodIsEntry) {
+			methodMatchers.add((KeepMethodIsEntry)entry);
+			ret = new MethodIsNode(compiled.size(), entry, false, methodMatchers.size() - 1);
+		} else if(entry instanceof KeepSourceMethodIsEntry) {
+			sourceMatchers.add((KeepSourceMethodIsEntry)entry);
+			ret = new MethodIsNode(compiled.size(), entry, true, sourceMatchers.size() - 1);
+		} else if(entry instanceof IValueUseEntry) {
+			ret = new ValueUseNode(compiled.size(), (IValueUseEntry)entry);
+		} else {
+			ret = new LeafNode(compiled.size(), entry);
+		}
+		compiled.put(key, ret);
+		return ret;
+	}
+
+	public boolean eval(IData data) {
+		boolean sampled = ThreadLocalRandom.current().nextInt(sampleInterval) == 0;
+		return root.eval(new Context(data, nodeCount, methodIndex, sourceIndex, sampled));
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		root.toString(sb, "");
+		return sb.toString();
+	}
+
+	/** The state of a single evaluation. This holds the results of the nodes already evaluated, the matches of the
+	 * method of the data, the nodes reachable from the start node in the def use graph, and the results of the
+	 * restrictions already applied.
+	 */
+	private static final class Context {
+
+		private final IData data;
+		//True if the statistics of the nodes should be updated for this evaluation
+		private final boolean sampled;
+		//0 = not evaluated, 1 = false, 2 = true
+		private final byte[] results;
+		private final SootMatcherIndex methodIndex;
+		private final SootMatcherIndex sourceIndex;
+		private SootMatcherIndex.Match methodMatch;
+		private SootMatcherIndex.Match sourceMatch;
+		private List<INode> reachable;
+		private Map<Restrictions,Map<Set<INode>,Boolean>> restrictionResults;
+
+		public Context(IData data, int nodeCount, SootMatcherIndex methodIndex, SootMatcherIndex sourceIndex,
+				boolean sampled) {
+			this.data = data;
+			this.sampled = sampled;
+			this.results = new byte[nodeCount];
+			this.methodIndex = methodIndex;
+			this.sourceIndex = sourceIndex;
+			this.methodMatch = null;
+			this.sourceMatch = null;
+			this.reachable = null;
+			this.restrictionResults = null;
+		}
+
+		/** Returns the matches of the method of the data as used by {@link KeepMethodIsEntry} or null if the data
+		 * has no method. */
+		public SootMatcherIndex.Match getMethodMatch() {
+			if(methodMatch == null && data instanceof IMethodData) {
+				SootMethod m = ((IMethodData)data).getMethod();
+				if(m != null)
+					methodMatch = methodIndex.match(m);
+				else
+					methodMatch = methodIndex.match(((IMethodData)data).getMethodSignature());
+			}
+			return methodMatch;
+		}
+
+		/** Returns the matches of the source method of the data as used by {@link KeepSourceMethodIsEntry} or null if
+		 * the data has no source method. */
+		public SootMatcherIndex.Match getSourceMatch() {
+			if(sourceMatch == null && data instanceof IStmtData)
+				sourceMatch = sourceIndex.match(((IStmtData)data).getSource());
+			return sourceMatch;
+		}
+
+		public List<INode> getReachableNodes() {
+			if(reachable == null) {
+				DefUseGraph vt = ((IDefUseGraphData)data).getDefUseGraph();
+				StartNode sn = ((IDefUseGraphData)data).getStartNode();
+				List<INode> ret = new ArrayList<>();
+				Set<INode> visited = new HashSet<>();
+				Deque<INode> toVisit = new LinkedList<>();
+				toVisit.push(sn);
+				while(!toVisit.isEmpty()) {
+					INode cur = toVisit.pop();
+					if(visited.add(cur)) {
+						ret.add(cur);
+						for(INode vn : vt.getChildNodesView(cur)) {
+							if(!visited.contains(vn))
+								toVisit.push(vn);
+						}
+					}
+				}
+				reachable = ret;
+			}
+			return reachable;
+		}
+
+		/** Returns true if the restrictions do not eliminate all of the given nodes. */
+		public boolean applyRestrictions(Restrictions restrictions, Set<INode> in) {
+			if(restrictionResults == null)
+				restrictionResults = new HashMap<>();
+			Map<Set<INode>,Boolean> results = restrictionResults.get(restrictions);
+			if(results == null) {
+				results = new HashMap<>();
+				restrictionResults.put(restrictions, results);
+			}
+			Boolean ret = results.get(in);
+			if(ret == null) {
+				DefUseGraph vt = ((IDefUseGraphData)data).getDefUseGraph();
+				StartNode sn = ((IDefUseGraphData)data).getStartNode();
+				//Pass a copy so the key is not affected by the restrictions
+				ret = !restrictions.applyRestriction(sn, null, vt, new HashSet<>(in), null, null).isEmpty();
+				results.put(in, ret);
+			}
+			return ret;
+		}
+
+	}
+
+	private static abstract class Node {
+
+		protected final int id;
+		protected final IEntry entry;
+		private final AtomicLong evals;
+		private final AtomicLong trues;
+		private final AtomicLong nanos;
+
+		public Node(int id, IEntry entry) {
+			this.id = id;
+			this.entry = entry;
+			this.evals = new AtomicLong();
+			this.trues = new AtomicLong();
+			this.nanos = new AtomicLong();
+		}
+
+		protected abstract boolean evalInner(Context ctx);
+
+		/** An estimate of the cost of evaluating this node relative to the other nodes before any have been measured. */
+		protected abstract double getEstimatedCost();
+
+		public boolean eval(Context ctx) {
+			byte r = ctx.results[id];
+			if(r != 0)
+				return r == 2;
+			boolean ret;
+			if(ctx.sampled) {
+				long start = System.nanoTime();
+				ret = evalInner(ctx);
+				nanos.addAndGet(System.nanoTime() - start);
+				evals.incrementAndGet();
+				if(ret)
+					trues.incrementAndGet();
+			} else {
+				ret = evalInner(ctx);
+			}
+			ctx.results[id] = ret ? (byte)2 : (byte)1;
+			return ret;
+		}
+
+		/** Returns the expected cost of evaluating this node over the probability that the result is the given value,
+		 * i.e. how much it is expected to cost to short circuit a And (false) or Or (true) with this node. Lower is better.
+		 */
+		public double getRank(boolean shortCircuitOn) {
+			long n = evals.get();
+			double cost;
+			double p;
+			if(n == 0) {
+				cost = getEstimatedCost();
+				p = 0.5;
+			} else {
+				//Measured in microseconds so it is on roughly the same scale as the estimates
+				cost = (nanos.get() / 1000.0) / n;
+				p = (double)trues.get() / n;
+				if(!shortCircuitOn)
+					p = 1 - p;
+			}
+			return cost / Math.max(p, 0.01);
+		}
+
+		public void toString(StringBuilder sb, String pad) {
+			sb.append(pad).append(entry.getName()).append(" sampled=").append(evals.get()).append(" trues=").append(trues.get())
+				.append(" nanos=").append(nanos.get()).append("\n");
+		}
+
+	}
+
+	private static final class BooleanNode extends Node {
+
+		private final boolean isAnd;
+		private volatile Node[] children;
+		private final AtomicLong count;
+
+		public BooleanNode(int id, IEntry entry, boolean isAnd, List<Node> children) {
+			super(id, entry);
+			this.isAnd = isAnd;
+			this.count = new AtomicLong();
+			this.children = children.toArray(new Node[children.size()]);
+			reorder();
+		}
+
+		@Override
+		protected boolean evalInner(Context ctx) {
+			if(ctx.sampled && count.incrementAndGet() % reorderInterval == 0)
+				reorder();
+			for(Node child : children) {
+				//And stops on the first false and Or on the first true
+				if(child.eval(ctx) != isAnd)
+					return !isAnd;
+			}
+			return isAnd;
+		}
+
+		private void reorder() {
+			Node[] cur = children;
+			//Rank a snapshot so the order is consistent while the statistics are being updated concurrently
+			final double[] ranks = new double[cur.length];
+			List<Integer> order = new ArrayList<>();
+			for(int i = 0; i < cur.length; i++) {
+				ranks[i] = cur[i].getRank(!isAnd);
+				order.add(i);
+			}
+			Collections.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer o1, Integer o2) {
+					return Double.compare(ranks[o1], ranks[o2]);
+				}
+			});
+			Node[] ret = new Node[cur.length];
+			for(int i = 0; i < ret.length; i++) {
+				ret[i] = cur[order.get(i)];
+			}
+			children = ret;
+		}
+
+		@Override
+		protected double getEstimatedCost() {
+			double ret = 0;
+			for(Node child : children) {
+				ret += child.getEstimatedCost();
+			}
+			return ret;
+		}
+
+		@Override
+		public void toString(StringBuilder sb, String pad) {
+			super.toString(sb, pad);
+			for(Node child : children) {
+				child.toString(sb, pad + "  ");
+			}
+		}
+
+	}
+
+	private static final class NotNode extends Node {
+
+		private final Node child;
+
+		public NotNode(int id, IEntry entry, Node child) {
+			super(id, entry);
+			this.child = child;
+		}
+
+		@Override
+		protected boolean evalInner(Context ctx) {
+			return !child.eval(ctx);
+		}
+
+		@Override
+		protected double getEstimatedCost() {
+			return child.getEstimatedCost();
+		}
+
+		@Override
+		public void toString(StringBuilder sb, String pad) {
+			super.toString(sb, pad);
+			child.toString(sb, pad + "  ");
+		}
+
+	}
+
+	private static final class ValueUseNode extends Node {
+
+		private final IValueUseEntry valueUseEntry;
+
+		public ValueUseNode(int id, IValueUseEntry entry) {
+			super(id, entry);
+			this.valueUseEntry = entry;
+		}
+
+		@Override
+		protected boolean evalInner(Context ctx) {
+			NodeMatcher nm = valueUseEntry.getNodeMatcher(ctx.data);
+			if(nm == null)
+				return false;
+			Set<INode> matched = new HashSet<>();
+			for(INode cur : ctx.getReachableNodes()) {
+				if(nm.matches(cur))
+					matched.add(cur);
+			}
+			if(matched.isEmpty())
+				return false;
+			Restrictions restrictions = valueUseEntry.getRestrictions();
+			if(restrictions == null)
+				return true;
+			return ctx.applyRestrictions(restrictions, matched);
+		}
+
+		@Override
+		protected double getEstimatedCost() {
+			return valueUseEntry.getRestrictions() == null ? 20 : 40;
+		}
+
+	}
+
+	private static final class MethodIsNode extends Node {
+
+		private final boolean isSource;
+		private final int matcher;
+
+		public MethodIsNode(int id, IEntry entry, boolean isSource, int matcher) {
+			super(id, entry);
+			this.isSource = isSource;
+			this.matcher = matcher;
+		}
+
+		@Override
+		protected boolean evalInner(Context ctx) {
+			SootMatcherIndex.Match m = isSource ? ctx.getSourceMatch() : ctx.getMethodMatch();
+			if(m == null)
+				return false;
+			return m.matches(matcher);
+		}
+
+		@Override
+		protected double getEstimatedCost() {
+			return 1;
+		}
+
+	}
+
+	private static final class LeafNode extends Node {
+
+		public LeafNode(int id, IEntry entry) {
+			super(id, entry);
+		}
+
+		@Override
+		protected boolean evalInner(Context ctx) {
+			return entry.eval(ctx.data);
+		}
+
+		@Override
+		protected double getEstimatedCost() {
+			if(entry instanceof KeepSourceMethodIsInContextQuerySubGraphEntry)
+				return 2;
+			return 10;
+		}
+
+	}
+
+	/** Entries of different classes may be equal through a shared matcher super class so they are only merged if they
+	 * are of the same class. */
+	private static final class Key {
+		private final IEntry entry;
+		public Key(IEntry entry) {
+			this.entry = entry;
+		}
+		@Override
+		public boolean equals(Object o) {
+			if(this == o)
+				return true;
+			if(o == null || !(o instanceof Key))
+				return false;
+			IEntry other = ((Key)o).entry;
+			return other.getClass().equals(entry.getClass()) && other.equals(entry);
+		}
+		@Override
+		public int hashCode() {
+			return entry.hashCode();
+		}
+	}
+
+}
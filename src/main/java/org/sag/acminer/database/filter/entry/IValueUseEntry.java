@@ -0,0 +1,25 @@
+package org.sag.acminer.database.filter.entry;
+
+import org.sag.acminer.database.defusegraph.INode;
+import org.sag.acminer.database.filter.IData;
+import org.sag.acminer.database.filter.restrict.Restrictions;
+
+/** An entry that is true when one or more nodes of the def use graph of a control predicate match the entry and are not
+ * all eliminated by the restrictions of the entry. The two parts are exposed separately so that {@link CompiledEntry} can
+ * walk the def use graph once for all such entries.
+ */
+interface IValueUseEntry extends IEntry {
+	
+	/** Returns the matcher for the nodes of the def use graph of the given data or null if this entry does not apply to the
+	 * data, in which case the entry evaluates to false.
+	 */
+	public NodeMatcher getNodeMatcher(IData data);
+	
+	/** Returns the restrictions to apply to the matched nodes or null if there are none. */
+	public Restrictions getRestrictions();
+	
+	public interface NodeMatcher {
+		public boolean matches(INode node);
+	}
+	
+}
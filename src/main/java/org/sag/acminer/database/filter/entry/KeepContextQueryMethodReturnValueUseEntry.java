@@ -25,7 +25,7 @@ import soot.jimple.Stmt;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 
 @XStreamAlias("KeepContextQueryMethodReturnValueUse")
-public class KeepContextQueryMethodReturnValueUseEntry implements IEntry {
+public class KeepContextQueryMethodReturnValueUseEntry implements IValueUseEntry {
 
 	public static final String name = "KeepContextQueryMethodReturnValueUse";
 	
@@ -68,8 +68,8 @@ public class KeepContextQueryMethodReturnValueUseEntry implements IEntry {
 	}
 	
 	private boolean evalInner(IData data, StringBuilder sb, AtomicInteger c) {
-		if(data instanceof IDefUseGraphData && data instanceof IDataAccessorData) {
-			Set<SootMethod> contextQueries = ((IDataAccessorData)data).getDataAccessor().getContextQueriesDB().getContextQueries();
+		NodeMatcher nm = getNodeMatcher(data);
+		if(nm != null) {
 			DefUseGraph vt = ((IDefUseGraphData)data).getDefUseGraph();
 			StartNode sn = ((IDefUseGraphData)data).getStartNode();
 			Set<INode> methodNodes = new HashSet<>();
@@ -79,41 +79,58 @@ public class KeepContextQueryMethodReturnValueUseEntry implements IEntry {
 			while(!toVisit.isEmpty()) {
 				INode cur = toVisit.pop();
 				if(visited.add(cur)) {
-					if(cur instanceof IInvokeNode) {
-						SootMethod method = ((IInvokeNode)cur).getTarget();
-						if(method == null) {
-							String sig = ((Stmt)(((IInvokeNode)cur).getUnit())).getInvokeExpr().getMethodRef().getSignature();
-							for(SootMethod sm : contextQueries) {
-								if(sig.equals(sm.getSignature())) {
-									methodNodes.add(cur);
-									break;
-								}
-							}
-						} else {
-							if(contextQueries.contains(method))
-								methodNodes.add(cur);
-						}
-					}
-					for(INode vn : vt.getChildNodes(cur)) {
+					if(nm.matches(cur))
+						methodNodes.add(cur);
+					for(INode vn : vt.getChildNodesView(cur)) {
 						if(!visited.contains(vn))
 							toVisit.push(vn);
 					}
 				}
 			}
 			if(methodNodes.isEmpty()) {
-				return false;//No methods matching the description -> not a match
+				return false;//No values matching the description -> not a match
 			} else if(restrictions == null) {
-				return true;//One or more methods match the description and no restrictions -> match
+				return true;//One or more values match the description and no restrictions -> match
 			} else {
 				if(c != null) c.incrementAndGet();
 				if(restrictions.applyRestriction(sn, null, vt, methodNodes, sb, c).isEmpty())
 					return false;
-				return true;
+				return true;//If the restrictions do not eliminate all matched nodes -> true
 			}
 		}
 		return false;
 	}
 	
+	@Override
+	public NodeMatcher getNodeMatcher(IData data) {
+		if(!(data instanceof IDefUseGraphData && data instanceof IDataAccessorData))
+			return null;
+		final Set<SootMethod> contextQueries = ((IDataAccessorData)data).getDataAccessor().getContextQueriesDB().getContextQueries();
+		return new NodeMatcher() {
+			@Override
+			public boolean matches(INode cur) {
+				if(cur instanceof IInvokeNode) {
+					SootMethod method = ((IInvokeNode)cur).getTarget();
+					if(method == null) {
+						String sig = ((Stmt)(((IInvokeNode)cur).getUnit())).getInvokeExpr().getMethodRef().getSignature();
+						for(SootMethod sm : contextQueries) {
+							if(sig.equals(sm.getSignature()))
+								return true;
+						}
+					} else {
+						return contextQueries.contains(method);
+					}
+				}
+				return false;
+			}
+		};
+	}
+	
+	@Override
+	public Restrictions getRestrictions() {
+		return restrictions;
+	}
+	
 	@Override
 	public boolean equals(Object o) {
 		if(this == o)
@@ -21,7 +21,7 @@ import org.sag.acminer.database.filter.restrict.Restrictions;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 
 @XStreamAlias("KeepFieldValueUse")
-public class KeepFieldValueUseEntry extends FieldMatcher implements IEntry {
+public class KeepFieldValueUseEntry extends FieldMatcher implements IValueUseEntry {
 	
 	public static final String name = "KeepFieldValueUse";
 	
@@ -78,7 +78,8 @@ public class KeepFieldValueUseEntry extends FieldMatcher implements IEntry {
 	}
 
 	private boolean evalInner(IData data, StringBuilder sb, AtomicInteger c) {
-		if(data instanceof IDefUseGraphData) {
+		NodeMatcher nm = getNodeMatcher(data);
+		if(nm != null) {
 			DefUseGraph vt = ((IDefUseGraphData)data).getDefUseGraph();
 			StartNode sn = ((IDefUseGraphData)data).getStartNode();
 			Set<INode> fieldNodes = new HashSet<>();
@@ -88,28 +89,45 @@ public class KeepFieldValueUseEntry extends FieldMatcher implements IEntry {
 			while(!toVisit.isEmpty()) {
 				INode cur = toVisit.pop();
 				if(visited.add(cur)) {
-					if(matcher(cur))
+					if(nm.matches(cur))
 						fieldNodes.add(cur);
-					for(INode vn : vt.getChildNodes(cur)) {
+					for(INode vn : vt.getChildNodesView(cur)) {
 						if(!visited.contains(vn))
 							toVisit.push(vn);
 					}
 				}
 			}
 			if(fieldNodes.isEmpty()) {
-				return false;//No fields matching the description -> not a match
+				return false;//No values matching the description -> not a match
 			} else if(restrictions == null) {
-				return true;//One or more fields match the description and no restrictions -> match
+				return true;//One or more values match the description and no restrictions -> match
 			} else {
 				if(c != null) c.incrementAndGet();
 				if(restrictions.applyRestriction(sn, null, vt, fieldNodes, sb, c).isEmpty())
 					return false;
-				return true;//If the restrictions do not eliminate all field nodes -> true
+				return true;//If the restrictions do not eliminate all matched nodes -> true
 			}
 		}
 		return false;
 	}
 	
+	@Override
+	public NodeMatcher getNodeMatcher(IData data) {
+		if(!(data instanceof IDefUseGraphData))
+			return null;
+		return new NodeMatcher() {
+			@Override
+			public boolean matches(INode node) {
+				return matcher(node);
+			}
+		};
+	}
+	
+	@Override
+	public Restrictions getRestrictions() {
+		return restrictions;
+	}
+	
 	@Override
 	public boolean equals(Object o) {
 		if(super.equals(o) && o instanceof KeepFieldValueUseEntry) {
@@ -4,6 +4,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
@@ -99,7 +100,7 @@ public class KeepLoopHeaderEntry implements IEntry {
 	
 	private boolean matchesLoopIncrement(INode node, LocalWrapper lw, DefUseGraph vt) {
 		Value v = node.getValue();
-		if(v instanceof BinopExpr && vt.getChildLocalWrappers(node).contains(lw)) {
+		if(v instanceof BinopExpr && vt.getChildLocalWrappersToChildNodesView(node).containsKey(lw)) {
 			return true;
 		}
 		return false;
@@ -132,7 +133,7 @@ public class KeepLoopHeaderEntry implements IEntry {
 					if(data instanceof IDefUseGraphData) {
 						DefUseGraph vt = ((IDefUseGraphData)data).getDefUseGraph();
 						StartNode sn = ((IDefUseGraphData)data).getStartNode();
-						Map<LocalWrapper, Set<INode>> children = vt.getChildLocalWrappersToChildNodes(sn);
+						Map<LocalWrapper, Set<INode>> children = vt.getChildLocalWrappersToChildNodesView(sn);
 						for(LocalWrapper lw : children.keySet()) {
 							for(INode vn : children.get(lw)) {
 								if((matchExitsUsingLengthOf && matchesLengthOf(vn))
@@ -173,12 +174,18 @@ public class KeepLoopHeaderEntry implements IEntry {
 			return true;
 		if(o == null || !(o instanceof KeepLoopHeaderEntry))
 			return false;
-		return true;
+		KeepLoopHeaderEntry other = (KeepLoopHeaderEntry)o;
+		return other.matchExitsUsingLengthOf == matchExitsUsingLengthOf && other.matchLoopIncrement == matchLoopIncrement
+				&& Objects.equals(other.loopConditionalMethods, loopConditionalMethods);
 	}
 	
 	@Override
 	public int hashCode() {
-		return 527 + name.hashCode();
+		int i = 527 + name.hashCode();
+		i = i * 31 + (matchExitsUsingLengthOf ? 1 : 0);
+		i = i * 31 + (matchLoopIncrement ? 1 : 0);
+		i = i * 31 + Objects.hashCode(loopConditionalMethods);
+		return i;
 	}
 	
 	@Override
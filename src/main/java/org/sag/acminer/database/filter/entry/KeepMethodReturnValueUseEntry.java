@@ -21,7 +21,7 @@ import org.sag.acminer.database.filter.restrict.Restrictions;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 
 @XStreamAlias("KeepMethodReturnValueUse")
-public class KeepMethodReturnValueUseEntry extends MethodMatcher implements IEntry {
+public class KeepMethodReturnValueUseEntry extends MethodMatcher implements IValueUseEntry {
 
 	public static final String name = "KeepMethodReturnValueUse";
 	
@@ -78,7 +78,8 @@ public class KeepMethodReturnValueUseEntry extends MethodMatcher implements IEnt
 	}
 
 	private boolean evalInner(IData data, StringBuilder sb, AtomicInteger c) {
-		if(data instanceof IDefUseGraphData) {
+		NodeMatcher nm = getNodeMatcher(data);
+		if(nm != null) {
 			DefUseGraph vt = ((IDefUseGraphData)data).getDefUseGraph();
 			StartNode sn = ((IDefUseGraphData)data).getStartNode();
 			Set<INode> methodNodes = new HashSet<>();
@@ -88,28 +89,45 @@ public class KeepMethodReturnValueUseEntry extends MethodMatcher implements IEnt
 			while(!toVisit.isEmpty()) {
 				INode cur = toVisit.pop();
 				if(visited.add(cur)) {
-					if(matcher(cur))
+					if(nm.matches(cur))
 						methodNodes.add(cur);
-					for(INode vn : vt.getChildNodes(cur)) {
+					for(INode vn : vt.getChildNodesView(cur)) {
 						if(!visited.contains(vn))
 							toVisit.push(vn);
 					}
 				}
 			}
 			if(methodNodes.isEmpty()) {
-				return false;//No methods matching the description -> not a match
+				return false;//No values matching the description -> not a match
 			} else if(restrictions == null) {
-				return true;//One or more methods match the description and no restrictions -> match
+				return true;//One or more values match the description and no restrictions -> match
 			} else {
 				if(c != null) c.incrementAndGet();
 				if(restrictions.applyRestriction(sn, null, vt, methodNodes, sb, c).isEmpty())
 					return false;
-				return true;
+				return true;//If the restrictions do not eliminate all matched nodes -> true
 			}
 		}
 		return false;
 	}
 	
+	@Override
+	public NodeMatcher getNodeMatcher(IData data) {
+		if(!(data instanceof IDefUseGraphData))
+			return null;
+		return new NodeMatcher() {
+			@Override
+			public boolean matches(INode node) {
+				return matcher(node);
+			}
+		};
+	}
+	
+	@Override
+	public Restrictions getRestrictions() {
+		return restrictions;
+	}
+	
 	@Override
 	public boolean equals(Object o) {
 		if(super.equals(o) && o instanceof KeepMethodReturnValueUseEntry) {
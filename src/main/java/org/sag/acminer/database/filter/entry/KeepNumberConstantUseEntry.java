@@ -24,7 +24,7 @@ import soot.jimple.NumericConstant;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 
 @XStreamAlias("KeepNumberConstantUse")
-public class KeepNumberConstantUseEntry extends NumberMatcher implements IEntry {
+public class KeepNumberConstantUseEntry extends NumberMatcher implements IValueUseEntry {
 	
 	public static final String name = "KeepNumberConstantUse";
 	
@@ -90,7 +90,8 @@ public class KeepNumberConstantUseEntry extends NumberMatcher implements IEntry
 	}
 
 	private boolean evalInner(IData data, StringBuilder sb, AtomicInteger c) {
-		if(data instanceof IDefUseGraphData) {
+		NodeMatcher nm = getNodeMatcher(data);
+		if(nm != null) {
 			DefUseGraph vt = ((IDefUseGraphData)data).getDefUseGraph();
 			StartNode sn = ((IDefUseGraphData)data).getStartNode();
 			Set<INode> numberNodes = new HashSet<>();
@@ -100,36 +101,54 @@ public class KeepNumberConstantUseEntry extends NumberMatcher implements IEntry
 			while(!toVisit.isEmpty()) {
 				INode cur = toVisit.pop();
 				if(visited.add(cur)) {
-					if(!(cur instanceof InvokeConstantLeafNode)) {
-						for(ValueBox vb : cur.getUnit().getUseBoxes()) {
-							if(matcher(vb.getValue()))
-								numberNodes.add(cur);
-						}
-					} else if(cur instanceof InvokeConstantLeafNode || (cur.getValue() != null && cur.getValue() instanceof NumericConstant)) {
-						if(matcher(cur.getValue()))
-							numberNodes.add(cur);
-					}
-					
-					for(INode vn : vt.getChildNodes(cur)) {
+					if(nm.matches(cur))
+						numberNodes.add(cur);
+					for(INode vn : vt.getChildNodesView(cur)) {
 						if(!visited.contains(vn))
 							toVisit.push(vn);
 					}
 				}
 			}
 			if(numberNodes.isEmpty()) {
-				return false;//No fields matching the description -> not a match
+				return false;//No values matching the description -> not a match
 			} else if(restrictions == null) {
-				return true;//One or more fields match the description and no restrictions -> match
+				return true;//One or more values match the description and no restrictions -> match
 			} else {
 				if(c != null) c.incrementAndGet();
 				if(restrictions.applyRestriction(sn, null, vt, numberNodes, sb, c).isEmpty())
 					return false;
-				return true;
+				return true;//If the restrictions do not eliminate all matched nodes -> true
 			}
 		}
 		return false;
 	}
 	
+	@Override
+	public NodeMatcher getNodeMatcher(IData data) {
+		if(!(data instanceof IDefUseGraphData))
+			return null;
+		return new NodeMatcher() {
+			@Override
+			public boolean matches(INode cur) {
+				if(!(cur instanceof InvokeConstantLeafNode)) {
+					for(ValueBox vb : cur.getUnit().getUseBoxes()) {
+						if(matcher(vb.getValue()))
+							return true;
+					}
+				} else if(cur instanceof InvokeConstantLeafNode || (cur.getValue() != null && cur.getValue() instanceof NumericConstant)) {
+					if(matcher(cur.getValue()))
+						return true;
+				}
+				return false;
+			}
+		};
+	}
+	
+	@Override
+	public Restrictions getRestrictions() {
+		return restrictions;
+	}
+	
 	@Override
 	public boolean equals(Object o) {
 		if(super.equals(o) && o instanceof KeepNumberConstantUseEntry) {
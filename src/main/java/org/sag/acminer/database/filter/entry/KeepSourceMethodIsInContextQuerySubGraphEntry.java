@@ -74,12 +74,12 @@ public class KeepSourceMethodIsInContextQuerySubGraphEntry implements IEntry {
 			return true;
 		if(o == null || !(o instanceof KeepSourceMethodIsInContextQuerySubGraphEntry))
 			return false;
-		return true;
+		return ((KeepSourceMethodIsInContextQuerySubGraphEntry)o).noSubGraphs == noSubGraphs;
 	}
 	
 	@Override
 	public int hashCode() {
-		return 527 + name.hashCode();
+		return (527 + name.hashCode()) * 31 + (noSubGraphs ? 1 : 0);
 	}
 	
 	@Override
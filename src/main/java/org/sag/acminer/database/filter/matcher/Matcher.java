@@ -211,6 +211,10 @@ public abstract class Matcher<A> implements IMatcher {
 			ops.addAll(ops);
 		}
 		
+		List<Op<A>> getOps() {
+			return Collections.unmodifiableList(ops);
+		}
+		
 		@SuppressWarnings("unchecked")
 		public boolean matches(A... args) {
 			if(ops == null || ops.isEmpty())
@@ -261,6 +265,10 @@ public abstract class Matcher<A> implements IMatcher {
 			ops.addAll(ops);
 		}
 		
+		List<Op<A>> getOps() {
+			return Collections.unmodifiableList(ops);
+		}
+		
 		@SuppressWarnings("unchecked")
 		public boolean matches(A... args) {
 			if(ops == null || ops.isEmpty())
@@ -309,6 +317,10 @@ public abstract class Matcher<A> implements IMatcher {
 			add(ops.get(0));
 		}
 		
+		Op<A> getOp() {
+			return op;
+		}
+		
 		@SuppressWarnings("unchecked")
 		public boolean matches(A... args) {
 			if(op == null)
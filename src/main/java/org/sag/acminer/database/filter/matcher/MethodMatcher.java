@@ -50,8 +50,8 @@ public class MethodMatcher extends SootMatcher {
 	}
 	
 	protected boolean matches(SootMethod m) {
-		return matches(m.getSignature(),m.getName(),m.getDeclaringClass().getPackageName(),m.getDeclaringClass().getShortName(),
-				m.getDeclaringClass().getName());
+		String[] args = getArgs(m);
+		return matches(args[0], args[1], args[2], args[3], args[4]);
 	}
 	
 	protected boolean matches(SootMethodRef m) {
@@ -60,6 +60,24 @@ public class MethodMatcher extends SootMatcher {
 	}
 	
 	protected boolean matches(String signature) {
+		String[] args = getArgs(signature);
+		if(args == null)
+			return false;
+		return matches(args[0], args[1], args[2], args[3], args[4]);
+	}
+	
+	/** Returns the arguments passed to the ops of a matcher for the given method in the order signature, name,
+	 * package name, class name, and full class name.
+	 */
+	static String[] getArgs(SootMethod m) {
+		return new String[] {m.getSignature(),m.getName(),m.getDeclaringClass().getPackageName(),
+				m.getDeclaringClass().getShortName(),m.getDeclaringClass().getName()};
+	}
+	
+	/** Returns the arguments passed to the ops of a matcher for the given method signature in the order signature,
+	 * name, package name, class name, and full class name. Returns null if the signature cannot be parsed.
+	 */
+	static String[] getArgs(String signature) {
 		java.util.regex.Matcher m = methodSigPat.matcher(signature);
 		if(m.matches()) {
 			String fullClassName = m.group(1);
@@ -72,9 +90,9 @@ public class MethodMatcher extends SootMatcher {
 				className = fullClassName.substring(index + 1);
 				packageName = fullClassName.substring(0, index);
 			}
-			return matches(signature, name, packageName, className, fullClassName);
+			return new String[] {signature, name, packageName, className, fullClassName};
 		}
-		return false;
+		return null;
 	}
 	
 	@Override
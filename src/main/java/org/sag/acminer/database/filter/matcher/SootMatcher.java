@@ -129,7 +129,7 @@ public class SootMatcher extends Matcher<String> {
 		return false;
 	}
 	
-	private static abstract class SootMatcherOp implements Op<String> {
+	protected static abstract class SootMatcherOp implements Op<String> {
 		protected static void verifyArgs(int size, String... args) {
 			Objects.requireNonNull(args);
 			if(args.length != size)
@@ -141,7 +141,7 @@ public class SootMatcher extends Matcher<String> {
 		protected abstract SootMatcherOpType getOpIdentifier();
 	}
 	
-	private static abstract class EqualsOp extends SootMatcherOp {
+	protected static abstract class EqualsOp extends SootMatcherOp {
 
 		protected final String orgValue;
 		protected final String value;
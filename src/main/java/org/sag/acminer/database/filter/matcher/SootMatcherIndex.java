@@ -0,0 +1,608 @@
+package org.sag.acminer.database.filter.matcher;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import org.sag.acminer.database.filter.matcher.Matcher.AndOp;
+import org.sag.acminer.database.filter.matcher.Matcher.NotOp;
+import org.sag.acminer.database.filter.matcher.Matcher.Op;
+import org.sag.acminer.database.filter.matcher.Matcher.OrOp;
+import org.sag.acminer.database.filter.matcher.SootMatcher.ContainsOp;
+import org.sag.acminer.database.filter.matcher.SootMatcher.EndsWithOp;
+import org.sag.acminer.database.filter.matcher.SootMatcher.EqualsOp;
+import org.sag.acminer.database.filter.matcher.SootMatcher.RegexOp;
+import org.sag.acminer.database.filter.matcher.SootMatcher.SootMatcherOp;
+import org.sag.acminer.database.filter.matcher.SootMatcher.SootMatcherOpType;
+import org.sag.acminer.database.filter.matcher.SootMatcher.StartsWithOp;
+
+import soot.SootMethod;
+
+/** An index over a list of {@link SootMatcher} that determines which of the matchers match a single method while
+ * examining each part of the method only once instead of once per op of every matcher. The leaf ops of all the matchers
+ * are deduplicated and grouped by the part of the method they examine, the kind of op, and whether they ignore case:
+ * <ul>
+ * <li>Equals ops (including signature ops) are a single hash lookup per group.</li>
+ * <li>Starts with and ends with ops are a trie of the values (reversed for ends with) walked once over the input.</li>
+ * <li>Contains ops are an Aho-Corasick automaton of the values that finds all values in the input in a single scan.</li>
+ * <li>Regex ops with the same pattern are evaluated once per method, with the input shared by all of them (i.e. the name
+ * is only split into words once). Java regexes cannot report which of several alternatives matched, so each distinct
+ * pattern is still run on its own.</li>
+ * </ul>
+ * A group is only scanned and a regex only run the first time the op tree of a matcher needs one of its leaves, so the
+ * short circuiting of the op trees is kept. The result for each matcher is the same as calling the matcher directly.
+ * <br><br>
+ * The index is immutable and thread safe. The {@link Match} returned for a method is not and should only be used by the
+ * thread evaluating that method.
+ */
+public final class SootMatcherIndex {
+
+	//The indexes of the args passed to the ops of a SootMatcher
+	private static final int sigArg = 0;
+	private static final int nameArg = 1;
+	private static final int packageArg = 2;
+	private static final int classArg = 3;
+	private static final int fullClassArg = 4;
+	//Not an arg of the ops but the name split into words as done by the regex name words op
+	private static final int nameWordsArg = 5;
+	private static final int argCount = 6;
+
+	private final Node[] roots;
+	private final Leaf[] leaves;
+	private final LiteralGroup[] groups;
+
+	private SootMatcherIndex(Node[] roots, Leaf[] leaves, LiteralGroup[] groups) {
+		this.roots = roots;
+		this.leaves = leaves;
+		this.groups = groups;
+	}
+
+	/** Builds an index of the given matchers. The id of each matcher is its index in the given list. */
+	public static SootMatcherIndex build(List<? extends SootMatcher> matchers) {
+		Objects.requireNonNull(matchers);
+		Builder b = new Builder();
+		Node[] roots = new Node[matchers.size()];
+		for(int i = 0; i < roots.length; i++) {
+			roots[i] = b.compile(matchers.get(i).operation);
+		}
+		LiteralGroup[] groups = new LiteralGroup[b.groups.size()];
+		int i = 0;
+		for(LiteralGroupBuilder gb : b.groups.values()) {
+			groups[i++] = gb.build();
+		}
+		return new SootMatcherIndex(roots, b.leaves.toArray(new Leaf[b.leaves.size()]), groups);
+	}
+
+	/** Returns the number of matchers in the index. */
+	public int size() {
+		return roots.length;
+	}
+
+	public Match match(SootMethod m) {
+		return new Match(MethodMatcher.getArgs(m));
+	}
+
+	/** Returns the match for the method with the given signature. As with {@link MethodMatcher}, if the signature
+	 * cannot be parsed then none of the matchers match.
+	 */
+	public Match match(String signature) {
+		return new Match(MethodMatcher.getArgs(signature));
+	}
+
+	public Match match(String signature, String name, String packageName, String className, String fullClassName) {
+		Objects.requireNonNull(signature);
+		Objects.requireNonNull(name);
+		Objects.requireNonNull(packageName);
+		Objects.requireNonNull(className);
+		Objects.requireNonNull(fullClassName);
+		return new Match(new String[] {signature, name, packageName, className, fullClassName});
+	}
+
+	/** The matchers of the index that match a single method. The leaves of the matchers are evaluated on demand and
+	 * the result of each is remembered so any leaf or group of leaves is evaluated at most once.
+	 */
+	public final class Match {
+
+		private final String[] args;
+		private final String[] inputs;
+		private final String[] lowerInputs;
+		//0 = not evaluated, 1 = false, 2 = true
+		private final byte[] results;
+
+		private Match(String[] args) {
+			this.args = args;
+			this.inputs = new String[argCount];
+			this.lowerInputs = new String[argCount];
+			this.results = new byte[leaves.length];
+			if(args != null)
+				System.arraycopy(args, 0, inputs, 0, args.length);
+		}
+
+		/** Returns true if the matcher with the given id matches the method. */
+		public boolean matches(int matcher) {
+			if(args == null)
+				return false;
+			return roots[matcher].eval(this);
+		}
+
+		/** Returns the ids of all the matchers that match the method. */
+		public BitSet getMatches() {
+			BitSet ret = new BitSet(roots.length);
+			for(int i = 0; i < roots.length; i++) {
+				if(matches(i))
+					ret.set(i);
+			}
+			return ret;
+		}
+
+		private String getInput(int arg, boolean ignoreCase) {
+			String ret = inputs[arg];
+			if(ret == null) {
+				ret = SootMatcher.splitWords(inputs[nameArg]);
+				inputs[arg] = ret;
+			}
+			if(ignoreCase) {
+				String lower = lowerInputs[arg];
+				if(lower == null) {
+					lower = ret.toLowerCase();
+					lowerInputs[arg] = lower;
+				}
+				ret = lower;
+			}
+			return ret;
+		}
+
+		private boolean getLeaf(int leaf) {
+			byte r = results[leaf];
+			if(r == 0) {
+				boolean ret = leaves[leaf].eval(this);
+				results[leaf] = ret ? (byte)2 : (byte)1;
+				return ret;
+			}
+			return r == 2;
+		}
+
+		private void scanGroup(int group) {
+			groups[group].scan(this);
+		}
+
+		private void setTrue(int leaf) {
+			if(leaf >= 0)
+				results[leaf] = 2;
+		}
+
+	}
+
+	private static final class Builder {
+
+		private final List<Leaf> leaves;
+		private final Map<String,Integer> leafIds;
+		private final Map<String,LiteralGroupBuilder> groups;
+
+		public Builder() {
+			this.leaves = new ArrayList<>();
+			this.leafIds = new HashMap<>();
+			this.groups = new LinkedHashMap<>();
+		}
+
+		@SuppressWarnings("unchecked")
+		public Node compile(Op<String> op) {
+			if(op instanceof AndOp) {
+				return new AndNode(compileAll(((AndOp<String>)op).getOps()));
+			} else if(op instanceof OrOp) {
+				return new OrNode(compileAll(((OrOp<String>)op).getOps()));
+			} else if(op instanceof NotOp) {
+				Op<String> child = ((NotOp<String>)op).getOp();
+				return new NotNode(child == null ? null : compile(child));
+			} else if(op instanceof SootMatcherOp) {
+				//The string form of a leaf op includes its type, case, and value so equal strings are equal ops
+				String key = op.toString();
+				Integer id = leafIds.get(key);
+				if(id == null) {
+					id = addLeaf((SootMatcherOp)op);
+					leafIds.put(key, id);
+				}
+				return new LeafNode(id);
+			}
+			leaves.add(new OpLeaf(op));
+			return new LeafNode(leaves.size() - 1);
+		}
+
+		private Node[] compileAll(List<Op<String>> ops) {
+			Node[] ret = new Node[ops.size()];
+			for(int i = 0; i < ret.length; i++) {
+				ret[i] = compile(ops.get(i));
+			}
+			return ret;
+		}
+
+		private int addLeaf(SootMatcherOp op) {
+			SootMatcherOpType type = op.getOpIdentifier();
+			int arg = getArg(type);
+			if(arg >= 0 && op instanceof EqualsOp) {
+				return addLiteralLeaf(LiteralKind.EQUALS, arg, ((EqualsOp)op).ignoreCase, ((EqualsOp)op).value);
+			} else if(arg >= 0 && op instanceof StartsWithOp) {
+				return addLiteralLeaf(LiteralKind.STARTS_WITH, arg, ((StartsWithOp)op).ignoreCase, ((StartsWithOp)op).value);
+			} else if(arg >= 0 && op instanceof EndsWithOp) {
+				return addLiteralLeaf(LiteralKind.ENDS_WITH, arg, ((EndsWithOp)op).ignoreCase, ((EndsWithOp)op).value);
+			} else if(arg >= 0 && op instanceof ContainsOp) {
+				return addLiteralLeaf(LiteralKind.CONTAINS, arg, ((ContainsOp)op).ignoreCase, ((ContainsOp)op).value);
+			} else if(arg >= 0 && op instanceof RegexOp) {
+				//The pattern already ignores case if needed so the input is never lowered
+				leaves.add(new RegexLeaf(arg, ((RegexOp)op).p));
+			} else {
+				leaves.add(new OpLeaf(op));
+			}
+			return leaves.size() - 1;
+		}
+
+		/** Ops that ignore case and differ only in the case of their value are the same leaf as the value is lowered. */
+		private int addLiteralLeaf(LiteralKind kind, int arg, boolean ignoreCase, String value) {
+			String key = kind + " " + arg + " " + ignoreCase;
+			LiteralGroupBuilder group = groups.get(key);
+			if(group == null) {
+				group = new LiteralGroupBuilder(groups.size(), kind, arg, ignoreCase);
+				groups.put(key, group);
+			}
+			Integer ret = group.values.get(value);
+			if(ret == null) {
+				ret = leaves.size();
+				leaves.add(new LiteralLeaf(ret, group));
+				group.values.put(value, ret);
+			}
+			return ret;
+		}
+
+	}
+
+	/** Returns the arg examined by ops of the given type or -1 if ops of the type are not indexed. The class regex words
+	 * op examines each inner class separately and is evaluated directly.
+	 */
+	private static int getArg(SootMatcherOpType type) {
+		switch(type) {
+			case SIGNATURE: return sigArg;
+			case EQUAL_NAME: case CONTAIN_NAME: case STARTS_WITH_NAME: case ENDS_WITH_NAME: case REGEX_NAME: return nameArg;
+			case EQUAL_FULL_CLASS: case CONTAIN_FULL_CLASS: case STARTS_WITH_FULL_CLASS: case ENDS_WITH_FULL_CLASS:
+			case REGEX_FULL_CLASS: return fullClassArg;
+			case EQUAL_CLASS: case CONTAIN_CLASS: case STARTS_WITH_CLASS: case ENDS_WITH_CLASS: case REGEX_CLASS: return classArg;
+			case EQUAL_PACKAGE: case CONTAIN_PACKAGE: case STARTS_WITH_PACKAGE: case ENDS_WITH_PACKAGE:
+			case REGEX_PACKAGE: return packageArg;
+			case REGEX_NAME_WORDS: return nameWordsArg;
+			default: return -1;
+		}
+	}
+
+	private static enum LiteralKind { EQUALS, STARTS_WITH, ENDS_WITH, CONTAINS }
+
+	private static abstract class Node {
+		public abstract boolean eval(Match m);
+	}
+
+	private static final class AndNode extends Node {
+		private final Node[] children;
+		public AndNode(Node[] children) {
+			this.children = children;
+		}
+		@Override
+		public boolean eval(Match m) {
+			if(children.length == 0)
+				return false;
+			for(Node child : children) {
+				if(!child.eval(m))
+					return false;
+			}
+			return true;
+		}
+	}
+
+	private static final class OrNode extends Node {
+		private final Node[] children;
+		public OrNode(Node[] children) {
+			this.children = children;
+		}
+		@Override
+		public boolean eval(Match m) {
+			for(Node child : children) {
+				if(child.eval(m))
+					return true;
+			}
+			return false;
+		}
+	}
+
+	private static final class NotNode extends Node {
+		private final Node child;
+		public NotNode(Node child) {
+			this.child = child;
+		}
+		@Override
+		public boolean eval(Match m) {
+			if(child == null)
+				return false;
+			return !child.eval(m);
+		}
+	}
+
+	private static final class LeafNode extends Node {
+		private final int leaf;
+		public LeafNode(int leaf) {
+			this.leaf = leaf;
+		}
+		@Override
+		public boolean eval(Match m) {
+			return m.getLeaf(leaf);
+		}
+	}
+
+	private static abstract class Leaf {
+		public abstract boolean eval(Match m);
+	}
+
+	private static final class LiteralLeaf extends Leaf {
+		private final int id;
+		private final int group;
+		public LiteralLeaf(int id, LiteralGroupBuilder group) {
+			this.id = id;
+			this.group = group.id;
+		}
+		@Override
+		public boolean eval(Match m) {
+			//Sets the result of every leaf in the group including this one
+			m.scanGroup(group);
+			return m.results[id] == 2;
+		}
+	}
+
+	private static final class RegexLeaf extends Leaf {
+		private final int arg;
+		private final Pattern p;
+		public RegexLeaf(int arg, Pattern p) {
+			this.arg = arg;
+			this.p = p;
+		}
+		@Override
+		public boolean eval(Match m) {
+			return p.matcher(m.getInput(arg, false)).find();
+		}
+	}
+
+	private static final class OpLeaf extends Leaf {
+		private final Op<String> op;
+		public OpLeaf(Op<String> op) {
+			this.op = op;
+		}
+		@Override
+		public boolean eval(Match m) {
+			return op.matches(m.args);
+		}
+	}
+
+	private static final class LiteralGroupBuilder {
+
+		private final int id;
+		private final LiteralKind kind;
+		private final int arg;
+		private final boolean ignoreCase;
+		private final Map<String,Integer> values;
+
+		public LiteralGroupBuilder(int id, LiteralKind kind, int arg, boolean ignoreCase) {
+			this.id = id;
+			this.kind = kind;
+			this.arg = arg;
+			this.ignoreCase = ignoreCase;
+			this.values = new HashMap<>();
+		}
+
+		public LiteralGroup build() {
+			int[] leaves = new int[values.size()];
+			int i = 0;
+			for(int leaf : values.values()) {
+				leaves[i++] = leaf;
+			}
+			Trie trie = null;
+			if(!kind.equals(LiteralKind.EQUALS)) {
+				TrieBuilder tb = new TrieBuilder();
+				for(Map.Entry<String,Integer> e : values.entrySet()) {
+					String value = e.getKey();
+					if(kind.equals(LiteralKind.ENDS_WITH))
+						value = new StringBuilder(value).reverse().toString();
+					tb.add(value, e.getValue());
+				}
+				trie = tb.build(kind.equals(LiteralKind.CONTAINS));
+			}
+			return new LiteralGroup(kind, arg, ignoreCase, leaves, kind.equals(LiteralKind.EQUALS) ? values : null, trie);
+		}
+
+	}
+
+	private static final class LiteralGroup {
+
+		private final LiteralKind kind;
+		private final int arg;
+		private final boolean ignoreCase;
+		private final int[] leaves;
+		private final Map<String,Integer> values;
+		private final Trie trie;
+
+		public LiteralGroup(LiteralKind kind, int arg, boolean ignoreCase, int[] leaves, Map<String,Integer> values, Trie trie) {
+			this.kind = kind;
+			this.arg = arg;
+			this.ignoreCase = ignoreCase;
+			this.leaves = leaves;
+			this.values = values;
+			this.trie = trie;
+		}
+
+		public void scan(Match m) {
+			for(int leaf : leaves) {
+				m.results[leaf] = 1;
+			}
+			String in = m.getInput(arg, ignoreCase);
+			switch(kind) {
+				case EQUALS: {
+					Integer leaf = values.get(in);
+					if(leaf != null)
+						m.setTrue(leaf);
+					break;
+				}
+				case STARTS_WITH: {
+					m.setTrue(trie.leaf[0]);
+					int node = 0;
+					for(int i = 0; i < in.length() && node >= 0; i++) {
+						node = trie.child(node, in.charAt(i));
+						if(node >= 0)
+							m.setTrue(trie.leaf[node]);
+					}
+					break;
+				}
+				case ENDS_WITH: {
+					m.setTrue(trie.leaf[0]);
+					int node = 0;
+					for(int i = in.length() - 1; i >= 0 && node >= 0; i--) {
+						node = trie.child(node, in.charAt(i));
+						if(node >= 0)
+							m.setTrue(trie.leaf[node]);
+					}
+					break;
+				}
+				case CONTAINS: {
+					m.setTrue(trie.leaf[0]);
+					int node = 0;
+					for(int i = 0; i < in.length(); i++) {
+						node = trie.next(node, in.charAt(i));
+						for(int cur = node; cur > 0; cur = trie.out[cur]) {
+							m.setTrue(trie.leaf[cur]);
+						}
+					}
+					break;
+				}
+			}
+		}
+
+	}
+
+	private static final class TrieBuilder {
+
+		private final List<TreeMap<Character,Integer>> children;
+		private final List<Integer> leaves;
+
+		public TrieBuilder() {
+			this.children = new ArrayList<>();
+			this.leaves = new ArrayList<>();
+			addNode();
+		}
+
+		private int addNode() {
+			children.add(new TreeMap<Character,Integer>());
+			leaves.add(-1);
+			return children.size() - 1;
+		}
+
+		public void add(String value, int leaf) {
+			int node = 0;
+			for(int i = 0; i < value.length(); i++) {
+				Integer next = children.get(node).get(value.charAt(i));
+				if(next == null) {
+					next = addNode();
+					children.get(node).put(value.charAt(i), next);
+				}
+				node = next;
+			}
+			leaves.set(node, leaf);
+		}
+
+		public Trie build(boolean withFailLinks) {
+			int size = children.size();
+			char[][] keys = new char[size][];
+			int[][] next = new int[size][];
+			int[] leaf = new int[size];
+			for(int i = 0; i < size; i++) {
+				TreeMap<Character,Integer> cur = children.get(i);
+				keys[i] = new char[cur.size()];
+				next[i] = new int[cur.size()];
+				int j = 0;
+				for(Map.Entry<Character,Integer> e : cur.entrySet()) {
+					keys[i][j] = e.getKey();
+					next[i][j] = e.getValue();
+					j++;
+				}
+				leaf[i] = leaves.get(i);
+			}
+			Trie ret = new Trie(keys, next, leaf, withFailLinks ? new int[size] : null, withFailLinks ? new int[size] : null);
+			if(withFailLinks)
+				ret.computeFailLinks();
+			return ret;
+		}
+
+	}
+
+	private static final class Trie {
+
+		private final char[][] keys;
+		private final int[][] next;
+		//The leaf whose value ends at each node or -1
+		private final int[] leaf;
+		//The node of the longest proper suffix of each node that is also in the trie
+		private final int[] fail;
+		//The node of the longest proper suffix of each node that is the end of a value or 0 if there is none
+		private final int[] out;
+
+		public Trie(char[][] keys, int[][] next, int[] leaf, int[] fail, int[] out) {
+			this.keys = keys;
+			this.next = next;
+			this.leaf = leaf;
+			this.fail = fail;
+			this.out = out;
+		}
+
+		public int child(int node, char c) {
+			int i = Arrays.binarySearch(keys[node], c);
+			return i < 0 ? -1 : next[node][i];
+		}
+
+		/** The node reached from the given node on the given char following the fail links as needed. */
+		public int next(int node, char c) {
+			while(true) {
+				int ret = child(node, c);
+				if(ret >= 0)
+					return ret;
+				if(node == 0)
+					return 0;
+				node = fail[node];
+			}
+		}
+
+		private void computeFailLinks() {
+			Deque<Integer> queue = new ArrayDeque<>();
+			fail[0] = 0;
+			out[0] = 0;
+			for(int child : next[0]) {
+				fail[child] = 0;
+				out[child] = 0;
+				queue.add(child);
+			}
+			while(!queue.isEmpty()) {
+				int node = queue.poll();
+				for(int i = 0; i < keys[node].length; i++) {
+					int child = next[node][i];
+					int f = next(fail[node], keys[node][i]);
+					fail[child] = f;
+					//The root is handled separately as it matches everywhere
+					out[child] = f != 0 && leaf[f] >= 0 ? f : out[f];
+					queue.add(child);
+				}
+			}
+		}
+
+	}
+
+}
@@ -49,7 +49,7 @@ public class IsMethodUsedDirectlyRestriction extends MethodMatcher implements IR
 	}
 	
 	private boolean applyResInner(DefUseGraph vt, INode vn, Value use) {
-		Set<INode> defs = vt.getChildLocalsToChildNodes(vn).get(use);
+		Set<INode> defs = vt.getChildNodesView(vn, use);
 		boolean found = false;
 		if(defs != null && !defs.isEmpty()) {
 			for(INode def : defs) { //Looking for direct or local to local usage (handled by vt) so only need one step back
@@ -125,7 +125,7 @@ public class IsNumberUsedRestriction extends NumberMatcher implements IRestricti
 							break;
 						}
 					} else if(use instanceof Local) {
-						Set<INode> defs = vt.getChildLocalsToChildNodes(vn).get(use);
+						Set<INode> defs = vt.getChildNodesView(vn, use);
 						if(defs != null && !defs.isEmpty()) {
 							boolean found = false;
 							for(INode def : defs) {
@@ -88,7 +88,7 @@ public class IsValueUsedInMethodCallRestriction implements IRestriction {
 					if(args.size() > 0 && pos < args.size()) {
 						Value v = args.get(pos);
 						if(v instanceof Local) {
-							Set<INode> nodes = vt.getChildLocalsToChildNodes(vn).get(v);
+							Set<INode> nodes = vt.getChildNodesView(vn, v);
 							if(nodes == null) {
 								defs = Collections.emptySet(); 
 							} else {
@@ -96,7 +96,7 @@ public class IsValueUsedInMethodCallRestriction implements IRestriction {
 								defs = new HashSet<>();
 								for(INode d : nodes) {
 									if(((Stmt)d.getUnit()).containsArrayRef()) {
-										defs.addAll(vt.getChildLocalsToChildNodes(d).get(((Stmt)d.getUnit()).getArrayRef().getBase()));
+										defs.addAll(vt.getChildNodesView(d, ((Stmt)d.getUnit()).getArrayRef().getBase()));
 									} else {
 										defs.add(d);
 									}
@@ -113,7 +113,7 @@ public class IsValueUsedInMethodCallRestriction implements IRestriction {
 					if(ir instanceof InstanceInvokeExpr) {
 						Value v = ((InstanceInvokeExpr)ir).getBase();
 						if(v instanceof Local) {
-							Set<INode> nodes = vt.getChildLocalsToChildNodes(vn).get(v);
+							Set<INode> nodes = vt.getChildNodesView(vn, v);
 							if(nodes == null) {
 								defs = Collections.emptySet(); 
 							} else {
@@ -121,7 +121,7 @@ public class IsValueUsedInMethodCallRestriction implements IRestriction {
 								defs = new HashSet<>();
 								for(INode d : nodes) {
 									if(((Stmt)d.getUnit()).containsArrayRef()) {
-										defs.addAll(vt.getChildLocalsToChildNodes(d).get(((Stmt)d.getUnit()).getArrayRef().getBase()));
+										defs.addAll(vt.getChildNodesView(d, ((Stmt)d.getUnit()).getArrayRef().getBase()));
 									} else {
 										defs.add(d);
 									}
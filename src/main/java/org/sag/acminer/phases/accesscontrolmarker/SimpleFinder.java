@@ -14,6 +14,7 @@ import java.util.Set;
 import org.sag.acminer.database.entrypointedges.IEntryPointEdgesDatabase;
 import org.sag.acminer.database.excludedelements.IExcludeHandler;
 import org.sag.acminer.phases.entrypoints.EntryPoint;
+import org.sag.common.concurrent.ConcurrentIdSet;
 import org.sag.common.concurrent.IgnorableRuntimeException;
 import org.sag.common.concurrent.ValueRunner;
 import org.sag.common.concurrent.ValueWorkerFactory;
@@ -24,7 +25,9 @@ import org.sag.common.tools.SortingMethods;
 import org.sag.common.tuple.Pair;
 import org.sag.common.tuple.Triple;
 import org.sag.soot.SootSort;
+import org.sag.soot.callgraph.CallGraphSnapshot;
 import org.sag.soot.callgraph.JimpleICFG.BasicEdgePredicate;
+import org.sag.soot.callgraph.ReachabilityIndex;
 
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -43,8 +46,10 @@ public class SimpleFinder {
 	private final String name;
 	private final WorkerCountingThreadExecutor exe;
 	private final CallGraph cg;
+	private final CallGraphSnapshot cgSnapshot;
 	private final Set<SootMethod> contextQueries;
 	private final BasicEdgePredicate edgePredicate;
+	private ReachabilityIndex reachIndex;
 	
 	private final LoadingCache<SootMethod,Set<Unit>> methodToSecurityExceptions = 
 			IDESolver.DEFAULT_CACHE_BUILDER.build(new CacheLoader<SootMethod,Set<Unit>>() {
@@ -75,11 +80,12 @@ public class SimpleFinder {
 				public Set<Unit> load(SootMethod source) throws Exception {
 					if(source != null && source.isConcrete()) {
 						Set<Unit> ret = new HashSet<Unit>();
-						Iterator<Edge> outE = new Filter(edgePredicate).wrap(cg.edgesOutOf(source));
-						while(outE.hasNext()){
-							Edge e = outE.next();
-							if(contextQueries.contains(e.tgt())){
-								ret.add(e.srcUnit());
+						int id = cgSnapshot.getId(source);
+						if(id >= 0) {
+							for(int e = cgSnapshot.getOutStart(id); e < cgSnapshot.getOutEnd(id); e++) {
+								if(cgSnapshot.isBasicEdge(e, false) && contextQueries.contains(cgSnapshot.getMethod(cgSnapshot.getTarget(e)))){
+									ret.add(cgSnapshot.getCallSite(e));
+								}
 							}
 						}
 						if(ret.isEmpty())
@@ -94,10 +100,28 @@ public class SimpleFinder {
 		this.name = getClass().getSimpleName();
 		this.exe = new WorkerCountingThreadExecutor(new ValueWorkerFactory<>());
 		this.cg = Scene.v().getCallGraph();
+		this.cgSnapshot = CallGraphSnapshot.v();
 		this.contextQueries = contextQueries;
 		this.edgePredicate = new BasicEdgePredicate();
 	}
 	
+	private static boolean isInit(SootMethod m) {
+		return m.getName().equals("<init>") || m.getName().equals("<clinit>");
+	}
+	
+	//Constructors are never traversed so the index is built without their outgoing edges
+	private synchronized ReachabilityIndex getReachabilityIndex() {
+		if(reachIndex == null) {
+			reachIndex = ReachabilityIndex.build(cgSnapshot, false, new CallGraphSnapshot.IMethodFilter() {
+				@Override
+				public boolean traverse(SootMethod m) {
+					return !isInit(m);
+				}
+			});
+		}
+		return reachIndex;
+	}
+	
 	public boolean shutdownWhenFinished() {
 		return exe.shutdownWhenFinished();
 	}
@@ -112,9 +136,10 @@ public class SimpleFinder {
 			ILogger logger) {
 		try {
 			SimpleFinderGroup group = new SimpleFinderGroup(name,ep.toString(),logger);
-			Set<SootMethod> seen = Collections.<SootMethod>synchronizedSet(new HashSet<SootMethod>());
-			executeRunner(new SimpleFinderRunner(ep.getEntryPoint(), 0, seen, excludeHandler, allEntryPointsForStub, allEntryPointsNotForStub, logger),
-					group,logger);
+			//Methods are visited by their id in the call graph snapshot so the workers do not contend on a shared lock
+			ConcurrentIdSet seen = new ConcurrentIdSet(cgSnapshot.getMethodCount());
+			executeRunner(new SimpleFinderRunner(ep.getEntryPoint(), 0, seen, group, excludeHandler, allEntryPointsForStub, 
+					allEntryPointsNotForStub, logger),group,logger);
 			group.unlockInitialLock();
 			GroupVal val = group.getReturnValue();
 			if(group.shutdownNormally() && !group.hasExceptions()) {
@@ -191,19 +216,19 @@ public class SimpleFinder {
 				}
 			}
 			
-			ContextQuerySubGraphGroup group = new ContextQuerySubGraphGroup(name,ep.toString(),logger);
+			//The subgraph of a context query is every method reachable from it without passing through an excluded
+			//method or a constructor, neither of which are part of the subgraph (except for the context query itself)
+			ReachabilityIndex reachIndex = getReachabilityIndex();
+			ReachabilityIndex.Mask mask = reachIndex.getMask(excludeHandler);
+			Map<SootMethod,Set<SootMethod>> val = new HashMap<>();
 			for(SootMethod cq : cqs) {
-				Set<SootMethod> seen = Collections.<SootMethod>synchronizedSet(new HashSet<SootMethod>());
-				executeRunner(new ContextQuerySubGraphRunner(cq, cq, seen, excludeHandler, logger), group, logger);
-			}
-			group.unlockInitialLock();
-			
-			Map<SootMethod,Set<SootMethod>> val = group.getReturnValue();
-			if(group.shutdownNormally() && !group.hasExceptions()) {
-				logger.fineInfo("{}: Successfully completed context query subgraphs for group '{}'.",name,group.getName());
-			} else {
-				logger.fatal("{}: Failed to complete context query subgraphs for group '{}'.",name,group.getName());
-				throw new IgnorableRuntimeException();
+				Set<SootMethod> subGraph = new HashSet<>();
+				subGraph.add(cq);
+				for(SootMethod sm : reachIndex.getReachable(cq, mask)) {
+					if(!excludeHandler.isExcludedMethodWithOverride(sm) && !isInit(sm))
+						subGraph.add(sm);
+				}
+				val.put(cq, subGraph);
 			}
 			
 			if(val.isEmpty()) {
@@ -225,7 +250,7 @@ public class SimpleFinder {
 		}
 	}
 	
-	private synchronized <O> void executeRunner(ValueRunner<O> runner, ValueWorkerGroup<?,O> g, ILogger logger) {
+	private <O> void executeRunner(ValueRunner<O> runner, ValueWorkerGroup<?,O> g, ILogger logger) {
 		try {
 			exe.execute(runner,g);
 		} catch(Throwable t) {
@@ -234,14 +259,12 @@ public class SimpleFinder {
 		}
 	}
 	
-	private synchronized <O> void executeRunners(Iterable<ValueRunner<O>> runners, ILogger logger) {
-		for(ValueRunner<O> runner : runners) {
-			try {
-				exe.execute(runner);
-			} catch(Throwable t) {
-				logger.fatal("{}: Failed to execute '{}'.",t,name,runner.toString());
-				throw new IgnorableRuntimeException();
-			}
+	private <O> void executeRunners(List<ValueRunner<O>> runners, ValueWorkerGroup<?,O> g, ILogger logger) {
+		try {
+			g.execute(exe, runners);
+		} catch(Throwable t) {
+			logger.fatal("{}: Failed to execute '{}' for group '{}'.",t,name,runners.toString(),g.getName());
+			throw new IgnorableRuntimeException();
 		}
 	}
 	
@@ -351,18 +374,20 @@ public class SimpleFinder {
 	private final class SimpleFinderRunner implements ValueRunner<RetVal> {
 
 		private final RetVal data;
-		private final Set<SootMethod> seen;
+		private final ConcurrentIdSet seen;
+		private final SimpleFinderGroup group;
 		private final IExcludeHandler excludeHandler;
 		private final ILogger logger;
 		private final Map<SootMethod,Set<EntryPoint>> allEntryPointsForStub;
 		private final Map<SootMethod,Set<EntryPoint>> allEntryPointsNotForStub;
 		
-		public SimpleFinderRunner(SootMethod cur, int depth, Set<SootMethod> seen, IExcludeHandler excludeHandler, 
+		public SimpleFinderRunner(SootMethod cur, int depth, ConcurrentIdSet seen, SimpleFinderGroup group, IExcludeHandler excludeHandler, 
 				Map<SootMethod,Set<EntryPoint>> allEntryPointsForStub, 
 				Map<SootMethod,Set<EntryPoint>> allEntryPointsNotForStub, ILogger logger) {
 			this.data = new RetVal(cur,depth);
 			this.logger = logger;
 			this.seen = seen;
+			this.group = group;
 			this.excludeHandler = excludeHandler;
 			this.allEntryPointsForStub = allEntryPointsForStub;
 			this.allEntryPointsNotForStub = allEntryPointsNotForStub;
@@ -376,10 +401,12 @@ public class SimpleFinder {
 			// so if a method is reachable then it will be the same data for that method
 			data.cqUnits = methodToContextQueries.getUnchecked(data.source);
 			data.seUnits = methodToSecurityExceptions.getUnchecked(data.source);
-			Iterator<Edge> itEdge = new Filter(edgePredicate).wrap(cg.edgesOutOf(data.source));
-			while(itEdge.hasNext()) {
-				Edge e = itEdge.next();
-				SootMethod sm = e.tgt();
+			int id = cgSnapshot.getId(data.source);
+			for(int e = id < 0 ? 0 : cgSnapshot.getOutStart(id), end = id < 0 ? 0 : cgSnapshot.getOutEnd(id); e < end; e++) {
+				if(!cgSnapshot.isBasicEdge(e, false))
+					continue;
+				int target = cgSnapshot.getTarget(e);
+				SootMethod sm = cgSnapshot.getMethod(target);
 				
 				//A SootMethod that is identified as an entry point could have multiple stubs and therefore 
 				//multiple EntryPoint objects, like in the case of the common binder methods.
@@ -393,7 +420,7 @@ public class SimpleFinder {
 							units = new HashSet<>();
 							ieEntryPoints.put(ep, units);
 						}
-						units.add(e.srcUnit());
+						units.add(cgSnapshot.getCallSite(e));
 					}
 				}
 				
@@ -406,13 +433,14 @@ public class SimpleFinder {
 							units = new HashSet<>();
 							ieEntryPoints.put(ep, units);
 						}
-						units.add(e.srcUnit());
+						units.add(cgSnapshot.getCallSite(e));
 					}
 				}
 				
 				if(!excludeHandler.isExcludedMethodWithOverride(sm)) {
-					if(seen.add(sm)) {
-						runners.add(new SimpleFinderRunner(sm,data.depth+1,seen,excludeHandler,allEntryPointsForStub,allEntryPointsNotForStub,logger));
+					if(seen.add(target)) {
+						runners.add(new SimpleFinderRunner(sm,data.depth+1,seen,group,excludeHandler,allEntryPointsForStub,
+								allEntryPointsNotForStub,logger));
 					} else {
 						if(data.moreUses.isEmpty())
 							data.moreUses = new HashSet<>();
@@ -421,7 +449,7 @@ public class SimpleFinder {
 				}
 			}
 			if(!runners.isEmpty())
-				executeRunners(runners,logger);
+				executeRunners(runners,group,logger);
 		}
 
 		@Override
@@ -431,75 +459,4 @@ public class SimpleFinder {
 		
 	}
 	
-	private static final class ContextQuerySubGraphGroup extends ValueWorkerGroup<Map<SootMethod,Set<SootMethod>>,
-	Pair<SootMethod,Set<SootMethod>>> {
-		public ContextQuerySubGraphGroup(String name, String ep, ILogger logger) {
-			super(name,ep,logger,false,false);
-		}
-		@Override
-		protected Map<SootMethod,Set<SootMethod>> initReturnValue() { return new HashMap<>(); }
-
-		@Override
-		protected void joinWorkerReturnValue(Pair<SootMethod,Set<SootMethod>> v) {
-			Set<SootMethod> temp = ret.get(v.getFirst());
-			if(temp == null) {
-				temp = new HashSet<>();
-				ret.put(v.getFirst(), temp);
-				temp.add(v.getFirst());//Make sure the context query method is part of its subgraph
-			}
-			temp.addAll(v.getSecond());
-		}
-
-		@Override
-		protected void finalizeReturnValue() {}
-	}
-	
-	public final class ContextQuerySubGraphRunner implements ValueRunner<Pair<SootMethod,Set<SootMethod>>> {
-		
-		private final SootMethod cq;
-		private final SootMethod cur;
-		private volatile Set<SootMethod> ret;
-		private final Set<SootMethod> seen;
-		private final IExcludeHandler excludeHandler;
-		private final ILogger logger;
-		
-		public ContextQuerySubGraphRunner(SootMethod cq, SootMethod cur, Set<SootMethod> seen, IExcludeHandler excludeHandler, ILogger logger) {
-			this.cq = cq;
-			this.cur = cur;
-			this.seen = seen;
-			this.excludeHandler = excludeHandler;
-			this.logger = logger;
-			this.ret = Collections.emptySet();
-		}
-		
-		@Override
-		public void run() {
-			List<ValueRunner<Pair<SootMethod,Set<SootMethod>>>> runners = new ArrayList<>();
-			//Make sure that if the context query we start with is excluded we don't explore its body
-			if(!excludeHandler.isExcludedMethodWithOverride(cur) && !cur.getName().equals("<init>") && !cur.getName().equals("<clinit>")) {
-				Iterator<Edge> itEdge = new Filter(edgePredicate).wrap(cg.edgesOutOf(cur));
-				while(itEdge.hasNext()) {
-					Edge e = itEdge.next();
-					SootMethod sm = e.tgt();
-					if(seen.add(sm)) {
-						if(!excludeHandler.isExcludedMethodWithOverride(sm) && !sm.getName().equals("<init>") && !sm.getName().equals("<clinit>")) {
-							runners.add(new ContextQuerySubGraphRunner(cq,sm,seen,excludeHandler,logger));
-							if(ret.isEmpty())
-								ret = new HashSet<>();
-							ret.add(sm);
-						}
-					}
-				}
-			}
-			if(!runners.isEmpty())
-				executeRunners(runners,logger);
-		}
-
-		@Override
-		public Pair<SootMethod,Set<SootMethod>> getValue() {
-			return new Pair<SootMethod,Set<SootMethod>>(cq,ret);
-		}
-		
-	}
-	
 }
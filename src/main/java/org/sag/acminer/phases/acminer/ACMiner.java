@@ -1,7 +1,5 @@
 package org.sag.acminer.phases.acminer;
 
-import heros.solver.IDESolver;
-
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -12,6 +10,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
 
 import org.sag.acminer.IACMinerDataAccessor;
 import org.sag.acminer.database.defusegraph.DefUseGraph;
@@ -49,7 +51,6 @@ import org.sag.common.tools.SortingMethods;
 import org.sag.soot.callgraph.IJimpleICFG;
 import org.sag.soot.callgraph.SwitchWrapper;
 
-import com.google.common.cache.Cache;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.math.IntMath;
 
@@ -81,6 +82,10 @@ public class ACMiner {
 	private final String name;
 	private final WorkerCountingThreadExecutor exe;
 	private final DefUseGraphModifier modifier;
+	//Only non-null when the miner resolves the def use graphs as fork join tasks
+	private final ForkJoinPool pool;
+	//When false no debug trace of the node visits is recorded and nothing is rendered for the debug log
+	private final boolean enableDebug;
 	
 	/* Output simplifications
 	 * Anything not a primitive type or a string type is given the value ALL
@@ -103,15 +108,35 @@ public class ACMiner {
 	 * All Pairs where the values are equal are removed
 	 */
 	public ACMiner() {
+		this(false, false);
+	}
+	
+	/** When forkJoin is true, the def use graph of each entry point is resolved bottom-up as a set of 
+	 * fork join tasks (i.e. each thread has its own deque of nodes to resolve) instead of submitting 
+	 * every node visit to the shared queue of the executor. Both modes produce the same results. When 
+	 * enableDebug is false the miner does not record or render a trace of the node visits.
+	 */
+	public ACMiner(boolean forkJoin, boolean enableDebug) {
 		this.name = getClass().getSimpleName();
 		this.exe = new WorkerCountingThreadExecutor(new ValueWorkerFactory<>());
 		this.modifier = new DefUseGraphModifier(exe);
+		this.pool = forkJoin ? new ForkJoinPool() : null;
+		this.enableDebug = enableDebug;
 		DataWrapper.initCache();
 	}
 	
 	public boolean shutdownWhenFinished() {
 		//calls shutdownWhenFinished on the exe and clears the other caches
 		boolean ret = modifier.shutdownWhenFinished();
+		if(pool != null) {
+			pool.shutdown();
+			try {
+				if(!pool.awaitTermination(Integer.MAX_VALUE, TimeUnit.DAYS))
+					ret = false;
+			} catch(InterruptedException e) {
+				ret = false;
+			}
+		}
 		DataWrapper.clearCache();
 		return ret;
 	}
@@ -145,48 +170,67 @@ public class ACMiner {
 	}
 	
 	public Map<StartNode,List<ValuePair>> mineData(EntryPoint ep, DefUseGraph graph, IACMinerDataAccessor dataAccessor, ILogger logger) {
-		return mineData(ep, graph, false, dataAccessor, logger);
+		return mineData(ep, graph, false, dataAccessor, null, logger);
+	}
+	
+	public Map<StartNode,List<ValuePair>> mineData(EntryPoint ep, DefUseGraph graph, IACMinerDataAccessor dataAccessor, 
+			SharedNodeDataCache sharedCache, ILogger logger) {
+		return mineData(ep, graph, false, dataAccessor, sharedCache, logger);
 	}
 	
 	public Map<StartNode,List<ValuePair>> mineData(EntryPoint ep, DefUseGraph graph, boolean subCapture, IACMinerDataAccessor dataAccessor, 
 			ILogger logger) {
+		return mineData(ep, graph, subCapture, dataAccessor, null, logger);
+	}
+	
+	/** Mines the data for all start nodes of the def use graph of the given entry point. If a shared cache is given then
+	 * the data of nodes resolved for other entry points is reused where the def use subtree is the same. The shared 
+	 * cache is ignored when subCapture is set since parameter refs then resolve differently depending on the entry point.
+	 */
+	public Map<StartNode,List<ValuePair>> mineData(EntryPoint ep, DefUseGraph graph, boolean subCapture, IACMinerDataAccessor dataAccessor, 
+			SharedNodeDataCache sharedCache, ILogger logger) {
 		try {
 			logger.debug("{}: Mining simple data for ep '{}'.",name,ep);
 			
-			Cache<INode,Set<DataWrapper>> cache = IDESolver.DEFAULT_CACHE_BUILDER.build();
+			NodeDataCache cache = new NodeDataCache(graph, graph.getStartNodes(), subCapture ? null : sharedCache);
 			Map<INode,ValuePairHashSet> results = new HashMap<>();
 			for(StartNode sn : graph.getStartNodes()) {
 				results.put(sn, new ValuePairHashSet());
 			}
-			SimpleValueWorkerGroup g = new SimpleValueWorkerGroup(name,ep+"_ACMiner",logger,false,false);
-			for(StartNode sn : graph.getStartNodes()) {
-				executeRunner(new MinerRunner(ep, new DataNode(sn, null, null, graph, dataAccessor, subCapture), 
-						graph, cache, results, subCapture, false, dataAccessor, logger), g, logger);
+			if(pool != null) {
+				mineForkJoin(ep, graph, graph.getStartNodes(), cache, results, subCapture, false, dataAccessor, logger);
+			} else {
+				SimpleValueWorkerGroup g = new SimpleValueWorkerGroup(name,ep+"_ACMiner",logger,false,false);
+				for(StartNode sn : graph.getStartNodes()) {
+					executeRunner(new MinerRunner(ep, new DataNode(sn, null, null, graph, dataAccessor, subCapture), 
+							graph, cache, results, subCapture, false, dataAccessor, logger), g, logger);
+				}
+				g.unlockInitialLock();
+				g.getReturnValue();//block
+				
+				if(!g.shutdownNormally() || g.hasExceptions()) {
+					logger.fatal("{}: Failed mine simple data for group '{}'.",name,g.getName());
+					throw new IgnorableRuntimeException();
+				}
 			}
-			g.unlockInitialLock();
-			g.getReturnValue();//block
 			
-			if(g.shutdownNormally() && !g.hasExceptions()) {
-				Map<StartNode,List<ValuePair>> resultsSorted = new HashMap<>();
-				for(StartNode sn : graph.getStartNodes()) {
-					ValuePairHashSet vp = results.get(sn);
-					if(vp == null) {
-						resultsSorted.put(sn, Collections.<ValuePair>emptyList());
-					} else {
-						synchronized(vp) {
-							List<ValuePair> temp = new ArrayList<>(vp);
-							Collections.sort(temp);
-							resultsSorted.put(sn, temp);
-						}
+			Map<StartNode,List<ValuePair>> resultsSorted = new HashMap<>();
+			for(StartNode sn : graph.getStartNodes()) {
+				ValuePairHashSet vp = results.get(sn);
+				if(vp == null) {
+					resultsSorted.put(sn, Collections.<ValuePair>emptyList());
+				} else {
+					synchronized(vp) {
+						List<ValuePair> temp = new ArrayList<>(vp);
+						Collections.sort(temp);
+						resultsSorted.put(sn, temp);
 					}
 				}
-				resultsSorted = SortingMethods.sortMapKeyAscending(resultsSorted);
-				logger.debug("{}: Successfully mined data for ep '{}'.",name,ep);
-				return resultsSorted;
-			} else {
-				logger.fatal("{}: Failed mine simple data for group '{}'.",name,g.getName());
-				throw new IgnorableRuntimeException();
 			}
+			resultsSorted = SortingMethods.sortMapKeyAscending(resultsSorted);
+			logger.debug("{}: Node cache for ep '{}': {}",name,ep,cache);
+			logger.debug("{}: Successfully mined data for ep '{}'.",name,ep);
+			return resultsSorted;
 		} catch(IgnorableRuntimeException t) {
 			throw t;
 		} catch(Throwable t) {
@@ -200,40 +244,45 @@ public class ACMiner {
 		try {
 			logger.debug("{}: Mining additional simple data for ep '{}'.",name,ep);
 			
-			Cache<INode,Set<DataWrapper>> cache = IDESolver.DEFAULT_CACHE_BUILDER.build();
+			NodeDataCache cache = new NodeDataCache(graph, startNodes);
 			Map<INode,ValuePairHashSet> results = new HashMap<>();
 			for(INode sn : startNodes) {
 				results.put(sn, new ValuePairHashSet());
 			}
-			SimpleValueWorkerGroup g = new SimpleValueWorkerGroup(name,ep+"_additionalACMiner",logger,false,false);
-			for(INode sn : startNodes) {
-				executeRunner(new MinerRunner(ep, new DataNode(sn, null, null, graph, dataAccessor, false), 
-						graph, cache, results, false, true, dataAccessor, logger), g, logger);
+			if(pool != null) {
+				mineForkJoin(ep, graph, startNodes, cache, results, false, true, dataAccessor, logger);
+			} else {
+				SimpleValueWorkerGroup g = new SimpleValueWorkerGroup(name,ep+"_additionalACMiner",logger,false,false);
+				for(INode sn : startNodes) {
+					executeRunner(new MinerRunner(ep, new DataNode(sn, null, null, graph, dataAccessor, false), 
+							graph, cache, results, false, true, dataAccessor, logger), g, logger);
+				}
+				g.unlockInitialLock();
+				g.getReturnValue();//block
+				
+				if(!g.shutdownNormally() || g.hasExceptions()) {
+					logger.fatal("{}: Failed to mine additional simple data for group '{}'.",name,g.getName());
+					throw new IgnorableRuntimeException();
+				}
 			}
-			g.unlockInitialLock();
-			g.getReturnValue();//block
 			
-			if(g.shutdownNormally() && !g.hasExceptions()) {
-				Map<INode,List<ValuePair>> resultsSorted = new HashMap<>();
-				for(INode sn : startNodes) {
-					ValuePairHashSet vp = results.get(sn);
-					if(vp == null) {
-						resultsSorted.put(sn, Collections.<ValuePair>emptyList());
-					} else {
-						synchronized(vp) {
-							List<ValuePair> temp = new ArrayList<>(vp);
-							Collections.sort(temp);
-							resultsSorted.put(sn, temp);
-						}
+			Map<INode,List<ValuePair>> resultsSorted = new HashMap<>();
+			for(INode sn : startNodes) {
+				ValuePairHashSet vp = results.get(sn);
+				if(vp == null) {
+					resultsSorted.put(sn, Collections.<ValuePair>emptyList());
+				} else {
+					synchronized(vp) {
+						List<ValuePair> temp = new ArrayList<>(vp);
+						Collections.sort(temp);
+						resultsSorted.put(sn, temp);
 					}
 				}
-				resultsSorted = SortingMethods.sortMapKeyAscending(resultsSorted);
-				logger.debug("{}: Successfully mined additional data for ep '{}'.",name,ep);
-				return resultsSorted;
-			} else {
-				logger.fatal("{}: Failed to mine additional simple data for group '{}'.",name,g.getName());
-				throw new IgnorableRuntimeException();
 			}
+			resultsSorted = SortingMethods.sortMapKeyAscending(resultsSorted);
+			logger.debug("{}: Node cache for additional data of ep '{}': {}",name,ep,cache);
+			logger.debug("{}: Successfully mined additional data for ep '{}'.",name,ep);
+			return resultsSorted;
 		} catch(IgnorableRuntimeException t) {
 			throw t;
 		} catch(Throwable t) {
@@ -265,7 +314,7 @@ public class ACMiner {
 			this.dataAccessor = dataAccessor;
 			this.count = 0;
 			long t = 0;
-			Map<LocalWrapper, Set<INode>> children = graph.getChildLocalWrappersToChildNodes(node);
+			Map<LocalWrapper, Set<INode>> children = graph.getChildLocalWrappersToChildNodesView(node);
 			for(LocalWrapper lw : children.keySet()) {
 				resolvedData.put(lw, new HashSet<DataWrapper>());
 				t += children.get(lw).size();
@@ -389,7 +438,7 @@ public class ACMiner {
 			}
 		}
 		
-		public synchronized List<ValuePair> getResolvedStringsForStartNodes(ILogger logger) {
+		public synchronized List<ValuePair> getResolvedStringsForStartNodes(boolean enableDebug, ILogger logger) {
 			checkClearedData();
 			if(!(node instanceof StartNode))
 				throw new RuntimeException("Error: We should only be calling this method from start nodes.");
@@ -476,9 +525,11 @@ public class ACMiner {
 			ret = replaceBinderInvokesWithEps(ret, dataAccessor);
 			ret = simplifyPairs(ret);
 			
-			logger.debug("DataNode-{}: Start node strings for '{}':",hashCode(),node.toString());
-			for(ValuePair p : ret) {
-				logger.debug("DataNode-{}:     ValuePair - '{}'",hashCode(),p);
+			if(enableDebug) {
+				logger.debug("DataNode-{}: Start node strings for '{}':",hashCode(),node.toString());
+				for(ValuePair p : ret) {
+					logger.debug("DataNode-{}:     ValuePair - '{}'",hashCode(),p);
+				}
 			}
 			
 			clearData();
@@ -491,7 +542,7 @@ public class ACMiner {
 				return ret;//No point in sorting here since it will just be joined with the other start nodes for this ep
 		}
 		
-		public synchronized Set<DataWrapper> getResolvedStrings(EntryPoint ep, ILogger logger) {
+		public synchronized Set<DataWrapper> getResolvedStrings(EntryPoint ep, boolean enableDebug, ILogger logger) {
 			checkClearedData();
 			if(node instanceof StartNode)
 				throw new RuntimeException("Error: We should only be calling this method from the child nodes.");
@@ -526,24 +577,28 @@ public class ACMiner {
 				ret = Collections.singleton(s);
 			} else {
 				Set<List<DataWrapper>> subGroups = getSubstitutionGroups(usedLocals);
-				logger.debug("DataNode-{}: Resolved string groups for '{}':",hashCode(),node.toString());
-				for(List<DataWrapper> l : subGroups) {
-					StringBuilder sb = new StringBuilder();
-					sb.append("[");
-					boolean first = true;
-					for(DataWrapper d : l) {
-						if(first)
-							first = false;
-						else
-							sb.append(", ");
-						sb.append(d.toString()).append(" ").append(d.getClass().getSimpleName());
+				if(enableDebug) {
+					logger.debug("DataNode-{}: Resolved string groups for '{}':",hashCode(),node.toString());
+					for(List<DataWrapper> l : subGroups) {
+						StringBuilder sb = new StringBuilder();
+						sb.append("[");
+						boolean first = true;
+						for(DataWrapper d : l) {
+							if(first)
+								first = false;
+							else
+								sb.append(", ");
+							sb.append(d.toString()).append(" ").append(d.getClass().getSimpleName());
+						}
+						logger.debug("DataNode-{}:     Group - '{}'",hashCode(),sb.toString());
 					}
-					logger.debug("DataNode-{}:     Group - '{}'",hashCode(),sb.toString());
 				}
 				ret = performSubstitution(subGroups);
-				logger.debug("DataNode-{}: Resolved strings for '{}':",hashCode(),node.toString());
-				for(DataWrapper s : ret) {
-					logger.debug("DataNode-{}:     RS - '{}' '{}'",hashCode(),s,s.getClass().getSimpleName());
+				if(enableDebug) {
+					logger.debug("DataNode-{}: Resolved strings for '{}':",hashCode(),node.toString());
+					for(DataWrapper s : ret) {
+						logger.debug("DataNode-{}:     RS - '{}' '{}'",hashCode(),s,s.getClass().getSimpleName());
+					}
 				}
 			}
 			
@@ -757,19 +812,58 @@ public class ACMiner {
 		}
 	}
 	
+	/** Waits on a child node being resolved by another thread and re-adds the parent node to the queue
+	 * for its second pass if the child was the last one it was waiting on.
+	 */
+	private class ParentListener implements NodeDataCache.Listener {
+		private final EntryPoint ep;
+		private final DataNode parent;
+		private final LocalWrapper parentLocalWrapper;
+		private final DefUseGraph graph;
+		private final NodeDataCache cache;
+		private final Map<INode,ValuePairHashSet> results;
+		private final boolean subCapture;
+		private final boolean isAdditional;
+		private final IACMinerDataAccessor dataAccessor;
+		private final ILogger logger;
+		
+		public ParentListener(EntryPoint ep, DataNode parent, LocalWrapper parentLocalWrapper, DefUseGraph graph, NodeDataCache cache, 
+				Map<INode,ValuePairHashSet> results, boolean subCapture, boolean isAdditional, IACMinerDataAccessor dataAccessor, ILogger logger) {
+			this.ep = ep;
+			this.parent = parent;
+			this.parentLocalWrapper = parentLocalWrapper;
+			this.graph = graph;
+			this.cache = cache;
+			this.results = results;
+			this.subCapture = subCapture;
+			this.isAdditional = isAdditional;
+			this.dataAccessor = dataAccessor;
+			this.logger = logger;
+		}
+		
+		@Override
+		public void resolved(Set<DataWrapper> data) {
+			parent.addResolvedData(parentLocalWrapper, data);
+			if(parent.incCount()) {
+				executeRunners(Collections.<ValueRunner<Object>>singletonList(new MinerRunner(ep, parent, graph, cache, results, 
+						subCapture, isAdditional, dataAccessor, logger)), logger);
+			}
+		}
+	}
+	
 	private class MinerRunner extends SimpleValueRunner {
 		private EntryPoint ep;
 		private DefUseGraph graph;
 		private DataNode cur;
 		private ILogger logger;
 		private List<ValueRunner<Object>> runners;
-		private Cache<INode,Set<DataWrapper>> cache;
+		private NodeDataCache cache;
 		private Map<INode,ValuePairHashSet> results;
 		private IACMinerDataAccessor dataAccessor;
 		private final boolean subCapture;
 		private final boolean isAdditional;
 		
-		public MinerRunner(EntryPoint ep, DataNode cur, DefUseGraph graph, Cache<INode,Set<DataWrapper>> cache, 
+		public MinerRunner(EntryPoint ep, DataNode cur, DefUseGraph graph, NodeDataCache cache, 
 				Map<INode,ValuePairHashSet> results, boolean subCapture, boolean isAdditional, IACMinerDataAccessor dataAccessor, ILogger logger) {
 			this.ep = ep;
 			this.graph = graph;
@@ -801,61 +895,59 @@ public class ACMiner {
 			LocalWrapper parentLocalWrapper = cur.getParentLocalWrapper();
 			INode startNode = cur.getStartNode();
 			try {
-				StringBuilder sb = new StringBuilder();
+				MinerTrace trace = MinerTrace.get(enableDebug);
 				if(!cur.childrenFinished()) {
-					sb.append("Visiting First Node='").append(currentNode.toString()).append("' Parent='")
-						.append(parent == null ? "NULL" : parent.getCurrentNode().toString())
-						.append("' StartNode='").append(startNode.toString()).append("' EP='").append(ep).append("'\n");
+					trace.visit(MinerTrace.Phase.FIRST, currentNode, parent == null ? null : parent.getCurrentNode(), startNode, ep);
 					//This is our first pass of this node where we add the children to be explored
-					Map<LocalWrapper, Set<INode>> childrenMap = graph.getChildLocalWrappersToChildNodes(currentNode);
+					Map<LocalWrapper, Set<INode>> childrenMap = graph.getChildLocalWrappersToChildNodesView(currentNode);
 					for(LocalWrapper lw : childrenMap.keySet()) {
 						Set<INode> children = childrenMap.get(lw);
 						if(!isAllowedType(lw.getLocal().getType())) {
-							sb.append("    Local '").append(lw.toString()).append("' has denied type '").append(lw.getLocal().getType())
-								.append("'. Skipping all children.\n");
+							trace.event(MinerTrace.Event.DENIED_TYPE, lw);
 							cur.addResolvedData(lw, DataWrapper.getAllConstant());
 							for(INode child : children) {
-								sb.append("    Denied local type. Skipping child '").append(child.toString())
-									.append("' for '").append(lw.toString()).append("'\n");
+								trace.event(MinerTrace.Event.SKIP_DENIED_CHILD, child, lw);
 								if(cur.incCount()) {
-									sb.append("    The current node has no more children to explore. Re-Adding to queue for second pass\n");
+									trace.event(MinerTrace.Event.REQUEUE_SELF);
 									runners.add(new MinerRunner(ep, cur, graph, cache, results, subCapture, isAdditional, dataAccessor, logger));
 								}
 							}
 						} else {
 							if(children.isEmpty()) {
 								//No need to worry about the count here since total only includes the child nodes
-								sb.append("    No child nodes for local '").append(lw.toString()).append("'\n");
+								trace.event(MinerTrace.Event.NO_CHILDREN, lw);
 								cur.addResolvedData(lw, DataWrapper.getNoneConstant());
 							} else {
 								for(INode child : children) {
-									Set<DataWrapper> res = null;
-									synchronized(cache) {
-										res = cache.getIfPresent(child);
-									}
+									Set<DataWrapper> res = cache.getIfPresent(child);
 									if(res == null) {
 										//Node is not cached yet so generate it's data
 										if(cur.seenBefore(child)) {//Avoid cycles in the graph
-											sb.append("    Cycle detected. Have seen before child node '").append(child.toString())
-												.append("' for '").append(lw.toString()).append("'\n");
+											trace.event(MinerTrace.Event.CYCLE, child, lw);
 											cur.addResolvedData(lw, DataWrapper.getAllConstant());
 											//Since this was the last child, we must re-add the node to the queue to process the results
 											if(cur.incCount()) {
-												sb.append("    The current node has no more children to explore. Re-Adding to queue for second pass\n");
+												trace.event(MinerTrace.Event.REQUEUE_SELF);
 												runners.add(new MinerRunner(ep, cur, graph, cache, results, subCapture, isAdditional, dataAccessor, logger));
 											}
 										} else {
-											sb.append("    Adding to queue child node '").append(child.toString())
-												.append("' for '").append(lw.toString()).append("'\n");
-											runners.add(new MinerRunner(ep, new DataNode(child, cur, lw, graph, dataAccessor, subCapture), graph, 
-													cache, results, subCapture, isAdditional, dataAccessor, logger));
+											NodeDataCache.State state = cache.claim(child, new ParentListener(ep, cur, lw, graph, cache, results, 
+													subCapture, isAdditional, dataAccessor, logger));
+											if(state == NodeDataCache.State.OWNER) {
+												trace.event(MinerTrace.Event.QUEUE_CHILD, child, lw);
+												runners.add(new MinerRunner(ep, new DataNode(child, cur, lw, graph, dataAccessor, subCapture), graph, 
+														cache, results, subCapture, isAdditional, dataAccessor, logger));
+											} else if(state == NodeDataCache.State.WAITING) {
+												trace.event(MinerTrace.Event.WAIT_CHILD, child, lw);
+											} else {
+												trace.event(MinerTrace.Event.CACHED_CHILD, child, lw);
+											}
 										}
 									} else {
-										sb.append("    Already computed data for child node '").append(child.toString())
-											.append("' for '").append(lw.toString()).append("'\n");
+										trace.event(MinerTrace.Event.CACHED_CHILD, child, lw);
 										cur.addResolvedData(lw, res);
 										if(cur.incCount()) {//Since this was the last child, we must re-add the node to the queue to process the results
-											sb.append("    The current node has no more children to explore. Re-Adding to queue for second pass\n");
+											trace.event(MinerTrace.Event.REQUEUE_SELF);
 											runners.add(new MinerRunner(ep, cur, graph, cache, results,  subCapture, isAdditional, dataAccessor, logger));
 										}
 									}
@@ -864,40 +956,33 @@ public class ACMiner {
 						}
 					}
 				} else {
-					sb.append("Visiting Second Node='").append(currentNode.toString()).append("' Parent='")
-						.append(parent == null ? "NULL" : parent.getCurrentNode().toString())
-						.append("' StartNode='").append(startNode.toString()).append("' EP='").append(ep).append("'\n");
+					trace.visit(MinerTrace.Phase.SECOND, currentNode, parent == null ? null : parent.getCurrentNode(), startNode, ep);
 					cur.finalizeResults();
 					if(cur.isStart()) {
-						sb.append("    Computing resolved data for start node.");
 						INode curNode = cur.getCurrentNode();
 						ValuePairHashSet curRes = results.get(curNode);
 						List<ValuePair> listRes;
 						if(isAdditional) {
 							listRes = new ArrayList<>();
-							Set<DataWrapper> resolvedData = cur.getResolvedStrings(ep, logger);//Cannot use cur after this call
+							Set<DataWrapper> resolvedData = cur.getResolvedStrings(ep, enableDebug, logger);//Cannot use cur after this call
 							for(DataWrapper dw : resolvedData) {
 								listRes.add(ValuePair.make(dw,curNode.getSource(),curNode.getUnit(),curNode.toString()));
 							}
 						} else {
-							listRes = cur.getResolvedStringsForStartNodes(logger);//Cannot use cur after this call
+							listRes = cur.getResolvedStringsForStartNodes(enableDebug, logger);//Cannot use cur after this call
 						}
 						synchronized(curRes) {
 							curRes.addAll(listRes);
 						}
-						sb.append("    Finished computing resolved data for start node.");
+						trace.event(MinerTrace.Event.START_NODE_DATA);
 					} else {
-						sb.append("    Computing resolved data.");
-						Set<DataWrapper> resolvedData = cur.getResolvedStrings(ep, logger);//Cannot use cur after this call
+						Set<DataWrapper> resolvedData = cur.getResolvedStrings(ep, enableDebug, logger);//Cannot use cur after this call
 						
-						synchronized(cache) {
-							if(cache.getIfPresent(currentNode) == null)
-								cache.put(currentNode, resolvedData);
-						}
+						cache.complete(currentNode, resolvedData);
 						parent.addResolvedData(parentLocalWrapper, resolvedData);
-						sb.append("    Finished computing resolved data.");
+						trace.event(MinerTrace.Event.NODE_DATA);
 						if(parent.incCount()) {//Since this was the last child, we must re-add the node to the queue to process the results
-							sb.append("    The parent node has no more children to explore. Re-Adding to queue for second pass\n");
+							trace.event(MinerTrace.Event.REQUEUE_PARENT);
 							runners.add(new MinerRunner(ep, parent, graph, cache, results, subCapture, isAdditional, dataAccessor, logger));
 						}
 					}
@@ -905,7 +990,7 @@ public class ACMiner {
 				
 				if(!runners.isEmpty())
 					executeRunners(runners, logger);
-				logger.debug("{}: {}",name,sb.toString());
+				trace.log(name, logger);
 				cleanup();
 			} catch(IgnorableRuntimeException e) {
 				throw e;
@@ -917,6 +1002,133 @@ public class ACMiner {
 		}
 	}
 	
+	private void mineForkJoin(EntryPoint ep, DefUseGraph graph, Collection<? extends INode> startNodes, NodeDataCache cache, 
+			Map<INode,ValuePairHashSet> results, boolean subCapture, boolean isAdditional, IACMinerDataAccessor dataAccessor, ILogger logger) {
+		List<MinerTask> tasks = new ArrayList<>();
+		for(INode sn : startNodes) {
+			MinerTask task = new MinerTask(ep, new DataNode(sn, null, null, graph, dataAccessor, subCapture), graph, cache, results, 
+					subCapture, isAdditional, dataAccessor, logger);
+			pool.execute(task);
+			tasks.add(task);
+		}
+		//Wait for every start node to finish even if one fails so no task is still using the cache when we return
+		boolean failed = false;
+		for(MinerTask task : tasks) {
+			try {
+				task.join();
+			} catch(Throwable t) {
+				failed = true;
+			}
+		}
+		if(failed) {
+			logger.fatal("{}: Failed to mine simple data for one or more start nodes of ep '{}'.",name,ep);
+			throw new IgnorableRuntimeException();
+		}
+	}
+	
+	/** The fork join equivalent of {@link MinerRunner}. Instead of re-queuing a node once all of its children
+	 * have been resolved, a task forks the children that still need to be resolved, joins on them, and then 
+	 * computes the data for its own node. The data for a non-start node is returned to the parent task.
+	 */
+	private class MinerTask extends RecursiveTask<Set<DataWrapper>> {
+		private static final long serialVersionUID = 1L;
+		private final EntryPoint ep;
+		private final DefUseGraph graph;
+		private final DataNode cur;
+		private final ILogger logger;
+		private final NodeDataCache cache;
+		private final Map<INode,ValuePairHashSet> results;
+		private final IACMinerDataAccessor dataAccessor;
+		private final boolean subCapture;
+		private final boolean isAdditional;
+		
+		public MinerTask(EntryPoint ep, DataNode cur, DefUseGraph graph, NodeDataCache cache, 
+				Map<INode,ValuePairHashSet> results, boolean subCapture, boolean isAdditional, IACMinerDataAccessor dataAccessor, ILogger logger) {
+			this.ep = ep;
+			this.graph = graph;
+			this.cur = cur;
+			this.logger = logger;
+			this.cache = cache;
+			this.results = results;
+			this.subCapture = subCapture;
+			this.dataAccessor = dataAccessor;
+			this.isAdditional = isAdditional;
+		}
+		
+		@Override
+		protected Set<DataWrapper> compute() {
+			INode currentNode = cur.getCurrentNode();
+			INode startNode = cur.getStartNode();
+			try {
+				if(enableDebug)
+					logger.debug("{}: Visiting Node='{}' StartNode='{}' EP='{}'",name,currentNode,startNode,ep);
+				List<LocalWrapper> forkedLocals = new ArrayList<>();
+				List<ForkJoinTask<Set<DataWrapper>>> forked = new ArrayList<>();
+				Map<LocalWrapper, Set<INode>> childrenMap = graph.getChildLocalWrappersToChildNodesView(currentNode);
+				for(LocalWrapper lw : childrenMap.keySet()) {
+					Set<INode> children = childrenMap.get(lw);
+					if(!isAllowedType(lw.getLocal().getType())) {
+						cur.addResolvedData(lw, DataWrapper.getAllConstant());
+					} else if(children.isEmpty()) {
+						cur.addResolvedData(lw, DataWrapper.getNoneConstant());
+					} else {
+						for(INode child : children) {
+							Set<DataWrapper> res = cache.getIfPresent(child);
+							if(res != null) {
+								cur.addResolvedData(lw, res);
+							} else if(cur.seenBefore(child)) {//Avoid cycles in the graph
+								cur.addResolvedData(lw, DataWrapper.getAllConstant());
+							} else {
+								MinerTask task = new MinerTask(ep, new DataNode(child, cur, lw, graph, dataAccessor, subCapture), graph, 
+										cache, results, subCapture, isAdditional, dataAccessor, logger);
+								//Only fork if we own the child, otherwise join on the task of whoever is already resolving it
+								ForkJoinTask<Set<DataWrapper>> owner = cache.claim(child, task);
+								if(owner == task)
+									task.fork();
+								forked.add(owner);
+								forkedLocals.add(lw);
+							}
+						}
+					}
+				}
+				
+				//Join in the reverse order so the tasks still on our own deque are popped off and run by this thread
+				for(int i = forked.size() - 1; i >= 0; i--) {
+					cur.addResolvedData(forkedLocals.get(i), forked.get(i).join());
+				}
+				
+				cur.finalizeResults();
+				if(cur.isStart()) {
+					ValuePairHashSet curRes = results.get(currentNode);
+					List<ValuePair> listRes;
+					if(isAdditional) {
+						listRes = new ArrayList<>();
+						Set<DataWrapper> resolvedData = cur.getResolvedStrings(ep, enableDebug, logger);//Cannot use cur after this call
+						for(DataWrapper dw : resolvedData) {
+							listRes.add(ValuePair.make(dw,currentNode.getSource(),currentNode.getUnit(),currentNode.toString()));
+						}
+					} else {
+						listRes = cur.getResolvedStringsForStartNodes(enableDebug, logger);//Cannot use cur after this call
+					}
+					synchronized(curRes) {
+						curRes.addAll(listRes);
+					}
+					return Collections.emptySet();
+				} else {
+					Set<DataWrapper> resolvedData = cur.getResolvedStrings(ep, enableDebug, logger);//Cannot use cur after this call
+					cache.complete(currentNode, resolvedData);
+					return resolvedData;
+				}
+			} catch(IgnorableRuntimeException e) {
+				throw e;
+			} catch(Throwable t) {
+				logger.fatal("{}: Unexpected exception while processing node '{}' of startNode '{}' for ep '{}'.",t,
+						name,currentNode,startNode,ep);
+				throw new IgnorableRuntimeException();
+			}
+		}
+	}
+	
 	private final Set<String> allowedClassTypes = ImmutableSet.<String>of("java.lang.String", "java.lang.Integer", "java.lang.Long", 
 			"java.lang.Short", "java.lang.Byte", "java.lang.Float", "java.lang.Double", "java.lang.Boolean", "java.lang.Character",
 			"java.math.BigDecimal", "java.math.BigInteger",
@@ -1056,9 +1268,11 @@ public class ACMiner {
 					found = true;
 					for(SootMethod sm : reachableEps) {
 						DataWrapper newdw = dw.clone();
-						MethodRefPart mrp = (MethodRefPart)newdw.getIdentifier().get(i);
+						//Set a modified copy of the part so the cached string of the identifier is updated
+						MethodRefPart mrp = ((MethodRefPart)newdw.getIdentifier().get(i)).clone();
 						mrp.setMethodRef(sm.makeRef());
 						mrp.setCurString(sm.getSignature());
+						newdw.getIdentifier().set(i, mrp);
 						ret.add(newdw);
 					}
 				}
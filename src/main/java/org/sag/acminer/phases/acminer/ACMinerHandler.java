@@ -31,6 +31,10 @@ public class ACMinerHandler  extends AbstractPhaseHandler {
 	public static final String optDebugToConsole = "DebugToConsole";
 	public static final String optOnlyStubs = "OnlyStubs";
 	public static final String optOnlyClasses = "OnlyClasses";
+	public static final String optForkJoin = "ForkJoin";
+	public static final String optSharedNodeCache = "SharedNodeCache";
+	public static final String optSharedNodeCacheGlobal = "SharedNodeCacheGlobal";
+	public static final String optWarmUpICFG = "WarmUpICFG";
 	
 	private Path jimpleJar;
 	private Set<String> onlyClasses;
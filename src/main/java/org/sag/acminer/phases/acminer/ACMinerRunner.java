@@ -55,6 +55,8 @@ import org.sag.main.phase.IPhaseHandler;
 import org.sag.main.phase.IPhaseOption;
 import org.sag.soot.SootSort;
 import org.sag.soot.callgraph.ExcludingJimpleICFG;
+import org.sag.soot.callgraph.ICFGCacheBudget;
+import org.sag.soot.callgraph.ICFGWarmUp;
 import org.sag.soot.callgraph.JimpleICFG;
 import org.sag.soot.callgraph.ExcludingJimpleICFG.ExcludingEdgePredicate;
 import org.sag.soot.callgraph.IJimpleICFG;
@@ -127,6 +129,10 @@ public class ACMinerRunner {
 	private final Set<String> permissionCheckSigs;
 	private final boolean enableDebug;
 	private final boolean forceDebugToConsole;
+	private final boolean forkJoin;
+	private final int sharedNodeCacheSize;
+	private final boolean sharedNodeCacheGlobal;
+	private final boolean warmUp;
 	private final ILogger mainLogger;
 	private final IACMinerDataAccessor dataAccessor;
 	private final String name;
@@ -137,6 +143,11 @@ public class ACMinerRunner {
 		this.handler = handler;
 		this.enableDebug = isOptionEnabled(ACMinerHandler.optEnableDebug);
 		this.forceDebugToConsole = isOptionEnabled(ACMinerHandler.optDebugToConsole);
+		this.forkJoin = isOptionEnabled(ACMinerHandler.optForkJoin);
+		this.sharedNodeCacheSize = isOptionEnabled(ACMinerHandler.optSharedNodeCache) ? 
+				(Integer)handler.getPhaseOptionUnchecked(ACMinerHandler.optSharedNodeCache).getValue() : 0;
+		this.sharedNodeCacheGlobal = isOptionEnabled(ACMinerHandler.optSharedNodeCacheGlobal);
+		this.warmUp = isOptionEnabled(ACMinerHandler.optWarmUpICFG);
 		this.dataAccessor = dataAccessor;
 		this.mainLogger = mainLogger;
 		this.name = getClass().getSimpleName();
@@ -240,16 +251,26 @@ public class ACMinerRunner {
 	private boolean runMutipleAtATime() {
 		boolean successOuter = true;
 		DebugLogger.init(enableDebug,forceDebugToConsole,false);
+		long phaseStart = System.nanoTime();
+		long warmUpTime = 0;
 		WorkerCountingThreadExecutor exe = null;
 		ACMiner miner = null;
+		SharedNodeDataCache globalCache = null;
 		List<LoggingWorkerGroup> workerGroups = new ArrayList<>();
 		try {
 			exe = new WorkerCountingThreadExecutor();
-			miner = new ACMiner();
+			miner = new ACMiner(forkJoin, enableDebug);
+			if(sharedNodeCacheSize > 0 && sharedNodeCacheGlobal)
+				globalCache = new SharedNodeDataCache("Global", sharedNodeCacheSize);
 			JimpleICFG baseICFG = new JimpleICFG(dataAccessor.getEntryPoints(),false);
+			if(warmUp) {
+				ICFGWarmUp w = new ICFGWarmUp(baseICFG, dataAccessor.getExcludedElementsDB(), mainLogger);
+				w.run(this.eps);
+				warmUpTime = w.getWallTime();
+			}
 			Map<EntryPoint, ValuePairHashSet> subData = getEpsSubData(miner, mainLogger);
 			SootClass stub = null;
-			LoggingWorkerGroup curWorkerGroup = null;
+			ACMinerRunnableGroup curWorkerGroup = null;
 			Deque<EntryPoint> eps = new ArrayDeque<>(sortbycps(this.eps));
 			while(!eps.isEmpty()) {
 				EntryPoint ep = eps.poll();
@@ -259,8 +280,11 @@ public class ACMinerRunner {
 						curWorkerGroup.unlockInitialLock();
 						curWorkerGroup = null;
 					}
+					SharedNodeDataCache sharedCache = globalCache;
+					if(sharedCache == null && sharedNodeCacheSize > 0)
+						sharedCache = new SharedNodeDataCache(stub.toString(), sharedNodeCacheSize);
 					ACMinerRunnableGroup g = new ACMinerRunnableGroup(name,stub.toString(),false, 
-							dataAccessor.getConfig().getFilePath("debug_acminer-dump-dir"), stub, baseICFG);
+							dataAccessor.getConfig().getFilePath("debug_acminer-dump-dir"), stub, baseICFG, sharedCache, globalCache == null);
 					if(g.getLogger() == null) {
 						mainLogger.fatal("{}: Failed to initilize local logger for '{}'. Skipping analysis of '{}'.",name,stub,stub);
 						successOuter = false;
@@ -270,7 +294,7 @@ public class ACMinerRunner {
 					}	
 				}
 				if(curWorkerGroup != null){
-					Runnable runner = new ACMinerRunnable(ep,miner,subData,baseICFG,curWorkerGroup.getLogger());
+					Runnable runner = new ACMinerRunnable(ep,miner,subData,baseICFG,curWorkerGroup.getSharedCache(),curWorkerGroup.getLogger());
 					try {
 						exe.execute(runner, curWorkerGroup);
 					} catch(Throwable t) {
@@ -301,6 +325,14 @@ public class ACMinerRunner {
 						"Failed to wait for the simple miner to terminate.",name));
 				successOuter = false;
 			}
+			if(globalCache != null) {
+				mainLogger.info("{}: {}",name,globalCache);
+				globalCache.clear();
+			}
+			mainLogger.info("{}: {}",name,ICFGCacheBudget.v().getStatsReport());
+			//Compare against a run with the warm up disabled to measure the time it saves
+			mainLogger.info("{}: Processed all entry points in {} ms with the ICFG warm up {}.",name,
+					(System.nanoTime() - phaseStart) / 1000000,warmUp ? "taking " + (warmUpTime / 1000000) + " ms" : "disabled");
 			
 			for(LoggingWorkerGroup g : workerGroups) {
 				if(g.shutdownNormally() && !g.hasExceptions()) {
@@ -329,12 +361,20 @@ public class ACMinerRunner {
 		private volatile SootClass stub;
 		private volatile JimpleICFG baseICFG;
 		private volatile Map<StartNode, Set<String>> graphData;
-		public ACMinerRunnableGroup(String phaseName, String name, boolean shutdownOnError, Path rootOutDir, SootClass stub, JimpleICFG baseICFG) {
+		private volatile SharedNodeDataCache sharedCache;
+		private final boolean ownsSharedCache;
+		public ACMinerRunnableGroup(String phaseName, String name, boolean shutdownOnError, Path rootOutDir, SootClass stub, JimpleICFG baseICFG,
+				SharedNodeDataCache sharedCache, boolean ownsSharedCache) {
 			super(phaseName, name, shutdownOnError);
 			this.graphData = new HashMap<>();
 			this.rootOutDir = rootOutDir;
 			this.stub = stub;
 			this.baseICFG = baseICFG;
+			this.sharedCache = sharedCache;
+			this.ownsSharedCache = ownsSharedCache;
+		}
+		public SharedNodeDataCache getSharedCache() {
+			return sharedCache;
 		}
 		@Override
 		protected void endWorker(Worker w) {
@@ -364,10 +404,16 @@ public class ACMinerRunner {
 		protected void endGroup() {
 			try {
 				ACMinerDataWriter.writeData(stub, database, graphData, rootOutDir, baseICFG, dataAccessor);
+				//A stub scoped cache is no longer needed once all entry points of the stub are done
+				if(sharedCache != null && ownsSharedCache) {
+					logger.info("{}: {}",phaseName,sharedCache);
+					sharedCache.clear();
+				}
 				this.rootOutDir = null;
 				this.stub = null;
 				this.baseICFG = null;
 				this.graphData = null;
+				this.sharedCache = null;
 			} catch(Throwable t) {
 				logger.fatal("{}: Fatal an unexpected error occured when writing data for stub '{}' of group '{}'.",t,phaseName,stub,name);
 				throw new IgnorableRuntimeException();
@@ -445,7 +491,7 @@ public class ACMinerRunner {
 		//Find the edges in the call graph that lead to top permission checks
 		CallGraph callGraph = baseICFG.getCallGraph();
 		IExcludeHandler excludeHandler = dataAccessor.getExcludedElementsDB().createNewExcludeHandler(ep);
-		ExcludingEdgePredicate pred = new ExcludingEdgePredicate(callGraph, excludeHandler);
+		ExcludingEdgePredicate pred = new ExcludingEdgePredicate(baseICFG.getAdjacencyIndex(), excludeHandler);
 		IJimpleICFG icfg = new ExcludingJimpleICFG(ep, baseICFG, pred);
 		ArrayDeque<SootMethod> queue = new ArrayDeque<>();
 		Set<SootMethod> seen = new HashSet<>();
@@ -530,7 +576,7 @@ public class ACMinerRunner {
 									found = true;
 									break;
 								}
-								Map<LocalWrapper, Set<INode>> map = inGraph.getChildLocalWrappersToChildNodes(cur);
+								Map<LocalWrapper, Set<INode>> map = inGraph.getChildLocalWrappersToChildNodesView(cur);
 								for(Set<INode> nodes : map.values())
 									toVisit.addAll(nodes);
 							}
@@ -779,7 +825,7 @@ public class ACMinerRunner {
 		Value firstArg = ((Stmt)node.getUnit()).getInvokeExpr().getArg(0);
 		Set<INode> values = null;
 		if(firstArg instanceof Local) {
-			values = graph.getChildLocalsToChildNodes(node).get(firstArg);
+			values = graph.getChildNodesView(node, firstArg);
 			if(values == null) {
 				logger.fatal("{}: Could not find local '{}' in the child nodes map for node '{}'.",name,firstArg,node.toString());
 				throw new IgnorableRuntimeException();
@@ -825,8 +871,9 @@ public class ACMinerRunner {
 		private volatile DefUseGraph graph;
 		private volatile Map<EntryPoint, ValuePairHashSet> subData;
 		private volatile JimpleICFG baseICFG;
+		private volatile SharedNodeDataCache sharedCache;
 		public ACMinerRunnable(EntryPoint ep, ACMiner miner, Map<EntryPoint, ValuePairHashSet> subData, 
-				JimpleICFG baseICFG, ILogger logger) {
+				JimpleICFG baseICFG, SharedNodeDataCache sharedCache, ILogger logger) {
 			this.ep = ep;
 			this.entryPoint = ep;
 			this.logger = logger;
@@ -836,6 +883,7 @@ public class ACMinerRunner {
 			this.graph = null;
 			this.subData = subData;
 			this.baseICFG = baseICFG;
+			this.sharedCache = sharedCache;
 		}
 		@Override
 		public void run() {
@@ -850,7 +898,7 @@ public class ACMinerRunner {
 			
 			try {
 				graph = dataAccessor.getDefUseGraphModDB().getDefUseGraph(ep, dataAccessor.getConfig().getFilePath("acminer_defusegraphmod-dir"));
-				results = miner.mineData(ep, graph, dataAccessor, debugLogger);
+				results = miner.mineData(ep, graph, dataAccessor, sharedCache, debugLogger);
 				
 				Pair<Map<StartNode, List<ValuePair>>, Map<SootMethod, Set<Unit>>> tempData = 
 						fixPermissionCheckSources(entryPoint, baseICFG, miner, results, graph, debugLogger);
@@ -911,6 +959,7 @@ public class ACMinerRunner {
 			miner = null;
 			graph = null;
 			subData = null;
+			sharedCache = null;
 		}
 	}
 	
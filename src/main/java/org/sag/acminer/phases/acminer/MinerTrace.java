@@ -0,0 +1,167 @@
+package org.sag.acminer.phases.acminer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sag.acminer.database.defusegraph.INode;
+import org.sag.acminer.database.defusegraph.LocalWrapper;
+import org.sag.acminer.phases.entrypoints.EntryPoint;
+import org.sag.common.logging.ILogger;
+
+/** Records what the miner does when visiting a node of a def use graph as a list of structured events
+ * that are only rendered to strings when they are written to the log. When debugging is disabled the
+ * miner uses {@link #none()} whose methods do nothing, so no events or strings are ever created.
+ */
+public abstract class MinerTrace {
+
+	public static enum Phase { FIRST, SECOND }
+
+	public static enum Event {
+		DENIED_TYPE, SKIP_DENIED_CHILD, NO_CHILDREN, CYCLE, QUEUE_CHILD, WAIT_CHILD, CACHED_CHILD, REQUEUE_SELF,
+		START_NODE_DATA, NODE_DATA, REQUEUE_PARENT
+	}
+
+	private static final MinerTrace none = new NoTrace();
+
+	/** Returns a trace that records nothing. */
+	public static MinerTrace none() {
+		return none;
+	}
+
+	/** Returns a new trace that records events if enabled and {@link #none()} otherwise. */
+	public static MinerTrace get(boolean enabled) {
+		return enabled ? new RecordingTrace() : none;
+	}
+
+	public abstract boolean isEnabled();
+
+	/** Records the start of a visit of a node. Must be called before any other event for the node. */
+	public abstract void visit(Phase phase, INode node, INode parent, INode startNode, EntryPoint ep);
+
+	public abstract void event(Event event);
+
+	public abstract void event(Event event, LocalWrapper lw);
+
+	public abstract void event(Event event, INode child, LocalWrapper lw);
+
+	/** Renders all recorded events and writes them to the given logger at the debug level. */
+	public abstract void log(String name, ILogger logger);
+
+	private static final class NoTrace extends MinerTrace {
+		@Override public boolean isEnabled() { return false; }
+		@Override public void visit(Phase phase, INode node, INode parent, INode startNode, EntryPoint ep) {}
+		@Override public void event(Event event) {}
+		@Override public void event(Event event, LocalWrapper lw) {}
+		@Override public void event(Event event, INode child, LocalWrapper lw) {}
+		@Override public void log(String name, ILogger logger) {}
+	}
+
+	private static final class Record {
+		private final Event event;
+		private final INode child;
+		private final LocalWrapper lw;
+		public Record(Event event, INode child, LocalWrapper lw) {
+			this.event = event;
+			this.child = child;
+			this.lw = lw;
+		}
+	}
+
+	private static final class RecordingTrace extends MinerTrace {
+
+		private Phase phase;
+		private INode node;
+		private INode parent;
+		private INode startNode;
+		private EntryPoint ep;
+		private final List<Record> records;
+
+		public RecordingTrace() {
+			this.records = new ArrayList<>();
+		}
+
+		@Override
+		public boolean isEnabled() {
+			return true;
+		}
+
+		@Override
+		public void visit(Phase phase, INode node, INode parent, INode startNode, EntryPoint ep) {
+			this.phase = phase;
+			this.node = node;
+			this.parent = parent;
+			this.startNode = startNode;
+			this.ep = ep;
+		}
+
+		@Override
+		public void event(Event event) {
+			records.add(new Record(event, null, null));
+		}
+
+		@Override
+		public void event(Event event, LocalWrapper lw) {
+			records.add(new Record(event, null, lw));
+		}
+
+		@Override
+		public void event(Event event, INode child, LocalWrapper lw) {
+			records.add(new Record(event, child, lw));
+		}
+
+		@Override
+		public void log(String name, ILogger logger) {
+			logger.debug("{}: {}",name,this);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			sb.append(phase == Phase.FIRST ? "Visiting First Node='" : "Visiting Second Node='").append(node).append("' Parent='")
+				.append(parent == null ? "NULL" : parent.toString()).append("' StartNode='").append(startNode).append("' EP='")
+				.append(ep).append("'\n");
+			for(Record r : records) {
+				switch(r.event) {
+					case DENIED_TYPE:
+						sb.append("    Local '").append(r.lw).append("' has denied type '").append(r.lw.getLocal().getType())
+							.append("'. Skipping all children.\n");
+						break;
+					case SKIP_DENIED_CHILD:
+						sb.append("    Denied local type. Skipping child '").append(r.child).append("' for '").append(r.lw).append("'\n");
+						break;
+					case NO_CHILDREN:
+						sb.append("    No child nodes for local '").append(r.lw).append("'\n");
+						break;
+					case CYCLE:
+						sb.append("    Cycle detected. Have seen before child node '").append(r.child).append("' for '").append(r.lw).append("'\n");
+						break;
+					case QUEUE_CHILD:
+						sb.append("    Adding to queue child node '").append(r.child).append("' for '").append(r.lw).append("'\n");
+						break;
+					case WAIT_CHILD:
+						sb.append("    Waiting on another thread to compute data for child node '").append(r.child).append("' for '")
+							.append(r.lw).append("'\n");
+						break;
+					case CACHED_CHILD:
+						sb.append("    Already computed data for child node '").append(r.child).append("' for '").append(r.lw).append("'\n");
+						break;
+					case REQUEUE_SELF:
+						sb.append("    The current node has no more children to explore. Re-Adding to queue for second pass\n");
+						break;
+					case START_NODE_DATA:
+						sb.append("    Computed resolved data for start node.\n");
+						break;
+					case NODE_DATA:
+						sb.append("    Computed resolved data.\n");
+						break;
+					case REQUEUE_PARENT:
+						sb.append("    The parent node has no more children to explore. Re-Adding to queue for second pass\n");
+						break;
+				}
+			}
+			return sb.toString();
+		}
+
+	}
+
+}
@@ -0,0 +1,232 @@
+package org.sag.acminer.phases.acminer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sag.acminer.database.defusegraph.DefUseGraph;
+import org.sag.acminer.database.defusegraph.INode;
+import org.sag.acminer.phases.acminer.SharedNodeDataCache.SubtreeKey;
+import org.sag.acminer.phases.acminer.dw.DataWrapper;
+
+/** A concurrent memo table for the data resolved for the nodes of a def use graph. Lookups of finished
+ * nodes never lock and inserts only contend on the bin of the backing {@link ConcurrentHashMap}.
+ * <br><br>
+ * The first thread to claim a node becomes its owner and is the only one to resolve it. Any other thread
+ * that needs the node while it is being resolved registers a {@link Listener} (or joins the owning task in
+ * fork join mode) instead of resolving it again. Nodes that are part of a cycle in the def use graph are
+ * never shared while in flight because the data computed for them depends on the path used to reach them
+ * (i.e. where the cycle is cut) and because waiting on them could deadlock. For these nodes the first
+ * finished result is kept and any other resolution is counted as duplicate work.
+ * <br><br>
+ * If a {@link SharedNodeDataCache} is given then lookups that miss this cache fall back to it and all
+ * finished data for nodes with an acyclic subtree are also recorded in it for later entry points.
+ */
+public class NodeDataCache {
+
+	public static enum State { OWNER, WAITING, DONE }
+
+	/** Receives the resolved data of a node. This is either called by the thread claiming the node if
+	 * the node has already been resolved or by the thread that finishes resolving the node.
+	 */
+	public static interface Listener {
+		public void resolved(Set<DataWrapper> data);
+	}
+
+	private static final class Entry {
+		private volatile Set<DataWrapper> data;
+		private final ForkJoinTask<Set<DataWrapper>> task;
+		private List<Listener> listeners;//guarded by this
+		public Entry(Set<DataWrapper> data, ForkJoinTask<Set<DataWrapper>> task) {
+			this.data = data;
+			this.task = task;
+			this.listeners = null;
+		}
+	}
+
+	private final ConcurrentHashMap<INode,Entry> cache;
+	private final Set<INode> cyclicNodes;
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+	private final AtomicLong shared;
+	private final AtomicLong duplicates;
+	private final AtomicLong sharedCacheHits;
+	private final SharedNodeDataCache sharedCache;
+	private final Map<INode,SubtreeKey> keys;
+
+	public NodeDataCache(DefUseGraph graph, Collection<? extends INode> startNodes) {
+		this(graph, startNodes, null);
+	}
+	
+	public NodeDataCache(DefUseGraph graph, Collection<? extends INode> startNodes, SharedNodeDataCache sharedCache) {
+		this.cache = new ConcurrentHashMap<>();
+		Set<INode> cyclicNodes = graph.getNodesInCycles(startNodes);
+		this.cyclicNodes = cyclicNodes.isEmpty() ? Collections.<INode>emptySet() : cyclicNodes;
+		this.hits = new AtomicLong();
+		this.misses = new AtomicLong();
+		this.shared = new AtomicLong();
+		this.duplicates = new AtomicLong();
+		this.sharedCacheHits = new AtomicLong();
+		this.sharedCache = sharedCache;
+		this.keys = sharedCache == null ? Collections.<INode,SubtreeKey>emptyMap() : sharedCache.computeKeys(graph, startNodes, this.cyclicNodes);
+	}
+
+	/** Returns the resolved data of the node or null if the node has not been resolved yet. Never blocks. */
+	public Set<DataWrapper> getIfPresent(INode node) {
+		Entry e = cache.get(node);
+		if(e != null) {
+			Set<DataWrapper> data = e.data;
+			if(data != null) {
+				hits.incrementAndGet();
+				return data;
+			}
+		}
+		if(sharedCache != null) {
+			SubtreeKey key = keys.get(node);
+			if(key != null) {
+				Set<DataWrapper> data = sharedCache.get(key);
+				if(data != null) {
+					sharedCacheHits.incrementAndGet();
+					//Only record locally if no one has claimed the node yet, otherwise the owner will record it
+					if(e == null)
+						cache.putIfAbsent(node, new Entry(data, null));
+					return data;
+				}
+			}
+		}
+		return null;
+	}
+
+	/** Attempts to claim the resolution of the node for the caller. If {@link State#OWNER} is returned then the
+	 * caller must resolve the node and call {@link #complete(INode, Set)}. If {@link State#WAITING} is returned
+	 * then the node is being resolved by another thread and the listener will be called by that thread once it
+	 * finishes. If {@link State#DONE} is returned then the node was already resolved and the listener has been
+	 * called with the data before returning.
+	 */
+	public State claim(INode node, Listener listener) {
+		Entry e = cache.get(node);
+		if(cyclicNodes.contains(node)) {
+			Set<DataWrapper> data = e == null ? null : e.data;
+			if(data == null) {
+				misses.incrementAndGet();
+				return State.OWNER;
+			}
+			hits.incrementAndGet();
+			listener.resolved(data);
+			return State.DONE;
+		}
+		if(e == null) {
+			e = cache.putIfAbsent(node, new Entry(null, null));
+			if(e == null) {
+				misses.incrementAndGet();
+				return State.OWNER;
+			}
+		}
+		Set<DataWrapper> data;
+		synchronized(e) {
+			data = e.data;
+			if(data == null) {
+				if(e.listeners == null)
+					e.listeners = new ArrayList<>();
+				e.listeners.add(listener);
+				shared.incrementAndGet();
+				return State.WAITING;
+			}
+		}
+		hits.incrementAndGet();
+		listener.resolved(data);
+		return State.DONE;
+	}
+
+	/** The fork join equivalent of {@link #claim(INode, Listener)}. Returns the task that resolves the node. If
+	 * the returned task is the one given then the caller owns the node and must fork the task. Otherwise, the
+	 * node is being resolved (or has been resolved) by the returned task and the caller should join on it.
+	 */
+	public ForkJoinTask<Set<DataWrapper>> claim(INode node, ForkJoinTask<Set<DataWrapper>> task) {
+		if(cyclicNodes.contains(node)) {
+			misses.incrementAndGet();
+			return task;
+		}
+		Entry e = cache.get(node);
+		if(e == null) {
+			e = cache.putIfAbsent(node, new Entry(null, task));
+			if(e == null) {
+				misses.incrementAndGet();
+				return task;
+			}
+		}
+		if(e.task == null) {
+			misses.incrementAndGet();
+			return task;
+		}
+		if(e.data != null)
+			hits.incrementAndGet();
+		else
+			shared.incrementAndGet();
+		return e.task;
+	}
+
+	/** Records the resolved data of the node and notifies any listeners waiting on it. If the node already
+	 * has data then the given data is dropped and the resolution is counted as duplicate work.
+	 */
+	public void complete(INode node, Set<DataWrapper> data) {
+		if(sharedCache != null) {
+			SubtreeKey key = keys.get(node);
+			if(key != null)
+				sharedCache.put(key, data);
+		}
+		Entry e = cache.get(node);
+		if(e == null) {
+			e = cache.putIfAbsent(node, new Entry(data, null));
+			if(e == null)
+				return;
+		}
+		List<Listener> listeners;
+		synchronized(e) {
+			if(e.data != null) {
+				duplicates.incrementAndGet();
+				return;
+			}
+			e.data = data;
+			listeners = e.listeners;
+			e.listeners = null;
+		}
+		if(listeners != null) {
+			for(Listener l : listeners)
+				l.resolved(data);
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getShared() {
+		return shared.get();
+	}
+
+	public long getDuplicates() {
+		return duplicates.get();
+	}
+
+	public long getSharedCacheHits() {
+		return sharedCacheHits.get();
+	}
+
+	@Override
+	public String toString() {
+		return "hits=" + hits.get() + " misses=" + misses.get() + " shared=" + shared.get() + " duplicates=" + duplicates.get()
+				+ " sharedCacheHits=" + sharedCacheHits.get() + " entries=" + cache.size() + " cyclic=" + cyclicNodes.size();
+	}
+
+}
@@ -0,0 +1,171 @@
+package org.sag.acminer.phases.acminer;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.sag.acminer.database.defusegraph.DefUseGraph;
+import org.sag.acminer.database.defusegraph.INode;
+import org.sag.acminer.database.defusegraph.LocalWrapper;
+import org.sag.acminer.database.defusegraph.id.Identifier;
+import org.sag.acminer.phases.acminer.dw.DataWrapper;
+import org.sag.common.tuple.Pair;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import soot.SootMethod;
+import soot.Unit;
+
+/** A size bounded cache of the data resolved for the nodes of def use graphs that outlives a single entry point.
+ * It is either shared by all entry points of a stub or by all entry points in the analysis. Since the def use
+ * graph of each entry point is different, the data of a node is keyed by a {@link SubtreeKey} that describes
+ * the node (i.e. its source method, unit, and identifier) and the def use subtree below it. Two nodes with
+ * equal keys therefore resolve to the same data regardless of the entry point they come from. Only nodes whose
+ * subtree contains no cycles are given a key because the data of a cycle depends on where it is cut.
+ */
+public class SharedNodeDataCache {
+
+	private final String name;
+	private final Cache<SubtreeKey,Set<DataWrapper>> cache;
+	private final Interner<SubtreeKey> interner;
+
+	public SharedNodeDataCache(String name, long maxSize) {
+		this.name = name;
+		this.cache = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build();
+		this.interner = Interners.newWeakInterner();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Set<DataWrapper> get(SubtreeKey key) {
+		return cache.getIfPresent(key);
+	}
+
+	public void put(SubtreeKey key, Set<DataWrapper> data) {
+		cache.put(key, data);
+	}
+
+	public void clear() {
+		cache.invalidateAll();
+	}
+
+	/** Computes the keys for all nodes reachable from the given roots whose subtree does not contain
+	 * any of the given cyclic nodes. The subtrees are walked bottom-up so the keys of the children are
+	 * computed (and interned) before the key of their parent.
+	 */
+	public Map<INode,SubtreeKey> computeKeys(DefUseGraph graph, Collection<? extends INode> roots, Set<INode> cyclicNodes) {
+		Map<INode,SubtreeKey> keys = new HashMap<>();
+		Set<INode> noKey = new HashSet<>(cyclicNodes);
+		Set<INode> visited = new HashSet<>();
+		Deque<Pair<INode,Iterator<INode>>> stack = new ArrayDeque<>();
+		for(INode root : roots) {
+			if(!visited.add(root))
+				continue;
+			stack.push(new Pair<INode,Iterator<INode>>(root, graph.getChildNodesView(root).iterator()));
+			while(!stack.isEmpty()) {
+				Pair<INode,Iterator<INode>> top = stack.peek();
+				Iterator<INode> it = top.getSecond();
+				if(it.hasNext()) {
+					INode child = it.next();
+					if(visited.add(child))
+						stack.push(new Pair<INode,Iterator<INode>>(child, graph.getChildNodesView(child).iterator()));
+				} else {
+					stack.pop();
+					INode cur = top.getFirst();
+					if(noKey.contains(cur))
+						continue;
+					Map<LocalWrapper,Set<SubtreeKey>> children = new HashMap<>();
+					Map<LocalWrapper,Set<INode>> childMap = graph.getChildLocalWrappersToChildNodesView(cur);
+					boolean hasKey = true;
+					for(LocalWrapper lw : childMap.keySet()) {
+						Set<SubtreeKey> childKeys = new HashSet<>();
+						for(INode child : childMap.get(lw)) {
+							SubtreeKey childKey = keys.get(child);
+							if(childKey == null) {
+								hasKey = false;
+								break;
+							}
+							childKeys.add(childKey);
+						}
+						if(!hasKey)
+							break;
+						children.put(lw, childKeys);
+					}
+					if(hasKey)
+						keys.put(cur, interner.intern(new SubtreeKey(cur, children)));
+					else
+						noKey.add(cur);
+				}
+			}
+		}
+		return keys;
+	}
+
+	@Override
+	public String toString() {
+		CacheStats stats = cache.stats();
+		return "SharedNodeDataCache '" + name + "': hits=" + stats.hitCount() + " misses=" + stats.missCount() + " evictions="
+				+ stats.evictionCount() + " entries=" + cache.size();
+	}
+
+	/** A context independent description of a def use subtree. Keys are interned so equal children compare by reference. */
+	public static final class SubtreeKey {
+		private final Class<?> type;
+		private final SootMethod source;
+		private final Unit unit;
+		private final Identifier identifier;
+		private final Map<LocalWrapper,Set<SubtreeKey>> children;
+		private final int hashCode;
+
+		private SubtreeKey(INode node, Map<LocalWrapper,Set<SubtreeKey>> children) {
+			this.type = node.getClass();
+			this.source = node.getSource();
+			this.unit = node.getUnit();
+			this.identifier = node.getIdentifier();
+			this.children = children.isEmpty() ? Collections.<LocalWrapper,Set<SubtreeKey>>emptyMap() : children;
+			int i = 17;
+			i = i * 31 + type.hashCode();
+			i = i * 31 + Objects.hashCode(source);
+			i = i * 31 + Objects.hashCode(unit);
+			i = i * 31 + Objects.hashCode(identifier);
+			i = i * 31 + this.children.hashCode();
+			this.hashCode = i;
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(this == o)
+				return true;
+			if(o == null || !(o instanceof SubtreeKey))
+				return false;
+			SubtreeKey other = (SubtreeKey)o;
+			return hashCode == other.hashCode && type.equals(other.type) && Objects.equals(source, other.source)
+					&& Objects.equals(unit, other.unit) && Objects.equals(identifier, other.identifier)
+					&& children.equals(other.children);
+		}
+
+		@Override
+		public String toString() {
+			return Objects.toString(identifier);
+		}
+	}
+
+}
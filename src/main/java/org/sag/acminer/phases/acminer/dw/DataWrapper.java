@@ -5,16 +5,15 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.sag.acminer.database.defusegraph.id.Identifier;
 import org.sag.common.tools.SortingMethods;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
 import soot.BooleanType;
 import soot.ByteType;
 import soot.CharType;
@@ -151,8 +150,8 @@ public abstract class DataWrapper implements Comparable<DataWrapper> {
 		return this instanceof NullConstant;
 	}
 	
-	private static volatile ReadWriteLock rwlock = null;
-	private static volatile Map<DataWrapper,DataWrapper> cache = null;
+	//Weakly interned so the wrappers of finished entry points can be collected before clearCache is called
+	private static volatile Interner<DataWrapper> cache = null;
 	private static volatile DataWrapper allConstant = null;
 	private static volatile DataWrapper noneConstant = null;
 	private static volatile DataWrapper nullConstant = null;
@@ -171,8 +170,7 @@ public abstract class DataWrapper implements Comparable<DataWrapper> {
 	
 	public static void initCache() {
 		if(cache == null) {
-			rwlock = new ReentrantReadWriteLock();
-			cache = new HashMap<>();
+			cache = Interners.newWeakInterner();
 			allConstant = new AllConstant();
 			noneConstant = new NoneConstant();
 			nullConstant = new NullConstant();
@@ -180,7 +178,6 @@ public abstract class DataWrapper implements Comparable<DataWrapper> {
 	}
 	
 	public static void clearCache() {
-		rwlock = null;
 		cache = null;
 		allConstant = null;
 		noneConstant = null;
@@ -195,26 +192,7 @@ public abstract class DataWrapper implements Comparable<DataWrapper> {
 		} else if(in.isNullConstant()) {
 			return nullConstant;
 		} else {
-			rwlock.readLock().lock();
-			try {
-				DataWrapper exist = cache.get(in);
-				if(exist != null)
-					return exist;
-			} finally {
-				rwlock.readLock().unlock();
-			}
-			
-			rwlock.writeLock().lock();
-			try {
-				DataWrapper exist = cache.get(in);
-				if(exist == null) {
-					cache.put(in, in);
-					exist = in;
-				}
-				return exist;
-			} finally {
-				rwlock.writeLock().unlock();
-			}
+			return cache.intern(in);
 		}
 	}
 	
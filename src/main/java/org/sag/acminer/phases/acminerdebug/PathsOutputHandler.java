@@ -9,7 +9,6 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
 import java.util.Set;
@@ -26,29 +25,25 @@ import org.sag.common.io.PrintStreamUnixEOL;
 import org.sag.common.logging.ILogger;
 import org.sag.common.logging.LoggerWrapperSLF4J;
 import org.sag.soot.SootSort;
+import org.sag.soot.callgraph.CallGraphSnapshot;
 
 import com.google.common.collect.ImmutableList;
 
-import soot.Scene;
 import soot.SootClass;
 import soot.SootMethod;
-import soot.jimple.toolkits.callgraph.CallGraph;
-import soot.jimple.toolkits.callgraph.Edge;
-import soot.jimple.toolkits.callgraph.EdgePredicate;
-import soot.jimple.toolkits.callgraph.Filter;
 
 public class PathsOutputHandler extends AbstractOutputHandler {
 	
 	private final WorkerCountingThreadExecutor exe;
 	private final ILogger logger;
-	private final CallGraph cg;
+	private final CallGraphSnapshot cg;
 	private final Set<SootMethod> entryPoints;
 
 	public PathsOutputHandler(WorkerCountingThreadExecutor exe, Path rootOutputDir, IACMinerDataAccessor dataAccessor, ILogger logger) {
 		super(rootOutputDir, dataAccessor);
 		this.exe = exe;
 		this.logger = logger == null ? new LoggerWrapperSLF4J(CommonSubgraphOutputHandler.class) : logger;
-		this.cg = Scene.v().getCallGraph();
+		this.cg = CallGraphSnapshot.v();
 		this.entryPoints = dataAccessor.getEntryPointsAsSootMethods();
 	}
 	
@@ -110,30 +105,19 @@ public class PathsOutputHandler extends AbstractOutputHandler {
 	private static final class Runner implements Runnable {
 		
 		private final EntryPoint ep;
-		private final CallGraph cg;
-		private final Filter filter;
+		private final CallGraphSnapshot cg;
+		private final IExcludeHandler excludeHandler;
 		private final Path rootOutputDir;
 		private final Set<SootMethod> eps;
 		
-		public Runner(EntryPoint ep, CallGraph cg, IExcludeHandler excludeHandler, Path rootOutputDir, Set<SootMethod> eps) {
+		public Runner(EntryPoint ep, CallGraphSnapshot cg, IExcludeHandler excludeHandler, Path rootOutputDir, Set<SootMethod> eps) {
 			this.ep = ep;
 			this.cg = cg;
-			this.filter = new FFilter(excludeHandler);
+			this.excludeHandler = excludeHandler;
 			this.rootOutputDir = rootOutputDir;
 			this.eps = eps;
 		}
 		
-		private static class FFilter extends Filter {
-			public FFilter(IExcludeHandler excludeHandler) {
-				super(new EdgePredicate() {
-					@Override
-					public boolean want(Edge e) {
-						return !excludeHandler.isExcludedMethodWithOverride(e.src());
-					}
-				});
-			}
-		}
-		
 		@Override
 		public void run() {
 			try {
@@ -148,13 +132,14 @@ public class PathsOutputHandler extends AbstractOutputHandler {
 					SootMethod cur = toVisit.poll();
 					List<SootMethod> path = pathsToVisit.poll();
 					if(visited.add(cur)) {
-						Iterator<Edge> it = filter.wrap(cg.edgesOutOf(cur));
+						//The edges out of excluded methods are not followed
+						List<SootMethod> tgts = excludeHandler.isExcludedMethodWithOverride(cur) ? Collections.<SootMethod>emptyList() 
+								: cg.getTargetsOf(cur);
 						boolean hasEdges = false;
-						while(it.hasNext()) {
+						for(SootMethod tgt : tgts) {
 							hasEdges = true;
-							Edge e = it.next();
-							toVisit.add(e.tgt());
-							pathsToVisit.add(ImmutableList.<SootMethod>builder().addAll(path).add(e.tgt()).build());
+							toVisit.add(tgt);
+							pathsToVisit.add(ImmutableList.<SootMethod>builder().addAll(path).add(tgt).build());
 						}
 						
 						if(!hasEdges) {
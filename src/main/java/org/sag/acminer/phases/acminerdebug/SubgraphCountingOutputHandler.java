@@ -43,12 +43,11 @@ import org.sag.common.tools.SortingMethods;
 import org.sag.common.tuple.Pair;
 import org.sag.common.tuple.Triple;
 import org.sag.soot.SootSort;
+import org.sag.soot.callgraph.CallGraphSnapshot;
 
 import soot.Scene;
 import soot.SootMethod;
 import soot.Unit;
-import soot.jimple.toolkits.callgraph.CallGraph;
-import soot.jimple.toolkits.callgraph.Edge;
 
 public class SubgraphCountingOutputHandler extends AbstractOutputHandler {
 	
@@ -56,7 +55,7 @@ public class SubgraphCountingOutputHandler extends AbstractOutputHandler {
 	private final Map<String,Set<EntryPoint>> groups;
 	private final WorkerCountingThreadExecutor exe;
 	private final ILogger logger;
-	private final CallGraph cg;
+	private final CallGraphSnapshot cg;
 	private final GraphmlGenerator outGraphml;
 	
 	//Assume the id has had trim run on it and eps are sorted per group
@@ -89,7 +88,7 @@ public class SubgraphCountingOutputHandler extends AbstractOutputHandler {
 				throw new IllegalArgumentException("Error: No entry points resolved.");
 			this.groups.put(id, resolvedEps);
 		}
-		this.cg = Scene.v().getCallGraph();
+		this.cg = CallGraphSnapshot.v();
 	}
 	
 	private synchronized void executeRunner(Runnable runner, LoggingWorkerGroup g, ILogger logger) {
@@ -134,10 +133,10 @@ public class SubgraphCountingOutputHandler extends AbstractOutputHandler {
 	private static final class SubGraphWorkerGroup extends LoggingWorkerGroup {
 		private final Map<SootMethod,SubGraphRunner> runners;
 		private final Path rootOutputDir;
-		private final CallGraph cg;
+		private final CallGraphSnapshot cg;
 		private final GraphmlGenerator outGraphml;
 		public SubGraphWorkerGroup(Map<SootMethod,SubGraphRunner> runners, GraphmlGenerator outGraphml, Path rootOutputDir, 
-				CallGraph cg, String phaseName, String name, ILogger logger, boolean shutdownOnError, boolean closeLogger) {
+				CallGraphSnapshot cg, String phaseName, String name, ILogger logger, boolean shutdownOnError, boolean closeLogger) {
 			super(phaseName, name, logger, shutdownOnError, closeLogger);
 			this.runners = runners;
 			this.rootOutputDir = rootOutputDir;
@@ -239,11 +238,11 @@ public class SubgraphCountingOutputHandler extends AbstractOutputHandler {
 		private static final class EPSubGraphFormatter extends Formatter {
 			private final SootMethod ep;
 			private final Map<SootMethod,MethodData> methods;
-			private final CallGraph cg;
+			private final CallGraphSnapshot cg;
 			private final Set<AlNode> alNodes;
 			private final Set<AlEdge> alEdges;
 			private volatile long id;
-			public EPSubGraphFormatter(SootMethod ep, Map<SootMethod,MethodData> methods, CallGraph cg, Path outputPath) {
+			public EPSubGraphFormatter(SootMethod ep, Map<SootMethod,MethodData> methods, CallGraphSnapshot cg, Path outputPath) {
 				super(0,-1,-1,-1,outputPath);
 				this.ep = ep;
 				this.methods = methods;
@@ -270,9 +269,8 @@ public class SubgraphCountingOutputHandler extends AbstractOutputHandler {
 				for(MethodData md : methods.values()) {
 					AlNode cur = nton.get(md.method);
 					if(cur != null) {
-						Iterator<Edge> itEdge = cg.edgesOutOf(md.method);
-						while(itEdge.hasNext()){
-							AlNode child = nton.get(itEdge.next().tgt());
+						for(SootMethod tgt : cg.getTargetsOf(md.method)) {
+							AlNode child = nton.get(tgt);
 							if(child != null)
 								alEdges.add(new AlEdge(id++,cur,child));
 						}
@@ -283,16 +281,16 @@ public class SubgraphCountingOutputHandler extends AbstractOutputHandler {
 		
 		private static final class SubGraphFormatter extends Formatter {
 			private final Map<SootMethod,MethodData> methods;
-			private final CallGraph cg;
+			private final CallGraphSnapshot cg;
 			private final Set<AlNode> alNodes;
 			private final Set<AlEdge> alEdges;
 			private volatile long id;
 			private final int limit;
 			private final boolean limitIsMax;
-			public SubGraphFormatter(Map<SootMethod,MethodData> methods, CallGraph cg, Path outputPath) {
+			public SubGraphFormatter(Map<SootMethod,MethodData> methods, CallGraphSnapshot cg, Path outputPath) {
 				this(methods,cg,outputPath,1,false);
 			}
-			public SubGraphFormatter(Map<SootMethod,MethodData> methods, CallGraph cg, Path outputPath, int limit, boolean limitIsMax) {
+			public SubGraphFormatter(Map<SootMethod,MethodData> methods, CallGraphSnapshot cg, Path outputPath, int limit, boolean limitIsMax) {
 				super(0,-1,-1,-1,outputPath);
 				this.methods = methods;
 				this.cg = cg;
@@ -333,9 +331,8 @@ public class SubgraphCountingOutputHandler extends AbstractOutputHandler {
 				for(MethodData md : methods.values()) {
 					AlNode cur = nton.get(md.method);
 					if(cur != null) {
-						Iterator<Edge> itEdge = cg.edgesOutOf(md.method);
-						while(itEdge.hasNext()){
-							AlNode child = nton.get(itEdge.next().tgt());
+						for(SootMethod tgt : cg.getTargetsOf(md.method)) {
+							AlNode child = nton.get(tgt);
 							if(child != null)
 								alEdges.add(new AlEdge(id++,cur,child));
 						}
@@ -344,7 +341,7 @@ public class SubgraphCountingOutputHandler extends AbstractOutputHandler {
 			}
 		}
 		
-		private void outputGraphs(Set<SootMethod> eps, Map<SootMethod,MethodData> data, CallGraph cg) {
+		private void outputGraphs(Set<SootMethod> eps, Map<SootMethod,MethodData> data, CallGraphSnapshot cg) {
 			try {
 				Path output = FileHelpers.getPath(rootOutputDir, "group_" + name + "_graph_lim-1_min.graphml");
 				SubGraphFormatter f = new SubGraphFormatter(data, cg, output);
@@ -461,9 +458,8 @@ public class SubgraphCountingOutputHandler extends AbstractOutputHandler {
 					out.println("Method: EPS='" + padNum(md.epToDepths.size(),maxeps) + "' CPS='" + padNum(md.avgCPCount,maxcps) 
 							+ "' Name='" + md.method.toString() + "'");
 					Map<SootMethod,MethodData> childs = new HashMap<>();
-					Iterator<Edge> itEdge = cg.edgesOutOf(md.method);
-					while(itEdge.hasNext()){
-						MethodData child = data.get(itEdge.next().tgt());
+					for(SootMethod tgt : cg.getTargetsOf(md.method)) {
+						MethodData child = data.get(tgt);
 						if(child != null)
 							childs.put(child.method,child);
 					}
@@ -702,12 +698,12 @@ public class SubgraphCountingOutputHandler extends AbstractOutputHandler {
 	
 	private static final class SubGraphRunner implements Runnable {
 		private final EntryPoint ep;
-		private final CallGraph cg;
+		private final CallGraphSnapshot cg;
 		private volatile Map<SootMethod,Pair<AtomicInteger,List<Integer>>> ret;
 		private volatile Map<SootMethod,Map<SootMethod,Set<Unit>>> cpRet;
 		private final IACMinerDataAccessor dataAccessor;
 		private final IExcludeHandler excludeHandler;
-		public SubGraphRunner(EntryPoint ep, CallGraph cg, IACMinerDataAccessor dataAccessor, IExcludeHandler excludeHandler) {
+		public SubGraphRunner(EntryPoint ep, CallGraphSnapshot cg, IACMinerDataAccessor dataAccessor, IExcludeHandler excludeHandler) {
 			this.ep = ep;
 			this.cg = cg;
 			this.excludeHandler = excludeHandler;
@@ -732,7 +728,7 @@ public class SubgraphCountingOutputHandler extends AbstractOutputHandler {
 		}
 	}
 	
-	private static Map<SootMethod,Pair<AtomicInteger,List<Integer>>> compute(EntryPoint ep, CallGraph cg, IExcludeHandler excludeHandler){
+	private static Map<SootMethod,Pair<AtomicInteger,List<Integer>>> compute(EntryPoint ep, CallGraphSnapshot cg, IExcludeHandler excludeHandler){
 		Map<SootMethod,Pair<AtomicInteger,List<Integer>>> ret = new HashMap<>();
 		HashSet<SootMethod> seen = new HashSet<SootMethod>();
 		Queue<SootMethod> tovisit = new ArrayDeque<SootMethod>();
@@ -758,9 +754,7 @@ public class SubgraphCountingOutputHandler extends AbstractOutputHandler {
 			
 			//Only traverse further if the current not has not been seen already
 			if(seen.add(cur)) {
-				Iterator<Edge> itEdge = cg.edgesOutOf(cur);
-				while(itEdge.hasNext()){
-					SootMethod sm = itEdge.next().tgt();
+				for(SootMethod sm : cg.getTargetsOf(cur)) {
 					tovisit.add(sm);
 					depthCount.add(depth+1);
 				}
@@ -769,7 +763,7 @@ public class SubgraphCountingOutputHandler extends AbstractOutputHandler {
 		return ret;
 	}
 	
-	public static Map<SootMethod,Map<SootMethod,Set<Unit>>> computeCPCount(EntryPoint ep, CallGraph cg, IACMinerDataAccessor dataAccessor, 
+	public static Map<SootMethod,Map<SootMethod,Set<Unit>>> computeCPCount(EntryPoint ep, CallGraphSnapshot cg, IACMinerDataAccessor dataAccessor, 
 			IExcludeHandler excludeHandler) {
 		Map<SootMethod, Pair<Set<Unit>, Set<Integer>>> cps = dataAccessor.getControlPredicatesDB().getData(ep);
 		Set<SootMethod> seen = new HashSet<>();
@@ -781,18 +775,15 @@ public class SubgraphCountingOutputHandler extends AbstractOutputHandler {
 			SootMethod cur = stack.peek();
 			if(seen.add(cur)) {
 				if(!excludeHandler.isExcludedMethodWithOverride(cur)) {
-					Iterator<Edge> itEdge = cg.edgesOutOf(cur);
-					while(itEdge.hasNext()){
-						stack.push(itEdge.next().tgt());
+					for(SootMethod tgt : cg.getTargetsOf(cur)) {
+						stack.push(tgt);
 					}
 				}
 			} else {
 				stack.pop();
 				Map<SootMethod,Set<Unit>> nodesCP = new HashMap<>();
 				if(!excludeHandler.isExcludedMethodWithOverride(cur)) {
-					Iterator<Edge> itEdge = cg.edgesOutOf(cur);
-					while(itEdge.hasNext()){
-						SootMethod sm = itEdge.next().tgt();
+					for(SootMethod sm : cg.getTargetsOf(cur)) {
 						Map<SootMethod,Set<Unit>> childData = data.get(sm);
 						if(childData != null && !childData.isEmpty()) {
 							for(SootMethod m : childData.keySet()) {
@@ -1,30 +1,51 @@
 package org.sag.acminer.phases.callgraph;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.sag.acminer.IACMinerDataAccessor;
+import org.sag.common.concurrent.CountingThreadExecutor;
 import org.sag.common.logging.ILogger;
+import org.sag.soot.callgraph.CallGraphSnapshot;
+
+import com.google.common.collect.ImmutableMap;
+
+import soot.MethodOrMethodContext;
 import soot.Scene;
 import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.InvokeExpr;
 import soot.jimple.toolkits.callgraph.CallGraph;
 import soot.jimple.toolkits.callgraph.Edge;
 
 public abstract class AbstractCallGraphModifier {
-	
+
+	//The number of source methods whose edges are transformed by a single task when running in parallel
+	private static final int sourcesPerTask = 256;
+	//The number of tasks whose output is buffered before being written to the new call graph
+	private static final int tasksPerBatch = 64;
+
 	protected final IACMinerDataAccessor dataAccessor;
 	protected final ILogger mainLogger;
 	protected final String cn;
-	
+
 	public AbstractCallGraphModifier(IACMinerDataAccessor dataAccessor, ILogger mainLogger){
 		this.dataAccessor = dataAccessor;
 		this.mainLogger = mainLogger;
 		this.cn = this.getClass().getSimpleName();
 	}
-	
+
 	public abstract boolean run();
-	
+
 	protected CallGraph getCurrentCallGraph() {
 		try {
 			return Scene.v().getCallGraph();
@@ -33,108 +54,244 @@ public abstract class AbstractCallGraphModifier {
 			return null;
 		}
 	}
-	
-	protected Set<Edge> getEdgesFromCallGraph(CallGraph cg) {
-		Set<Edge> ret = new HashSet<>();
-		for(Iterator<Edge> itE = cg.iterator(); itE.hasNext();) {
-			Edge e = itE.next();
-			ret.add(new Edge(e.src(), e.srcStmt(), e.tgt(), e.kind()));
+
+	/** A single stage of the chain of transformations applied to the edges of the call graph. Every edge of the current
+	 * call graph is passed through the stages in order. A stage keeps the edge by returning null, removes it by returning
+	 * an empty collection, or replaces it with the returned edges which are then passed through the remaining stages.
+	 * <br><br>
+	 * Stages may be run concurrently on the edges of different source methods so they should not modify any shared state.
+	 * Methods that should be made phantom are recorded with {@link #markPhantom(SootMethod)} and only made phantom after
+	 * all edges have been transformed.
+	 */
+	public static abstract class EdgeTransformer {
+
+		private final boolean setPhantom;
+		private final AtomicLong removed;
+		private final AtomicLong added;
+		private final Set<SootMethod> phantoms;
+
+		public EdgeTransformer(boolean setPhantom) {
+			this.setPhantom = setPhantom;
+			this.removed = new AtomicLong();
+			this.added = new AtomicLong();
+			this.phantoms = Collections.newSetFromMap(new ConcurrentHashMap<SootMethod,Boolean>());
 		}
-		return ret;
+
+		protected abstract Collection<Edge> transform(Edge e);
+
+		protected void markPhantom(SootMethod m) {
+			if(setPhantom)
+				phantoms.add(m);
+		}
+
+		/** Returns the number of edges removed or replaced by this stage. */
+		public long getRemoved() {
+			return removed.get();
+		}
+
+		/** Returns the number of edges this stage added in place of the edges it replaced. */
+		public long getAdded() {
+			return added.get();
+		}
+
 	}
-	
-	protected Set<Edge> removeEdgesToClinit(Set<Edge> edges, boolean setPhantom) {
-		for(Iterator<Edge> it = edges.iterator(); it.hasNext();) {
-			Edge e = it.next();
-			SootMethod target = e.tgt();
-			if(target.getName().equals("<clinit>")) {
-				it.remove();
-				if(setPhantom) {
-					target.releaseActiveBody();
-					target.setSource(null);
-					target.setPhantom(true);
+
+	protected EdgeTransformer removeEdgesToClinit(boolean setPhantom) {
+		return new EdgeTransformer(setPhantom) {
+			@Override
+			protected Collection<Edge> transform(Edge e) {
+				SootMethod target = e.tgt();
+				if(target.getName().equals("<clinit>")) {
+					markPhantom(target);
+					return Collections.emptyList();
 				}
+				return null;
 			}
-		}
-		return edges;
+		};
 	}
-	
-	protected Set<Edge> removeEdgesFromClinit(Set<Edge> edges, boolean setPhantom) {
-		for(Iterator<Edge> it = edges.iterator(); it.hasNext();) {
-			Edge e = it.next();
-			SootMethod caller = e.src();
-			if(caller.getName().equals("<clinit>")) {
-				it.remove();
-				if(setPhantom) {
-					caller.releaseActiveBody();
-					caller.setSource(null);
-					caller.setPhantom(true);
+
+	protected EdgeTransformer removeEdgesFromClinit(boolean setPhantom) {
+		return new EdgeTransformer(setPhantom) {
+			@Override
+			protected Collection<Edge> transform(Edge e) {
+				SootMethod caller = e.src();
+				if(caller.getName().equals("<clinit>")) {
+					markPhantom(caller);
+					return Collections.emptyList();
 				}
+				return null;
 			}
-		}
-		return edges;
+		};
+	}
+
+	protected EdgeTransformer removeExcludedEdges(boolean setPhantom) {
+		//Resolve once instead of taking the database lock for every edge
+		final Set<SootMethod> excluded = dataAccessor.getExcludedElementsDB().getSootExcludedMethods();
+		return new EdgeTransformer(setPhantom) {
+			@Override
+			protected Collection<Edge> transform(Edge e) {
+				SootMethod caller = e.src();
+				if(excluded.contains(caller)) {
+					markPhantom(caller);
+					return Collections.emptyList();
+				}
+				return null;
+			}
+		};
 	}
-	
-	protected Set<Edge> removeExcludedEdges(Set<Edge> edges, boolean setPhantom) {
-		for(Iterator<Edge> it = edges.iterator(); it.hasNext();) {
-			Edge e = it.next();
-			SootMethod caller = e.src();
-			if(dataAccessor.getExcludedElementsDB().isExcludedMethod(caller)) {
-				it.remove();
-				if(setPhantom) {
-					caller.releaseActiveBody();
-					caller.setSource(null);
-					caller.setPhantom(true);
+
+	/** Returns a map of every call site in the call graph that invokes a binder method to the entry points reachable
+	 * from the binder method (see {@link IACMinerDataAccessor#getEntryPointsFromBinderMethod(InvokeExpr)}). Call sites
+	 * that do not invoke a binder method are not in the map. The binder groups database is locked on every lookup so
+	 * the lookups are done here once per invoked method instead of once per edge by the transformers.
+	 */
+	protected Map<Unit,Set<SootMethod>> getBinderCallSitesToEntryPoints(CallGraph cg) {
+		Map<String,Set<SootMethod>> sigToEps = new HashMap<>();
+		Set<String> notBinder = new HashSet<>();
+		Map<Unit,Set<SootMethod>> ret = new HashMap<>();
+		for(Edge e : cg) {
+			if(e.srcStmt() == null || !e.srcStmt().containsInvokeExpr() || ret.containsKey(e.srcStmt()))
+				continue;
+			InvokeExpr ie = e.srcStmt().getInvokeExpr();
+			String sig = ie.getMethodRef().getSignature();
+			if(notBinder.contains(sig))
+				continue;
+			Set<SootMethod> eps = sigToEps.get(sig);
+			if(eps == null) {
+				eps = dataAccessor.getEntryPointsFromBinderMethod(ie);
+				if(eps == null) {
+					notBinder.add(sig);
+					continue;
 				}
+				sigToEps.put(sig, eps);
 			}
+			ret.put(e.srcStmt(), eps);
 		}
-		return edges;
+		return ImmutableMap.copyOf(ret);
 	}
-	
-	protected Set<Edge> adjustBinderEdges(Set<Edge> edges) {
-		Set<Edge> ret = new HashSet<>();
-		for(Edge e : edges) {
-			Set<SootMethod> epsOfInvoke = null;
-			if(e.srcStmt() != null && e.srcStmt().containsInvokeExpr())
-				epsOfInvoke = dataAccessor.getEntryPointsFromBinderMethod(e.srcStmt().getInvokeExpr());
-			if(epsOfInvoke == null || epsOfInvoke.isEmpty()) { //This is not an invoke that leads to an entry point so just keep the current edge
-				ret.add(e);
-			} else { //This is an invoke that leads to an entry point so skip all its edges and record for creation
+
+	protected EdgeTransformer adjustBinderEdges(final Map<Unit,Set<SootMethod>> binderCallSitesToEps) {
+		return new EdgeTransformer(false) {
+			@Override
+			protected Collection<Edge> transform(Edge e) {
+				Set<SootMethod> epsOfInvoke = e.srcStmt() == null ? null : binderCallSitesToEps.get(e.srcStmt());
+				if(epsOfInvoke == null || epsOfInvoke.isEmpty()) //This is not an invoke that leads to an entry point so just keep the current edge
+					return null;
+				//This is an invoke that leads to an entry point so replace its edges with ones to the entry points
+				List<Edge> ret = new ArrayList<>(epsOfInvoke.size());
 				for(SootMethod sm : epsOfInvoke) {
 					ret.add(new Edge(e.src(), e.srcStmt(), sm, e.kind()));
 				}
+				return ret;
+			}
+		};
+	}
+
+	protected EdgeTransformer removeBinderEdges(final Map<Unit,Set<SootMethod>> binderCallSitesToEps, boolean setPhantom) {
+		return new EdgeTransformer(setPhantom) {
+			@Override
+			protected Collection<Edge> transform(Edge e) {
+				Set<SootMethod> epsOfInvoke = e.srcStmt() == null ? null : binderCallSitesToEps.get(e.srcStmt());
+				if(epsOfInvoke != null) {
+					markPhantom(e.tgt());
+					return Collections.emptyList();
+				}
+				return null;
+			}
+		};
+	}
+
+	/** Builds a new call graph by passing every edge of the given call graph through the given chain of transformers in
+	 * a single pass and writing the surviving edges directly into the new call graph. The edges are visited grouped by
+	 * source method. If parallel is true the transformers are run concurrently on groups of source methods but the edges
+	 * are still written in the same order so the resulting call graph does not depend on the mode. Any methods recorded
+	 * by the transformers are made phantom once all edges have been transformed.
+	 */
+	protected CallGraph transformCallGraph(CallGraph cg, List<EdgeTransformer> transformers, boolean parallel) throws Exception {
+		EdgeTransformer[] chain = transformers.toArray(new EdgeTransformer[transformers.size()]);
+		List<SootMethod> sources = new ArrayList<>();
+		for(Iterator<MethodOrMethodContext> it = cg.sourceMethods(); it.hasNext();)
+			sources.add(it.next().method());
+
+		CallGraph ret = new CallGraph();
+		if(parallel) {
+			transformParallel(cg, sources, chain, ret);
+		} else {
+			List<Edge> out = new ArrayList<>();
+			for(SootMethod m : sources) {
+				transformEdgesOutOf(cg, m, chain, out);
+				for(Edge e : out)
+					ret.addEdge(e);
+				out.clear();
+			}
+		}
+
+		for(EdgeTransformer t : chain) {
+			for(SootMethod m : t.phantoms) {
+				m.releaseActiveBody();
+				m.setSource(null);
+				m.setPhantom(true);
 			}
 		}
 		return ret;
 	}
-	
-	protected Set<Edge> removeBinderEdges(Set<Edge> edges, boolean setPhantom) {
-		for(Iterator<Edge> it = edges.iterator(); it.hasNext();) {
-			Edge e = it.next();
-			SootMethod target = e.tgt();
-			Set<SootMethod> epsOfInvoke = null;
-			if(e.srcStmt() != null && e.srcStmt().containsInvokeExpr())
-				epsOfInvoke = dataAccessor.getEntryPointsFromBinderMethod(e.srcStmt().getInvokeExpr());
-			if(epsOfInvoke != null) {
-				it.remove();
-				if(setPhantom) {
-					target.releaseActiveBody();
-					target.setSource(null);
-					target.setPhantom(true);
+
+	private void transformParallel(final CallGraph cg, List<SootMethod> sources, final EdgeTransformer[] chain,
+			CallGraph ret) throws Exception {
+		CountingThreadExecutor exe = new CountingThreadExecutor();
+		int batchSize = sourcesPerTask * tasksPerBatch;
+		try {
+			//Batches bound the number of transformed edges held in memory before they are added to the new call graph
+			for(int start = 0; start < sources.size(); start += batchSize) {
+				int end = Math.min(sources.size(), start + batchSize);
+				List<List<Edge>> outs = new ArrayList<>();
+				for(int i = start; i < end; i += sourcesPerTask) {
+					final List<SootMethod> group = sources.subList(i, Math.min(end, i + sourcesPerTask));
+					final List<Edge> out = new ArrayList<>();
+					outs.add(out);
+					exe.execute(new Runnable() {
+						@Override
+						public void run() {
+							for(SootMethod m : group)
+								transformEdgesOutOf(cg, m, chain, out);
+						}
+					});
+				}
+				exe.awaitCompletion();
+				List<Throwable> errs = exe.getAndClearExceptions();
+				if(!errs.isEmpty())
+					CountingThreadExecutor.throwJointError(errs, "Failed to transform the edges of one or more source methods.");
+				for(List<Edge> out : outs) {
+					for(Edge e : out)
+						ret.addEdge(e);
 				}
 			}
+		} finally {
+			if(!exe.shutdownWhenFinished())
+				CountingThreadExecutor.throwJointError(exe.getAndClearExceptions(), "Failed to wait for the executor to terminate.");
 		}
-		return edges;
 	}
-	
-	protected CallGraph makeCallGraph(Set<Edge> edges) {
-		CallGraph newCallGraph = new CallGraph();
-		for(Edge e : edges) {
-			newCallGraph.addEdge(e);
+
+	private static void transformEdgesOutOf(CallGraph cg, SootMethod m, EdgeTransformer[] chain, List<Edge> out) {
+		for(Iterator<Edge> it = cg.edgesOutOf(m); it.hasNext();)
+			transformEdge(it.next(), 0, false, chain, out);
+	}
+
+	private static void transformEdge(Edge e, int stage, boolean isNew, EdgeTransformer[] chain, List<Edge> out) {
+		for(; stage < chain.length; stage++) {
+			Collection<Edge> res = chain[stage].transform(e);
+			if(res != null) {
+				chain[stage].removed.incrementAndGet();
+				chain[stage].added.addAndGet(res.size());
+				for(Edge n : res)
+					transformEdge(n, stage + 1, true, chain, out);
+				return;
+			}
 		}
-		return newCallGraph;
+		//Edges are linked into the lists of the call graph that holds them so a kept edge must be copied
+		out.add(isNew ? e : new Edge(e.src(), e.srcStmt(), e.tgt(), e.kind()));
 	}
-	
+
 	protected boolean setCallGraph(CallGraph newCallGraph) {
 		try {
 			Scene.v().releaseCallGraph();
@@ -144,6 +301,7 @@ public abstract class AbstractCallGraphModifier {
 			Scene.v().releasePointsToAnalysis();
 			Scene.v().releaseSideEffectAnalysis();
 			Scene.v().setCallGraph(newCallGraph);
+			CallGraphSnapshot.reset();//Any snapshot is of the old call graph
 			mainLogger.info("{}: Successfully set the new callgraph.",cn);
 		} catch(Throwable t) {
 			mainLogger.fatal("{}: Failed to set the new callgraph.",t,cn);
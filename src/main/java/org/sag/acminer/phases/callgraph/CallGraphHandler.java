@@ -1,27 +1,53 @@
 package org.sag.acminer.phases.callgraph;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import org.sag.acminer.IACMinerDataAccessor;
+import org.sag.acminer.phases.entrypoints.EntryPoint;
+import org.sag.acminer.sootinit.CallGraphCache;
 import org.sag.acminer.sootinit.IPASootLoader;
 import org.sag.common.io.FileHash;
 import org.sag.main.config.PhaseConfig;
 import org.sag.main.phase.AbstractPhaseHandler;
 import org.sag.main.phase.IPhaseHandler;
+import org.sag.main.phase.IPhaseOption;
+import org.sag.soot.callgraph.CallGraphSnapshot;
+import org.sag.soot.callgraph.ICFGCacheBudget;
+
+import soot.Scene;
+import soot.SootMethod;
 
 public class CallGraphHandler extends AbstractPhaseHandler {
 	
+	public static final String optICFGCacheBudget = "ICFGCacheBudget";
+	public static final String optParallelModify = "ParallelModify";
+	public static final String optCacheCHA = "CacheCHA";
+	
 	private Path jimpleJar;
 	
 	public CallGraphHandler(List<IPhaseHandler> depPhases, PhaseConfig pc) {
 		super(depPhases, pc);
 	}
 	
+	private boolean isOptionEnabled(String name) {
+		IPhaseOption<?> o = getPhaseOptionUnchecked(name);
+		if(o == null || !o.isEnabled())
+			return false;
+		return true;
+	}
+	
 	@Override
 	protected void initInner() {
 		this.jimpleJar = dependencyFilePaths.get(0);
+		//Set before any of the later phases construct a JimpleICFG
+		if(isOptionEnabled(optICFGCacheBudget))
+			ICFGCacheBudget.v().setMaxWeight((Integer)getPhaseOptionUnchecked(optICFGCacheBudget).getValue() * 1000L);
+		//Set before soot is loaded by this or any later phase
+		if(isOptionEnabled(optCacheCHA))
+			IPASootLoader.v().setCallGraphCache(new CallGraphCache(dataAccessor.getConfig().getFilePath("acminer_cg-cha-cache-file")));
 	}
 
 	@Override
@@ -45,11 +71,18 @@ public class CallGraphHandler extends AbstractPhaseHandler {
 	@Override
 	protected boolean doWork() {
 		try{
-			CallGraphModifier mod = new CallGraphModifier((IACMinerDataAccessor)dataAccessor,logger);
+			CallGraphModifier mod = new CallGraphModifier((IACMinerDataAccessor)dataAccessor,logger,isOptionEnabled(optParallelModify));
 			if(!mod.run()){
 				logger.fatal("{}: The CallGraphModifier encountered errors during executation.",cn);
 				return false;
 			}
+			//The call graph is final from here on so take the snapshot used by the later phases
+			List<SootMethod> eps = new ArrayList<>();
+			for(EntryPoint ep : ((IACMinerDataAccessor)dataAccessor).getEntryPoints())
+				eps.add(ep.getEntryPoint());
+			CallGraphSnapshot snapshot = CallGraphSnapshot.build(Scene.v().getCallGraph(), eps);
+			CallGraphSnapshot.setCurrent(snapshot);
+			logger.info("{}: Built a call graph snapshot of {} methods and {} edges.",cn,snapshot.getMethodCount(),snapshot.getEdgeCount());
 		}catch(Throwable t){
 			logger.fatal("{}: Unexpected exception during the run of the CallGraphModifier.",t,cn);
 			return false;
@@ -1,16 +1,23 @@
 package org.sag.acminer.phases.callgraph;
 
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.sag.acminer.IACMinerDataAccessor;
 import org.sag.common.logging.ILogger;
 import soot.jimple.toolkits.callgraph.CallGraph;
-import soot.jimple.toolkits.callgraph.Edge;
 
 public class CallGraphModifier extends AbstractCallGraphModifier {
 	
+	private final boolean parallel;
+	
 	public CallGraphModifier(IACMinerDataAccessor dataAccessor, ILogger mainLogger){
+		this(dataAccessor, mainLogger, false);
+	}
+	
+	public CallGraphModifier(IACMinerDataAccessor dataAccessor, ILogger mainLogger, boolean parallel){
 		super(dataAccessor, mainLogger);
+		this.parallel = parallel;
 	}
 	
 	public boolean run() {
@@ -23,24 +30,22 @@ public class CallGraphModifier extends AbstractCallGraphModifier {
 			return false;
 		
 		try {
-			Set<Edge> edges = getEdgesFromCallGraph(oldCallGraph);
-			int totalEdges = edges.size();
-			mainLogger.info("{}: The current callgraph has {} edges.",cn,totalEdges);
-			edges = removeEdgesToClinit(edges, true);
-			int toClinitEdges = totalEdges - edges.size();
-			mainLogger.info("{}: Removed {} to clinit edges.",cn,toClinitEdges);
-			edges = removeEdgesFromClinit(edges, true);
-			int fromClinitEdges = totalEdges - edges.size() - toClinitEdges;
-			mainLogger.info("{}: Removed {} from clinit edges.",cn,fromClinitEdges);
-			edges = removeExcludedEdges(edges, true);
-			int excludedEdges = totalEdges - edges.size() - toClinitEdges - fromClinitEdges;
-			mainLogger.info("{}: Removed {} excluded edges.",cn,excludedEdges);
-			int beforeBinderEdges = edges.size();
-			edges = adjustBinderEdges(edges);
-			int binderEdges = edges.size() - beforeBinderEdges;
-			mainLogger.info("{}: Adjusted {} binder edges.",cn,binderEdges);
-			mainLogger.info("{}: The new call graph has {} edges.",cn,edges.size());
-			newCallGraph = makeCallGraph(edges);
+			mainLogger.info("{}: The current callgraph has {} edges.",cn,oldCallGraph.size());
+			EdgeTransformer toClinit = removeEdgesToClinit(true);
+			EdgeTransformer fromClinit = removeEdgesFromClinit(true);
+			EdgeTransformer excluded = removeExcludedEdges(true);
+			EdgeTransformer binder = adjustBinderEdges(getBinderCallSitesToEntryPoints(oldCallGraph));
+			List<EdgeTransformer> chain = new ArrayList<>();
+			chain.add(toClinit);
+			chain.add(fromClinit);
+			chain.add(excluded);
+			chain.add(binder);
+			newCallGraph = transformCallGraph(oldCallGraph, chain, parallel);
+			mainLogger.info("{}: Removed {} to clinit edges.",cn,toClinit.getRemoved());
+			mainLogger.info("{}: Removed {} from clinit edges.",cn,fromClinit.getRemoved());
+			mainLogger.info("{}: Removed {} excluded edges.",cn,excluded.getRemoved());
+			mainLogger.info("{}: Adjusted {} binder edges.",cn,binder.getAdded() - binder.getRemoved());
+			mainLogger.info("{}: The new call graph has {} edges.",cn,newCallGraph.size());
 		} catch(Throwable t) {
 			mainLogger.fatal("{}: Unexpected exception when modifying the callgraph.",t,cn);
 			return false;
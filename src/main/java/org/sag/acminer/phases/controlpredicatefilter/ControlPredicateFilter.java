@@ -216,7 +216,7 @@ public class ControlPredicateFilter {
 			
 			try{
 				excludeHandler = dataAccessor.getExcludedElementsDB().createNewExcludeHandler(ep);
-				icfg = new ExcludingJimpleICFG(ep, baseICFG, new ExcludingEdgePredicate(baseICFG.getCallGraph(), excludeHandler));
+				icfg = new ExcludingJimpleICFG(ep, baseICFG, new ExcludingEdgePredicate(baseICFG.getAdjacencyIndex(), excludeHandler));
 				
 				Set<Unit> cps = dataAccessor.getControlPredicatesDB().getUnits(ep);
 				DefUseGraph graph = dataAccessor.getDefUseGraphDB().getDefUseGraph(ep, dataAccessor.getConfig().getFilePath("acminer_defusegraph-dir"));
@@ -1,24 +1,27 @@
 package org.sag.acminer.phases.controlpredicatemarker;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.sag.acminer.phases.entrypoints.EntryPoint;
 import org.sag.common.concurrent.IgnorableRuntimeException;
-import org.sag.common.concurrent.ValueRunner;
-import org.sag.common.concurrent.ValueWorkerFactory;
-import org.sag.common.concurrent.ValueWorkerGroup;
-import org.sag.common.concurrent.WorkerCountingThreadExecutor;
 import org.sag.common.logging.ILogger;
 import org.sag.common.tools.SortingMethods;
 import org.sag.common.tuple.Tuple;
 import org.sag.soot.SootSort;
+import org.sag.soot.analysis.AdvLocalDefs;
+import org.sag.soot.analysis.AdvLocalUses;
 import org.sag.soot.callgraph.IJimpleICFG;
 
 import soot.Local;
@@ -35,24 +38,45 @@ import soot.jimple.ThisRef;
 import soot.jimple.internal.VariableBox;
 import soot.toolkits.scalar.UnitValueBoxPair;
 
+/** Finds the control predicates of a set of seed statements for an entry point. The forward analysis follows the uses of
+ * the defined seeds through their methods and into the callees they are passed to. The backward analysis then follows the
+ * control and data dependencies of the seeds and forward results, the call chain from the seeds up to the entry point, and
+ * the returns of every method invoked along the way.
+ * <br><br>
+ * Both analyses are split into the parts that stay within a single method, which do not depend on the entry point, and the
+ * call edges, which do. The intra-procedural parts are computed once as summaries and shared by all the entry points this
+ * finder is run on. Only the call edges are resolved per entry point through its {@link IJimpleICFG}, so the control
+ * predicates found are the same as exploring every statement separately for each entry point. The summaries are only 
+ * computed for methods that are not excluded and so are the same regardless of which entry point computes them.
+ */
 public class ControlPredicateFinder {
 
 	private final String name;
-	private final WorkerCountingThreadExecutor exe;
 	private final String pad;
+	//The units defined by a forward start unit in its method and the invokes the defined locals are passed to
+	private final ConcurrentHashMap<Unit,ForwardSummary> forwardSummaries;
+	//The control predicates a callee depends on when it is entered from its returns during the backward analysis
+	private final ConcurrentHashMap<SootMethod,Unit[]> calleeSummaries;
 	
 	public ControlPredicateFinder() {
 		this.name = getClass().getSimpleName();
-		this.exe = new WorkerCountingThreadExecutor(new ValueWorkerFactory<>());
 		this.pad = genPad(24+9+name.length()+4);
+		this.forwardSummaries = new ConcurrentHashMap<>();
+		this.calleeSummaries = new ConcurrentHashMap<>();
 	}
 	
+	/** Releases the summaries once no more entry points will be run. The finder no longer uses its own threads so this
+	 * always succeeds. */
 	public boolean shutdownWhenFinished() {
-		return exe.shutdownWhenFinished();
+		forwardSummaries.clear();
+		calleeSummaries.clear();
+		return true;
 	}
 	
+	/** Errors are thrown directly from {@link #findControlPredicates(Set, EntryPoint, IJimpleICFG, ILogger)} so there are
+	 * never any exceptions to return. */
 	public List<Throwable> getAndClearExceptions() {
-		return exe.getAndClearExceptions();
+		return Collections.emptyList();
 	}
 	
 	public Map<SootMethod,Set<Unit>> findControlPredicates(Set<Unit> seeds, EntryPoint entryPoint, IJimpleICFG icfg, ILogger logger) {
@@ -71,59 +95,23 @@ public class ControlPredicateFinder {
 			
 			//perform the forward analysis
 			if(!defSeeds.isEmpty()) {
-				ValueWorkerGroup<Set<Unit>,Unit> gForward = new ValueWorkerGroup<Set<Unit>,Unit>(name,entryPoint.toString()+"_fwd",logger,false,false) {
-					@Override protected Set<Unit> initReturnValue() {return new HashSet<>();}
-					@Override protected void joinWorkerReturnValue(Unit value) {if(value != null) ret.add(value);}
-					@Override protected void finalizeReturnValue() {}
-				};
-				Set<DataFwd> seen = Collections.<DataFwd>synchronizedSet(new HashSet<DataFwd>());
-				logger.debug("{}: Starting the forward control predicate finder for group '{}' with the seeds:\n{}",name,gForward.getName(),
+				logger.debug("{}: Starting the forward control predicate finder for ep '{}' with the seeds:\n{}",name,entryPoint,
 						formatCollection(pad,defSeeds.iterator()));
-				for(DefinitionStmt u : defSeeds) {
-					SootMethod uM = icfg.getMethodOf(u);
-					DataFwd d = new DataFwd((Local)null,u,uM);
-					executeRunner(new ForwardControlPredicateRunner(d, seen, icfg, logger),gForward,logger);
-				}
-				gForward.unlockInitialLock();
-				Set<Unit> forwardResults = gForward.getReturnValue();
-				logger.debug("{}: Forward control predicates found for group '{}':\n{}",name,gForward.getName(),
+				Set<Unit> forwardResults = findForward(defSeeds, entryPoint, icfg, logger);
+				logger.debug("{}: Forward control predicates found for ep '{}':\n{}",name,entryPoint,
 						formatCollection(pad, forwardResults.iterator()));
-				if(gForward.shutdownNormally() && !gForward.hasExceptions()) {
-					allSeeds.addAll(forwardResults);
-					results.addAll(forwardResults);
-					logger.debug("{}: Successfully completed the forward control predicate finder for group '{}'.",name,gForward.getName());
-				} else {
-					logger.fatal("{}: Failed to complete the forward control predicate finder for group '{}'.",name,gForward.getName());
-					throw new IgnorableRuntimeException();
-				}
+				allSeeds.addAll(forwardResults);
+				results.addAll(forwardResults);
 			}
 			
 			//perform the backwards analysis using all the original seeds plus those generated in the forward analysis
 			if(!allSeeds.isEmpty()) {
-				ValueWorkerGroup<Set<Unit>,Unit> gBkwd = new ValueWorkerGroup<Set<Unit>,Unit>(name,entryPoint.toString()+"_bkwd",logger,false,false) {
-					@Override protected Set<Unit> initReturnValue() {return new HashSet<>();}
-					@Override protected void joinWorkerReturnValue(Unit value) {if(value != null) ret.add(value);}
-					@Override protected void finalizeReturnValue() {}
-				};
-				Set<DataBkwd> seen = Collections.<DataBkwd>synchronizedSet(new HashSet<DataBkwd>());
-				logger.debug("{}: Starting the backward control predicate finder for group '{}' with the seeds:\n{}",name,gBkwd.getName(),
+				logger.debug("{}: Starting the backward control predicate finder for ep '{}' with the seeds:\n{}",name,entryPoint,
 						formatCollection(pad,allSeeds.iterator()));
-				for(Unit u : allSeeds) {
-					SootMethod uM = icfg.getMethodOf(u);
-					DataBkwd d = new DataBkwd(u,uM,true);
-					executeRunner(new BackwardControlPredicateRunner(d, seen, icfg, logger),gBkwd,logger);
-				}
-				gBkwd.unlockInitialLock();
-				Set<Unit> bkwdResults = gBkwd.getReturnValue();
-				logger.debug("{}: Backward control predicates found for group '{}':\n{}",name,gBkwd.getName(),
+				Set<Unit> bkwdResults = findBackward(allSeeds, icfg);
+				logger.debug("{}: Backward control predicates found for ep '{}':\n{}",name,entryPoint,
 						formatCollection(pad, bkwdResults.iterator()));
-				if(gBkwd.shutdownNormally() && !gBkwd.hasExceptions()) {
-					results.addAll(bkwdResults);
-					logger.debug("{}: Successfully completed the backward control predicate finder for group '{}'.",name,gBkwd.getName());
-				} else {
-					logger.fatal("{}: Failed to complete the backward control predicate finder for group '{}'.",name,gBkwd.getName());
-					throw new IgnorableRuntimeException();
-				}
+				results.addAll(bkwdResults);
 			}
 			
 			Map<SootMethod,Set<Unit>> ret;
@@ -157,6 +145,212 @@ public class ControlPredicateFinder {
 		}
 	}
 	
+	/** Follows the uses of the defined seeds forward. The uses within a method are taken from the summary of each start 
+	 * unit and only the invokes the tracked locals escape through are resolved to callees using the given icfg. */
+	private Set<Unit> findForward(Set<DefinitionStmt> defSeeds, EntryPoint entryPoint, IJimpleICFG icfg, ILogger logger) {
+		Set<Unit> ret = new HashSet<>();
+		Set<Unit> seen = new HashSet<>();
+		Deque<Unit> toVisit = new ArrayDeque<>();
+		for(DefinitionStmt u : defSeeds) {
+			if(seen.add(u))
+				toVisit.add(u);
+		}
+		while(!toVisit.isEmpty()) {
+			Unit start = toVisit.poll();
+			ForwardSummary summary = getForwardSummary(start, entryPoint, icfg, logger);
+			Collections.addAll(ret, summary.cps);
+			for(int i = 0; i < summary.invokes.length; i++) {
+				Unit cur = summary.invokes[i];
+				Local cause = summary.causes[i];
+				InvokeExpr ie = ((Stmt)cur).getInvokeExpr();
+				for(SootMethod sm : icfg.getCalleesOfCallAt(cur)) {
+					if(sm.getName().equals("<clinit>"))
+						continue;
+					List<IdentityStmt> parmDefs = icfg.getParameterDefs(sm);
+					for(int j = 0; j < ie.getArgCount(); j++) {
+						if(ie.getArg(j).equals(cause)) {
+							IdentityStmt parmD = parmDefs.get(j);//Could be null if the parm is never used
+							if(parmD != null && seen.add(parmD))
+								toVisit.add(parmD);
+						}
+					}
+					//If we are tracking a local representing an object then anything done to that object needs to be explored
+					if(ie instanceof InstanceInvokeExpr && ((InstanceInvokeExpr)ie).getBase().equals(cause)) {
+						for(Unit u : sm.getActiveBody().getUnits()) {
+							if(u instanceof DefinitionStmt && ((DefinitionStmt)u).getRightOp() instanceof ThisRef && seen.add(u))
+								toVisit.add(u);
+						}
+					}
+				}
+			}
+		}
+		return ret;
+	}
+	
+	private ForwardSummary getForwardSummary(Unit start, EntryPoint entryPoint, IJimpleICFG icfg, ILogger logger) {
+		SootMethod m = icfg.getMethodOf(start);
+		AdvLocalUses localUses = m == null ? null : icfg.getOrMakeLocalUses(m);
+		if(localUses == null) {
+			logger.fatal("{}: The method '{}' of start unit '{}' is excluded for ep '{}'.",name,m,start,entryPoint);
+			throw new IgnorableRuntimeException();
+		}
+		ForwardSummary ret = forwardSummaries.get(start);
+		if(ret == null) {
+			ret = computeForwardSummary(start, m, localUses, icfg.getOrMakeLocalDefs(m));
+			ForwardSummary prev = forwardSummaries.putIfAbsent(start, ret);
+			if(prev != null)
+				ret = prev;
+		}
+		return ret;
+	}
+	
+	private ForwardSummary computeForwardSummary(Unit start, SootMethod m, AdvLocalUses localUses, AdvLocalDefs localDefs) {
+		Set<Unit> cps = new LinkedHashSet<>();
+		List<Unit> invokes = new ArrayList<>();
+		List<Local> causes = new ArrayList<>();
+		Set<DataFwd> seen = new HashSet<>();
+		Deque<DataFwd> toVisit = new ArrayDeque<>();
+		toVisit.add(new DataFwd((Local)null,start,m));
+		while(!toVisit.isEmpty()) {
+			DataFwd d = toVisit.poll();
+			Unit cur = d.getCurUnit();
+			Local cause = d.getCause();
+			if(cur instanceof DefinitionStmt) {
+				DefinitionStmt def = (DefinitionStmt)cur;
+				//aliasing is take care of in this loop since those DefStmts are included in the list here
+				//Get uses of defined local on left which contains the use of a tracked local on right
+				for(UnitValueBoxPair usePair : localUses.getUsesOf(def)) {
+					DataFwd newd = new DataFwd((Local)usePair.getValueBox().getValue(),usePair.getUnit(),m);
+					if(seen.add(newd))
+						toVisit.add(newd);
+				}
+				//VariableBox returned -> array ref is on left, RValueBox returned -> array ref is on right
+				//Handling assigning an tracked local to an array entry
+				//Arrays assign contain ArrayRef on the left side not local so the general use generator will miss them
+				//Have to lookup actual def of the array and then retrieve the uses of that def after the tracked local is assigned
+				if(def.containsArrayRef() && def.getArrayRefBox() instanceof VariableBox) {
+					Local arrLocal = (Local)def.getArrayRef().getBase();
+					for(DefinitionStmt arrDef : localDefs.getDefsWithAliases(arrLocal, def)) {
+						for(UnitValueBoxPair usePair : localUses.getUsesOf(arrDef)) {
+							DataFwd newd = new DataFwd((Local)usePair.getValueBox().getValue(),usePair.getUnit(),m);
+							if(seen.add(newd))
+								toVisit.add(newd);
+						}
+					}
+				}
+			} else if(cur instanceof IfStmt || cur instanceof SwitchStmt) {
+				cps.add(cur);
+			}
+			//The tracked local is passed to an invoke so the callees need to be explored for each ep
+			if(((Stmt)cur).containsInvokeExpr() && cause != null) {
+				invokes.add(cur);
+				causes.add(cause);
+			}
+		}
+		return new ForwardSummary(cps, invokes, causes);
+	}
+	
+	/** Follows the control and data dependencies of the seeds backwards. The call chain from the seeds up to the entry point
+	 * and the dependencies of the statements on it are explored per entry point. The methods invoked from any of those 
+	 * statements are entered from their returns, and the control predicates found from within each such method are taken
+	 * from its summary. */
+	private Set<Unit> findBackward(Set<Unit> seeds, IJimpleICFG icfg) {
+		Set<Unit> ret = new HashSet<>();
+		
+		//The seeds and the invokes that lead to the seeds from the ep
+		//These move up the callgraph one method at a time and should stop at the ep as this has no incoming edges (minus recursion)
+		Set<Unit> epPath = new HashSet<>();
+		Deque<Unit> toVisit = new ArrayDeque<>();
+		for(Unit u : seeds) {
+			if(epPath.add(u))
+				toVisit.add(u);
+		}
+		while(!toVisit.isEmpty()) {
+			Unit cur = toVisit.poll();
+			for(Unit callerStmt : icfg.getCallersOf(icfg.getMethodOf(cur))) {
+				if(epPath.add(callerStmt))
+					toVisit.add(callerStmt);
+			}
+		}
+		
+		//The dependencies of the ep path, whose invokes are not on the ep path and so need to be entered
+		Set<Unit> seen = new HashSet<>();
+		for(Unit cur : epPath) {
+			if(cur instanceof IfStmt || cur instanceof SwitchStmt)
+				ret.add(cur);
+			addDependencies(cur, icfg.getMethodOf(cur), icfg, seen, toVisit);
+		}
+		Set<SootMethod> seenMethods = new HashSet<>();
+		Deque<SootMethod> methodsToVisit = new ArrayDeque<>();
+		while(!toVisit.isEmpty()) {
+			Unit cur = toVisit.poll();
+			if(cur instanceof IfStmt || cur instanceof SwitchStmt)
+				ret.add(cur);
+			addDependencies(cur, icfg.getMethodOf(cur), icfg, seen, toVisit);
+			if(((Stmt)cur).containsInvokeExpr())
+				addCallees(cur, icfg, seenMethods, methodsToVisit);
+		}
+		
+		//Every invoke of an entered method enters its callees in turn
+		while(!methodsToVisit.isEmpty()) {
+			SootMethod m = methodsToVisit.poll();
+			Collections.addAll(ret, getCalleeSummary(m, icfg));
+			for(Unit invoke : icfg.getCallsFromWithin(m))
+				addCallees(invoke, icfg, seenMethods, methodsToVisit);
+		}
+		return ret;
+	}
+	
+	private void addCallees(Unit invoke, IJimpleICFG icfg, Set<SootMethod> seenMethods, Deque<SootMethod> methodsToVisit) {
+		for(Unit u : icfg.getAllEndPointsOfCalleesOfCallAt(invoke)) {
+			SootMethod methodOfU = icfg.getMethodOf(u);
+			if(!methodOfU.getName().equals("<clinit>") && seenMethods.add(methodOfU))
+				methodsToVisit.add(methodOfU);
+		}
+	}
+	
+	//Regardless of what the statement is we need to add its branch control dependencies and the definitions of all the locals used
+	private void addDependencies(Unit cur, SootMethod curMethod, IJimpleICFG icfg, Set<Unit> seen, Deque<Unit> toVisit) {
+		for(Unit u : icfg.getOrMakeControlDependenceGraph(curMethod).getIteratedControlDependencies(cur)) {
+			if(seen.add(u))
+				toVisit.add(u);
+		}
+		for(DefinitionStmt def : icfg.getDefsForUsedLocals(cur)) {
+			if(seen.add(def))
+				toVisit.add(def);
+		}
+	}
+	
+	/** Returns the control predicates reached from the returns and invokes of a method that has been entered, without
+	 * entering any further methods. These only depend on the body of the method so they are computed once. */
+	private Unit[] getCalleeSummary(SootMethod m, IJimpleICFG icfg) {
+		Unit[] ret = calleeSummaries.get(m);
+		if(ret == null) {
+			Set<Unit> cps = new LinkedHashSet<>();
+			Set<Unit> seen = new HashSet<>();
+			Deque<Unit> toVisit = new ArrayDeque<>();
+			for(Unit u : icfg.getEndPointsOf(m)) {
+				if(seen.add(u))
+					toVisit.add(u);
+			}
+			for(Unit u : icfg.getCallsFromWithin(m)) {
+				if(seen.add(u))
+					toVisit.add(u);
+			}
+			while(!toVisit.isEmpty()) {
+				Unit cur = toVisit.poll();
+				if(cur instanceof IfStmt || cur instanceof SwitchStmt)
+					cps.add(cur);
+				addDependencies(cur, m, icfg, seen, toVisit);
+			}
+			ret = cps.toArray(new Unit[cps.size()]);
+			Unit[] prev = calleeSummaries.putIfAbsent(m, ret);
+			if(prev != null)
+				ret = prev;
+		}
+		return ret;
+	}
+	
 	/*private Set<Value> getAllValues(AdvLocalDefs localDefs, SootMethod source, Unit cur, Value v, ILogger logger) {
 		Set<Value> ret = new HashSet<>();
 		if(v instanceof Local) {
@@ -273,27 +467,7 @@ public class ControlPredicateFinder {
 		ret = SortingMethods.sortMapKey(ret, SootSort.smComp);
 		return ret;
 	}*/
-	
-	private synchronized <O> void executeRunner(ValueRunner<O> runner, ValueWorkerGroup<?,O> g, ILogger logger) {
-		try {
-			exe.execute(runner,g);
-		} catch(Throwable t) {
-			logger.fatal("{}: Failed to execute '{}' for group '{}'.",t,name,runner.toString(),g.getName());
-			throw new IgnorableRuntimeException();
-		}
-	}
-	
-	private synchronized <O> void executeRunners(Iterable<ValueRunner<O>> runners, ILogger logger) {
-		for(ValueRunner<O> runner : runners) {
-			try {
-				exe.execute(runner);
-			} catch(Throwable t) {
-				logger.fatal("{}: Failed to execute '{}'.",t,name,runner.toString());
-				throw new IgnorableRuntimeException();
-			}
-		}
-	}
-	
+		
 	private static final <A> String formatCollection(String pad, Iterator<A> it) {
 		StringBuilder sb = new StringBuilder();
 		while(it.hasNext()) {
@@ -315,6 +489,18 @@ public class ControlPredicateFinder {
 	private static final String genPad(int len) {
 		return String.format("%1$"+len+"s"," ");
 	}
+		
+	private static final class ForwardSummary {
+		private final Unit[] cps;
+		//Each invoke paired with the tracked local passed to it
+		private final Unit[] invokes;
+		private final Local[] causes;
+		public ForwardSummary(Collection<Unit> cps, List<Unit> invokes, List<Local> causes) {
+			this.cps = cps.toArray(new Unit[cps.size()]);
+			this.invokes = invokes.toArray(new Unit[invokes.size()]);
+			this.causes = causes.toArray(new Local[causes.size()]);
+		}
+	}
 	
 	private static final class DataFwd extends Tuple {
 		private final int hashCode;
@@ -338,364 +524,4 @@ public class ControlPredicateFinder {
 		}
 	}
 	
-	private static final class DataBkwd extends Tuple {
-		private final int hashCode;
-		public DataBkwd(Unit cur, SootMethod curMethod) {
-			this((Object)cur, curMethod, false);
-		}
-		public DataBkwd(Unit cur, SootMethod curMethod, boolean geneppath) {
-			this((Object)cur, curMethod, geneppath);
-		}
-		private DataBkwd(Object... objects) {
-			super(objects);
-			this.hashCode = super.hashCode();
-		}
-		public Unit getCurUnit(){return (Unit)get(0);}
-		public SootMethod getCurMethod(){return (SootMethod)get(1);}
-		public boolean isGenEpPath(){return (Boolean)get(2);}
-		@Override public int hashCode() {return hashCode;}
-		@Override
-		public String toString() {
-			StringBuilder sb = new StringBuilder();
-			sb.append("Cur='").append(getCurUnit()).append("' | CurMethod='").append(getCurMethod())
-				.append("' | GenEpPath='").append(isGenEpPath()).append("'");
-			return sb.toString();
-		}
-	}
-	
-	private class ForwardControlPredicateRunner implements ValueRunner<Unit> {
-		
-		private final DataFwd d;
-		private final Set<DataFwd> seen;
-		private volatile Unit ret;
-		private final IJimpleICFG icfg;
-		private final ILogger logger;
-
-		public ForwardControlPredicateRunner(DataFwd d, Set<DataFwd> seen, IJimpleICFG icfg, ILogger logger) {
-			this.d = d;
-			this.seen = seen;
-			this.ret = null;
-			this.icfg = icfg;
-			this.logger = logger;
-		}
-
-		@Override
-		public void run() {
-			List<ValueRunner<Unit>> runners = new ArrayList<>();
-			StringBuilder sb = new StringBuilder();
-			Unit cur = d.getCurUnit();
-			SootMethod curMethod = d.getCurMethod();
-			Local cause = d.getCause();
-			sb.append("Visiting ").append(d.toString()).append("\n");
-			if(cur instanceof DefinitionStmt) {
-				DefinitionStmt def = (DefinitionStmt)cur;
-				//aliasing is take care of in this loop since those DefStmts are included in the list here
-				//Get uses of defined local on left which contains the use of a tracked local on right
-				for(UnitValueBoxPair usePair : icfg.getOrMakeLocalUses(curMethod).getUsesOf(def)) {
-					DataFwd newd = new DataFwd((Local)usePair.getValueBox().getValue(),usePair.getUnit(),curMethod);
-					if(seen.add(newd)) {
-						sb.append(pad).append("   Local Use '").append(usePair.getValueBox().getValue()).append("'. Adding '")
-							.append(usePair.getUnit()).append("' of '").append(curMethod).append("'.\n");
-						runners.add(new ForwardControlPredicateRunner(newd,seen,icfg,logger));
-					}
-				}
-				//VariableBox returned -> field ref is on left, RValueBox returned -> field res is on right
-				//Check if local is being written to a field and if so all reads of said field afterwards are considered
-				//Note we start at the source method to capture all the field reads from there downwards
-				//We are not concerned with capturing the field reads of the entire ep as this is a discovery forward traversal
-				/*if(def.containsFieldRef() && def.getFieldRefBox() instanceof VariableBox) {
-					for(DefinitionStmt fieldRead : icfg.getAllFieldReadsForMethod(startMethod, def.getFieldRef().getField())) {
-						Data newd = new Data(startUnit,startMethod,fieldRead,icfg.getMethodOf(fieldRead),true);
-						if(seen.add(newd)) {
-							sb.append(pad).append("   Field Read '").append(fieldRead).append("' of '").append(newd.getCurMethod())
-								.append("'. Adding due to field write.\n");
-							executeRunner(new ForwardControlPredicateRunner(newd,seen,markedClasses,icfg,logger),logger);
-						}
-					}
-				}*/
-				
-				//VariableBox returned -> array ref is on left, RValueBox returned -> array ref is on right
-				//Handling assigning an tracked local to an array entry
-				//Arrays assign contain ArrayRef on the left side not local so the general use generator will miss them
-				//Have to lookup actual def of the array and then retrieve the uses of that def after the tracked local is assigned
-				if(def.containsArrayRef() && def.getArrayRefBox() instanceof VariableBox) {
-					Local arrLocal = (Local)def.getArrayRef().getBase();
-					for(DefinitionStmt arrDef : icfg.getOrMakeLocalDefs(curMethod).getDefsWithAliases(arrLocal, def)) {
-						for(UnitValueBoxPair usePair : icfg.getOrMakeLocalUses(curMethod).getUsesOf(arrDef)) {
-							DataFwd newd = new DataFwd((Local)usePair.getValueBox().getValue(),usePair.getUnit(),curMethod);
-							if(seen.add(newd)) {
-								sb.append(pad).append("   Local Array Use '").append(usePair.getValueBox().getValue()).append("'. Adding '")
-									.append(usePair.getUnit()).append("' of '").append(curMethod).append("'.\n");
-								runners.add(new ForwardControlPredicateRunner(newd,seen,icfg,logger));
-							}
-						}
-					}
-				}
-			} else if(cur instanceof IfStmt || cur instanceof SwitchStmt) {
-				sb.append(pad).append("   New CP '").append(cur).append("'\n");
-				ret = cur;
-			}
-			
-			//Assume any local used in a stmt reachable from the first def is likely to be important auth-logic wise
-			//Therefore, we assume the further use of any of these locals is likely to be important later as well
-			//So we need to find all their defs and the defs of any other local used in their def
-			//Node arrays local and index local when writing to an array appear in the use boxes
-			//So if array is written or read it will should up here
-			//Only backtrack if the type being defined is a primitive, string, or a type known to be auth-logic related (or an array of those)
-			//This avoids the issue where we are backtracking for unimportant types (like this which would lead to everything)
-			/*for(DefinitionStmt def : icfg.getDefsForUsedLocals(cur)) {
-				if(isAllowedType(def.getLeftOp().getType())) {
-					Data newd = new Data(def,curMethod,true);
-					if(seen.add(newd)) {
-						sb.append(pad).append("   Local Def '").append((Local)def.getLeftOp()).append("'. Adding '")
-							.append(def).append("' of '").append(curMethod).append("'.\n");
-						runners.add(new ForwardControlPredicateRunner(newd,seen,markedClasses,icfg,logger));
-					}
-					//The definition stmt is a field read so this field is likely important
-					//Therefore we need to find all other reads of the field and explore them
-					//Note we start at the source method to capture all the field reads from there downwards
-					//We are not concerned with capturing the field reads of the entire ep as this is a discovery forward traversal
-					if(def.containsFieldRef() && !(def.getFieldRefBox() instanceof VariableBox)) {
-						for(DefinitionStmt fieldRead : icfg.getAllFieldReadsForMethod(startMethod, def.getFieldRef().getField())) {
-							Data newd2 = new Data(startUnit,startMethod,fieldRead,icfg.getMethodOf(fieldRead),true);
-							if(seen.add(newd2)) {
-								sb.append(pad).append("     Field Read '").append(fieldRead).append("' of '").append(newd2.getCurMethod())
-								.append("'. Adding due to field read.\n");
-								executeRunner(new ForwardControlPredicateRunner(newd2,seen,markedClasses,icfg,logger),logger);
-							}
-						}
-					}
-				}
-			}*/
-			
-			if(((Stmt)cur).containsInvokeExpr() && cause != null) {
-				InvokeExpr ie = ((Stmt)cur).getInvokeExpr();
-				List<List<IdentityStmt>> parmDefs = new ArrayList<>();
-				for(SootMethod sm : icfg.getCalleesOfCallAt(cur)) {
-					if(!sm.getName().equals("<clinit>"))
-						parmDefs.add(icfg.getParameterDefs(sm));
-				}
-				for(int i = 0; i < ie.getArgCount(); i++) {
-					if(ie.getArg(i).equals(cause)) {
-						for(List<IdentityStmt> parmDef : parmDefs) {
-							IdentityStmt parmD = parmDef.get(i);//Could be null if the parm is never used
-							if(parmD != null) {
-								DataFwd newd = new DataFwd((Local)null,parmD,icfg.getMethodOf(parmD));
-								if(seen.add(newd)) {
-									sb.append(pad).append("   Invoke Parm '").append(parmD).append("' of '").append(newd.getCurMethod())
-										.append("'. Adding...\n");
-									runners.add(new ForwardControlPredicateRunner(newd,seen,icfg,logger));
-								}
-							}
-						}
-					}
-				}
-				//If we are tracking a local representing an object then anything done to that object needs to be explored
-				if(ie instanceof InstanceInvokeExpr) {
-					InstanceInvokeExpr iie = (InstanceInvokeExpr)ie;
-					if(iie.getBase().equals(cause)) {
-						for(SootMethod sm : icfg.getCalleesOfCallAt(cur)) {
-							if(!sm.getName().equals("<clinit>")) {
-								for(Unit u : sm.getActiveBody().getUnits()) {
-									if(u instanceof DefinitionStmt && ((DefinitionStmt)u).getRightOp() instanceof ThisRef) {
-										DataFwd newd = new DataFwd((Local)null,u,icfg.getMethodOf(u));
-										if(seen.add(newd)) {
-											sb.append(pad).append("   Invoke This '").append(u).append("' of '").append(newd.getCurMethod())
-												.append("'. Adding....\n");
-											runners.add(new ForwardControlPredicateRunner(newd,seen,icfg,logger));
-										}
-									}
-								}
-							}
-						}
-					}
-				}
-			}
-			
-			//Invoke expressions need to be visited per local as the use analysis in a method is dependent on the starting point
-			//Since we are tracking all locals used with the local that brought us here, then we need to look at all parm and this defs
-			/*if(((Stmt)cur).containsInvokeExpr()) {
-				InvokeExpr ie = ((Stmt)cur).getInvokeExpr();
-				if(!ie.getMethodRef().name().equals("<clinit>")) {
-					boolean isInstanceInvoke =  ie instanceof InstanceInvokeExpr;
-					for(SootMethod sm : icfg.getCalleesOfCallAt(cur)) {
-						for(IdentityStmt parmDef : icfg.getParameterDefs(sm)) {
-							if(parmDef != null) {//Could be null if the parm is never used
-								Data newd = new Data(parmDef,icfg.getMethodOf(parmDef),true);
-								if(seen.add(newd)) {
-									sb.append(pad).append("   Invoke Parm '").append(parmDef).append("' of '").append(newd.getCurMethod())
-										.append("'. Adding...\n");
-									runners.add(new ForwardControlPredicateRunner(newd,seen,markedClasses,icfg,logger));
-								}
-							}
-						}
-						//If we are tracking a local representing an object then anything done to that object needs to be explored
-						if(isInstanceInvoke) {
-							for(Unit u : sm.getActiveBody().getUnits()) {
-								if(u instanceof DefinitionStmt && ((DefinitionStmt)u).getRightOp() instanceof ThisRef) {
-									Data newd = new Data(u,icfg.getMethodOf(u),true);
-									if(seen.add(newd)) {
-										sb.append(pad).append("     Invoke This '").append(u).append("' of '").append(newd.getCurMethod())
-											.append("'. Adding....\n");
-										runners.add(new ForwardControlPredicateRunner(newd,seen,markedClasses,icfg,logger));
-									}
-								}
-							}
-						}
-					}
-				}
-			}*/
-			if(!runners.isEmpty())
-				executeRunners(runners,logger);
-			logger.debug("{}: {}",name,sb.toString());
-		}
-
-		@Override
-		public Unit getValue() {
-			return ret;
-		}
-		
-		/*private boolean isAllowedType(Type t) {
-			if(t instanceof ArrayType)
-				t = ((ArrayType)t).baseType;
-			if(t instanceof PrimType)
-				return true;
-			if(t instanceof RefType) {
-				String cn = ((RefType)t).getClassName();
-				return markedClasses.contains(cn) || cn.equals("java.lang.String");
-			}
-			return false;
-		}*/
-		
-	}
-	
-	private class BackwardControlPredicateRunner implements ValueRunner<Unit> {
-		
-		private final DataBkwd d;
-		private final Set<DataBkwd> seen;
-		private volatile Unit ret;
-		private final IJimpleICFG icfg;
-		private final ILogger logger;
-
-		public BackwardControlPredicateRunner(DataBkwd d, Set<DataBkwd> seen, IJimpleICFG icfg, ILogger logger) {
-			this.d = d;
-			this.seen = seen;
-			this.ret = null;
-			this.icfg = icfg;
-			this.logger = logger;
-		}
-
-		@Override
-		public void run() {
-			List<ValueRunner<Unit>> runners = new ArrayList<>();
-			StringBuilder sb = new StringBuilder();
-			Unit cur = d.getCurUnit();
-			SootMethod curMethod = d.getCurMethod();
-			
-			sb.append("Visiting ").append(d.toString()).append("\n");
-			
-			//This is either a start stmt or a invoke stmt that is leads to the start stmt from the ep
-			//Either way we need to move up the callgraph one method in the backwards traversal to the ep
-			//Should stop at the ep as this should have no incoming edges (minus recursion)
-			if(d.isGenEpPath()) {
-				for(Unit callerStmt : icfg.getCallersOf(curMethod)) {
-					DataBkwd newd = new DataBkwd(callerStmt,icfg.getMethodOf(callerStmt),true);
-					if(seen.add(newd)) {
-						sb.append(pad).append("   Backtracking ").append(newd.toString()).append("\n");
-						runners.add(new BackwardControlPredicateRunner(newd, seen, icfg, logger));
-					}
-				}
-			}
-			
-			//Regardless of what the statement is we need to generate its branch control dependencies and add them to the worklist
-			for(Unit u : icfg.getOrMakeControlDependenceGraph(curMethod).getIteratedControlDependencies(cur)) {
-				DataBkwd newd = new DataBkwd(u,curMethod);
-				if(seen.add(newd)) {
-					sb.append(pad).append("   CtrlDep ").append(newd.toString()).append("\n");
-					runners.add(new BackwardControlPredicateRunner(newd, seen, icfg, logger));
-				}
-			}
-			
-			//Regardless of the statement, we need to find the definitions for all the locals used and add them to the worklist
-			for(DefinitionStmt def : icfg.getDefsForUsedLocals(cur)) {
-				DataBkwd newd = new DataBkwd(def,curMethod);
-				if(seen.add(newd)) {
-					sb.append(pad).append("   DefStmt ").append(newd.toString()).append("\n");
-					runners.add(new BackwardControlPredicateRunner(newd, seen, icfg, logger));
-				}
-				//The definition stmt is a field read so this field is likely important
-				//Therefore we need to find all other reads of the field from the start to the entry point and explore them
-				/*if(def.containsFieldRef() && !(def.getFieldRefBox() instanceof VariableBox)) {
-					for(DefinitionStmt fieldRead : icfg.getAllFieldReadsAt(startUnit, def.getFieldRef().getField())) {
-						Data newd2 = new Data(startUnit,startMethod,fieldRead,icfg.getMethodOf(fieldRead));
-						if(seen.add(newd2)) {
-							sb.append(pad).append("     FieldRead ").append(newd2.toString()).append("\n");
-							executeRunner(new BackwardControlPredicateRunner(newd2, seen, icfg, logger),logger);
-						}
-					}
-				}*/
-			}
-			
-			//Note the only way this can be triggered is if the start stmt happens to be a write of a local
-			//Otherwise we will never encounter these since we are only ever dealing with definitions not uses
-			/*if(cur instanceof DefinitionStmt) {
-				//VariableBox returned -> field ref is on left, RValueBox returned -> field res is on right
-				//Check if local is being written to a field and if so all reads are likely important
-				//Therefore we need to find all other reads of the field from the start to the entry point and explore them
-				DefinitionStmt def = (DefinitionStmt)cur;
-				if(def.containsFieldRef() && def.getFieldRefBox() instanceof VariableBox) {
-					for(DefinitionStmt fieldRead : icfg.getAllFieldReadsAt(startUnit, def.getFieldRef().getField())) {
-						Data newd = new Data(startUnit,startMethod,fieldRead,icfg.getMethodOf(fieldRead));
-						if(seen.add(newd)) {
-							sb.append(pad).append("   FieldReadOfWrite ").append(newd.toString()).append("\n");
-							executeRunner(new BackwardControlPredicateRunner(newd, seen, icfg, logger),logger);
-						}
-					}
-				}
-			}*/
-			
-			//If it contains an invoke expression, we need to explore all possible invoked methods starting at their returns
-			//If the invoke is for a method we are returning from as part of the backwards traversal to the ep, then we don't 
-			//want to explore it again
-			if(((Stmt)cur).containsInvokeExpr() && !d.isGenEpPath()) {
-				Set<SootMethod> seenMethods = new HashSet<>();
-				for(Unit u : icfg.getAllEndPointsOfCalleesOfCallAt(cur)) {
-					SootMethod methodOfU = icfg.getMethodOf(u);
-					if(!methodOfU.getName().equals("<clinit>")) {
-						DataBkwd newd = new DataBkwd(u,methodOfU);
-						if(seen.add(newd)) {
-							sb.append(pad).append("   CallExit ").append(newd.toString()).append("\n");
-							runners.add(new BackwardControlPredicateRunner(newd, seen, icfg, logger));
-						}
-						//We will be entering a new method, all methods called from this method need to be looked at also
-						SootMethod uM = icfg.getMethodOf(u);
-						if(seenMethods.add(uM)) {
-							for(Unit invoke : icfg.getCallsFromWithin(uM)) {
-								DataBkwd newd2 = new DataBkwd(invoke,uM);
-								if(seen.add(newd2)) {
-									sb.append(pad).append("   InvokeWithinCall ").append(newd2.toString()).append("\n");
-									runners.add(new BackwardControlPredicateRunner(newd2, seen, icfg, logger));
-								}
-							}
-						}
-					}
-				}
-			}
-			
-			//if statement is a branch record it
-			if (cur instanceof IfStmt || cur instanceof SwitchStmt) {
-				sb.append(pad).append("   New CP '").append(cur).append("'\n");
-				ret = cur;	
-			}
-			if(!runners.isEmpty())
-				executeRunners(runners,logger);
-			logger.debug("{}: {}",name,sb.toString());
-		}
-
-		@Override
-		public Unit getValue() {
-			return ret;
-		}
-	}
-	
 }
@@ -209,7 +209,7 @@ public class ControlPredicateMarker {
 			
 			try{
 				excludeHandler = dataAccessor.getExcludedElementsDB().createNewExcludeHandler(entryPoint);
-				icfg = new ExcludingJimpleICFG(entryPoint, baseICFG, new ExcludingEdgePredicate(baseICFG.getCallGraph(), excludeHandler));
+				icfg = new ExcludingJimpleICFG(entryPoint, baseICFG, new ExcludingEdgePredicate(baseICFG.getAdjacencyIndex(), excludeHandler));
 				
 				//Find all if and switch statements that are in the subgraphs of all context queries of a entry point and add them as CP
 				Map<SootMethod, Set<Unit>> ret = new HashMap<>();
@@ -13,15 +13,27 @@ import org.sag.common.io.FileHelpers;
 import org.sag.main.config.PhaseConfig;
 import org.sag.main.phase.AbstractPhaseHandler;
 import org.sag.main.phase.IPhaseHandler;
+import org.sag.main.phase.IPhaseOption;
 
 public class DefUseGraphHandler extends AbstractPhaseHandler {
 
+	public static final String optBinaryFormat = "BinaryFormat";
+	public static final String optEntryPointWindow = "EntryPointWindow";
+	public static final String optWarmUpICFG = "WarmUpICFG";
+	
 	private Path jimpleJar;
 	
 	public DefUseGraphHandler(List<IPhaseHandler> depPhases, PhaseConfig pc) {
 		super(depPhases, pc);
 	}
 	
+	private boolean isOptionEnabled(String name) {
+		IPhaseOption<?> o = getPhaseOptionUnchecked(name);
+		if(o == null || !o.isEnabled())
+			return false;
+		return true;
+	}
+	
 	@Override
 	protected void initInner() {
 		this.jimpleJar = dependencyFilePaths.get(0);
@@ -36,7 +48,8 @@ public class DefUseGraphHandler extends AbstractPhaseHandler {
 	protected void loadExistingInformation() throws Exception {
 		if(!isSootInitilized())//To read in this database soot must be initialized completely
 			initilizeSoot();
-		((IACMinerDataAccessor)dataAccessor).setDefUseGraphDB(IDefUseGraphDatabase.Factory.readXML(null, getOutputFilePath()));
+		IDefUseGraphDatabase db = IDefUseGraphDatabase.Factory.readXML(null, getOutputFilePath());
+		((IACMinerDataAccessor)dataAccessor).setDefUseGraphDB(db);
 	}
 
 	@Override
@@ -53,7 +66,9 @@ public class DefUseGraphHandler extends AbstractPhaseHandler {
 	protected boolean doWork() {
 		try{
 			FileHelpers.processDirectory(dataAccessor.getConfig().getFilePath("acminer_defusegraph-dir"),true,true);
-			DefUseGraphRunner runner = new DefUseGraphRunner(((IACMinerDataAccessor)dataAccessor),logger);
+			DefUseGraphRunner runner = new DefUseGraphRunner(((IACMinerDataAccessor)dataAccessor),logger,isOptionEnabled(optBinaryFormat),
+					isOptionEnabled(optEntryPointWindow) ? (Integer)getPhaseOptionUnchecked(optEntryPointWindow).getValue() : 0,
+					isOptionEnabled(optWarmUpICFG));
 			if(!runner.run()) {
 				logger.fatal("{}: The DefUseGraphRunner encountered errors during executation.",cn);
 				return false;
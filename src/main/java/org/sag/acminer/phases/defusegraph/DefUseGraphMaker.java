@@ -19,6 +19,8 @@ import org.sag.acminer.database.defusegraph.id.ConstantPart;
 import org.sag.acminer.database.defusegraph.id.Identifier;
 import org.sag.acminer.database.defusegraph.id.IdentifierGenerator;
 import org.sag.acminer.database.defusegraph.id.Part;
+import org.sag.acminer.phases.defusegraph.MethodDefUseSummaries.Def;
+import org.sag.acminer.phases.defusegraph.MethodDefUseSummaries.Kind;
 import org.sag.acminer.phases.entrypoints.EntryPoint;
 import org.sag.common.concurrent.IgnorableRuntimeException;
 import org.sag.common.concurrent.SimpleValueRunner;
@@ -28,7 +30,6 @@ import org.sag.common.concurrent.ValueWorkerFactory;
 import org.sag.common.concurrent.ValueWorkerGroup;
 import org.sag.common.concurrent.WorkerCountingThreadExecutor;
 import org.sag.common.logging.ILogger;
-import org.sag.common.tools.HierarchyHelpers;
 import org.sag.common.tuple.Pair;
 import org.sag.soot.callgraph.IJimpleICFG;
 
@@ -38,16 +39,15 @@ import soot.SootMethod;
 import soot.SootMethodRef;
 import soot.Unit;
 import soot.Value;
-import soot.jimple.CastExpr;
 import soot.jimple.Constant;
 import soot.jimple.DefinitionStmt;
-import soot.jimple.ParameterRef;
 import soot.jimple.Stmt;
 
 public class DefUseGraphMaker {
 	
 	private final String name;
 	private final WorkerCountingThreadExecutor exe;
+	private final MethodDefUseSummaries summaries;
 
 	public DefUseGraphMaker() {
 		this(new WorkerCountingThreadExecutor(new ValueWorkerFactory<>()));
@@ -56,6 +56,7 @@ public class DefUseGraphMaker {
 	public DefUseGraphMaker(WorkerCountingThreadExecutor exe) {
 		this.name = getClass().getSimpleName();
 		this.exe = exe;
+		this.summaries = new MethodDefUseSummaries();
 		//Note it is assumed that if these methods were already called before these calls will do nothing
 		//i.e. these detect if the maps storing exist and do nothing if they do
 		ILocalWrapper.Factory.init();
@@ -67,6 +68,7 @@ public class DefUseGraphMaker {
 		ILocalWrapper.Factory.reset();//Clear the cache of local wrappers when finished
 		INode.Factory.reset();//Clear the cache of nodes when finished
 		IdentifierGenerator.resetCache();
+		summaries.clear();
 		return ret;
 	}
 	
@@ -303,6 +305,7 @@ public class DefUseGraphMaker {
 			g.unlockInitialLock();
 			g.getReturnValue();//block
 			if(g.shutdownNormally() && !g.hasExceptions()) {
+				graph.freeze();
 				logger.fineInfo("{}: Successfully constructed the def use graphs for group '{}'.",name,g.getName());
 				return graph;
 			} else {
@@ -344,7 +347,7 @@ public class DefUseGraphMaker {
 		public void run() {
 			if(!(curValueNode instanceof LeafNode)) {//ignore nodes with no locals
 				Unit start = curValueNode.getUnit();
-				Map<Local,Set<DefinitionStmt>> defsForUsedLocals = icfg.getDefsForUsedLocalsMap(start);
+				Map<Local,List<Def>> defsForUsedLocals = summaries.getDefsForUsedLocals(start, icfg.getMethodOf(start), icfg);
 				StringBuilder sb = new StringBuilder();
 				sb.append("EntryPoint: ").append(ep.toString()).append("\n");
 				sb.append("  Visiting ").append(curValueNode.toString()).append("\n");
@@ -361,21 +364,22 @@ public class DefUseGraphMaker {
 					 * but then stop at the def and process it in another thread.
 					 */
 					for(Local l : defsForUsedLocals.keySet()) {
-						Set<DefinitionStmt> temp = filterDefs(defsForUsedLocals.get(l));
+						List<Def> temp = defsForUsedLocals.get(l);
 						if(temp != null && !temp.isEmpty()) {
-							Queue<Pair<Unit,Set<DefinitionStmt>>> toVisit = new ArrayDeque<>();
+							Queue<Pair<Unit,List<Def>>> toVisit = new ArrayDeque<>();
 							Set<Pair<Unit,Local>> visited = new HashSet<>();
-							toVisit.add(new Pair<Unit,Set<DefinitionStmt>>(start,temp));
+							toVisit.add(new Pair<Unit,List<Def>>(start,temp));
 							visited.add(new Pair<Unit, Local>(start,l));
 							
 							while(!toVisit.isEmpty()) {
-								Pair<Unit,Set<DefinitionStmt>> t = toVisit.poll();
+								Pair<Unit,List<Def>> t = toVisit.poll();
 								Unit cur = t.getFirst();
 								SootMethod curSource = icfg.getMethodOf(cur);
 								
-								for(DefinitionStmt def : t.getSecond()) {
-									if(def.getRightOp() instanceof ParameterRef && !curSource.equals(ep.getEntryPoint())) {
-										ParameterRef parmRef = (ParameterRef)def.getRightOp();
+								for(Def d : t.getSecond()) {
+									DefinitionStmt def = d.getStmt();
+									if(d.getKind() == Kind.PARAMETER && !curSource.equals(ep.getEntryPoint())) {
+										int parmIndex = d.getParameterIndex();
 										Collection<Unit> callers = icfg.getCallersOf(curSource);
 										if(!callers.isEmpty()) {
 											boolean atLeastOne = false;
@@ -383,15 +387,14 @@ public class DefUseGraphMaker {
 												if(((Stmt)callerStmt).containsInvokeExpr()) {
 													atLeastOne = true;
 													SootMethod callerSource = icfg.getMethodOf(callerStmt);
-													Value arg = ((Stmt)callerStmt).getInvokeExpr().getArg(parmRef.getIndex());
+													Value arg = ((Stmt)callerStmt).getInvokeExpr().getArg(parmIndex);
 													if(arg instanceof Local) {
 														if(visited.add(new Pair<Unit,Local>(callerStmt,(Local)arg))) {
-															toVisit.add(new Pair<Unit,Set<DefinitionStmt>>(callerStmt,
-																	filterDefs(icfg.getOrMakeLocalDefs(callerSource)
-																			.getDefsWithAliases((Local)arg, callerStmt))));
+															toVisit.add(new Pair<Unit,List<Def>>(callerStmt, summaries.getDefs((Local)arg, 
+																	callerStmt, callerSource, icfg.getOrMakeLocalDefs(callerSource))));
 														}
 													} else if(arg instanceof Constant) {
-														processChild(l, callerStmt, callerSource, parmRef.getIndex(),sb);
+														processChild(l, callerStmt, callerSource, parmIndex,sb);
 													} else {
 														logger.fineInfo("{}: Unexpected type '{}' of '{}' in invoke args of '{}' of '{}.",
 																name,arg.getClass(),arg,callerStmt,callerSource);
@@ -405,7 +408,7 @@ public class DefUseGraphMaker {
 											processChild(l, def, curSource,sb);
 										}
 									} else {
-										if(def.containsInvokeExpr()) {
+										if(d.getKind() == Kind.INVOKE) {
 											Collection<SootMethod> callees;
 											if(includeExcluded)
 												callees = icfg.getAllCalleesOfCallAt(def);
@@ -422,14 +425,8 @@ public class DefUseGraphMaker {
 											}
 											if(!atLeastOne)
 												processChild(l, def, curSource, sb);
-										} else if(def.containsFieldRef()) {
-											SootField field;
-											try {
-												field = HierarchyHelpers.resolveField(def.getFieldRef().getFieldRef());
-											} catch(Throwable t2) {
-												field = null;
-											}
-											processChild(l, def, curSource, field, sb);
+										} else if(d.getKind() == Kind.FIELD) {
+											processChild(l, def, curSource, d.getField(), sb);
 										} else {
 											processChild(l, def, curSource, sb);
 										}
@@ -448,16 +445,6 @@ public class DefUseGraphMaker {
 			}
 		}
 		
-		private Set<DefinitionStmt> filterDefs(Set<DefinitionStmt> defs) {
-			Set<DefinitionStmt> ret = new HashSet<>();
-			for(DefinitionStmt def : defs) {
-				Value right = def.getRightOp();
-				if(!(right instanceof Local) && !(right instanceof CastExpr))
-					ret.add(def);
-			}
-			return ret;
-		}
-		
 		private void processChild(Local l, Unit def, SootMethod source, StringBuilder sb) {
 			processChild(l, def, source, -1, null, null, sb);
 		}
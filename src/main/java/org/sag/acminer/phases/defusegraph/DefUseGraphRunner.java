@@ -3,6 +3,7 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.Semaphore;
 
 import org.sag.acminer.IACMinerDataAccessor;
 import org.sag.acminer.database.defusegraph.DefUseGraph;
@@ -17,6 +18,8 @@ import org.sag.common.concurrent.WorkerCountingThreadExecutor;
 import org.sag.common.logging.ILogger;
 import org.sag.soot.callgraph.ExcludingJimpleICFG;
 import org.sag.soot.callgraph.IJimpleICFG;
+import org.sag.soot.callgraph.ICFGCacheBudget;
+import org.sag.soot.callgraph.ICFGWarmUp;
 import org.sag.soot.callgraph.JimpleICFG;
 import org.sag.soot.callgraph.ExcludingJimpleICFG.ExcludingEdgePredicate;
 
@@ -28,6 +31,9 @@ public class DefUseGraphRunner {
 	private final ILogger mainLogger;
 	private final IACMinerDataAccessor dataAccessor;
 	private final String name;
+	private final boolean binaryFormat;
+	private final int window;
+	private final boolean warmUp;
 	//TODO Remove commented out sections
 	/*private final Map<SootClass,Path> stubToFieldOutput;
 	private final Map<SootClass,Path> stubToMethodOutput;
@@ -50,9 +56,29 @@ public class DefUseGraphRunner {
 	private final Map<String,Set<String>> allValues;*/
 
 	public DefUseGraphRunner(IACMinerDataAccessor dataAccessor, ILogger mainLogger){
+		this(dataAccessor, mainLogger, false);
+	}
+	
+	public DefUseGraphRunner(IACMinerDataAccessor dataAccessor, ILogger mainLogger, boolean binaryFormat){
+		this(dataAccessor, mainLogger, binaryFormat, 0);
+	}
+	
+	public DefUseGraphRunner(IACMinerDataAccessor dataAccessor, ILogger mainLogger, boolean binaryFormat, int window){
+		this(dataAccessor, mainLogger, binaryFormat, window, false);
+	}
+	
+	/** If window is greater than 0 then at most window entry points are in flight at any one time. Submission blocks until
+	 * an entry point finishes and its graph has been written and released, so the memory needed scales with the window 
+	 * and not the total number of entry points. Otherwise, all entry points are submitted at once. If warmUp is true then
+	 * the per body analyses of the ICFG are built in parallel for all reachable bodies before any entry point is submitted.
+	 */
+	public DefUseGraphRunner(IACMinerDataAccessor dataAccessor, ILogger mainLogger, boolean binaryFormat, int window, boolean warmUp){
 		this.dataAccessor = dataAccessor;
 		this.mainLogger = mainLogger;
 		this.name = getClass().getSimpleName();
+		this.binaryFormat = binaryFormat;
+		this.window = window;
+		this.warmUp = warmUp;
 		/*this.gFieldOutput = FileHelpers.getPath(PMinerFilePaths.v().getOutput_Miner_DefUseGraphBeforeFilterDir(),"vt_fields.txt");
 		this.gMethodOutput = FileHelpers.getPath(PMinerFilePaths.v().getOutput_Miner_DefUseGraphBeforeFilterDir(),"vt_methods.txt");
 		this.gStringConstOutput = FileHelpers.getPath(PMinerFilePaths.v().getOutput_Miner_DefUseGraphBeforeFilterDir(),"vt_string_const.txt");
@@ -107,13 +133,24 @@ public class DefUseGraphRunner {
 		}*/
 		
 		if(successOuter){
+			long phaseStart = System.nanoTime();
+			long warmUpTime = 0;
 			WorkerCountingThreadExecutor exe = null;
 			DefUseGraphMaker vtm = null;
 			List<LoggingWorkerGroup> workerGroups = new ArrayList<>();
 			//Set new control predicates database
 			dataAccessor.setDefUseGraphDB(IDefUseGraphDatabase.Factory.getNew(false));
+			dataAccessor.getDefUseGraphDB().setBinaryFormat(binaryFormat);
+			Semaphore inFlight = window > 0 ? new Semaphore(window) : null;
+			if(inFlight != null)
+				mainLogger.info("{}: Limiting the number of entry points in flight to {}.",name,window);
 			try{
 				JimpleICFG baseICFG = new JimpleICFG(dataAccessor.getEntryPoints(),false);
+				if(warmUp) {
+					ICFGWarmUp w = new ICFGWarmUp(baseICFG, dataAccessor.getExcludedElementsDB(), mainLogger);
+					w.run(dataAccessor.getEntryPoints());
+					warmUpTime = w.getWallTime();
+				}
 				SootClass stub = null;
 				LoggingWorkerGroup curWorkerGroup = null;
 				Deque<EntryPoint> eps = new ArrayDeque<>(dataAccessor.getEntryPoints());
@@ -138,10 +175,14 @@ public class DefUseGraphRunner {
 						}	
 					}
 					if(curWorkerGroup != null){
-						Runnable runner = new DefUseGraphMakerRunner(ep,baseICFG,vtm,curWorkerGroup.getLogger());
+						if(inFlight != null)
+							inFlight.acquire();//Back-pressure: wait for an entry point to finish before submitting another
+						Runnable runner = new DefUseGraphMakerRunner(ep,baseICFG,vtm,curWorkerGroup.getLogger(),inFlight);
 						try {
 							exe.execute(runner, curWorkerGroup);
 						} catch(Throwable t) {
+							if(inFlight != null)
+								inFlight.release();
 							mainLogger.fatal("{}: Failed to execute '{}' for group '{}'.",name,runner.toString(),curWorkerGroup.getName());
 							successOuter = false;
 						}
@@ -167,6 +208,10 @@ public class DefUseGraphRunner {
 							"Failed to wait for the def use graph maker to terminate.",name));
 					successOuter = false;
 				}
+				mainLogger.info("{}: {}",name,ICFGCacheBudget.v().getStatsReport());
+				//Compare against a run with the warm up disabled to measure the time it saves
+				mainLogger.info("{}: Processed all entry points in {} ms with the ICFG warm up {}.",name,
+						(System.nanoTime() - phaseStart) / 1000000,warmUp ? "taking " + (warmUpTime / 1000000) + " ms" : "disabled");
 				
 				for(LoggingWorkerGroup g : workerGroups) {
 					if(g.shutdownNormally() && !g.hasExceptions()) {
@@ -363,17 +408,19 @@ public class DefUseGraphRunner {
 		private final JimpleICFG baseICFG;
 		private final ILogger logger;
 		private final DefUseGraphMaker vtm;
+		private final Semaphore inFlight;
 		/*private volatile Set<String> fields;
 		private volatile Set<String> methods;
 		private volatile Map<String,Set<String>> stringConsts;
 		private volatile Map<String,Set<String>> startToUses;*/
 		
 		public DefUseGraphMakerRunner(EntryPoint ep, JimpleICFG baseICFG,
-				DefUseGraphMaker vtm, ILogger logger) {
+				DefUseGraphMaker vtm, ILogger logger, Semaphore inFlight) {
 			this.ep = ep;
 			this.baseICFG = baseICFG;
 			this.logger = logger;
 			this.vtm = vtm;
+			this.inFlight = inFlight;
 			/*this.fields = null;
 			this.methods = null;
 			this.stringConsts = null;
@@ -382,6 +429,15 @@ public class DefUseGraphRunner {
 
 		@Override
 		public void run() {
+			try {
+				makeAndWrite();
+			} finally {
+				if(inFlight != null)
+					inFlight.release();
+			}
+		}
+		
+		private void makeAndWrite() {
 			IExcludeHandler excludeHandler = null;
 			IJimpleICFG icfg = null;
 			
@@ -389,7 +445,7 @@ public class DefUseGraphRunner {
 			
 			try{
 				excludeHandler = dataAccessor.getExcludedElementsDB().createNewExcludeHandler(ep);
-				icfg = new ExcludingJimpleICFG(ep, baseICFG, new ExcludingEdgePredicate(baseICFG.getCallGraph(), excludeHandler));
+				icfg = new ExcludingJimpleICFG(ep, baseICFG, new ExcludingEdgePredicate(baseICFG.getAdjacencyIndex(), excludeHandler));
 				
 				DefUseGraph defUseGraph = vtm.makeDefUseGraphs(dataAccessor.getControlPredicatesDB().getUnits(ep), ep, icfg, logger);
 				
@@ -0,0 +1,202 @@
+package org.sag.acminer.phases.defusegraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sag.common.tools.HierarchyHelpers;
+import org.sag.common.tuple.Pair;
+import org.sag.soot.analysis.AdvLocalDefs;
+import org.sag.soot.callgraph.ICFGCacheBudget;
+import org.sag.soot.callgraph.IJimpleICFG;
+
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
+
+import soot.Local;
+import soot.SootField;
+import soot.SootMethod;
+import soot.Unit;
+import soot.Value;
+import soot.ValueBox;
+import soot.jimple.CastExpr;
+import soot.jimple.DefinitionStmt;
+import soot.jimple.ParameterRef;
+
+/** Summaries of the intra-procedural part of the def use graphs shared by all entry points. For each unit of a method
+ * the summary records the definitions reaching each local used by the unit (excluding the local to local and cast
+ * definitions the graphs skip over) along with everything about those definitions that does not depend on the entry
+ * point, i.e. if the definition is a parameter ref, invoke, or field ref and the resolved field. The summaries are
+ * immutable once computed, so the graph of each entry point only has to add the inter-procedural edges (callers for
+ * parameter refs and callees for invokes) which depend on the call graph of the entry point.
+ * <br><br>
+ * The reaching definitions are computed without the exclusions of any entry point just like
+ * {@link IJimpleICFG#getDefsForUsedLocalsMap(Unit)}. Previously these were recomputed by the separate cache of
+ * every {@link org.sag.soot.callgraph.ExcludingJimpleICFG}.
+ * <br><br>
+ * The summaries of each method are kept in a cache of the {@link ICFGCacheBudget} weighed by the number of units of the
+ * method, so they are evicted along with the other ICFG caches when the budget is bounded and recomputed when needed
+ * again. {@link #clear()} releases all of them once the graphs have been made.
+ */
+public class MethodDefUseSummaries {
+
+	public static enum Kind { PARAMETER, INVOKE, FIELD, OTHER }
+
+	public static final class Def {
+		private final DefinitionStmt stmt;
+		private final Kind kind;
+		private final SootField field;
+
+		private Def(DefinitionStmt stmt) {
+			this.stmt = stmt;
+			Value right = stmt.getRightOp();
+			if(right instanceof ParameterRef) {
+				this.kind = Kind.PARAMETER;
+				this.field = null;
+			} else if(stmt.containsInvokeExpr()) {
+				this.kind = Kind.INVOKE;
+				this.field = null;
+			} else if(stmt.containsFieldRef()) {
+				this.kind = Kind.FIELD;
+				SootField f;
+				try {
+					f = HierarchyHelpers.resolveField(stmt.getFieldRef().getFieldRef());
+				} catch(Throwable t) {
+					f = null;
+				}
+				this.field = f;
+			} else {
+				this.kind = Kind.OTHER;
+				this.field = null;
+			}
+		}
+
+		public DefinitionStmt getStmt() {
+			return stmt;
+		}
+
+		public Kind getKind() {
+			return kind;
+		}
+
+		/** Returns the resolved field of a {@link Kind#FIELD} definition or null if it could not be resolved. */
+		public SootField getField() {
+			return field;
+		}
+
+		public int getParameterIndex() {
+			return ((ParameterRef)stmt.getRightOp()).getIndex();
+		}
+	}
+
+	private static final class MethodSummary {
+		private final ConcurrentHashMap<Unit,Map<Local,List<Def>>> unitToUses = new ConcurrentHashMap<>();
+		private final ConcurrentHashMap<Pair<Unit,Local>,List<Def>> unitLocalToDefs = new ConcurrentHashMap<>();
+	}
+
+	//The summary of a method holds at most an entry for each unit of the method
+	private static final Weigher<SootMethod,MethodSummary> SUMMARY_WEIGHER = new Weigher<SootMethod,MethodSummary>() {
+		@Override
+		public int weigh(SootMethod m, MethodSummary value) {
+			return m.hasActiveBody() ? m.getActiveBody().getUnits().size() : 1;
+		}
+	};
+
+	private final LoadingCache<SootMethod,MethodSummary> methods;
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+
+	public MethodDefUseSummaries() {
+		this.methods = ICFGCacheBudget.v().newCache("MethodDefUseSummaries", new CacheLoader<SootMethod,MethodSummary>() {
+			@Override
+			public MethodSummary load(SootMethod m) throws Exception {
+				return new MethodSummary();
+			}
+		}, SUMMARY_WEIGHER);
+		this.hits = new AtomicLong();
+		this.misses = new AtomicLong();
+	}
+
+	private MethodSummary getSummary(SootMethod source) {
+		return methods.getUnchecked(source);
+	}
+
+	/** Returns the filtered definitions for each local used by the unit. Only locals with at least one definition
+	 * remaining after filtering are included.
+	 */
+	public Map<Local,List<Def>> getDefsForUsedLocals(Unit u, SootMethod source, IJimpleICFG icfg) {
+		if(source == null)
+			return Collections.emptyMap();
+		MethodSummary s = getSummary(source);
+		Map<Local,List<Def>> ret = s.unitToUses.get(u);
+		if(ret != null) {
+			hits.incrementAndGet();
+			return ret;
+		}
+		misses.incrementAndGet();
+		Map<Local,Set<DefinitionStmt>> defsForUsedLocals;
+		AdvLocalDefs df = u.getUseBoxes().isEmpty() ? null : icfg.getOrMakeLocalDefs(source);
+		if(df == null) {
+			defsForUsedLocals = icfg.getDefsForUsedLocalsMap(u);
+		} else {
+			defsForUsedLocals = new HashMap<>();
+			for(ValueBox vb : u.getUseBoxes()) {
+				Value v = vb.getValue();
+				if(v instanceof Local)
+					defsForUsedLocals.put((Local)v, df.getDefsWithAliases((Local)v, u));
+			}
+		}
+		ret = new HashMap<>();
+		for(Local l : defsForUsedLocals.keySet()) {
+			List<Def> defs = filter(defsForUsedLocals.get(l));
+			if(!defs.isEmpty())
+				ret.put(l, defs);
+		}
+		ret = ret.isEmpty() ? Collections.<Local,List<Def>>emptyMap() : Collections.unmodifiableMap(ret);
+		Map<Local,List<Def>> old = s.unitToUses.putIfAbsent(u, ret);
+		return old == null ? ret : old;
+	}
+
+	/** Returns the filtered definitions of the local reaching the unit given the local defs of the source of the unit. */
+	public List<Def> getDefs(Local l, Unit u, SootMethod source, AdvLocalDefs df) {
+		MethodSummary s = getSummary(source);
+		Pair<Unit,Local> key = new Pair<>(u,l);
+		List<Def> ret = s.unitLocalToDefs.get(key);
+		if(ret != null) {
+			hits.incrementAndGet();
+			return ret;
+		}
+		misses.incrementAndGet();
+		ret = filter(df.getDefsWithAliases(l, u));
+		List<Def> old = s.unitLocalToDefs.putIfAbsent(key, ret);
+		return old == null ? ret : old;
+	}
+
+	//Local to local assignments and casts are skipped over by the alias analysis of AdvLocalDefs
+	private static List<Def> filter(Set<DefinitionStmt> defs) {
+		List<Def> ret = new ArrayList<>();
+		for(DefinitionStmt def : defs) {
+			Value right = def.getRightOp();
+			if(!(right instanceof Local) && !(right instanceof CastExpr))
+				ret.add(new Def(def));
+		}
+		return ret.isEmpty() ? Collections.<Def>emptyList() : Collections.unmodifiableList(ret);
+	}
+
+	/** Removes all summaries and releases their weight from the {@link ICFGCacheBudget}. */
+	public void clear() {
+		methods.invalidateAll();
+	}
+
+	@Override
+	public String toString() {
+		return "methods=" + methods.size() + " hits=" + hits.get() + " misses=" + misses.get();
+	}
+
+}
@@ -13,15 +13,25 @@ import org.sag.common.io.FileHelpers;
 import org.sag.main.config.PhaseConfig;
 import org.sag.main.phase.AbstractPhaseHandler;
 import org.sag.main.phase.IPhaseHandler;
+import org.sag.main.phase.IPhaseOption;
 
 public class DefUseGraphModHandler extends AbstractPhaseHandler {
 	
+	public static final String optBinaryFormat = "BinaryFormat";
+	
 	private Path jimpleJar;
 	
 	public DefUseGraphModHandler(List<IPhaseHandler> depPhases, PhaseConfig pc) {
 		super(depPhases, pc);
 	}
 	
+	private boolean isOptionEnabled(String name) {
+		IPhaseOption<?> o = getPhaseOptionUnchecked(name);
+		if(o == null || !o.isEnabled())
+			return false;
+		return true;
+	}
+	
 	@Override
 	protected void initInner() {
 		this.jimpleJar = dependencyFilePaths.get(0);
@@ -36,7 +46,8 @@ public class DefUseGraphModHandler extends AbstractPhaseHandler {
 	protected void loadExistingInformation() throws Exception {
 		if(!isSootInitilized())//To read in this database soot must be initialized completely
 			initilizeSoot();
-		((IACMinerDataAccessor)dataAccessor).setDefUseGraphModDB(IDefUseGraphDatabase.Factory.readXML(null, getOutputFilePath()));
+		IDefUseGraphDatabase db = IDefUseGraphDatabase.Factory.readXML(null, getOutputFilePath());
+		((IACMinerDataAccessor)dataAccessor).setDefUseGraphModDB(db);
 	}
 
 	@Override
@@ -53,7 +64,7 @@ public class DefUseGraphModHandler extends AbstractPhaseHandler {
 	protected boolean doWork() {
 		try{
 			FileHelpers.processDirectory(dataAccessor.getConfig().getFilePath("acminer_defusegraphmod-dir"),true,true);
-			DefUseGraphModifierRunner runner = new DefUseGraphModifierRunner(((IACMinerDataAccessor)dataAccessor), logger);
+			DefUseGraphModifierRunner runner = new DefUseGraphModifierRunner(((IACMinerDataAccessor)dataAccessor), logger, isOptionEnabled(optBinaryFormat));
 			if(!runner.run()) {
 				logger.fatal("{}: The DefUseGraphModifierRunner encountered errors during executation.",cn);
 				return false;
@@ -118,6 +118,7 @@ public class DefUseGraphModifier {
 				
 				DefUseGraph outGraph = new DefUseGraph(startNodes);
 				copyDataIntoNewGraph(graph, outGraph, seen, startNodes);
+				outGraph.freeze();
 				
 				logger.fineInfo("{}: Successfully removed instance objects from def use graph for ep '{}'. The graph "
 						+ "has been successfully modified.",name,ep);
@@ -138,7 +139,7 @@ public class DefUseGraphModifier {
 		Set<INode> newnodes = new HashSet<>();
 		newnodes.addAll(newStartNodes);
 		for(INode cur : nodes) {
-			Map<LocalWrapper, Set<INode>> data = oldGraph.getChildLocalWrappersToChildNodes(cur);
+			Map<LocalWrapper, Set<INode>> data = oldGraph.getChildLocalWrappersToChildNodesView(cur);
 			Local invokingObject = getInvokingObject(cur, keepInstanceObject);
 			INode newCur = INode.Factory.modifyNode(cur, invokingObject == null);
 			newnodes.add(newCur);
@@ -216,10 +217,10 @@ public class DefUseGraphModifier {
 		public void run() {
 			if(seen.add(cur)) {
 				Local invokingObject = getInvokingObject(cur, keepInstanceObject);
-				Map<Local, Set<INode>> data = graph.getChildLocalsToChildNodes(cur);
-				for(Local l : data.keySet()) {
-					if(invokingObject == null || !l.equals(invokingObject)) {
-						for(INode n : data.get(l)) {
+				Map<LocalWrapper, Set<INode>> data = graph.getChildLocalWrappersToChildNodesView(cur);
+				for(LocalWrapper lw : data.keySet()) {
+					if(invokingObject == null || !lw.getLocal().equals(invokingObject)) {
+						for(INode n : data.get(lw)) {
 							runners.add(new ModDefUseGraphRunner(ep, n, graph, seen, logger));
 						}
 					}
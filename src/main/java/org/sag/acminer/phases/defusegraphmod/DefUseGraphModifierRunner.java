@@ -46,11 +46,17 @@ public class DefUseGraphModifierRunner {
 	private final ILogger mainLogger;
 	private final IACMinerDataAccessor dataAccessor;
 	private final String name;
+	private final boolean binaryFormat;
 	
 	public DefUseGraphModifierRunner(IACMinerDataAccessor dataAccessor, ILogger mainLogger){
+		this(dataAccessor, mainLogger, false);
+	}
+	
+	public DefUseGraphModifierRunner(IACMinerDataAccessor dataAccessor, ILogger mainLogger, boolean binaryFormat){
 		this.dataAccessor = dataAccessor;
 		this.mainLogger = mainLogger;
 		this.name = getClass().getSimpleName();
+		this.binaryFormat = binaryFormat;
 	}
 	
 	public boolean run() {
@@ -64,6 +70,7 @@ public class DefUseGraphModifierRunner {
 			List<LoggingWorkerGroup> workerGroups = new ArrayList<>();
 			//Set new control predicates database
 			dataAccessor.setDefUseGraphModDB(IDefUseGraphDatabase.Factory.getNew(false));
+			dataAccessor.getDefUseGraphModDB().setBinaryFormat(binaryFormat);
 			try{
 				JimpleICFG baseICFG = new JimpleICFG(dataAccessor.getEntryPoints(),false);
 				SootClass stub = null;
@@ -162,7 +169,7 @@ public class DefUseGraphModifierRunner {
 			
 			try{
 				excludeHandler = dataAccessor.getExcludedElementsDB().createNewExcludeHandler(ep);
-				icfg = new ExcludingJimpleICFG(ep, baseICFG, new ExcludingEdgePredicate(baseICFG.getCallGraph(), excludeHandler));
+				icfg = new ExcludingJimpleICFG(ep, baseICFG, new ExcludingEdgePredicate(baseICFG.getAdjacencyIndex(), excludeHandler));
 				DefUseGraph inGraph = dataAccessor.getDefUseGraphDB().getDefUseGraph(ep, dataAccessor.getConfig().getFilePath("acminer_defusegraph-dir"));
 				Set<Unit> controlPredicates = dataAccessor.getControlPredicatesDB().getUnits(ep);
 				Set<Unit> contextQueries = new HashSet<>(dataAccessor.getContextQueriesDB().getUnits(ep));
@@ -198,7 +205,7 @@ public class DefUseGraphModifierRunner {
 							if(visited.add(cur)) {
 								if(contextQueries.contains(cur.getUnit()))
 									cpStartNodes.get(sn).add(cur);
-								for(INode vn : inGraph.getChildNodes(cur)) {
+								for(INode vn : inGraph.getChildNodesView(cur)) {
 									if(!visited.contains(vn))
 										toVisit.push(vn);
 								}
@@ -29,6 +29,7 @@ import org.sag.main.config.Config;
 import org.sag.main.phase.IPhaseHandler;
 import org.sag.main.phase.IPhaseOption;
 import org.sag.soot.SootSort;
+import org.sag.soot.callgraph.ReachabilityIndex;
 import org.sag.soot.callgraph.JimpleICFG.BasicEdgePredicate;
 import org.sag.soot.graphtools.TGFSootEdgeTranslator;
 import org.sag.soot.graphtools.TGFSootNodeTranslator;
@@ -135,7 +136,8 @@ public class VariedCallGraphAnalysis {
 	}
 	
 	private boolean dumpNative(Path outputPath, Path outputPath2) {
-		CallGraph cg = Scene.v().getCallGraph();
+		//Reachable methods come from the shared index over the non-reflective edges instead of a traversal per entry point
+		final ReachabilityIndex index = ReachabilityIndex.v();
 		Set<EntryPoint> eps = dataAccessor.getEntryPoints();
 		CountingThreadExecutor exe = new CountingThreadExecutor();
 		final Map<SootMethod,Set<EntryPoint>> epsToNativeMethods = new HashMap<>();
@@ -148,30 +150,13 @@ public class VariedCallGraphAnalysis {
 				exe.execute(new Runnable() {
 					public void run() {
 						try {
-							SootMethod entryPoint = ep.getEntryPoint();
-							Set<SootMethod> visited = new HashSet<>();
-							Queue<SootMethod> toVisit = new ArrayDeque<>();
 							IExcludeHandler excludeHandler = dataAccessor.getExcludedElementsDB().createNewExcludeHandler(ep);
-							BasicEdgePredicate edgePred = new BasicEdgePredicate(false);//Omit reflective calls 
-							Set<Edge> allowedEdges = new HashSet<>();
 							Set<SootMethod> nativeMethods = new HashSet<>();
-							toVisit.add(entryPoint);
-							while(!toVisit.isEmpty()) {
-								SootMethod cur = toVisit.poll();
-								if(!excludeHandler.isExcludedMethodWithOverride(cur)) { //Omit excluded native methods and don't traverse excluded methods
-									if(cur.isNative())
-										nativeMethods.add(cur);
-									if(visited.add(cur)) {
-										Iterator<Edge> it = cg.edgesOutOf(cur);
-										while(it.hasNext()) {
-											Edge e = it.next();
-											if(edgePred.want(e)) {
-												allowedEdges.add(e);
-												toVisit.add(e.tgt());
-											}
-										}
-									}
-								}
+							//Excluded methods are reachable but not traversed by the index
+							for(SootMethod cur : index.getReachable(ep, excludeHandler)) {
+								//Omit excluded native methods
+								if(cur.isNative() && !excludeHandler.isExcludedMethodWithOverride(cur))
+									nativeMethods.add(cur);
 							}
 							
 							if(!nativeMethods.isEmpty()) {
@@ -8,6 +8,8 @@ import org.sag.acminer.IACMinerDataAccessor;
 import org.sag.acminer.database.accesscontrol.AccessControlDatabaseFactory;
 import org.sag.acminer.phases.bindergroups.BinderGroupsDatabase;
 import org.sag.acminer.phases.controlpredicatefilter.ControlPredicateFilterHandler;
+import org.sag.acminer.phases.defusegraph.DefUseGraphHandler;
+import org.sag.acminer.phases.defusegraphmod.DefUseGraphModHandler;
 import org.sag.acminer.phases.entrypoints.EntryPointsDatabase;
 import org.sag.acminer.sootinit.BasicSootLoader;
 import org.sag.common.io.FileHelpers;
@@ -38,6 +40,9 @@ public class ACMinerAnalysisHelpers {
 	private boolean analyizeCP;
 	private boolean testCP;
 	private boolean dumpInvokeSigs;
+	private boolean benchDominators;
+	private Boolean convertDefUseGraphs;
+	private Boolean convertDefUseGraphsMod;
 	private String methodNamePattern;
 	private final String cn;
 	private final Config config;
@@ -52,6 +57,9 @@ public class ACMinerAnalysisHelpers {
 		analyizeCP = false;
 		testCP = false;
 		dumpInvokeSigs = false;
+		benchDominators = false;
+		convertDefUseGraphs = null;
+		convertDefUseGraphsMod = null;
 		logger = new LoggerWrapperSLF4J(this.getClass());
 		config = Config.getConfigFromResources(logger);
 		cn = getClass().getSimpleName();
@@ -109,6 +117,16 @@ public class ACMinerAnalysisHelpers {
 						isEpNeeded = true;
 						isBinderGroupsNeeded = true;
 						break;
+					case "--BenchDominators":
+						isBasicSootNeeded = true;
+						benchDominators = true;
+						break;
+					case "--ConvertDefUseGraphs":
+						convertDefUseGraphs = parseDefUseGraphFormat(args[++i]);
+						break;
+					case "--ConvertDefUseGraphsMod":
+						convertDefUseGraphsMod = parseDefUseGraphFormat(args[++i]);
+						break;
 					case "--DumpMethodNamesMatch":
 						isBasicSootNeeded = true;
 						this.methodNamePattern = args[++i];
@@ -122,6 +140,14 @@ public class ACMinerAnalysisHelpers {
 		return true;
 	}
 	
+	private static Boolean parseDefUseGraphFormat(String format) {
+		if(format.equals("binary"))
+			return true;
+		else if(format.equals("xml"))
+			return false;
+		throw new RuntimeException("Error: Unknown def use graph format '" + format + "'. Expected 'binary' or 'xml'.");
+	}
+	
 	public void verifyOptions(String inPath){
 		if(inPath == null)
 			this.inPath = defaultIn;
@@ -211,13 +237,27 @@ public class ACMinerAnalysisHelpers {
 					dataAccessor.setControlPredicatesDB(AccessControlDatabaseFactory.readXmlControlPredicatesDatabase(null, 
 							config.getFilePath("acminer_control-predicates-db-file")));
 				}
-				if(isCPFilterNeeded) {
+				if(isCPFilterNeeded || convertDefUseGraphs != null || convertDefUseGraphsMod != null) {
 					PhaseManager pm = config.getNewPhaseManager();
 					pm.enablePhaseGroup("ACMiner");
-					pm.setPhaseOptionForHandler("ACMiner", ControlPredicateFilterHandler.class, AbstractPhaseHandler.optEnabled, "true");
+					if(isCPFilterNeeded)
+						pm.setPhaseOptionForHandler("ACMiner", ControlPredicateFilterHandler.class, AbstractPhaseHandler.optEnabled, "true");
+					//Loads the existing graphs (and soot) through the phases that made them
+					if(convertDefUseGraphs != null)
+						pm.setPhaseOptionForHandler("ACMiner", DefUseGraphHandler.class, AbstractPhaseHandler.optEnabled, "true");
+					if(convertDefUseGraphsMod != null)
+						pm.setPhaseOptionForHandler("ACMiner", DefUseGraphModHandler.class, AbstractPhaseHandler.optEnabled, "true");
 					pm.init(dataAccessor, ai, mainLogger);
 					pm.run();
 				}
+				if(convertDefUseGraphs != null) {
+					new DefUseGraphConverter(dataAccessor.getDefUseGraphDB(), config.getFilePath("acminer_defusegraph_db-file"), 
+							config.getFilePath("acminer_defusegraph-dir"), convertDefUseGraphs, mainLogger).run();
+				}
+				if(convertDefUseGraphsMod != null) {
+					new DefUseGraphConverter(dataAccessor.getDefUseGraphModDB(), config.getFilePath("acminer_defusegraphmod_db-file"), 
+							config.getFilePath("acminer_defusegraphmod-dir"), convertDefUseGraphsMod, mainLogger).run();
+				}
 				if(testCP) {
 					dataAccessor.getControlPredicatesDB().writeXML(null, FileHelpers.getPath(config.getFilePath("debug-dir"), "CPTEST.xml"));
 				}
@@ -227,6 +267,9 @@ public class ACMinerAnalysisHelpers {
 				if(dumpInvokeSigs) {
 					new DumpInvokeSignatures(config.getFilePath("debug-dir"), mainLogger, dataAccessor).run();
 				}
+				if(benchDominators) {
+					new BenchmarkDominators(mainLogger).run();
+				}
 				if(methodNamePattern != null) {
 					for(SootClass sc : Scene.v().getClasses()) {
 						for(SootMethod sm : sc.getMethods()) {
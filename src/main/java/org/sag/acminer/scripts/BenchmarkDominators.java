@@ -0,0 +1,137 @@
+package org.sag.acminer.scripts;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+
+import org.sag.common.logging.ILogger;
+import org.sag.soot.analysis.ControlDependenceGraph;
+import org.sag.soot.analysis.FastDominatorsFinder;
+import org.sag.soot.analysis.FastPostDominatorsFinder;
+
+import soot.Body;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Unit;
+import soot.toolkits.graph.DirectedGraph;
+import soot.toolkits.graph.DominatorsFinder;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+import soot.toolkits.graph.InverseGraph;
+import soot.toolkits.graph.MHGDominatorsFinder;
+import soot.toolkits.graph.UnitGraph;
+
+/** Compares the run time of the dataflow based dominator finders of soot with the {@link FastDominatorsFinder} and
+ * {@link FastPostDominatorsFinder} over the bodies of all onTransact methods in the loaded system image. The dominator
+ * sets and the immediate dominators are also compared per unit and any differences are logged. The immediate dominators
+ * are compared against those of the previous dataflow based implementation of {@link FastDominatorsFinder} as this is
+ * what the {@link ControlDependenceGraph} is built from. When these agree, the control dependencies and so the control
+ * predicates marked do not change.
+ */
+public class BenchmarkDominators {
+
+	private final String cn;
+	private final ILogger logger;
+
+	public BenchmarkDominators(ILogger logger) {
+		this.cn = getClass().getSimpleName();
+		this.logger = logger;
+	}
+
+	public void run() {
+		List<UnitGraph> graphs = new ArrayList<>();
+		int units = 0;
+		for(SootClass sc : Scene.v().getClasses()) {
+			for(SootMethod m : sc.getMethods()) {
+				if(m.getName().equals("onTransact") && m.isConcrete()) {
+					Body b = m.retrieveActiveBody();
+					graphs.add(new ExceptionalUnitGraph(b));
+					units += b.getUnits().size();
+				}
+			}
+		}
+		logger.info("{}: Benchmarking dominators over {} onTransact bodies with {} units in total.",cn,graphs.size(),units);
+		long mhg = 0;
+		long fast = 0;
+		long mhgPost = 0;
+		long fastPost = 0;
+		int domMismatches = 0;
+		int idomMismatches = 0;
+		for(UnitGraph g : graphs) {
+			long start = System.nanoTime();
+			LegacyDominatorsFinder<Unit> a = new LegacyDominatorsFinder<>(g);
+			mhg += System.nanoTime() - start;
+			start = System.nanoTime();
+			FastDominatorsFinder<Unit> b = new FastDominatorsFinder<>(g);
+			fast += System.nanoTime() - start;
+			start = System.nanoTime();
+			LegacyDominatorsFinder<Unit> c = new LegacyDominatorsFinder<>(new InverseGraph<Unit>(g));
+			mhgPost += System.nanoTime() - start;
+			start = System.nanoTime();
+			FastPostDominatorsFinder<Unit> d = new FastPostDominatorsFinder<>(g);
+			fastPost += System.nanoTime() - start;
+			domMismatches += compareDominators(g, a, b) + compareDominators(g, c, d);
+			idomMismatches += compareImmediateDominators(g, a, b) + compareImmediateDominators(g, c, d);
+		}
+		logger.info("{}: Dominators: MHGDominatorsFinder {} ms, FastDominatorsFinder {} ms",cn,mhg / 1000000,fast / 1000000);
+		logger.info("{}: Post Dominators: MHGPostDominatorsFinder {} ms, FastPostDominatorsFinder {} ms",cn,mhgPost / 1000000,
+				fastPost / 1000000);
+		logger.info("{}: Found {} nodes whose dominators differ.",cn,domMismatches);
+		logger.info("{}: Found {} nodes whose immediate dominators differ.",cn,idomMismatches);
+	}
+
+	private int compareImmediateDominators(UnitGraph g, DominatorsFinder<Unit> expected, DominatorsFinder<Unit> actual) {
+		int ret = 0;
+		for(Unit u : g) {
+			Unit e = expected.getImmediateDominator(u);
+			Unit a = actual.getImmediateDominator(u);
+			if(!Objects.equals(e, a)) {
+				logger.warn("{}: The immediate dominators of '{}' in '{}' differ. Expected '{}' but got '{}'.",cn,u,
+						g.getBody().getMethod(),e,a);
+				ret++;
+			}
+		}
+		return ret;
+	}
+
+	private int compareDominators(UnitGraph g, DominatorsFinder<Unit> expected, DominatorsFinder<Unit> actual) {
+		int ret = 0;
+		for(Unit u : g) {
+			if(!expected.getDominators(u).containsAll(actual.getDominators(u))
+					|| !actual.getDominators(u).containsAll(expected.getDominators(u))) {
+				logger.warn("{}: The dominators of '{}' in '{}' differ.",cn,u,g.getBody().getMethod());
+				ret++;
+			}
+		}
+		return ret;
+	}
+
+	/* The previous implementation of FastDominatorsFinder which the immediate dominators are expected to match. */
+	private static final class LegacyDominatorsFinder<N> extends MHGDominatorsFinder<N> {
+
+		public LegacyDominatorsFinder(DirectedGraph<N> graph) {
+			super(graph);
+		}
+
+		@Override
+		public N getImmediateDominator(N node) {
+			if(getGraph().getHeads().contains(node))
+				return null;
+			N immediateDominator = null;
+			BitSet bitSet = (BitSet) nodeToFlowSet.get(node).clone();
+			bitSet.clear(nodeToIndex.get(node));
+			for(int i = bitSet.nextSetBit(0); i >= 0; i = bitSet.nextSetBit(i+1)) {
+				N dominator = indexToNode.get(i);
+				BitSet cur = (BitSet) bitSet.clone();
+				BitSet other = nodeToFlowSet.get(dominator);
+				cur.and(other);
+				if(cur.equals(other))
+					immediateDominator = dominator;
+			}
+			return immediateDominator;
+		}
+
+	}
+
+}
@@ -0,0 +1,42 @@
+package org.sag.acminer.scripts;
+
+import java.nio.file.Path;
+
+import org.sag.acminer.database.defusegraph.IDefUseGraphDatabase;
+import org.sag.common.logging.ILogger;
+
+/** Converts the def use graphs of an existing {@link IDefUseGraphDatabase} between the xml and binary formats and
+ * rewrites the database so it refers to the converted graphs. Phases read existing graphs in whichever format they
+ * were written in so this only needs to be run to change the format of graphs that already exist. Note the rewritten
+ * database has a new file hash, so any phase that depends on it will be run again.
+ */
+public class DefUseGraphConverter {
+
+	private final String cn;
+	private final IDefUseGraphDatabase db;
+	private final Path dbFile;
+	private final Path dir;
+	private final boolean binary;
+	private final ILogger logger;
+
+	public DefUseGraphConverter(IDefUseGraphDatabase db, Path dbFile, Path dir, boolean binary, ILogger logger) {
+		this.cn = getClass().getSimpleName();
+		this.db = db;
+		this.dbFile = dbFile;
+		this.dir = dir;
+		this.binary = binary;
+		this.logger = logger;
+	}
+
+	public void run() throws Exception {
+		logger.info("{}: Converting the def use graphs in '{}' to the {} format.",cn,dir,binary ? "binary" : "xml");
+		int converted = db.convertDefUseGraphs(dir, binary);
+		if(converted > 0) {
+			db.writeXML(null, dbFile);
+			logger.info("{}: Converted {} def use graphs and rewrote the database at '{}'.",cn,converted,dbFile);
+		} else {
+			logger.info("{}: All def use graphs are already in the {} format.",cn,binary ? "binary" : "xml");
+		}
+	}
+
+}
@@ -0,0 +1,91 @@
+package org.sag.acminer.sootinit;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.sag.acminer.IACMinerDataAccessor;
+import org.sag.common.io.FileHelpers;
+import org.sag.soot.callgraph.CallGraphSnapshot;
+
+import soot.PhaseOptions;
+
+/** Persists the unmodified CHA call graph built by the {@link IPASootLoader} so later runs on the same input can skip
+ * the cg pack. The graph is stored as a {@link CallGraphSnapshot} along with a key that is the hash of everything the
+ * CHA call graph depends on: the jimple jar, the java version, the excluded classes passed to soot, the entry point and
+ * binder group classes resolved before the call graph is built, and the options of the cg pack. A cache whose key does
+ * not match is ignored and replaced after the call graph is rebuilt.
+ * <br><br>
+ * The excluded methods and the binder edge adjustments are applied afterwards by the CallGraphModifier and so are not
+ * part of the key.
+ */
+public final class CallGraphCache {
+
+	//Bump when the loading of soot changes in a way that affects the call graph but not the key
+	private static final int cacheVersion = 1;
+
+	private final Path path;
+
+	public CallGraphCache(Path path) {
+		this.path = path;
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	public static String computeKey(IACMinerDataAccessor dataAccessor, Path jimpleJar, int javaVersion,
+			Collection<String> excludeList) throws Exception {
+		StringBuilder sb = new StringBuilder();
+		sb.append("version:").append(cacheVersion).append('\n');
+		sb.append("jar:").append(FileHelpers.genFileHash(jimpleJar, null).getHash()).append('\n');
+		sb.append("java:").append(javaVersion).append('\n');
+		appendSorted(sb, "exclude:", excludeList);
+		appendSorted(sb, "ep-classes:", dataAccessor.getAllEntryPointClasses());
+		appendSorted(sb, "ep-methods:", dataAccessor.getAllEntryPointMethods());
+		appendSorted(sb, "binder-classes:", dataAccessor.getAllBinderGroupClasses());
+		for(String pack : new String[] {"cg", "cg.cha"}) {
+			Map<String,String> opts = new TreeMap<>(PhaseOptions.v().getPhaseOptions(pack));
+			sb.append(pack).append(':').append(opts).append('\n');
+		}
+		return FileHelpers.getHashOfString("SHA-256", sb.toString());
+	}
+
+	private static void appendSorted(StringBuilder sb, String name, Collection<String> values) {
+		List<String> sorted = new ArrayList<>(values);
+		Collections.sort(sorted);
+		sb.append(name).append(sorted).append('\n');
+	}
+
+	/** Returns the cached snapshot if the cache exists and was written with the given key. Otherwise returns null. */
+	public CallGraphSnapshot read(String key) throws Exception {
+		if(!Files.isRegularFile(path))
+			return null;
+		try(ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(new BufferedInputStream(
+				Files.newInputStream(path))))) {
+			if(!key.equals(in.readUTF()))
+				return null;
+			return (CallGraphSnapshot)in.readObject();
+		}
+	}
+
+	public void write(String key, CallGraphSnapshot snapshot) throws Exception {
+		try(ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(new BufferedOutputStream(
+				Files.newOutputStream(path))))) {
+			out.writeUTF(key);
+			out.writeObject(snapshot);
+		}
+	}
+
+}
@@ -20,6 +20,7 @@ import org.sag.acminer.database.excludedelements.EmptyExcludedElementsDatabase;
 import org.sag.acminer.database.excludedelements.IExcludedElementsDatabase;
 import org.sag.acminer.phases.entrypoints.GenerateEntryPoints;
 import org.sag.soot.SootSort;
+import org.sag.soot.callgraph.CallGraphSnapshot;
 import soot.G;
 import soot.PackManager;
 import soot.Scene;
@@ -44,11 +45,17 @@ public class IPASootLoader extends SootLoader {
 	private String in;
 	private IACMinerDataAccessor dataAccessor;
 	private ILogger logger;
+	private volatile CallGraphCache cgCache;
 
 	private IPASootLoader() {
 		super(2);
 	}
 	
+	/** Sets the cache used to reuse the unmodified callgraph of a previous run on the same input. Null disables it. */
+	public void setCallGraphCache(CallGraphCache cgCache) {
+		this.cgCache = cgCache;
+	}
+	
 	@SuppressWarnings("deprecation")
 	public boolean load(IACMinerDataAccessor dataAccessor, Path pathToInput, int javaVersion, ILogger logger){
 		this.in = FileHelpers.getNormAndAbsPath(pathToInput).toString();
@@ -88,15 +95,28 @@ public class IPASootLoader extends SootLoader {
 		}
 		logger.info("{}: Successfully excluded all but select methods in Binder.",cn);
 			
-		//Run only the callgraph pack because we don't need or use the others (they waste time and resources)
-		logger.info("{}: Generating the callgraph.",cn);
-		try{
-			PackManager.v().getPack("cg").apply();
-		}catch(Throwable t){
-			logger.fatal("{}: Failed to generate the callgraph.",t,cn);
-			return false;
+		CallGraphCache cache = cgCache;
+		String cacheKey = null;
+		CallGraphSnapshot cached = null;
+		if(cache != null) {
+			logger.info("{}: Looking for a cached callgraph at '{}'.",cn,cache.getPath());
+			try {
+				cacheKey = CallGraphCache.computeKey(dataAccessor, pathToInput, javaVersion, excludeList);
+				cached = cache.read(cacheKey);
+			} catch(Throwable t) {
+				logger.warn("{}: Failed to read the cached callgraph at '{}'. The callgraph will be generated.",t,cn,cache.getPath());
+				cached = null;
+			}
+			if(cached == null)
+				logger.info("{}: No cached callgraph exists for the current input.",cn);
+		}
+		
+		if(cached == null) {
+			if(!generateCallGraph())
+				return false;
+		} else {
+			logger.info("{}: Found a cached callgraph with {} edges. Skipping the generation of the callgraph.",cn,cached.getEdgeCount());
 		}
-		logger.info("{}: Successfully generated the callgraph.",cn);
 		
 		//Note we do this before loading the call graph because I do not wish to change
 		//the method body drastically after the call graph is built
@@ -123,6 +143,35 @@ public class IPASootLoader extends SootLoader {
 		}
 		logger.info("{}: Successfully removed all constant casts from the code and replacing them with just the constants.",cn);
 		
+		//The call sites of the cached callgraph are the units of the bodies as they are at this point so it can
+		//only be restored and written after the above modifications
+		if(cached != null) {
+			logger.info("{}: Restoring the cached callgraph.",cn);
+			try {
+				Scene.v().setCallGraph(cached.toCallGraph());
+				logger.info("{}: Successfully restored the cached callgraph.",cn);
+			} catch(Throwable t) {
+				logger.warn("{}: Failed to restore the cached callgraph. The callgraph will be generated.",t,cn);
+				cached = null;
+				if(!generateCallGraph())
+					return false;
+			}
+		}
+		if(cached == null && cacheKey != null) {
+			logger.info("{}: Writing the callgraph to the cache at '{}'.",cn,cache.getPath());
+			try {
+				CallGraphSnapshot snapshot = CallGraphSnapshot.build(Scene.v().getCallGraph(), null);
+				if(snapshot.hasAllCallSites()) {
+					cache.write(cacheKey, snapshot);
+					logger.info("{}: Successfully wrote the callgraph to the cache.",cn);
+				} else {
+					logger.warn("{}: Some call sites of the callgraph are not in a method body. The callgraph was not cached.",cn);
+				}
+			} catch(Throwable t) {
+				logger.warn("{}: Failed to write the callgraph to the cache.",t,cn);
+			}
+		}
+		
 		logger.info("{}: Setting {} as initilized as the all other tasks require an initilized soot instance.",cn,cn);
 		getSootInstanceWrapper().setSootInit(getSootLoadKey());
 		
@@ -148,6 +197,19 @@ public class IPASootLoader extends SootLoader {
 		
 	}
 	
+	protected boolean generateCallGraph() {
+		//Run only the callgraph pack because we don't need or use the others (they waste time and resources)
+		logger.info("{}: Generating the callgraph.",cn);
+		try{
+			PackManager.v().getPack("cg").apply();
+		}catch(Throwable t){
+			logger.fatal("{}: Failed to generate the callgraph.",t,cn);
+			return false;
+		}
+		logger.info("{}: Successfully generated the callgraph.",cn);
+		return true;
+	}
+	
 	protected void setSootOptions(List<String> excludeList, int javaVersion){
 		Options.v().set_java_version(javaVersionConvert(javaVersion));
 		Options.v().set_allow_phantom_refs(true);
@@ -0,0 +1,51 @@
+package org.sag.common.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** A fixed size set of the ids 0 to capacity-1 that can be added to and queried concurrently without locking. Useful as
+ * the visited set of a concurrent traversal over elements that already have dense ids, such as the methods of a
+ * {@link org.sag.soot.callgraph.CallGraphSnapshot}.
+ */
+public class ConcurrentIdSet {
+	
+	private final AtomicLongArray words;
+	private final int capacity;
+	
+	public ConcurrentIdSet(int capacity) {
+		if(capacity < 0)
+			throw new IllegalArgumentException("Error: The capacity must be non-negative but got '" + capacity + "'.");
+		this.capacity = capacity;
+		this.words = new AtomicLongArray((capacity + 63) >>> 6);
+	}
+	
+	/** Adds the id to the set, returning true if it was not already present. Exactly one of any number of
+	 * concurrent calls for the same id returns true.
+	 */
+	public boolean add(int id) {
+		checkId(id);
+		int w = id >>> 6;
+		long bit = 1L << id;
+		for(;;) {
+			long cur = words.get(w);
+			if((cur & bit) != 0)
+				return false;
+			if(words.compareAndSet(w, cur, cur | bit))
+				return true;
+		}
+	}
+	
+	public boolean contains(int id) {
+		checkId(id);
+		return (words.get(id >>> 6) & (1L << id)) != 0;
+	}
+	
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	private void checkId(int id) {
+		if(id < 0 || id >= capacity)
+			throw new IndexOutOfBoundsException("Error: The id '" + id + "' is not in the range [0," + capacity + ").");
+	}
+	
+}
@@ -1,5 +1,6 @@
 package org.sag.common.concurrent;
 
+import java.util.Collection;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.sag.common.logging.ILogger;
@@ -41,6 +42,13 @@ public abstract class ValueWorkerGroup<A,B> extends LoggingWorkerGroup {
 		return ret;
 	}
 	
+	/** Submits the runners to the executor as a single batch of workers in this group. See 
+	 * {@link WorkerCountingThreadExecutor#execute(Collection, WorkerGroup)}.
+	 */
+	public void execute(WorkerCountingThreadExecutor exe, Collection<? extends ValueRunner<B>> runners) {
+		exe.execute(runners, this);
+	}
+	
 	@SuppressWarnings("unchecked")
 	@Override
 	protected void endWorker(Worker w) {
@@ -1,6 +1,9 @@
 package org.sag.common.concurrent;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -76,6 +79,36 @@ public class WorkerCountingThreadExecutor extends CountingThreadExecutor {
 		}
 	}
 	
+	/** Submits all the given runnables as workers of the given group. Unlike calling {@link #execute(Runnable, WorkerGroup)}
+	 * for each, the groups of the workers are registered with this executor once for the whole batch so the executor's 
+	 * lock is only taken once. If a worker is rejected, it and the workers after it are not counted against their group.
+	 */
+	public void execute(Collection<? extends Runnable> rs, WorkerGroup g) {
+		if(rs.isEmpty())
+			return;
+		List<Worker> workers = new ArrayList<>(rs.size());
+		Set<WorkerGroup> groups = new HashSet<>();
+		for(Runnable r : rs) {
+			Worker w = (r instanceof Worker) ? (Worker)r : workerFactory.newWorker(r, g);
+			w.startWorker();
+			workers.add(w);
+			groups.add(w.getWorkerGroup());
+		}
+		synchronized(this) {
+			if(!isShutdown())
+				workerGroups.addAll(groups);
+		}
+		int i = 0;
+		try {
+			for(; i < workers.size(); i++)
+				super.execute(workers.get(i));
+		} catch(RejectedExecutionException ex) {
+			for(; i < workers.size(); i++)
+				workers.get(i).resetWorker();
+			throw ex;
+		}
+	}
+	
 	@Override
 	protected void afterExecute(Runnable r, Throwable t) {
 		((Worker)r).endWorker(t);
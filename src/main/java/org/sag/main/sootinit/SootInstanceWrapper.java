@@ -1,6 +1,7 @@
 package org.sag.main.sootinit;
 
 import org.sag.main.IDataAccessor;
+import org.sag.soot.SootOrdinals;
 import org.sag.soot.xstream.SootClassContainer;
 import org.sag.soot.xstream.SootFieldContainer;
 import org.sag.soot.xstream.SootMethodContainer;
@@ -40,6 +41,8 @@ public class SootInstanceWrapper implements GlobalObjectGetter {
 		if(sootLoadKey != 0)
 			throw new RuntimeException("Error: Cannot have two soot instances at the same time. Something is wrong.");
 		this.sootLoadKey = key;
+		//The bodies may have been modified while loading so drop any units rendered before this point
+		SootOrdinals.reset();
 	}
 	
 	/**
@@ -94,6 +97,7 @@ public class SootInstanceWrapper implements GlobalObjectGetter {
 		SootMethodContainer.reset();
 		SootFieldContainer.reset();
 		SootUnitContainerFactory.reset();
+		SootOrdinals.reset();
 		if(dataAccessor != null)
 			dataAccessor.resetAllSootData(false);
 	}
@@ -0,0 +1,158 @@
+package org.sag.soot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.sag.common.tools.SortingMethods;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Unit;
+import soot.util.Numberable;
+
+/** Precomputed sort keys for the comparators of {@link SootSort}. Each {@link SootClass} and {@link SootMethod} in the
+ * {@link Scene} is given an ordinal once, in the same lexical order the comparators have always used, so comparing two
+ * of them is a comparison of ints. The ordinals are indexed by the soot number of each class and method. Those created
+ * after the ordinals were assigned have no ordinal and are compared by name as before, which is consistent with the
+ * ordinals since both follow the same order. The ordinals are reassigned when the Scene is reset or when enough new
+ * classes or methods have been added.
+ * <br><br>
+ * A total order of all the units in the Scene would require rendering every statement of every body, and the order of
+ * the units in their bodies is not the lexical order {@link SootSort#unitComp} has always used. So units instead have
+ * their rendered string cached the first time they are compared. The cache is bounded as units live as long as their
+ * bodies, i.e. the whole run, so most units of a run are rendered once instead of on every comparison.
+ * <br><br>
+ * The cached strings assume a unit is not modified after it is first compared. The ordinals are reset with soot by
+ * {@link org.sag.main.sootinit.SootInstanceWrapper} both when {@link soot.G#reset()} is called and when soot is marked
+ * initialized, so strings of units compared while a loader was still modifying the bodies are dropped. Units modified
+ * after soot is initialized must call {@link #reset()}.
+ */
+public final class SootOrdinals {
+
+	//Large enough for the units of the control predicates and access control checks of all entry points
+	private static final long maxUnitKeys = 200000;
+
+	private static volatile SootOrdinals current;
+
+	private final Scene scene;
+	private final Ordinals<SootClass> classes;
+	private final Ordinals<SootMethod> methods;
+	private final LoadingCache<Unit,String> unitKeys;
+
+	private SootOrdinals(Scene scene) {
+		this.scene = scene;
+		this.classes = new Ordinals<>(scene.getClassNumberer(), SootSort.scNameComp);
+		this.methods = new Ordinals<>(scene.getMethodNumberer(), SootSort.smNameComp);
+		this.unitKeys = CacheBuilder.newBuilder().weakKeys().maximumSize(maxUnitKeys).build(new CacheLoader<Unit,String>() {
+			@Override
+			public String load(Unit u) {
+				return u.toString();
+			}
+		});
+	}
+
+	/** Returns the ordinals of the current {@link Scene}, assigning them if the Scene has changed or grown. */
+	public static SootOrdinals v() {
+		Scene scene = Scene.v();
+		SootOrdinals ret = current;
+		if(ret == null || !ret.isCurrent(scene)) {
+			synchronized(SootOrdinals.class) {
+				ret = current;
+				if(ret == null || !ret.isCurrent(scene)) {
+					ret = new SootOrdinals(scene);
+					current = ret;
+				}
+			}
+		}
+		return ret;
+	}
+
+	/** Drops the ordinals and the cached strings of the units so they are recomputed on the next comparison. */
+	public static void reset() {
+		current = null;
+	}
+
+	private boolean isCurrent(Scene scene) {
+		return this.scene == scene && !classes.isStale(scene.getClassNumberer().size())
+				&& !methods.isStale(scene.getMethodNumberer().size());
+	}
+
+	public int compare(SootClass o1, SootClass o2) {
+		return classes.compare(o1, o2);
+	}
+
+	public int compare(SootMethod o1, SootMethod o2) {
+		return methods.compare(o1, o2);
+	}
+
+	public int compare(Unit o1, Unit o2) {
+		if(o1 == o2)
+			return 0;
+		return SortingMethods.sComp.compare(unitKeys.getUnchecked(o1), unitKeys.getUnchecked(o2));
+	}
+
+	private static final class Ordinals<T extends Numberable> {
+
+		private final Comparator<T> nameComp;
+		//Indexed by the number of each object. The objects are kept to detect numbers reused after a removal.
+		private final Object[] objects;
+		private final int[] ordinals;
+		private final int size;
+
+		public Ordinals(Iterable<T> numberer, Comparator<T> nameComp) {
+			this.nameComp = nameComp;
+			List<T> all = new ArrayList<>();
+			int max = 0;
+			for(T t : numberer) {
+				if(t != null && t.getNumber() > 0) {
+					all.add(t);
+					max = Math.max(max, t.getNumber());
+				}
+			}
+			Collections.sort(all, nameComp);
+			this.objects = new Object[max + 1];
+			this.ordinals = new int[max + 1];
+			int ordinal = 0;
+			for(int i = 0; i < all.size(); i++) {
+				T t = all.get(i);
+				//Objects that compare equal share an ordinal
+				if(i > 0 && nameComp.compare(all.get(i - 1), t) != 0)
+					ordinal++;
+				objects[t.getNumber()] = t;
+				ordinals[t.getNumber()] = ordinal;
+			}
+			this.size = all.size();
+		}
+
+		//Reassign once the objects without an ordinal are a sizable fraction of the total
+		public boolean isStale(int curSize) {
+			return curSize - size > Math.max(1024, size / 8);
+		}
+
+		private int getOrdinal(T t) {
+			int n = t.getNumber();
+			if(n > 0 && n < objects.length && objects[n] == t)
+				return ordinals[n];
+			return -1;
+		}
+
+		public int compare(T o1, T o2) {
+			if(o1 == o2)
+				return 0;
+			int a = getOrdinal(o1);
+			int b = getOrdinal(o2);
+			if(a >= 0 && b >= 0)
+				return Integer.compare(a, b);
+			return nameComp.compare(o1, o2);
+		}
+
+	}
+
+}
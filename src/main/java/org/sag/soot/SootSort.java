@@ -49,7 +49,7 @@ public class SootSort {
 			else if(o1 != null && o2 == null)
 				return 1;
 			else
-				return SortingMethods.sComp.compare(o1.toString(),o2.toString());
+				return SootOrdinals.v().compare(o1, o2);
 		}
 	};
 	
@@ -127,19 +127,26 @@ public class SootSort {
 				return -1;
 			else if(o1 != null && o2 == null)
 				return 1;
-			else {
-				int ret = SortingMethods.sComp.compare(o1.getDeclaringClass().getName(),o2.getDeclaringClass().getName());
+			else
+				return SootOrdinals.v().compare(o1, o2);
+		}
+	};
+	
+	//The order of the ordinals in SootOrdinals and the fallback for methods without an ordinal
+	static final Comparator<SootMethod> smNameComp = new Comparator<SootMethod>(){
+		@Override
+		public int compare(SootMethod o1, SootMethod o2) {
+			int ret = SortingMethods.sComp.compare(o1.getDeclaringClass().getName(),o2.getDeclaringClass().getName());
+			if(ret == 0){
+				ret = SortingMethods.sComp.compare(o1.getName(),o2.getName());
 				if(ret == 0){
-					ret = SortingMethods.sComp.compare(o1.getName(),o2.getName());
+					ret = SortingMethods.sComp.compare(o1.getReturnType().toString(),o2.getReturnType().toString());
 					if(ret == 0){
-						ret = SortingMethods.sComp.compare(o1.getReturnType().toString(),o2.getReturnType().toString());
-						if(ret == 0){
-							ret = SortingMethods.sComp.compare(o1.getParameterTypes().toString(),o2.getParameterTypes().toString());
-						}
+						ret = SortingMethods.sComp.compare(o1.getParameterTypes().toString(),o2.getParameterTypes().toString());
 					}
 				}
-				return ret;
 			}
+			return ret;
 		}
 	};
 
@@ -203,7 +210,15 @@ public class SootSort {
 			else if(o1 != null && o2 == null)
 				return 1;
 			else
-				return SortingMethods.sComp.compare(o1.getName(), o2.getName());
+				return SootOrdinals.v().compare(o1, o2);
+		}
+	};
+	
+	//The order of the ordinals in SootOrdinals and the fallback for classes without an ordinal
+	static final Comparator<SootClass> scNameComp = new Comparator<SootClass>(){
+		@Override
+		public int compare(SootClass o1, SootClass o2) {
+			return SortingMethods.sComp.compare(o1.getName(), o2.getName());
 		}
 	};
 
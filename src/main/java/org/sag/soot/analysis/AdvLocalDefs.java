@@ -1,15 +1,19 @@
 package org.sag.soot.analysis;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Queue;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
-import org.sag.common.tuple.Pair;
-
 import soot.Local;
 import soot.Unit;
 import soot.Value;
+import soot.ValueBox;
 import soot.jimple.ArrayRef;
 import soot.jimple.CastExpr;
 import soot.jimple.DefinitionStmt;
@@ -23,8 +27,13 @@ public class AdvLocalDefs extends SmartLocalDefs {
 	private static final int toRemoveCast = 2;
 	private static final int toRemoveArray = 4;
 	
+	private final UnitGraph unitGraph;
+	private volatile AliasTable aliasTable;
+	
 	public AdvLocalDefs(UnitGraph g, LiveLocals l) {
 		super(g,l);
+		this.unitGraph = g;
+		this.aliasTable = null;
 	}
 
 	/** Get all definition statements for a Local l as used in the Unit start.
@@ -125,45 +134,194 @@ public class AdvLocalDefs extends SmartLocalDefs {
 		return workerMethod(l, start, true, toRemoveLocal | toRemoveCast | toRemoveArray);
 	}
 	
-	//No need to cache these results since we need to re run it for each unit provided and each unit will only get passed to this method at most
-	//once because of restrictions in the inter-procedural analysis (if it changes we need to update this)
+	/** Returns the estimated number of bytes used by the alias closure table of this body or 0 if the table has not been
+	 * built yet (i.e. no alias query has been made).
+	 */
+	public long getAliasTableMemory() {
+		AliasTable t = aliasTable;
+		return t == null ? 0 : t.memory;
+	}
+	
+	/** Called once with the result of {@link #getAliasTableMemory()} when the alias closure table of this body is built.
+	 * Does nothing by default.
+	 */
+	protected void onAliasTableBuilt(long memory) {}
+	
+	private AliasTable getAliasTable() {
+		AliasTable ret = aliasTable;
+		if(ret == null) {
+			synchronized(this) {
+				ret = aliasTable;
+				if(ret == null) {
+					ret = new AliasTable();
+					aliasTable = ret;
+					onAliasTableBuilt(ret.memory);
+				}
+			}
+		}
+		return ret;
+	}
+	
 	private Set<DefinitionStmt> workerMethod(Local l, Unit start, boolean includeArrays, int toRemove) {
-		Set<Pair<Local,Unit>> visited = new HashSet<>();
+		AliasTable t = getAliasTable();
+		BitSet reach = t.lookup(l, start, includeArrays);
 		Set<DefinitionStmt> ret = new HashSet<>();
-		Queue<Pair<Local,Unit>> toVisit = new ArrayDeque<>();
+		for(int i = reach.nextSetBit(0); i >= 0; i = reach.nextSetBit(i + 1)) {
+			if((toRemove & toRemoveLocal) != 0 && t.localDefs.get(i))
+				continue;
+			if((toRemove & toRemoveCast) != 0 && t.castDefs.get(i))
+				continue;
+			if(includeArrays && (toRemove & toRemoveArray) != 0 && t.arrayDefs.get(i))
+				continue;
+			ret.add(t.defs[i]);
+		}
+		return ret;
+	}
+	
+	/* The alias closure table of a body. Every definition statement in the body is given an id and for each definition 
+	 * statement the closure is the set of ids of the definition statement itself and all definition statements reachable 
+	 * by following the Local/CastExpr (and ArrayRef base when including arrays) on its right hand side back to their 
+	 * definitions. The result of a query for a Local at a Unit is then the union of the closures of the definitions of 
+	 * the Local at the Unit. Whether a definition statement is removed by a query only depends on the form of its right 
+	 * hand side so the removals are applied as masks at lookup time. The results for every Local used in every Unit are
+	 * precomputed for both the with and without arrays variants. Queries for other Local Unit pairs are computed from the
+	 * closures on demand.
+	 */
+	private final class AliasTable {
+		private final DefinitionStmt[] defs;
+		private final Map<Unit,Integer> defIds;
+		private final BitSet localDefs;
+		private final BitSet castDefs;
+		private final BitSet arrayDefs;
+		private final BitSet[] closures;
+		private final BitSet[] closuresArrays;
+		private final Map<Unit,Map<Local,BitSet>> uses;
+		private final Map<Unit,Map<Local,BitSet>> usesArrays;
+		private final long memory;
 		
-		toVisit.add(new Pair<Local,Unit>(l,start));
-		while(!toVisit.isEmpty()) { //Limit needs to be changed to whatever uses it when grabbing the defs
-			Pair<Local,Unit> p = toVisit.poll();
-			Local cur = p.getFirst();
-			Unit curU = p.getSecond();
-			if(visited.add(p)) {
-				for(Unit defUnit : getDefsOfAt(cur, curU)) {
-					DefinitionStmt defStmt = (DefinitionStmt)defUnit;
-					Value right = defStmt.getRightOp();
-					if(right instanceof Local) {
-						toVisit.add(new Pair<>((Local) right, defUnit));
-						if((toRemove & toRemoveLocal) == 0)
-							ret.add(defStmt);
-					} else if(right instanceof CastExpr) {
-						Value v = ((CastExpr)right).getOp();
-						if(v instanceof Local)
-							toVisit.add(new Pair<>((Local)v, defUnit));
-						if((toRemove & toRemoveCast) == 0)
-							ret.add(defStmt);
-					} else if(includeArrays && right instanceof ArrayRef) {
-						Value v = ((ArrayRef)right).getBase();
-						if(v instanceof Local)
-							toVisit.add(new Pair<>((Local)v, defUnit));
-						if((toRemove & toRemoveArray) == 0)
-							ret.add(defStmt);
-					} else {
-						ret.add(defStmt);
+		public AliasTable() {
+			List<DefinitionStmt> defList = new ArrayList<>();
+			this.defIds = new HashMap<>();
+			for(Unit u : unitGraph.getBody().getUnits()) {
+				if(u instanceof DefinitionStmt) {
+					defIds.put(u, defList.size());
+					defList.add((DefinitionStmt)u);
+				}
+			}
+			this.defs = defList.toArray(new DefinitionStmt[defList.size()]);
+			this.localDefs = new BitSet(defs.length);
+			this.castDefs = new BitSet(defs.length);
+			this.arrayDefs = new BitSet(defs.length);
+			int[][] succs = new int[defs.length][];
+			int[][] succsArrays = new int[defs.length][];
+			for(int i = 0; i < defs.length; i++) {
+				Value right = defs[i].getRightOp();
+				Local alias = null;
+				if(right instanceof Local) {
+					localDefs.set(i);
+					alias = (Local)right;
+				} else if(right instanceof CastExpr) {
+					castDefs.set(i);
+					Value v = ((CastExpr)right).getOp();
+					if(v instanceof Local)
+						alias = (Local)v;
+				} else if(right instanceof ArrayRef) {
+					arrayDefs.set(i);
+					Value v = ((ArrayRef)right).getBase();
+					if(v instanceof Local)
+						succsArrays[i] = getDefIds((Local)v, defs[i]);
+				}
+				if(alias != null) {
+					succs[i] = getDefIds(alias, defs[i]);
+					succsArrays[i] = succs[i];
+				}
+			}
+			this.closures = computeClosures(succs);
+			this.closuresArrays = computeClosures(succsArrays);
+			
+			long mem = 0;
+			this.uses = new HashMap<>();
+			this.usesArrays = new HashMap<>();
+			for(Unit u : unitGraph.getBody().getUnits()) {
+				Map<Local,BitSet> useMap = null;
+				Map<Local,BitSet> useMapArrays = null;
+				for(ValueBox vb : u.getUseBoxes()) {
+					Value v = vb.getValue();
+					if(v instanceof Local) {
+						if(useMap == null) {
+							useMap = new HashMap<>();
+							useMapArrays = new HashMap<>();
+						}
+						if(!useMap.containsKey(v)) {
+							int[] ids = getDefIds((Local)v, u);
+							BitSet b = union(closures, ids);
+							BitSet ba = union(closuresArrays, ids);
+							useMap.put((Local)v, b);
+							useMapArrays.put((Local)v, ba);
+							mem += 2 * 32 + (b.size() + ba.size()) / 8;
+						}
 					}
 				}
+				if(useMap != null) {
+					uses.put(u, useMap);
+					usesArrays.put(u, useMapArrays);
+					mem += 2 * 48;
+				}
 			}
+			for(int i = 0; i < defs.length; i++)
+				mem += 2 * 16 + (closures[i].size() + closuresArrays[i].size()) / 8;
+			mem += defs.length * 40L + 3 * (defs.length / 8 + 16);
+			this.memory = mem;
+		}
+		
+		private int[] getDefIds(Local l, Unit u) {
+			List<Unit> defUnits = getDefsOfAt(l, u);
+			int[] ret = new int[defUnits.size()];
+			for(int i = 0; i < ret.length; i++)
+				ret[i] = defIds.get(defUnits.get(i));
+			return ret;
+		}
+		
+		private BitSet[] computeClosures(int[][] succs) {
+			BitSet[] ret = new BitSet[succs.length];
+			Deque<Integer> toVisit = new ArrayDeque<>();
+			for(int i = 0; i < succs.length; i++) {
+				BitSet closure = new BitSet();
+				toVisit.add(i);
+				while(!toVisit.isEmpty()) {
+					int cur = toVisit.poll();
+					if(!closure.get(cur)) {
+						closure.set(cur);
+						if(cur < i && ret[cur] != null) {
+							//Already computed so just merge it in
+							closure.or(ret[cur]);
+						} else if(succs[cur] != null) {
+							for(int succ : succs[cur])
+								toVisit.add(succ);
+						}
+					}
+				}
+				ret[i] = closure;
+			}
+			return ret;
+		}
+		
+		private BitSet union(BitSet[] closures, int[] ids) {
+			BitSet ret = new BitSet();
+			for(int id : ids)
+				ret.or(closures[id]);
+			return ret;
+		}
+		
+		public BitSet lookup(Local l, Unit start, boolean includeArrays) {
+			Map<Local,BitSet> useMap = (includeArrays ? usesArrays : uses).get(start);
+			if(useMap != null) {
+				BitSet ret = useMap.get(l);
+				if(ret != null)
+					return ret;
+			}
+			return union(includeArrays ? closuresArrays : closures, getDefIds(l, start));
 		}
-		return ret;
 	}
 	
 }
@@ -1,80 +1,288 @@
 package org.sag.soot.analysis;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import soot.toolkits.graph.DirectedGraph;
-import soot.toolkits.graph.MHGDominatorsFinder;
+import soot.toolkits.graph.DominatorsFinder;
 
-public class FastDominatorsFinder<N> extends MHGDominatorsFinder<N> {
+/** Computes the dominators of a graph using the iterative algorithm of Cooper, Harvey, and Kennedy ("A Simple, Fast
+ * Dominance Algorithm") instead of the bitset dataflow of {@link soot.toolkits.graph.MHGDominatorsFinder} which is
+ * quadratic in practice for huge methods (e.g. the switch statements of onTransact). Nodes are indexed by ints and the
+ * immediate dominators and the pre/post order numbers of the dominator tree are kept in primitive arrays, so the
+ * immediate dominator is a lookup and a dominance check is two comparisons.
+ * <br><br>
+ * Like {@link soot.toolkits.graph.MHGDominatorsFinder}, a graph with multiple heads is handled as if all heads had a
+ * common virtual root (i.e. each head is dominated only by itself) and nodes not reachable from any head are considered
+ * to be dominated by all nodes in the graph.
+ * <br><br>
+ * {@link #getImmediateDominator(Object)} returns the same node as the previous dataflow based implementation of this
+ * class so that the {@link ControlDependenceGraph}, and therefore the control predicates marked, do not change. That is,
+ * of the strict dominators of a node it returns the one with the highest index in the dataflow algorithm (i.e. the
+ * heads in graph order followed by all other nodes in graph order) which is not always the nearest. A node not
+ * reachable from any head gets the reachable node with the highest index.
+ */
+public class FastDominatorsFinder<N> implements DominatorsFinder<N> {
+
+	protected final DirectedGraph<N> graph;
+	protected final Map<N,Integer> nodeToIndex;
+	protected final List<N> indexToNode;
+	//The virtual root has index size and is its own immediate dominator
+	protected final int[] idoms;
+	//The immediate dominators returned by getImmediateDominator, -1 if there is none
+	protected final int[] legacyIdoms;
+	protected final int[] pre;
+	protected final int[] post;
 
 	public FastDominatorsFinder(DirectedGraph<N> graph) {
-		super(graph);
+		this.graph = graph;
+		int size = graph.size();
+		this.nodeToIndex = new HashMap<>();
+		this.indexToNode = new ArrayList<>(size);
+		for(N n : graph) {
+			nodeToIndex.put(n, indexToNode.size());
+			indexToNode.add(n);
+		}
+		size = indexToNode.size();
+		int root = size;
+
+		int[][] succs = new int[size + 1][];
+		int[] predCounts = new int[size + 1];
+		for(int i = 0; i < size; i++) {
+			List<N> s = graph.getSuccsOf(indexToNode.get(i));
+			succs[i] = new int[s.size()];
+			for(int j = 0; j < succs[i].length; j++) {
+				succs[i][j] = nodeToIndex.get(s.get(j));
+				predCounts[succs[i][j]]++;
+			}
+		}
+		List<N> heads = graph.getHeads();
+		succs[root] = new int[heads.size()];
+		for(int j = 0; j < succs[root].length; j++) {
+			succs[root][j] = nodeToIndex.get(heads.get(j));
+			predCounts[succs[root][j]]++;
+		}
+		int[][] preds = new int[size + 1][];
+		for(int i = 0; i <= size; i++)
+			preds[i] = new int[predCounts[i]];
+		int[] fill = new int[size + 1];
+		for(int i = 0; i <= size; i++) {
+			for(int s : succs[i])
+				preds[s][fill[s]++] = i;
+		}
+
+		//Iterative DFS from the virtual root to get the post order numbers and the reverse post order
+		int[] postNum = new int[size + 1];
+		int[] rpo = new int[size + 1];
+		int count = dfs(root, succs, postNum, rpo);
+
+		int[] idoms = new int[size + 1];
+		Arrays.fill(idoms, -1);
+		idoms[root] = root;
+		boolean changed = true;
+		while(changed) {
+			changed = false;
+			for(int k = 1; k < count; k++) {//Skip the root which is first in reverse post order
+				int b = rpo[k];
+				int newIdom = -1;
+				for(int p : preds[b]) {
+					if(idoms[p] != -1) {
+						if(newIdom == -1)
+							newIdom = p;
+						else
+							newIdom = intersect(p, newIdom, idoms, postNum);
+					}
+				}
+				if(idoms[b] != newIdom) {
+					idoms[b] = newIdom;
+					changed = true;
+				}
+			}
+		}
+		this.idoms = idoms;
+
+		//Number the dominator tree so a dominance check is an interval check
+		int[] childCounts = new int[size + 1];
+		for(int i = 0; i < size; i++) {
+			if(idoms[i] != -1)
+				childCounts[idoms[i]]++;
+		}
+		int[][] children = new int[size + 1][];
+		for(int i = 0; i <= size; i++)
+			children[i] = new int[childCounts[i]];
+		Arrays.fill(fill, 0);
+		for(int i = 0; i < size; i++) {
+			if(idoms[i] != -1)
+				children[idoms[i]][fill[idoms[i]]++] = i;
+		}
+		this.pre = new int[size + 1];
+		this.post = new int[size + 1];
+		Arrays.fill(pre, -1);
+		Arrays.fill(post, -1);
+		//The dataflow algorithm indexes the heads first and then all other nodes in graph order
+		int[] ranks = new int[size];
+		Set<N> headSet = new HashSet<>(heads);
+		int rank = 0;
+		for(int i = 0; i < size; i++) {
+			if(headSet.contains(indexToNode.get(i)))
+				ranks[i] = rank++;
+		}
+		for(int i = 0; i < size; i++) {
+			if(!headSet.contains(indexToNode.get(i)))
+				ranks[i] = rank++;
+		}
+		this.legacyIdoms = new int[size];
+		Arrays.fill(legacyIdoms, -1);
+		int maxReachable = -1;
+		int[] stack = new int[size + 1];
+		int[] next = new int[size + 1];
+		int sp = 0;
+		int clock = 0;
+		stack[sp++] = root;
+		pre[root] = clock++;
+		while(sp > 0) {
+			int cur = stack[sp - 1];
+			if(next[cur] < children[cur].length) {
+				int child = children[cur][next[cur]++];
+				pre[child] = clock++;
+				stack[sp++] = child;
+				//The highest ranked of the strict dominators of child, nodes directly below the root have none
+				if(cur != root) {
+					int best = legacyIdoms[cur];
+					legacyIdoms[child] = best != -1 && ranks[best] > ranks[cur] ? best : cur;
+				}
+				if(maxReachable == -1 || ranks[child] > ranks[maxReachable])
+					maxReachable = child;
+			} else {
+				post[cur] = clock++;
+				sp--;
+			}
+		}
+		for(int i = 0; i < size; i++) {
+			if(idoms[i] == -1)
+				legacyIdoms[i] = maxReachable;
+		}
+	}
+
+	private static int dfs(int root, int[][] succs, int[] postNum, int[] rpo) {
+		int n = succs.length;
+		boolean[] visited = new boolean[n];
+		int[] stack = new int[n];
+		int[] next = new int[n];
+		int[] postOrder = new int[n];
+		int sp = 0;
+		int count = 0;
+		stack[sp++] = root;
+		visited[root] = true;
+		while(sp > 0) {
+			int cur = stack[sp - 1];
+			if(next[cur] < succs[cur].length) {
+				int s = succs[cur][next[cur]++];
+				if(!visited[s]) {
+					visited[s] = true;
+					stack[sp++] = s;
+				}
+			} else {
+				postNum[cur] = count;
+				postOrder[count++] = cur;
+				sp--;
+			}
+		}
+		for(int i = 0; i < count; i++)
+			rpo[i] = postOrder[count - 1 - i];
+		return count;
+	}
+
+	private static int intersect(int b1, int b2, int[] idoms, int[] postNum) {
+		while(b1 != b2) {
+			while(postNum[b1] < postNum[b2])
+				b1 = idoms[b1];
+			while(postNum[b2] < postNum[b1])
+				b2 = idoms[b2];
+		}
+		return b1;
+	}
+
+	private int getIndex(N node) {
+		Integer ret = nodeToIndex.get(node);
+		if(ret == null)
+			throw new IllegalArgumentException("Error: Node '" + node.toString() + "' does not exist in the graph.");
+		return ret;
+	}
+
+	private boolean isReachable(int i) {
+		return idoms[i] != -1;
+	}
+
+	private boolean isDominatedBy(int node, int dominator) {
+		if(!isReachable(node))
+			return true;
+		if(!isReachable(dominator))
+			return false;
+		return pre[dominator] <= pre[node] && post[node] <= post[dominator];
+	}
+
+	@Override
+	public DirectedGraph<N> getGraph() {
+		return graph;
 	}
-	
+
 	@Override
 	public List<N> getDominators(N node) {
 		return new ArrayList<>(getDominatorsSet(node));
 	}
-	
+
+	/** Returns the dominators of the node (including the node itself) in the order the nodes appear in the graph. */
 	public Set<N> getDominatorsSet(N node) {
-		if(!nodeToIndex.containsKey(node))
-			throw new IllegalArgumentException("Error: Node '" + node.toString() + "' does not exist in the graph.");
+		int i = getIndex(node);
 		LinkedHashSet<N> ret = new LinkedHashSet<>();
-		BitSet bitSet = nodeToFlowSet.get(node);
-        for(int i=0;i<bitSet.length();i++) {
-            if(bitSet.get(i)) {
-                ret.add(indexToNode.get(i));
-            }
-        }
-        return ret;
+		if(!isReachable(i)) {
+			ret.addAll(indexToNode);
+			return ret;
+		}
+		BitSet bitSet = new BitSet(indexToNode.size());
+		int root = indexToNode.size();
+		for(int cur = i; cur != root; cur = idoms[cur])
+			bitSet.set(cur);
+		for(int j = bitSet.nextSetBit(0); j >= 0; j = bitSet.nextSetBit(j+1))
+			ret.add(indexToNode.get(j));
+		return ret;
 	}
 
 	@Override
 	public N getImmediateDominator(N node) {
-		// root node
-		if(getGraph().getHeads().contains(node))
+		int i = getIndex(node);
+		if(legacyIdoms[i] == -1)
 			return null;
-		if(!nodeToIndex.containsKey(node))
-			throw new IllegalArgumentException("Error: Node '" + node.toString() + "' does not exist in the graph.");
-		N immediateDominator = null;
-		BitSet bitSet = (BitSet) nodeToFlowSet.get(node).clone();
-		bitSet.clear(nodeToIndex.get(node));
-		for(int i = bitSet.nextSetBit(0); i >= 0; i = bitSet.nextSetBit(i+1)) {
-			N dominator = indexToNode.get(i);
-			BitSet cur = (BitSet) bitSet.clone();
-			BitSet other = nodeToFlowSet.get(dominator);
-			cur.and(other);
-			if(cur.equals(other))//other is equal to or a subset of cur (i.e. cur contains all of other)
-				immediateDominator = dominator;
-		}
-		return immediateDominator;
+		return indexToNode.get(legacyIdoms[i]);
 	}
 
 	@Override
 	public boolean isDominatedBy(N node, N dominator) {
 		if(!nodeToIndex.containsKey(node) || !nodeToIndex.containsKey(dominator))
 			throw new IllegalArgumentException("Error: Node '" + node.toString() + "' or dominator '" + dominator.toString() + "' do not exist in the graph.");
-		return nodeToFlowSet.get(node).get(nodeToIndex.get(dominator));
+		return isDominatedBy(nodeToIndex.get(node), nodeToIndex.get(dominator));
 	}
 
 	@Override
 	public boolean isDominatedByAll(N node, Collection<N> dominators) {
-		if(!nodeToIndex.containsKey(node))
-			throw new IllegalArgumentException("Error: Node '" + node.toString() + "' does not exist in the graph.");
-		BitSet bitSet = nodeToFlowSet.get(node);
+		int i = getIndex(node);
 		for(N dom : dominators) {
-			Integer i = nodeToIndex.get(dom);
-			if(i == null)
+			Integer d = nodeToIndex.get(dom);
+			if(d == null)
 				throw new IllegalArgumentException("Error: Dominator '" + dom.toString() + "' does not exist in the graph.");
-			if(!bitSet.get(i))
+			if(!isDominatedBy(i, d))
 				return false;
 		}
 		return true;
 	}
-	
-}
\ No newline at end of file
+
+}
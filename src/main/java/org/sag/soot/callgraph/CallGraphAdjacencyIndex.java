@@ -0,0 +1,369 @@
+package org.sag.soot.callgraph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import org.sag.acminer.database.excludedelements.IExcludeHandler;
+import org.sag.acminer.phases.entrypoints.EntryPoint;
+import org.sag.soot.callgraph.ExcludingJimpleICFG.ExcludingEdgePredicate;
+import org.sag.soot.callgraph.JimpleICFG.BasicEdgePredicate;
+
+import soot.Body;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.toolkits.callgraph.CallGraph;
+import soot.jimple.toolkits.callgraph.Edge;
+
+/** A read-only int indexed copy of the caller and callee relations of a call graph along with the owning body of every
+ * unit in the call graph. It is built once by the base {@link JimpleICFG} and shared by all the
+ * {@link ExcludingJimpleICFG} wrapping it. Each of those only needs a {@link View}, which applies the edges allowed and
+ * the methods excluded by its {@link IExcludeHandler} as bitmasks over the shared index instead of filtering the call
+ * graph into caches of its own. The allowed edges of a view are found with the same forward traversal from the entry
+ * point as {@link ExcludingEdgePredicate} but over the edge ids of the index, so creating a view does not touch the
+ * call graph or hash any {@link Edge}.
+ * <br><br>
+ * The edges into a method and out of a unit are recorded in the order the call graph returns them so the views return
+ * the callers and callees in the same order as filtering the call graph directly would.
+ */
+public final class CallGraphAdjacencyIndex {
+
+	private static final int[] EMPTY = new int[0];
+
+	private final List<SootMethod> methods;
+	private final Map<SootMethod,Integer> methodIds;
+	private final Edge[] edges;
+	private final int[] edgeTgts;
+	private final Map<Edge,Integer> edgeIds;
+	private final int[][] edgesInto;
+	private final int[][] edgesOutOfMethod;
+	private final Map<Unit,int[]> edgesOutOf;
+	private final Map<Unit,Body> unitToOwner;
+
+	public CallGraphAdjacencyIndex(CallGraph cg, Collection<EntryPoint> eps) {
+		this.methods = new ArrayList<>();
+		this.methodIds = new HashMap<>();
+		this.edgeIds = new HashMap<>();
+		this.unitToOwner = new HashMap<>();
+		List<Edge> edgeList = new ArrayList<>();
+		Set<Unit> srcUnits = new LinkedHashSet<>();
+		for(Edge e : cg) {
+			edgeIds.put(e, edgeList.size());
+			edgeList.add(e);
+			addMethod(e.src());
+			addMethod(e.tgt());
+			if(e.srcUnit() != null)
+				srcUnits.add(e.srcUnit());
+		}
+		//Entry points may have no outgoing or incoming edges
+		if(eps != null) {
+			for(EntryPoint ep : eps) {
+				if(ep.getEntryPoint() != null)
+					addMethod(ep.getEntryPoint());
+			}
+		}
+		this.edges = edgeList.toArray(new Edge[edgeList.size()]);
+		this.edgeTgts = new int[edges.length];
+		for(int i = 0; i < edges.length; i++)
+			edgeTgts[i] = methodIds.get(edges[i].tgt());
+		this.edgesInto = new int[methods.size()][];
+		this.edgesOutOfMethod = new int[methods.size()][];
+		for(int i = 0; i < methods.size(); i++) {
+			edgesInto[i] = toIds(cg.edgesInto(methods.get(i)));
+			edgesOutOfMethod[i] = toIds(cg.edgesOutOf(methods.get(i)));
+		}
+		this.edgesOutOf = new HashMap<>();
+		for(Unit u : srcUnits)
+			edgesOutOf.put(u, toIds(cg.edgesOutOf(u)));
+	}
+
+	private void addMethod(SootMethod m) {
+		if(!methodIds.containsKey(m)) {
+			methodIds.put(m, methods.size());
+			methods.add(m);
+			if(m.isConcrete()) {
+				Body b = m.retrieveActiveBody();
+				for(Unit u : b.getUnits())
+					unitToOwner.put(u, b);
+			}
+		}
+	}
+
+	private int[] toIds(Iterator<Edge> it) {
+		if(!it.hasNext())
+			return EMPTY;
+		List<Integer> ids = new ArrayList<>();
+		while(it.hasNext()) {
+			Integer id = edgeIds.get(it.next());
+			if(id != null)
+				ids.add(id);
+		}
+		int[] ret = new int[ids.size()];
+		for(int i = 0; i < ret.length; i++)
+			ret[i] = ids.get(i);
+		return ret;
+	}
+
+	public int getMethodCount() {
+		return methods.size();
+	}
+
+	public int getEdgeCount() {
+		return edges.length;
+	}
+
+	/** Returns the view of the index for the entry point of the given exclude handler. Only the edges reachable from the
+	 * entry point without passing through an excluded method are allowed, as with {@link ExcludingEdgePredicate}.
+	 */
+	public View getView(IExcludeHandler excludeHandler, boolean includeReflectiveCalls) {
+		return new View(excludeHandler, includeReflectiveCalls);
+	}
+
+	public final class View {
+
+		private final IExcludeHandler excludeHandler;
+		//These only grow to the highest id set so a view of a small part of the call graph stays small
+		private final BitSet allowedEdges;
+		//The methods visited by the traversal and those of them that are excluded
+		private final BitSet visited;
+		private final BitSet excluded;
+		private final Map<Unit,Body> unitToOwner;
+
+		private View(IExcludeHandler excludeHandler, boolean includeReflectiveCalls) {
+			Objects.requireNonNull(excludeHandler);
+			this.excludeHandler = excludeHandler;
+			this.allowedEdges = new BitSet();
+			this.visited = new BitSet();
+			this.excluded = new BitSet();
+			SootMethod ep = excludeHandler.getEntryPoint();
+			Integer start = ep == null ? null : methodIds.get(ep);
+			if(start != null) {
+				BasicEdgePredicate kinds = new BasicEdgePredicate(includeReflectiveCalls);
+				int[] stack = new int[16];
+				int sp = 0;
+				stack[sp++] = start;
+				while(sp > 0) {
+					int cur = stack[--sp];
+					if(visited.get(cur))
+						continue;
+					visited.set(cur);
+					if(excludeHandler.isExcludedMethodWithOverride(methods.get(cur))) {
+						excluded.set(cur);
+						continue;
+					}
+					for(int e : edgesOutOfMethod[cur]) {
+						if(kinds.want(edges[e])) {
+							allowedEdges.set(e);
+							if(!visited.get(edgeTgts[e])) {
+								if(sp == stack.length)
+									stack = Arrays.copyOf(stack, sp * 2);
+								stack[sp++] = edgeTgts[e];
+							}
+						}
+					}
+				}
+			}
+			this.unitToOwner = new OwnerMap(getExtraBody(ep));
+		}
+
+		public CallGraphAdjacencyIndex getIndex() {
+			return CallGraphAdjacencyIndex.this;
+		}
+
+		/** Returns true if the edge is in the index and reachable from the entry point of the view. */
+		public boolean isAllowed(Edge e) {
+			Integer id = edgeIds.get(e);
+			return id != null && allowedEdges.get(id);
+		}
+
+		/** Returns a new set of all the edges allowed by the view. */
+		public Set<Edge> getAllowedEdges() {
+			Set<Edge> ret = new HashSet<>();
+			for(int i = allowedEdges.nextSetBit(0); i >= 0; i = allowedEdges.nextSetBit(i + 1))
+				ret.add(edges[i]);
+			return ret;
+		}
+
+		//The units of an entry point not in the index are kept by the view itself
+		private Body getExtraBody(SootMethod ep) {
+			if(ep != null && !methodIds.containsKey(ep) && ep.isConcrete() && !excludeHandler.isExcludedMethodWithOverride(ep))
+				return ep.retrieveActiveBody();
+			return null;
+		}
+
+		//Methods not reached by the traversal are rarely queried so they are not cached
+		private boolean isExcluded(int id) {
+			if(visited.get(id))
+				return excluded.get(id);
+			return excludeHandler.isExcludedMethodWithOverride(methods.get(id));
+		}
+
+		public boolean isExcluded(SootMethod m) {
+			Integer id = methodIds.get(m);
+			return id == null ? excludeHandler.isExcludedMethodWithOverride(m) : isExcluded(id);
+		}
+
+		/** Returns a read-only map of each unit to its owning body that omits the units of excluded methods. */
+		public Map<Unit,Body> getUnitToOwner() {
+			return unitToOwner;
+		}
+
+		/** Returns the call sites of the allowed edges into the given method. */
+		public Collection<Unit> getCallersOf(SootMethod m) {
+			Integer id = methodIds.get(m);
+			if(id == null)
+				return Collections.emptyList();
+			ArrayList<Unit> res = null;
+			for(int e : edgesInto[id]) {
+				if(allowedEdges.get(e)) {
+					if(res == null)
+						res = new ArrayList<>();
+					res.add(edges[e].srcUnit());
+				}
+			}
+			if(res == null)
+				return Collections.emptyList();
+			res.trimToSize();
+			return Collections.unmodifiableList(res);
+		}
+
+		/** Returns the targets of the allowed edges out of the given unit that have a body and are not excluded. */
+		public Collection<SootMethod> getCalleesOfCallAt(Unit u) {
+			return getCalleesOfCallAt(u, false);
+		}
+
+		/** Returns the targets of the allowed edges out of the given unit even if they are excluded or have no body. */
+		public Collection<SootMethod> getAllCalleesOfCallAt(Unit u) {
+			return getCalleesOfCallAt(u, true);
+		}
+
+		private Collection<SootMethod> getCalleesOfCallAt(Unit u, boolean all) {
+			int[] out = edgesOutOf.get(u);
+			if(out == null)
+				return Collections.emptySet();
+			ArrayList<SootMethod> res = null;
+			for(int e : out) {
+				if(allowedEdges.get(e)) {
+					int tgt = edgeTgts[e];
+					SootMethod m = methods.get(tgt);
+					if(all || (m.hasActiveBody() && !isExcluded(tgt))) {
+						if(res == null)
+							res = new ArrayList<>();
+						res.add(m);
+					}
+				}
+			}
+			if(res == null)
+				return Collections.emptySet();
+			res.trimToSize();
+			return Collections.unmodifiableList(res);
+		}
+
+		private final class OwnerMap extends AbstractMap<Unit,Body> {
+
+			private final Map<Unit,Body> extra;
+			private volatile Set<Map.Entry<Unit,Body>> entrySet;
+
+			public OwnerMap(Body extraBody) {
+				if(extraBody == null) {
+					this.extra = Collections.emptyMap();
+				} else {
+					this.extra = new LinkedHashMap<>();
+					for(Unit u : extraBody.getUnits())
+						extra.put(u, extraBody);
+				}
+			}
+
+			private boolean isAllowed(Body b) {
+				return b != null && !isExcluded(methodIds.get(b.getMethod()));
+			}
+
+			@Override
+			public Body get(Object key) {
+				Body b = CallGraphAdjacencyIndex.this.unitToOwner.get(key);
+				if(b == null)
+					return extra.get(key);
+				return isAllowed(b) ? b : null;
+			}
+
+			@Override
+			public boolean containsKey(Object key) {
+				return get(key) != null;
+			}
+
+			@Override
+			public Set<Map.Entry<Unit,Body>> entrySet() {
+				Set<Map.Entry<Unit,Body>> ret = entrySet;
+				if(ret == null) {
+					ret = new AbstractSet<Map.Entry<Unit,Body>>() {
+						@Override
+						public Iterator<Map.Entry<Unit,Body>> iterator() {
+							return new OwnerIterator(extra.entrySet().iterator());
+						}
+						@Override
+						public int size() {
+							int size = 0;
+							for(Iterator<Map.Entry<Unit,Body>> it = iterator(); it.hasNext(); it.next())
+								size++;
+							return size;
+						}
+					};
+					entrySet = ret;
+				}
+				return ret;
+			}
+
+			private final class OwnerIterator implements Iterator<Map.Entry<Unit,Body>> {
+				private final Iterator<Map.Entry<Unit,Body>> shared;
+				private final Iterator<Map.Entry<Unit,Body>> extra;
+				private Map.Entry<Unit,Body> next;
+				public OwnerIterator(Iterator<Map.Entry<Unit,Body>> extra) {
+					this.shared = CallGraphAdjacencyIndex.this.unitToOwner.entrySet().iterator();
+					this.extra = extra;
+					advance();
+				}
+				private void advance() {
+					next = null;
+					while(shared.hasNext()) {
+						Map.Entry<Unit,Body> e = shared.next();
+						if(isAllowed(e.getValue())) {
+							next = new AbstractMap.SimpleImmutableEntry<>(e);
+							return;
+						}
+					}
+					if(extra.hasNext())
+						next = new AbstractMap.SimpleImmutableEntry<>(extra.next());
+				}
+				@Override
+				public boolean hasNext() {
+					return next != null;
+				}
+				@Override
+				public Map.Entry<Unit,Body> next() {
+					if(next == null)
+						throw new NoSuchElementException();
+					Map.Entry<Unit,Body> ret = next;
+					advance();
+					return ret;
+				}
+			}
+
+		}
+
+	}
+
+}
@@ -0,0 +1,483 @@
+package org.sag.soot.callgraph;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import soot.Body;
+import soot.Kind;
+import soot.Scene;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.Stmt;
+import soot.jimple.toolkits.callgraph.CallGraph;
+import soot.jimple.toolkits.callgraph.Edge;
+
+/** An immutable snapshot of a call graph in compressed sparse row form. Methods are identified by ints and the edges
+ * out of a method are the contiguous range {@link #getOutStart(int)} to {@link #getOutEnd(int)} of the edge arrays,
+ * which record the target, {@link Kind}, and call site of each edge. The edges into a method are a second range over
+ * the same edge ids. Walking the snapshot therefore allocates nothing, unlike the iterators of {@link CallGraph} which
+ * allocate per call and walk linked lists of edges.
+ * <br><br>
+ * The snapshot is serializable. Methods are stored by signature and call sites by the index of the unit in the body of
+ * the source method, and both are resolved against the {@link Scene} on first use after loading. As such, a loaded
+ * snapshot requires the same classes to be loaded but does not require soot's call graph to be rebuilt (see
+ * {@link org.sag.acminer.sootinit.CallGraphCache}).
+ * <br><br>
+ * The snapshot of the current call graph is built once after the call graph phase and is obtained through
+ * {@link #v()}, which rebuilds it if the call graph in the {@link Scene} has since been replaced. The call graph of soot
+ * does not record when its edges change, so any code that adds or removes edges of the call graph in the
+ * {@link Scene} after the snapshot is built must call {@link #reset()} (or {@link #setCurrent(CallGraphSnapshot)})
+ * afterwards. The modifiers of the call graph phase replace the call graph instead and so do not need to.
+ */
+public final class CallGraphSnapshot implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** No call site, i.e. the edge was not created by a statement. */
+	public static final int NO_SITE = -1;
+
+	private static final Kind[] KINDS = {Kind.INVALID, Kind.STATIC, Kind.VIRTUAL, Kind.INTERFACE, Kind.SPECIAL, Kind.CLINIT,
+		Kind.THREAD, Kind.EXECUTOR, Kind.ASYNCTASK, Kind.FINALIZE, Kind.HANDLER, Kind.INVOKE_FINALIZE, Kind.PRIVILEGED,
+		Kind.NEWINSTANCE, Kind.REFL_INVOKE, Kind.REFL_CONSTR_NEWINSTANCE, Kind.REFL_CLASS_NEWINSTANCE};
+
+	private static volatile CallGraphSnapshot current;
+
+	private final String[] methodSigs;
+	private final int[] outOffsets;
+	private final int[] edgeSrcs;
+	private final int[] edgeTgts;
+	private final byte[] edgeKinds;
+	private final int[] edgeSites;
+	private final int[] inOffsets;
+	private final int[] inEdges;
+	//Call site ids index these two arrays
+	private final int[] siteMethods;
+	private final int[] siteUnitIndexes;
+
+	private transient volatile SootMethod[] methods;
+	private transient volatile Map<SootMethod,Integer> methodIds;
+	private transient volatile Unit[] sites;
+	private transient CallGraph cg;
+
+	private CallGraphSnapshot(CallGraph cg, Collection<SootMethod> extraMethods) {
+		List<SootMethod> methodList = new ArrayList<>();
+		Map<SootMethod,Integer> ids = new HashMap<>();
+		Map<Kind,Byte> kindIds = new HashMap<>();
+		for(int i = 0; i < KINDS.length; i++)
+			kindIds.put(KINDS[i], (byte)i);
+		for(Edge e : cg) {
+			getOrAdd(e.src(), methodList, ids);
+			getOrAdd(e.tgt(), methodList, ids);
+		}
+		if(extraMethods != null) {
+			for(SootMethod m : extraMethods) {
+				if(m != null)
+					getOrAdd(m, methodList, ids);
+			}
+		}
+		int size = methodList.size();
+		int edgeCount = cg.size();
+		this.methodSigs = new String[size];
+		for(int i = 0; i < size; i++)
+			methodSigs[i] = methodList.get(i).getSignature();
+		this.outOffsets = new int[size + 1];
+		this.edgeSrcs = new int[edgeCount];
+		this.edgeTgts = new int[edgeCount];
+		this.edgeKinds = new byte[edgeCount];
+		this.edgeSites = new int[edgeCount];
+		List<Unit> siteList = new ArrayList<>();
+		Map<Unit,Integer> siteIds = new HashMap<>();
+		Map<Body,Map<Unit,Integer>> unitIndexes = new HashMap<>();
+		List<Integer> siteMethodList = new ArrayList<>();
+		List<Integer> siteIndexList = new ArrayList<>();
+		int cur = 0;
+		for(int i = 0; i < size; i++) {
+			outOffsets[i] = cur;
+			Iterator<Edge> it = cg.edgesOutOf(methodList.get(i));
+			while(it.hasNext()) {
+				Edge e = it.next();
+				edgeSrcs[cur] = i;
+				edgeTgts[cur] = ids.get(e.tgt());
+				Byte kind = kindIds.get(e.kind());
+				edgeKinds[cur] = kind == null ? 0 : kind;
+				Unit u = e.srcUnit();
+				if(u == null) {
+					edgeSites[cur] = NO_SITE;
+				} else {
+					Integer site = siteIds.get(u);
+					if(site == null) {
+						site = siteList.size();
+						siteList.add(u);
+						siteIds.put(u, site);
+						siteMethodList.add(i);
+						siteIndexList.add(getUnitIndex(e.src(), u, unitIndexes));
+					}
+					edgeSites[cur] = site;
+				}
+				cur++;
+			}
+		}
+		outOffsets[size] = cur;
+
+		//Edges into each method sorted by target with a counting sort over the out edges
+		this.inOffsets = new int[size + 1];
+		for(int i = 0; i < cur; i++)
+			inOffsets[edgeTgts[i] + 1]++;
+		for(int i = 0; i < size; i++)
+			inOffsets[i + 1] += inOffsets[i];
+		this.inEdges = new int[cur];
+		int[] fill = new int[size];
+		for(int i = 0; i < cur; i++) {
+			int tgt = edgeTgts[i];
+			inEdges[inOffsets[tgt] + fill[tgt]++] = i;
+		}
+
+		this.siteMethods = toArray(siteMethodList);
+		this.siteUnitIndexes = toArray(siteIndexList);
+		this.methods = methodList.toArray(new SootMethod[size]);
+		this.methodIds = ids;
+		this.sites = siteList.toArray(new Unit[siteList.size()]);
+		this.cg = cg;
+	}
+
+	private static int getOrAdd(SootMethod m, List<SootMethod> methodList, Map<SootMethod,Integer> ids) {
+		Integer ret = ids.get(m);
+		if(ret == null) {
+			ret = methodList.size();
+			methodList.add(m);
+			ids.put(m, ret);
+		}
+		return ret;
+	}
+
+	private static int getUnitIndex(SootMethod m, Unit u, Map<Body,Map<Unit,Integer>> unitIndexes) {
+		if(!m.hasActiveBody())
+			return -1;
+		Body b = m.getActiveBody();
+		Map<Unit,Integer> indexes = unitIndexes.get(b);
+		if(indexes == null) {
+			indexes = new HashMap<>();
+			int i = 0;
+			for(Unit cur : b.getUnits())
+				indexes.put(cur, i++);
+			unitIndexes.put(b, indexes);
+		}
+		Integer ret = indexes.get(u);
+		return ret == null ? -1 : ret;
+	}
+
+	private static int[] toArray(List<Integer> list) {
+		int[] ret = new int[list.size()];
+		for(int i = 0; i < ret.length; i++)
+			ret[i] = list.get(i);
+		return ret;
+	}
+
+	/** Builds a snapshot of the given call graph. The extra methods (e.g. entry points with no edges) are given ids even
+	 * if they do not appear in the call graph.
+	 */
+	public static CallGraphSnapshot build(CallGraph cg, Collection<SootMethod> extraMethods) {
+		Objects.requireNonNull(cg);
+		return new CallGraphSnapshot(cg, extraMethods);
+	}
+
+	/** Returns the snapshot of the call graph currently in the {@link Scene}, building it if no snapshot exists yet or
+	 * if the call graph has been replaced since the snapshot was taken.
+	 */
+	public static CallGraphSnapshot v() {
+		CallGraph cg = Scene.v().getCallGraph();
+		CallGraphSnapshot ret = current;
+		if(ret == null || !ret.isSnapshotOf(cg)) {
+			synchronized(CallGraphSnapshot.class) {
+				ret = current;
+				if(ret == null || !ret.isSnapshotOf(cg)) {
+					ret = build(cg, null);
+					current = ret;
+				}
+			}
+		}
+		return ret;
+	}
+
+	/** Sets the snapshot returned by {@link #v()} (e.g. one built with extra methods). The snapshot must have been built
+	 * from the call graph currently in the {@link Scene} or it will be rebuilt by {@link #v()}.
+	 */
+	public static void setCurrent(CallGraphSnapshot snapshot) {
+		current = snapshot;
+	}
+
+	/** Drops the current snapshot so the memory can be reclaimed or so that it is rebuilt by {@link #v()} after the
+	 * edges of the call graph in the {@link Scene} have been modified.
+	 */
+	public static void reset() {
+		current = null;
+	}
+
+	//In place modifications are not detected here, see reset()
+	private boolean isSnapshotOf(CallGraph cg) {
+		return this.cg == cg;
+	}
+
+	/** Returns true if the call site of every edge was recorded, i.e. every source method with a call site had a body
+	 * when the snapshot was built. Only such snapshots can be turned back into a {@link CallGraph}.
+	 */
+	public boolean hasAllCallSites() {
+		for(int i : siteUnitIndexes) {
+			if(i < 0)
+				return false;
+		}
+		return true;
+	}
+
+	/** Rebuilds a soot {@link CallGraph} from the snapshot with the edges out of each method added in the order of the
+	 * snapshot. This resolves all methods and call sites against the {@link Scene}. The call sites are only stored as
+	 * unit indexes so the unit of every explicit edge is checked to still be an invoke of the target's sub signature.
+	 * If the bodies have changed since the snapshot was built, an exception is thrown on the first mismatch so the
+	 * snapshot can be discarded.
+	 */
+	public CallGraph toCallGraph() {
+		if(!hasAllCallSites())
+			throw new RuntimeException("Error: The call graph snapshot is missing the call sites of some edges.");
+		SootMethod[] ms = getMethods();
+		Unit[] ss = getSites();
+		CallGraph ret = new CallGraph();
+		for(int m = 0; m < ms.length; m++) {
+			for(int e = outOffsets[m]; e < outOffsets[m + 1]; e++) {
+				int site = edgeSites[e];
+				Unit u = site == NO_SITE ? null : ss[site];
+				SootMethod tgt = ms[edgeTgts[e]];
+				Kind kind = KINDS[edgeKinds[e]];
+				//Implicit edges such as clinit edges may come from statements that are not invokes
+				if(u != null && kind.isExplicit() && (!(u instanceof Stmt) || !((Stmt)u).containsInvokeExpr()
+						|| ((Stmt)u).getInvokeExpr().getMethodRef().getSubSignature() != tgt.getNumberedSubSignature()))
+					throw new RuntimeException("Error: The call site '" + u + "' in '" + ms[m] + "' of the call graph snapshot "
+							+ "does not invoke the target '" + tgt + "'. The bodies have changed since the snapshot was built.");
+				ret.addEdge(new Edge(ms[m], u, tgt, kind));
+			}
+		}
+		return ret;
+	}
+
+	private SootMethod[] getMethods() {
+		SootMethod[] ret = methods;
+		if(ret == null) {
+			synchronized(this) {
+				ret = methods;
+				if(ret == null) {
+					ret = new SootMethod[methodSigs.length];
+					Map<SootMethod,Integer> ids = new HashMap<>();
+					Scene scene = Scene.v();
+					for(int i = 0; i < ret.length; i++) {
+						ret[i] = scene.grabMethod(methodSigs[i]);
+						if(ret[i] == null)
+							throw new RuntimeException("Error: Failed to resolve the method '" + methodSigs[i] + "' of the call graph snapshot.");
+						ids.put(ret[i], i);
+					}
+					methodIds = ids;
+					methods = ret;
+				}
+			}
+		}
+		return ret;
+	}
+
+	private Unit[] getSites() {
+		Unit[] ret = sites;
+		if(ret == null) {
+			synchronized(this) {
+				ret = sites;
+				if(ret == null) {
+					SootMethod[] ms = getMethods();
+					ret = new Unit[siteMethods.length];
+					Map<SootMethod,List<Unit>> units = new HashMap<>();
+					for(int i = 0; i < ret.length; i++) {
+						if(siteUnitIndexes[i] < 0)
+							continue;
+						SootMethod m = ms[siteMethods[i]];
+						List<Unit> temp = units.get(m);
+						if(temp == null) {
+							temp = new ArrayList<>(m.retrieveActiveBody().getUnits());
+							units.put(m, temp);
+						}
+						if(siteUnitIndexes[i] >= temp.size())
+							throw new RuntimeException("Error: The call site index " + siteUnitIndexes[i] + " is out of bounds for the "
+									+ "body of '" + m + "'. The bodies have changed since the snapshot was built.");
+						ret[i] = temp.get(siteUnitIndexes[i]);
+					}
+					sites = ret;
+				}
+			}
+		}
+		return ret;
+	}
+
+	public int getMethodCount() {
+		return methodSigs.length;
+	}
+
+	public int getEdgeCount() {
+		return edgeSrcs.length;
+	}
+
+	/** Returns the id of the given method or -1 if it is not in the snapshot. */
+	public int getId(SootMethod m) {
+		getMethods();
+		Integer ret = methodIds.get(m);
+		return ret == null ? -1 : ret;
+	}
+
+	public SootMethod getMethod(int id) {
+		return getMethods()[id];
+	}
+
+	public String getSignature(int id) {
+		return methodSigs[id];
+	}
+
+	/** Returns the first edge id out of the given method. */
+	public int getOutStart(int id) {
+		return outOffsets[id];
+	}
+
+	/** Returns one past the last edge id out of the given method. */
+	public int getOutEnd(int id) {
+		return outOffsets[id + 1];
+	}
+
+	/** Returns the first index into the edges into the given method (see {@link #getInEdge(int)}). */
+	public int getInStart(int id) {
+		return inOffsets[id];
+	}
+
+	/** Returns one past the last index into the edges into the given method. */
+	public int getInEnd(int id) {
+		return inOffsets[id + 1];
+	}
+
+	/** Returns the edge id at the given index of the edges into methods. */
+	public int getInEdge(int index) {
+		return inEdges[index];
+	}
+
+	public int getSource(int edge) {
+		return edgeSrcs[edge];
+	}
+
+	public int getTarget(int edge) {
+		return edgeTgts[edge];
+	}
+
+	public Kind getKind(int edge) {
+		return KINDS[edgeKinds[edge]];
+	}
+
+	/** Returns the call site id of the edge or {@link #NO_SITE}. Edges from the same statement share a call site id. */
+	public int getCallSiteId(int edge) {
+		return edgeSites[edge];
+	}
+
+	/** Returns the statement creating the edge or null if there is none. */
+	public Unit getCallSite(int edge) {
+		int site = edgeSites[edge];
+		return site == NO_SITE ? null : getSites()[site];
+	}
+
+	/** Returns true if the edge would be kept by a {@link JimpleICFG.BasicEdgePredicate}, i.e. it is not a fake edge. */
+	public boolean isBasicEdge(int edge, boolean includeReflectiveCalls) {
+		Kind k = getKind(edge);
+		return k.isExplicit() || k.isThread() || k.isExecutor() || k.isAsyncTask() || k.isClinit() || k.isPrivileged()
+				|| (includeReflectiveCalls && k.isReflection());
+	}
+
+	/** Returns the targets of all edges out of the method in edge order. Returns an empty list for methods not in the
+	 * snapshot. The list is a read-only view of the snapshot.
+	 */
+	public List<SootMethod> getTargetsOf(SootMethod m) {
+		int id = getId(m);
+		if(id < 0)
+			return new EdgeEndList(0, 0, true, false);
+		return new EdgeEndList(outOffsets[id], outOffsets[id + 1], true, false);
+	}
+
+	/** Returns the sources of all edges into the method. Returns an empty list for methods not in the snapshot. The list
+	 * is a read-only view of the snapshot.
+	 */
+	public List<SootMethod> getSourcesOf(SootMethod m) {
+		int id = getId(m);
+		if(id < 0)
+			return new EdgeEndList(0, 0, false, true);
+		return new EdgeEndList(inOffsets[id], inOffsets[id + 1], false, true);
+	}
+
+	private final class EdgeEndList extends AbstractList<SootMethod> {
+		private final int start;
+		private final int end;
+		private final boolean target;
+		private final boolean in;
+		public EdgeEndList(int start, int end, boolean target, boolean in) {
+			this.start = start;
+			this.end = end;
+			this.target = target;
+			this.in = in;
+		}
+		@Override
+		public SootMethod get(int index) {
+			if(index < 0 || index >= end - start)
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+			int edge = in ? inEdges[start + index] : start + index;
+			return getMethod(target ? edgeTgts[edge] : edgeSrcs[edge]);
+		}
+		@Override
+		public int size() {
+			return end - start;
+		}
+	}
+
+	/** Returns all methods reachable from the given start methods, including the start methods, in breadth first order.
+	 * Methods for which the filter returns false are included but not traversed. A null filter traverses all methods.
+	 */
+	public Set<SootMethod> getReachable(Collection<SootMethod> start, IMethodFilter filter) {
+		BitSet visited = new BitSet(methodSigs.length);
+		ArrayDeque<Integer> toVisit = new ArrayDeque<>();
+		Set<SootMethod> ret = new LinkedHashSet<>();
+		for(SootMethod m : start) {
+			int id = getId(m);
+			if(id >= 0 && !visited.get(id)) {
+				visited.set(id);
+				toVisit.add(id);
+			}
+		}
+		while(!toVisit.isEmpty()) {
+			int cur = toVisit.poll();
+			SootMethod m = getMethod(cur);
+			ret.add(m);
+			if(filter == null || filter.traverse(m)) {
+				for(int e = outOffsets[cur]; e < outOffsets[cur + 1]; e++) {
+					int tgt = edgeTgts[e];
+					if(!visited.get(tgt)) {
+						visited.set(tgt);
+						toVisit.add(tgt);
+					}
+				}
+			}
+		}
+		return ret;
+	}
+
+	public interface IMethodFilter {
+		/** Returns true if the edges out of the method should be followed. */
+		public boolean traverse(SootMethod m);
+	}
+
+}
@@ -45,17 +45,14 @@ public class ExcludingJimpleICFG implements IJimpleICFG {
 	@DontSynchronize("readonly")
 	protected final ExcludingEdgePredicate pred;
 	
-	@DontSynchronize("written by single thread; read afterwards")
-	protected final Map<Unit,Body> unitToOwner;
-	
-	@SynchronizedBy("by use of synchronized LoadingCache class")
-	protected final LoadingCache<SootMethod,Collection<Unit>> methodToCallers;
+	@DontSynchronize("readonly; backed by the shared CallGraphAdjacencyIndex")
+	protected final CallGraphAdjacencyIndex.View cgView;
 	
-	@SynchronizedBy("by use of synchronized LoadingCache class")
-	protected final LoadingCache<Unit,Collection<SootMethod>> unitToCallees;
+	@DontSynchronize("readonly view of the shared CallGraphAdjacencyIndex")
+	protected final Map<Unit,Body> unitToOwner;
 	
-	@SynchronizedBy("by use of synchronized LoadingCache class")
-	protected final LoadingCache<Unit,Collection<SootMethod>> unitToAllCallees;
+	@SynchronizedBy("by use of the thread safe FieldReadSummaries class")
+	protected final FieldReadSummaries fieldReadSummaries;//CG dep
 	
 	@SynchronizedBy("by use of synchronized LoadingCache class")
 	protected final LoadingCache<SootMethod,Map<SootField,Set<DefinitionStmt>>> methodToAllFieldReads;//CG dep
@@ -83,15 +80,18 @@ public class ExcludingJimpleICFG implements IJimpleICFG {
 		this.jimpleICFG = jimpleICFG;
 		this.pred = pred;
 		this.ep = ep;
-		//These three caches depend on the call graph and are thus effected by changes in the exclude list
-		//So we cannot use them as in in the base class, they have to have their own caches per instance of this class
-		this.methodToCallers = JimpleICFG.getNewMethodToCallersCache(this);
-		this.unitToCallees = JimpleICFG.getNewUnitToCalleesCache(this);
-		this.unitToAllCallees = JimpleICFG.getNewUnitToAllCalleesCache(this);
-		this.methodToAllFieldReads = JimpleICFG.getNewMethodToAllFieldReads(this);
-		this.allFieldReadsAtCache = JimpleICFG.getNewAllFieldReadsAtCache(this);
-		this.allFieldReadsAfterCache = JimpleICFG.getNewAllFieldReadsAfterCache(this);
-		this.unitToOwner = JimpleICFG.initUnitToBody(Collections.singleton(ep), pred, jimpleICFG.getCallGraph());
+		//The callers, callees, and unit owners depend on the call graph and are thus effected by changes in the exclude list
+		//Instead of each instance of this class filtering the call graph into its own caches, they are all answered by
+		//masking the adjacency index shared through the base class with the edges and methods this instance allows
+		CallGraphAdjacencyIndex index = jimpleICFG.getAdjacencyIndex();
+		CallGraphAdjacencyIndex.View view = pred.getView();
+		this.cgView = view != null && view.getIndex() == index ? view
+				: index.getView(pred.getExcludeHandler(), pred.includeReflectiveCalls);
+		this.unitToOwner = cgView.getUnitToOwner();
+		this.fieldReadSummaries = new FieldReadSummaries(this, jimpleICFG.fieldReadIndex);
+		this.methodToAllFieldReads = JimpleICFG.getNewMethodToAllFieldReads(this, fieldReadSummaries);
+		this.allFieldReadsAtCache = JimpleICFG.getNewAllFieldReadsAtCache(this, fieldReadSummaries);
+		this.allFieldReadsAfterCache = JimpleICFG.getNewAllFieldReadsAfterCache(this, fieldReadSummaries);
 		this.unitToDefsForUsedLocals = JimpleICFG.getNewUnitToDefsForUsedLocals(this,jimpleICFG.advLocalDefs);
 	}
 	
@@ -236,17 +236,17 @@ public class ExcludingJimpleICFG implements IJimpleICFG {
 
 	@Override
 	public Collection<SootMethod> getCalleesOfCallAt(Unit n) {
-		return JimpleICFG.getCalleesOfCallAt(unitToCallees, n);
+		return cgView.getCalleesOfCallAt(n);
 	}
 
 	@Override
 	public Collection<SootMethod> getAllCalleesOfCallAt(Unit n) {
-		return JimpleICFG.getAllCalleesOfCallAt(unitToAllCallees, n);
+		return cgView.getAllCalleesOfCallAt(n);
 	}
 
 	@Override
 	public Collection<Unit> getCallersOf(SootMethod m) {
-		return JimpleICFG.getCallersOf(methodToCallers, pred, m);
+		return (m.hasActiveBody() && !cgView.isExcluded(m)) ? cgView.getCallersOf(m) : null;
 	}
 	
 	@Override
@@ -285,7 +285,9 @@ public class ExcludingJimpleICFG implements IJimpleICFG {
 	}
 	
 	public static class ExcludingEdgePredicate extends BasicEdgePredicate {
+		//Only one of these is set depending on if the predicate was built from the call graph or the adjacency index
 		protected final Set<Edge> allowedEdges;
+		protected final CallGraphAdjacencyIndex.View view;
 		public ExcludingEdgePredicate(CallGraph cg, IExcludeHandler excludeHandler) {
 			this(cg,excludeHandler,false);
 		}
@@ -294,8 +296,22 @@ public class ExcludingJimpleICFG implements IJimpleICFG {
 			Objects.requireNonNull(excludeHandler);
 			Objects.requireNonNull(cg);
 			this.allowedEdges = new HashSet<>();
+			this.view = null;
 			init(cg);
 		}
+		/** Records the allowed edges as a view of the adjacency index of the call graph instead of traversing the call
+		 * graph. The view is then shared with any {@link ExcludingJimpleICFG} built on the same index.
+		 */
+		public ExcludingEdgePredicate(CallGraphAdjacencyIndex index, IExcludeHandler excludeHandler) {
+			this(index,excludeHandler,false);
+		}
+		public ExcludingEdgePredicate(CallGraphAdjacencyIndex index, IExcludeHandler excludeHandler, boolean includeReflectiveCalls) {
+			super(includeReflectiveCalls,excludeHandler);
+			Objects.requireNonNull(excludeHandler);
+			Objects.requireNonNull(index);
+			this.allowedEdges = null;
+			this.view = index.getView(excludeHandler, includeReflectiveCalls);
+		}
 		//We perform a forward traversal of the callgraph starting at the entry point and record all reachable edges
 		//This ensures that a backwards traversal will only include edges that are accessible from a forward traversal
 		//In the face of deleted edges and excluded methods, it is possible that an backwards traversal would include 
@@ -320,13 +336,17 @@ public class ExcludingJimpleICFG implements IJimpleICFG {
 		}
 		@Override
 		public boolean want(Edge e) {
-			return allowedEdges.contains(e);
+			return view != null ? view.isAllowed(e) : allowedEdges.contains(e);
 		}
 		public IExcludeHandler getExcludeHandler() {
 			return excludeHandler;
 		}
 		public Set<Edge> getAllowedEdges() {
-			return new HashSet<>(allowedEdges);
+			return view != null ? view.getAllowedEdges() : new HashSet<>(allowedEdges);
+		}
+		/** Returns the view the allowed edges are recorded in or null if the predicate was built from the call graph. */
+		public CallGraphAdjacencyIndex.View getView() {
+			return view;
 		}
 	}
 
@@ -342,7 +362,10 @@ public class ExcludingJimpleICFG implements IJimpleICFG {
 
 	@Override
 	public Set<Unit> getAllEndPointsOfCalleesOfCallAt(Unit invoke) {
-		return JimpleICFG.getAllEndPointsOfCalleesOfCallAt(unitToOwner, jimpleICFG.bodyToUnitGraph, pred, unitToCallees, invoke);
+		Set<Unit> ret = new HashSet<>();
+		for(SootMethod sm : cgView.getCalleesOfCallAt(invoke))
+			ret.addAll(JimpleICFG.getEndPointsOf(unitToOwner, jimpleICFG.bodyToUnitGraph, pred, sm));
+		return ret.isEmpty() ? Collections.<Unit>emptySet() : ret;
 	}
 
 	@Override
@@ -0,0 +1,274 @@
+package org.sag.soot.callgraph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.sag.soot.callgraph.IJimpleICFG.IBasicEdgePredicate;
+
+import soot.SootField;
+import soot.SootMethod;
+import soot.jimple.DefinitionStmt;
+import soot.jimple.toolkits.callgraph.Edge;
+import soot.jimple.toolkits.callgraph.Filter;
+
+/** Bottom-up summaries of the field reads of a method and all the methods reachable from it in the call graph of an
+ * ICFG (i.e. the data returned by {@link IJimpleICFG#getAllFieldReadsForMethod(SootMethod)}). Instead of walking the
+ * call graph below every method queried, the call graph reachable from a queried method is condensed into its strongly
+ * connected components using Tarjan's algorithm and the summary of each component is computed once from the summaries
+ * of the components it calls. As all methods in a component reach each other, they share the same summary. Methods that
+ * already have a summary from a previous query are not traversed again.
+ * <br><br>
+ * A summary is a {@link BitSet} over the field read statements interned by a {@link Index} which is shared by all ICFG
+ * using the same base {@link JimpleICFG}. The index also groups the read statements by the interned {@link SootField}
+ * they read so the reads of a single field can be extracted from a summary with a bitwise and. The summaries depend on
+ * the edge predicate of the ICFG and so each ICFG has its own instance of this class.
+ */
+public class FieldReadSummaries {
+
+	private final IJimpleICFG icfg;
+	private final Index index;
+	private final ConcurrentHashMap<SootMethod,BitSet> summaries;
+
+	public FieldReadSummaries(IJimpleICFG icfg, Index index) {
+		this.icfg = icfg;
+		this.index = index;
+		this.summaries = new ConcurrentHashMap<>();
+	}
+
+	public Index getIndex() {
+		return index;
+	}
+
+	private boolean isExcluded(SootMethod m) {
+		IBasicEdgePredicate pred = icfg.getEdgePredicate();
+		return pred != null && pred.getExcludeHandler().isExcludedMethodWithOverride(m);
+	}
+
+	private BitSet getLocalReads(SootMethod m) {
+		if(isExcluded(m))
+			return Index.EMPTY;
+		return index.getLocalReads(m, icfg.getFieldReadsForMethod(m));
+	}
+
+	private List<SootMethod> getSuccessors(SootMethod m) {
+		if(isExcluded(m))
+			return Collections.emptyList();
+		List<SootMethod> ret = new ArrayList<>();
+		Iterator<Edge> it = new Filter(icfg.getEdgePredicate()).wrap(icfg.getCallGraph().edgesOutOf(m));
+		while(it.hasNext())
+			ret.add(it.next().tgt());
+		return ret;
+	}
+
+	/** Returns the bitset of all field reads in the given method and all methods reachable from it. The returned bitset is
+	 * shared and must not be modified.
+	 */
+	public BitSet getSummary(SootMethod m) {
+		BitSet ret = summaries.get(m);
+		if(ret == null) {
+			computeSummaries(m);
+			ret = summaries.get(m);
+		}
+		return ret;
+	}
+
+	/** Returns the summary of the given method as a map of the fields read to the statements reading them. */
+	public Map<SootField,Set<DefinitionStmt>> getSummaryAsMap(SootMethod m) {
+		return index.toMap(getSummary(m));
+	}
+
+	private static final class Frame {
+		private final SootMethod m;
+		private final List<SootMethod> succs;
+		private int next;
+		public Frame(SootMethod m, List<SootMethod> succs) {
+			this.m = m;
+			this.succs = succs;
+			this.next = 0;
+		}
+	}
+
+	//Iterative Tarjan so deep framework call chains do not overflow the stack
+	private void computeSummaries(SootMethod root) {
+		Map<SootMethod,Integer> indexes = new HashMap<>();
+		Map<SootMethod,Integer> lows = new HashMap<>();
+		Map<SootMethod,List<SootMethod>> succsOf = new HashMap<>();
+		Deque<SootMethod> stack = new ArrayDeque<>();
+		Set<SootMethod> onStack = new HashSet<>();
+		Deque<Frame> frames = new ArrayDeque<>();
+		int count = 0;
+
+		indexes.put(root, count);
+		lows.put(root, count++);
+		stack.push(root);
+		onStack.add(root);
+		List<SootMethod> rootSuccs = getSuccessors(root);
+		succsOf.put(root, rootSuccs);
+		frames.push(new Frame(root, rootSuccs));
+
+		while(!frames.isEmpty()) {
+			Frame f = frames.peek();
+			if(f.next < f.succs.size()) {
+				SootMethod succ = f.succs.get(f.next++);
+				if(summaries.containsKey(succ))
+					continue;
+				Integer succIndex = indexes.get(succ);
+				if(succIndex == null) {
+					indexes.put(succ, count);
+					lows.put(succ, count++);
+					stack.push(succ);
+					onStack.add(succ);
+					List<SootMethod> succs = getSuccessors(succ);
+					succsOf.put(succ, succs);
+					frames.push(new Frame(succ, succs));
+				} else if(onStack.contains(succ)) {
+					lows.put(f.m, Math.min(lows.get(f.m), succIndex));
+				}
+			} else {
+				frames.pop();
+				int low = lows.get(f.m);
+				if(!frames.isEmpty()) {
+					SootMethod parent = frames.peek().m;
+					lows.put(parent, Math.min(lows.get(parent), low));
+				}
+				if(low == indexes.get(f.m)) {
+					//f.m is the root of a component, all components it calls already have summaries
+					List<SootMethod> scc = new ArrayList<>();
+					SootMethod cur;
+					do {
+						cur = stack.pop();
+						onStack.remove(cur);
+						scc.add(cur);
+					} while(cur != f.m);
+					BitSet summary = new BitSet();
+					for(SootMethod member : scc) {
+						summary.or(getLocalReads(member));
+						for(SootMethod succ : succsOf.get(member)) {
+							BitSet succSummary = summaries.get(succ);
+							if(succSummary != null)
+								summary.or(succSummary);
+						}
+					}
+					for(SootMethod member : scc)
+						summaries.putIfAbsent(member, summary);
+				}
+			}
+		}
+	}
+
+	/** Interns the field read statements of all methods and the fields they read. Shared by all ICFG with the same
+	 * base {@link JimpleICFG} as the field reads of a method do not depend on the call graph.
+	 */
+	public static final class Index {
+
+		private static final BitSet EMPTY = new BitSet();
+
+		private final List<DefinitionStmt> stmts;
+		private final List<SootField> stmtFields;
+		private final Map<DefinitionStmt,Integer> stmtIds;
+		private final Map<SootField,BitSet> fieldMasks;
+		private final ConcurrentHashMap<SootMethod,BitSet> localReads;
+
+		public Index() {
+			this.stmts = new ArrayList<>();
+			this.stmtFields = new ArrayList<>();
+			this.stmtIds = new HashMap<>();
+			this.fieldMasks = new HashMap<>();
+			this.localReads = new ConcurrentHashMap<>();
+		}
+
+		/** Returns the bitset of the field reads within the given method. The returned bitset is shared and must not be
+		 * modified. A null map of reads (i.e. the method is excluded for the caller) is not cached as it depends on the
+		 * edge predicate of the caller.
+		 */
+		public BitSet getLocalReads(SootMethod m, Map<SootField,Set<DefinitionStmt>> reads) {
+			if(reads == null)
+				return EMPTY;
+			BitSet ret = localReads.get(m);
+			if(ret == null) {
+				if(reads.isEmpty()) {
+					ret = EMPTY;
+				} else {
+					ret = new BitSet();
+					synchronized(this) {
+						for(SootField f : reads.keySet()) {
+							for(DefinitionStmt def : reads.get(f))
+								ret.set(intern(def, f));
+						}
+					}
+				}
+				BitSet old = localReads.putIfAbsent(m, ret);
+				if(old != null)
+					ret = old;
+			}
+			return ret;
+		}
+
+		private int intern(DefinitionStmt def, SootField f) {
+			Integer ret = stmtIds.get(def);
+			if(ret == null) {
+				ret = stmts.size();
+				stmts.add(def);
+				stmtFields.add(f);
+				stmtIds.put(def, ret);
+				BitSet mask = fieldMasks.get(f);
+				if(mask == null) {
+					mask = new BitSet();
+					fieldMasks.put(f, mask);
+				}
+				mask.set(ret);
+			}
+			return ret;
+		}
+
+		/** Returns the index of the given field read statement or -1 if it has not been interned. */
+		public synchronized int getId(DefinitionStmt def) {
+			Integer ret = stmtIds.get(def);
+			return ret == null ? -1 : ret;
+		}
+
+		/** Returns the statements in the bitset that read the given field. */
+		public synchronized Set<DefinitionStmt> getReadsOfField(BitSet reads, SootField f) {
+			BitSet mask = fieldMasks.get(f);
+			if(mask == null || !mask.intersects(reads))
+				return Collections.emptySet();
+			Set<DefinitionStmt> ret = new HashSet<>();
+			BitSet both = (BitSet)mask.clone();
+			both.and(reads);
+			for(int i = both.nextSetBit(0); i >= 0; i = both.nextSetBit(i + 1))
+				ret.add(stmts.get(i));
+			return Collections.unmodifiableSet(ret);
+		}
+
+		/** Converts a bitset of field read statements into a map of the fields read to the statements reading them. */
+		public synchronized Map<SootField,Set<DefinitionStmt>> toMap(BitSet reads) {
+			if(reads.isEmpty())
+				return Collections.emptyMap();
+			Map<SootField,Set<DefinitionStmt>> ret = new HashMap<>();
+			for(int i = reads.nextSetBit(0); i >= 0; i = reads.nextSetBit(i + 1)) {
+				SootField f = stmtFields.get(i);
+				Set<DefinitionStmt> temp = ret.get(f);
+				if(temp == null) {
+					temp = new HashSet<>();
+					ret.put(f, temp);
+				}
+				temp.add(stmts.get(i));
+			}
+			for(SootField f : ret.keySet())
+				ret.put(f, Collections.unmodifiableSet(ret.get(f)));
+			return Collections.unmodifiableMap(ret);
+		}
+
+	}
+
+}
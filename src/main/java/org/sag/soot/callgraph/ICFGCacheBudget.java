@@ -0,0 +1,382 @@
+package org.sag.soot.callgraph;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.cache.AbstractLoadingCache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+
+/** A memory budget shared by all the per body and per method analysis caches of the {@link JimpleICFG} and
+ * {@link ExcludingJimpleICFG} instances. Each cache entry is given an estimated size by a {@link Weigher}
+ * (e.g. units times locals for a {@link org.sag.soot.analysis.AdvLocalDefs}) and the sum of the sizes of the entries
+ * of all caches is kept under the maximum weight of the budget by evicting the least recently used entries across all
+ * caches. Once the maximum weight is reached, entries are evicted until the total weight drops below 90% of the maximum
+ * so that eviction does not occur on every load.
+ * <br><br>
+ * The weight of an entry is added once when it is loaded and removed once when it is evicted or invalidated. The caches
+ * are only weakly referenced by the budget, so the caches of an ICFG that is no longer used (e.g. the per entry point
+ * caches of a {@link ExcludingJimpleICFG}) are released with the ICFG. When this happens the weight of the entries that
+ * remained in the collected caches is removed from the total. {@link LoadingCache#invalidateAll()} can be used to
+ * release the weight of a cache immediately.
+ * <br><br>
+ * A maximum weight of 0 or less disables the budget. In this case the caches behave like those built by
+ * {@link heros.solver.IDESolver#DEFAULT_CACHE_BUILDER} (i.e. they are unbounded with soft values). The maximum weight
+ * should be set before any ICFG is constructed as the caches of existing ICFG are not changed. The hit, miss, load
+ * time, and eviction statistics are recorded per cache name for all caches regardless of the budget.
+ */
+public final class ICFGCacheBudget {
+
+	private static final Object lock = new Object();
+	private static volatile ICFGCacheBudget singleton = null;
+
+	public static ICFGCacheBudget v() {
+		ICFGCacheBudget ret = singleton;
+		if(ret == null) {
+			synchronized(lock) {
+				ret = singleton;
+				if(ret == null) {
+					ret = new ICFGCacheBudget();
+					singleton = ret;
+				}
+			}
+		}
+		return ret;
+	}
+
+	private volatile long maxWeight;
+	private final AtomicLong totalWeight;
+	private final AtomicLong clock;
+	private final ReentrantLock evictionLock;
+	private final Set<CacheRef> caches;
+	private final ReferenceQueue<BudgetedCache<?,?>> collected;
+	private final Map<String,Stats> stats;
+
+	private ICFGCacheBudget() {
+		this.maxWeight = 0;
+		this.totalWeight = new AtomicLong();
+		this.clock = new AtomicLong();
+		this.evictionLock = new ReentrantLock();
+		this.caches = new HashSet<>();
+		this.collected = new ReferenceQueue<>();
+		this.stats = new TreeMap<>();
+	}
+
+	/** Sets the maximum total weight of all caches created after this call. A value of 0 or less means unbounded. */
+	public void setMaxWeight(long maxWeight) {
+		this.maxWeight = maxWeight;
+	}
+
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	public long getTotalWeight() {
+		expungeCollected();
+		return totalWeight.get();
+	}
+
+	/** Creates a new cache with the given name whose entries all have a weight of 1. */
+	public <K,V> LoadingCache<K,V> newCache(String name, CacheLoader<K,V> loader) {
+		return newCache(name, loader, null);
+	}
+
+	/** Creates a new cache with the given name whose entries are weighed using the given weigher. Caches with the same
+	 * name share the same statistics.
+	 */
+	public <K,V> LoadingCache<K,V> newCache(String name, CacheLoader<K,V> loader, Weigher<? super K,? super V> weigher) {
+		BudgetedCache<K,V> ret = new BudgetedCache<>(getStats(name), loader, weigher, maxWeight > 0);
+		//Only bounded caches are weighed and have entries evicted to stay under the budget
+		if(ret.bounded) {
+			synchronized(caches) {
+				caches.add(new CacheRef(ret, collected));
+			}
+		}
+		return ret;
+	}
+
+	/** Removes the weight of the entries of any caches that have been garbage collected from the total weight. */
+	private void expungeCollected() {
+		CacheRef ref;
+		while((ref = (CacheRef)collected.poll()) != null) {
+			synchronized(caches) {
+				caches.remove(ref);
+			}
+			totalWeight.addAndGet(-ref.weight.getAndSet(0));
+		}
+	}
+
+	private Stats getStats(String name) {
+		synchronized(stats) {
+			Stats ret = stats.get(name);
+			if(ret == null) {
+				ret = new Stats(name);
+				stats.put(name, ret);
+			}
+			return ret;
+		}
+	}
+
+	/** Records the estimated memory of a structure built lazily by a value of the caches with the given name after the
+	 * value was weighed (e.g. the alias table of {@link org.sag.soot.analysis.AdvLocalDefs}). This is only reported in
+	 * the statistics and does not count towards the total weight.
+	 */
+	public void recordMemory(String name, long bytes) {
+		Stats s = getStats(name);
+		s.lazyBuilt.increment();
+		s.lazyMemory.add(bytes);
+	}
+
+	/** Returns a report of the statistics of each cache name and the current total weight. */
+	public String getStatsReport() {
+		expungeCollected();
+		StringBuilder sb = new StringBuilder();
+		sb.append("ICFG Cache Statistics: Budget=").append(maxWeight <= 0 ? "unbounded" : Long.toString(maxWeight))
+			.append(" TotalWeight=").append(totalWeight.get()).append("\n");
+		synchronized(stats) {
+			for(Stats s : stats.values())
+				sb.append("  ").append(s.toString()).append("\n");
+		}
+		return sb.toString();
+	}
+
+	private void onLoad(long weight) {
+		expungeCollected();
+		long max = maxWeight;
+		if(max > 0 && totalWeight.addAndGet(weight) > max)
+			evict(max);
+	}
+
+	private void evict(long max) {
+		//Only one thread evicts at a time, the others continue on over budget until it finishes
+		if(!evictionLock.tryLock())
+			return;
+		try {
+			long target = max - max / 10;
+			if(totalWeight.get() <= target)
+				return;
+			List<CacheRef> cur;
+			synchronized(caches) {
+				cur = new ArrayList<>(caches);
+			}
+			List<Candidate> candidates = new ArrayList<>();
+			for(CacheRef ref : cur) {
+				BudgetedCache<?,?> c = ref.get();
+				if(c != null)
+					c.addCandidates(candidates);
+			}
+			Collections.sort(candidates, new Comparator<Candidate>() {
+				@Override
+				public int compare(Candidate o1, Candidate o2) {
+					return Long.compare(o1.tick, o2.tick);
+				}
+			});
+			for(Candidate c : candidates) {
+				if(totalWeight.get() <= target)
+					break;
+				c.evict();
+			}
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	private static final class Stats {
+		private final String name;
+		private final LongAdder requests;
+		private final LongAdder loads;
+		private final LongAdder loadTime;
+		private final LongAdder evictions;
+		private final LongAdder lazyBuilt;
+		private final LongAdder lazyMemory;
+
+		public Stats(String name) {
+			this.name = name;
+			this.requests = new LongAdder();
+			this.loads = new LongAdder();
+			this.loadTime = new LongAdder();
+			this.evictions = new LongAdder();
+			this.lazyBuilt = new LongAdder();
+			this.lazyMemory = new LongAdder();
+		}
+
+		@Override
+		public String toString() {
+			long r = requests.sum();
+			long l = loads.sum();
+			long t = loadTime.sum();
+			return name + ": Hits=" + (r - l) + " Misses=" + l + " LoadTime=" + (t / 1000000) + "ms AvgLoadTime="
+					+ (l == 0 ? 0 : (t / l / 1000)) + "us Evictions=" + evictions.sum()
+					+ (lazyBuilt.sum() == 0 ? "" : " LazyBuilt=" + lazyBuilt.sum() + " LazyMemory=" + (lazyMemory.sum() / 1024) + "KB");
+		}
+	}
+
+	/** A weak reference to a bounded cache that keeps the weight of the entries of the cache so the weight can be
+	 * removed from the total once the cache is collected. */
+	private static final class CacheRef extends WeakReference<BudgetedCache<?,?>> {
+		private final AtomicLong weight;
+
+		public CacheRef(BudgetedCache<?,?> cache, ReferenceQueue<BudgetedCache<?,?>> queue) {
+			super(cache, queue);
+			this.weight = cache.weight;
+		}
+	}
+
+	private static final class Candidate {
+		private final BudgetedCache<?,?> cache;
+		private final Object key;
+		private final long tick;
+
+		public Candidate(BudgetedCache<?,?> cache, Object key, long tick) {
+			this.cache = cache;
+			this.key = key;
+			this.tick = tick;
+		}
+
+		public void evict() {
+			cache.evict(key, tick);
+		}
+	}
+
+	private static final class Entry<V> {
+		private final V value;
+		private final long weight;
+		private volatile long tick;
+
+		public Entry(V value, long weight, long tick) {
+			this.value = value;
+			this.weight = weight;
+			this.tick = tick;
+		}
+	}
+
+	private final class BudgetedCache<K,V> extends AbstractLoadingCache<K,V> {
+
+		private final Stats stats;
+		private final boolean bounded;
+		//The weight of the entries currently in this cache
+		private final AtomicLong weight;
+		private final LoadingCache<K,Entry<V>> delegate;
+
+		public BudgetedCache(final Stats stats, final CacheLoader<K,V> loader, final Weigher<? super K,? super V> weigher, boolean bounded) {
+			this.stats = stats;
+			this.bounded = bounded;
+			this.weight = new AtomicLong();
+			final AtomicLong cacheWeight = weight;
+			CacheBuilder<Object,Object> builder = CacheBuilder.newBuilder().concurrencyLevel(Runtime.getRuntime().availableProcessors())
+					.initialCapacity(10000);
+			if(bounded) {
+				builder.removalListener(new RemovalListener<K,Entry<V>>() {
+					@Override
+					public void onRemoval(RemovalNotification<K,Entry<V>> notification) {
+						Entry<V> e = notification.getValue();
+						if(e != null) {
+							cacheWeight.addAndGet(-e.weight);
+							totalWeight.addAndGet(-e.weight);
+						}
+					}
+				});
+			} else {
+				builder.softValues();
+			}
+			this.delegate = builder.build(new CacheLoader<K,Entry<V>>() {
+				@Override
+				public Entry<V> load(K key) throws Exception {
+					long start = System.nanoTime();
+					V value = loader.load(key);
+					stats.loadTime.add(System.nanoTime() - start);
+					stats.loads.increment();
+					long w = weigher == null ? 1 : Math.max(1, weigher.weigh(key, value));
+					//Counted here as the loader runs exactly once per entry added even if many threads request the key
+					if(BudgetedCache.this.bounded) {
+						cacheWeight.addAndGet(w);
+						onLoad(w);
+					}
+					return new Entry<>(value, w, clock.incrementAndGet());
+				}
+			});
+		}
+
+		@Override
+		public V get(K key) throws ExecutionException {
+			stats.requests.increment();
+			Entry<V> e = delegate.getIfPresent(key);
+			if(e == null) {
+				e = delegate.get(key);
+			} else if(bounded) {
+				e.tick = clock.incrementAndGet();
+			}
+			return e.value;
+		}
+
+		@Override
+		public V getIfPresent(Object key) {
+			Entry<V> e = delegate.getIfPresent(key);
+			if(e == null)
+				return null;
+			if(bounded)
+				e.tick = clock.incrementAndGet();
+			return e.value;
+		}
+
+		@Override
+		public void invalidate(Object key) {
+			delegate.invalidate(key);
+		}
+
+		@Override
+		public void invalidateAll() {
+			delegate.invalidateAll();
+		}
+
+		@Override
+		public long size() {
+			return delegate.size();
+		}
+
+		@Override
+		public void cleanUp() {
+			delegate.cleanUp();
+		}
+
+		@Override
+		public CacheStats stats() {
+			long r = stats.requests.sum();
+			long l = stats.loads.sum();
+			return new CacheStats(r - l, l, l, 0, stats.loadTime.sum(), stats.evictions.sum());
+		}
+
+		private void addCandidates(List<Candidate> candidates) {
+			for(Map.Entry<K,Entry<V>> e : delegate.asMap().entrySet())
+				candidates.add(new Candidate(this, e.getKey(), e.getValue().tick));
+		}
+
+		//Do not evict if the entry was accessed after the candidates were gathered
+		private void evict(Object key, long tick) {
+			Entry<V> e = delegate.getIfPresent(key);
+			if(e != null && e.tick == tick) {
+				delegate.invalidate(key);
+				stats.evictions.increment();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,155 @@
+package org.sag.soot.callgraph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sag.acminer.database.excludedelements.IExcludedElementsDatabase;
+import org.sag.acminer.phases.entrypoints.EntryPoint;
+import org.sag.common.concurrent.CountingThreadExecutor;
+import org.sag.common.logging.ILogger;
+
+import soot.Body;
+import soot.SootMethod;
+import soot.Unit;
+
+/** Builds the {@link soot.toolkits.graph.UnitGraph}, {@link org.sag.soot.analysis.AdvLocalDefs},
+ * {@link org.sag.soot.analysis.AdvLocalUses}, and {@link org.sag.soot.analysis.ControlDependenceGraph} of every body
+ * reachable from the entry points in parallel before a phase starts instead of having them built lazily by whichever
+ * worker thread touches a body first. The reachable bodies are those the phase itself will visit, i.e. those reachable
+ * in the {@link CallGraphAdjacencyIndex.View} of each entry point which omits disallowed edges and excluded methods. The
+ * bodies are processed largest first so that the few very large methods do not end up running alone at the end of the
+ * warm up.
+ * <br><br>
+ * When the {@link ICFGCacheBudget} is bounded, the warm up stops building analyses once the budget reaches the level
+ * eviction reduces it to, as anything built past that point would only evict analyses built earlier in the warm up.
+ * <br><br>
+ * The warm up only reports its own wall time. Whether it saves any time is determined by comparing the wall time the
+ * phase reports for all entry points against a run of the phase with the warm up disabled.
+ */
+public final class ICFGWarmUp {
+
+	private final String name;
+	private final JimpleICFG icfg;
+	private final IExcludedElementsDatabase excludedElementsDB;
+	private final ILogger logger;
+	private volatile long wallTime;
+
+	public ICFGWarmUp(JimpleICFG icfg, IExcludedElementsDatabase excludedElementsDB, ILogger logger) {
+		this.name = getClass().getSimpleName();
+		this.icfg = icfg;
+		this.excludedElementsDB = excludedElementsDB;
+		this.logger = logger;
+		this.wallTime = 0;
+	}
+
+	/** Returns the wall time in nanoseconds of the last call to {@link #run(Collection)}. */
+	public long getWallTime() {
+		return wallTime;
+	}
+
+	/** Returns the bodies of all methods reachable from the entry points in the view of the call graph of each entry
+	 * point sorted by the number of units in descending order.
+	 */
+	public List<Body> getReachableBodies(Collection<EntryPoint> eps) {
+		CallGraphAdjacencyIndex index = icfg.getAdjacencyIndex();
+		Set<SootMethod> visited = new HashSet<>();
+		List<Body> ret = new ArrayList<>();
+		for(EntryPoint ep : eps) {
+			SootMethod epm = ep.getEntryPoint();
+			if(epm == null)
+				continue;
+			CallGraphAdjacencyIndex.View view = index.getView(excludedElementsDB.createNewExcludeHandler(ep), false);
+			if(!epm.isConcrete() || view.isExcluded(epm))
+				continue;
+			//Methods already visited for another entry point are visited again as they may have other callees here
+			Set<SootMethod> epVisited = new HashSet<>();
+			Queue<SootMethod> toVisit = new ArrayDeque<>();
+			toVisit.add(epm);
+			while(!toVisit.isEmpty()) {
+				SootMethod cur = toVisit.poll();
+				if(epVisited.add(cur)) {
+					Body b = cur.retrieveActiveBody();
+					if(visited.add(cur))
+						ret.add(b);
+					//Only returns the callees that have a body and are not excluded
+					for(Unit u : b.getUnits()) {
+						for(SootMethod tgt : view.getCalleesOfCallAt(u))
+							toVisit.add(tgt);
+					}
+				}
+			}
+		}
+		Collections.sort(ret, new Comparator<Body>() {
+			@Override
+			public int compare(Body o1, Body o2) {
+				return Integer.compare(o2.getUnits().size(), o1.getUnits().size());
+			}
+		});
+		return ret;
+	}
+
+	/** Builds the per body analyses for all bodies reachable from the given entry points. Returns true if all analyses
+	 * were built successfully. Failures are logged but are not fatal as the analyses will just be built lazily.
+	 */
+	public boolean run(Collection<EntryPoint> eps) {
+		long start = System.nanoTime();
+		List<Body> bodies = getReachableBodies(eps);
+		long max = ICFGCacheBudget.v().getMaxWeight();
+		//Eviction reduces the total weight to this level so stop here or the warm up just evicts its own analyses
+		final long cap = max > 0 ? max - max / 10 : 0;
+		if(cap > 0)
+			logger.info("{}: Building the ICFG analyses for {} reachable bodies until the cache budget reaches {}.",
+					name,bodies.size(),cap);
+		else
+			logger.info("{}: Building the ICFG analyses for {} reachable bodies.",name,bodies.size());
+		final AtomicLong buildTime = new AtomicLong();
+		final AtomicInteger skipped = new AtomicInteger();
+		CountingThreadExecutor exe = new CountingThreadExecutor();
+		boolean success = true;
+		try {
+			for(final Body b : bodies) {
+				exe.execute(new Runnable() {
+					@Override
+					public void run() {
+						if(cap > 0 && ICFGCacheBudget.v().getTotalWeight() >= cap) {
+							skipped.incrementAndGet();
+							return;
+						}
+						long s = System.nanoTime();
+						icfg.getOrCreateUnitGraph(b);
+						icfg.getOrMakeLocalDefs(b);
+						icfg.getOrMakeLocalUses(b);
+						icfg.getOrMakeControlDependenceGraph(b);
+						buildTime.addAndGet(System.nanoTime() - s);
+					}
+				});
+			}
+		} catch(Throwable t) {
+			logger.fatal("{}: Failed to submit all bodies for warm up.",t,name);
+			success = false;
+		} finally {
+			if(!exe.shutdownWhenFinished()) {
+				logger.fatal(CountingThreadExecutor.computeJointErrorMsg(exe.getAndClearExceptions(),
+						"Failed to build the ICFG analyses for one or more bodies.", name));
+				success = false;
+			}
+		}
+		wallTime = System.nanoTime() - start;
+		if(skipped.get() > 0)
+			logger.info("{}: Skipped {} of {} bodies as the cache budget was reached. These will be built lazily.",name,
+					skipped.get(),bodies.size());
+		logger.info("{}: Warm up finished in {} ms. The analyses took {} ms of worker time to build.",name,
+				wallTime / 1000000,buildTime.get() / 1000000);
+		return success;
+	}
+
+}
@@ -2,11 +2,11 @@ package org.sag.soot.callgraph;
 
 import heros.DontSynchronize;
 import heros.SynchronizedBy;
-import heros.solver.IDESolver;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -29,6 +29,7 @@ import org.sag.soot.analysis.LoopFinder.Loop;
 
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
 import com.google.common.collect.ImmutableList;
 
 import soot.Body;
@@ -106,6 +107,12 @@ public class JimpleICFG implements IJimpleICFG {
 	@SynchronizedBy("by use of synchronized LoadingCache class")
 	protected final LoadingCache<SootMethod,Map<SootField,Set<DefinitionStmt>>> methodToFieldReads;
 	
+	@SynchronizedBy("by use of synchronized FieldReadSummaries.Index class")
+	protected final FieldReadSummaries.Index fieldReadIndex;
+	
+	@SynchronizedBy("by use of the thread safe FieldReadSummaries class")
+	protected volatile FieldReadSummaries fieldReadSummaries;//CG dep
+	
 	@SynchronizedBy("by use of synchronized LoadingCache class")
 	protected volatile LoadingCache<SootMethod,Map<SootField,Set<DefinitionStmt>>> methodToAllFieldReads;//CG dep
 	
@@ -124,6 +131,9 @@ public class JimpleICFG implements IJimpleICFG {
 	@SynchronizedBy("by use of synchronized LoadingCache class")
 	protected final LoadingCache<SwitchStmt,SwitchWrapper> switchStmtToSwitchWrapperCache;
 	
+	@SynchronizedBy("by the lock on this ICFG when built lazily")
+	protected volatile CallGraphAdjacencyIndex adjacencyIndex;//Shared by all ExcludingJimpleICFG wrapping this ICFG
+	
 	public JimpleICFG(Collection<EntryPoint> eps) {
 		this(eps,new BasicEdgePredicate());
 	}
@@ -140,9 +150,10 @@ public class JimpleICFG implements IJimpleICFG {
 		this.methodToCallers = getNewMethodToCallersCache(this);
 		this.unitToCallees = getNewUnitToCalleesCache(this);
 		this.unitToAllCallees = getNewUnitToAllCalleesCache(this);
-		this.methodToAllFieldReads = getNewMethodToAllFieldReads(this);
-		this.allFieldReadsAtCache = getNewAllFieldReadsAtCache(this);
-		this.allFieldReadsAfterCache = getNewAllFieldReadsAfterCache(this);
+		this.fieldReadSummaries = new FieldReadSummaries(this, fieldReadIndex);
+		this.methodToAllFieldReads = getNewMethodToAllFieldReads(this, fieldReadSummaries);
+		this.allFieldReadsAtCache = getNewAllFieldReadsAtCache(this, fieldReadSummaries);
+		this.allFieldReadsAfterCache = getNewAllFieldReadsAfterCache(this, fieldReadSummaries);
 		this.unitToDefsForUsedLocals = getNewUnitToDefsForUsedLocals(this,this.advLocalDefs);
 		this.unitToOwner = initUnitToBody(eps, pred, cg);
 	}
@@ -160,12 +171,15 @@ public class JimpleICFG implements IJimpleICFG {
 		this.methodToCallsFromWithin = getNewMethodToCallsFromWithinCache();
 		this.methodToParameterDefs = getNewMethodToParameterDefsCache();
 		this.methodToFieldReads = getNewMethodToFieldReads();
+		this.fieldReadIndex = new FieldReadSummaries.Index();
 		this.switchStmtToSwitchWrapperCache = getNewSwitchStmtToSwitchWrapperCache();
 	}
 	
 	/** Special constructor whose should only be called in the case where this 
 	 * ICFG is going to be wrapped by many other ICFG whose call graph views differ.
 	 * The fields who are affected by changes in the call graph are all set to null.
+	 * Instead the call graph is indexed once in a {@link CallGraphAdjacencyIndex}
+	 * which the wrapping ICFG filter through their own views of the index.
 	 * 
 	 * @param eps - entry points for the overall call graph like the others
 	 * @param bla - unused arg (just to separate it from other constructors)
@@ -177,12 +191,30 @@ public class JimpleICFG implements IJimpleICFG {
 		this.methodToCallers = null;
 		this.unitToCallees = null;
 		this.unitToAllCallees = null;
+		this.fieldReadSummaries = null;
 		this.methodToAllFieldReads = null;
 		this.allFieldReadsAtCache = null;
 		this.allFieldReadsAfterCache = null;
 		this.unitToOwner = null;
 		this.unitToDefsForUsedLocals = null;
-		initUnitToBody(eps, pred, cg);//Run this but don't assign it so the bodies are resolved but the memory is not wasted
+		this.adjacencyIndex = new CallGraphAdjacencyIndex(cg, eps);//Also resolves the bodies of all methods in the CG
+	}
+	
+	/** Returns the index of the call graph shared by all ICFG wrapping this ICFG. The index is built on the first call
+	 * unless this ICFG was created to be wrapped by other ICFG, in which case it is built by the constructor.
+	 */
+	public CallGraphAdjacencyIndex getAdjacencyIndex() {
+		CallGraphAdjacencyIndex ret = adjacencyIndex;
+		if(ret == null) {
+			synchronized(this) {
+				ret = adjacencyIndex;
+				if(ret == null) {
+					ret = new CallGraphAdjacencyIndex(cg, eps);
+					adjacencyIndex = ret;
+				}
+			}
+		}
+		return ret;
 	}
 	
 	protected static Map<Unit,Body> initUnitToBody(Collection<EntryPoint> eps, IBasicEdgePredicate pred, CallGraph cg) {
@@ -213,17 +245,62 @@ public class JimpleICFG implements IJimpleICFG {
 		}
 	}
 	
+	//Size estimates used by the ICFGCacheBudget when evicting entries under memory pressure
+
+	protected static final Weigher<Body,Object> UNIT_GRAPH_WEIGHER = new Weigher<Body,Object>() {
+		@Override
+		public int weigh(Body b, Object value) {
+			return b.getUnits().size();
+		}
+	};
+
+	protected static final Weigher<Body,Object> LOCAL_DEFS_WEIGHER = new Weigher<Body,Object>() {
+		@Override
+		public int weigh(Body b, Object value) {
+			return b.getUnits().size() * Math.max(1, b.getLocalCount());
+		}
+	};
+
+	protected static final Weigher<Body,Object> LOCAL_USES_WEIGHER = LOCAL_DEFS_WEIGHER;
+
+	protected static final Weigher<Body,ControlDependenceGraph<Unit>> CDG_WEIGHER = new Weigher<Body,ControlDependenceGraph<Unit>>() {
+		@Override
+		public int weigh(Body b, ControlDependenceGraph<Unit> value) {
+			return value.getGraph().size();
+		}
+	};
+
+	protected static final Weigher<Object,Collection<?>> COLLECTION_WEIGHER = new Weigher<Object,Collection<?>>() {
+		@Override
+		public int weigh(Object key, Collection<?> value) {
+			return value.size() + 1;
+		}
+	};
+
+	protected static final Weigher<Object,Map<?,? extends Collection<?>>> FIELD_READS_WEIGHER =
+			new Weigher<Object,Map<?,? extends Collection<?>>>() {
+		@Override
+		public int weigh(Object key, Map<?,? extends Collection<?>> value) {
+			int ret = 1;
+			for(Collection<?> c : value.values())
+				ret += c.size();
+			return ret;
+		}
+	};
+
+	protected static final Weigher<Object,Map<?,? extends Collection<?>>> DEFS_FOR_USED_LOCALS_WEIGHER = FIELD_READS_WEIGHER;
+
 	protected static LoadingCache<Body,UnitGraph> getNewBodyUnitGraphCache(final boolean enableExceptions) {
-		return IDESolver.DEFAULT_CACHE_BUILDER.build( new CacheLoader<Body,UnitGraph>() {
+		return ICFGCacheBudget.v().newCache("BodyToUnitGraph", new CacheLoader<Body,UnitGraph>() {
 			@Override
 			public UnitGraph load(Body body) throws Exception {
 				return enableExceptions ? new ExceptionalUnitGraph(body) : new BriefUnitGraph(body);
 			}
-		});
+		}, UNIT_GRAPH_WEIGHER);
 	}
 	
 	protected static LoadingCache<SootMethod,List<Value>> getNewMethodToParameterRefsCache() {
-		return IDESolver.DEFAULT_CACHE_BUILDER.build( new CacheLoader<SootMethod,List<Value>>() {
+		return ICFGCacheBudget.v().newCache("MethodToParameterRefs", new CacheLoader<SootMethod,List<Value>>() {
 			@Override
 			public List<Value> load(SootMethod m) throws Exception {
 				if(m.hasActiveBody()) {
@@ -240,7 +317,7 @@ public class JimpleICFG implements IJimpleICFG {
 	}
 	
 	protected static LoadingCache<SwitchStmt,SwitchWrapper> getNewSwitchStmtToSwitchWrapperCache() {
-		return IDESolver.DEFAULT_CACHE_BUILDER.build(new CacheLoader<SwitchStmt, SwitchWrapper> () {
+		return ICFGCacheBudget.v().newCache("SwitchStmtToSwitchWrapper", new CacheLoader<SwitchStmt, SwitchWrapper> () {
 			@Override
 			public SwitchWrapper load(SwitchStmt key) throws Exception {
 				return new SwitchWrapper(key);
@@ -249,7 +326,7 @@ public class JimpleICFG implements IJimpleICFG {
 	}
 	
 	protected static LoadingCache<SootMethod,List<IdentityStmt>> getNewMethodToParameterDefsCache() {
-		return IDESolver.DEFAULT_CACHE_BUILDER.build( new CacheLoader<SootMethod,List<IdentityStmt>>() {
+		return ICFGCacheBudget.v().newCache("MethodToParameterDefs", new CacheLoader<SootMethod,List<IdentityStmt>>() {
 			@Override
 			public List<IdentityStmt> load(SootMethod m) throws Exception {
 				IdentityStmt[] res = new IdentityStmt[m.getParameterCount()];
@@ -274,7 +351,7 @@ public class JimpleICFG implements IJimpleICFG {
 	}
 	
 	protected static LoadingCache<SootMethod,Set<Unit>> getNewMethodToCallsFromWithinCache() {
-		return IDESolver.DEFAULT_CACHE_BUILDER.build( new CacheLoader<SootMethod,Set<Unit>>() {
+		return ICFGCacheBudget.v().newCache("MethodToCallsFromWithin", new CacheLoader<SootMethod,Set<Unit>>() {
 			@Override
 			public Set<Unit> load(SootMethod m) throws Exception {
 				Set<Unit> res = null;
@@ -289,42 +366,48 @@ public class JimpleICFG implements IJimpleICFG {
 				}
 				return res == null ? Collections.<Unit>emptySet() : Collections.unmodifiableSet(res);
 			}
-		});
+		}, COLLECTION_WEIGHER);
 	}
 	
 	protected static LoadingCache<Body,ControlDependenceGraph<Unit>> getNewControlDependenceGraphs(final LoadingCache<Body,UnitGraph> bodyToUnitGraph) {
-		return IDESolver.DEFAULT_CACHE_BUILDER.build(new CacheLoader<Body,ControlDependenceGraph<Unit>>() {
+		return ICFGCacheBudget.v().newCache("ControlDependenceGraphs", new CacheLoader<Body,ControlDependenceGraph<Unit>>() {
 			@Override
 			public ControlDependenceGraph<Unit> load(Body b) throws Exception {
 				return new ControlDependenceGraph<Unit>(getOrCreateUnitGraph(bodyToUnitGraph, null, b));
 			}
-		});
+		}, CDG_WEIGHER);
 	}
 	
 	protected static LoadingCache<Body,AdvLocalDefs> getNewLocalDefs(final LoadingCache<Body,UnitGraph> bodyToUnitGraph) {
-		return IDESolver.DEFAULT_CACHE_BUILDER.build(new CacheLoader<Body,AdvLocalDefs>() {
+		return ICFGCacheBudget.v().newCache("AdvLocalDefs", new CacheLoader<Body,AdvLocalDefs>() {
 			@Override
 			public AdvLocalDefs load(Body b) throws Exception {
 				UnitGraph g = getOrCreateUnitGraph(bodyToUnitGraph, null, b);
-				return new AdvLocalDefs(g,LiveLocals.Factory.newLiveLocals(g));
+				return new AdvLocalDefs(g,LiveLocals.Factory.newLiveLocals(g)) {
+					//The alias table is built lazily after the entry is weighed so it is only reported in the stats
+					@Override
+					protected void onAliasTableBuilt(long memory) {
+						ICFGCacheBudget.v().recordMemory("AdvLocalDefs", memory);
+					}
+				};
 			}
-		});
+		}, LOCAL_DEFS_WEIGHER);
 	}
 	
 	protected static LoadingCache<Body,AdvLocalUses> getNewLocalUses(final LoadingCache<Body,UnitGraph> bodyToUnitGraph, 
 			final LoadingCache<Body,AdvLocalDefs> advLocalDefs) {
-		return IDESolver.DEFAULT_CACHE_BUILDER.build(new CacheLoader<Body,AdvLocalUses>() {
+		return ICFGCacheBudget.v().newCache("AdvLocalUses", new CacheLoader<Body,AdvLocalUses>() {
 			@Override
 			public AdvLocalUses load(Body b) throws Exception {
 				return new AdvLocalUses(getOrCreateUnitGraph(bodyToUnitGraph, null, b),getOrMakeLocalDefs(advLocalDefs, null, b));
 			}
-		});
+		}, LOCAL_USES_WEIGHER);
 	}
 	
 	protected static LoadingCache<SootMethod,Collection<Unit>> getNewMethodToCallersCache(final IJimpleICFG icfg) {
 		if(icfg == null)
 			return null;
-		return IDESolver.DEFAULT_CACHE_BUILDER.build( new CacheLoader<SootMethod,Collection<Unit>>() {
+		return ICFGCacheBudget.v().newCache("MethodToCallers", new CacheLoader<SootMethod,Collection<Unit>>() {
 			@Override
 			public Collection<Unit> load(SootMethod m) throws Exception {
 				ArrayList<Unit> res = new ArrayList<>();
@@ -337,14 +420,14 @@ public class JimpleICFG implements IJimpleICFG {
 				res.trimToSize();
 				return Collections.unmodifiableList(res);
 			}
-		});
+		}, COLLECTION_WEIGHER);
 	}
 	
 	//Only callee methods that are not excluded and that have bodies
 	protected static LoadingCache<Unit,Collection<SootMethod>> getNewUnitToCalleesCache(final IJimpleICFG icfg) {
 		if(icfg == null)
 			return null;
-		return IDESolver.DEFAULT_CACHE_BUILDER.build( new CacheLoader<Unit,Collection<SootMethod>>() {
+		return ICFGCacheBudget.v().newCache("UnitToCallees", new CacheLoader<Unit,Collection<SootMethod>>() {
 			@Override
 			public Collection<SootMethod> load(Unit u) throws Exception {
 				ArrayList<SootMethod> res = null;
@@ -365,14 +448,14 @@ public class JimpleICFG implements IJimpleICFG {
 				res.trimToSize();
 				return Collections.unmodifiableList(res);
 			}
-		});
+		}, COLLECTION_WEIGHER);
 	}
 	
 	//All callee methods even if they are excluded or have no body
 	protected static LoadingCache<Unit,Collection<SootMethod>> getNewUnitToAllCalleesCache(final IJimpleICFG icfg) {
 		if(icfg == null)
 			return null;
-		return IDESolver.DEFAULT_CACHE_BUILDER.build( new CacheLoader<Unit,Collection<SootMethod>>() {
+		return ICFGCacheBudget.v().newCache("UnitToAllCallees", new CacheLoader<Unit,Collection<SootMethod>>() {
 			@Override
 			public Collection<SootMethod> load(Unit u) throws Exception {
 				ArrayList<SootMethod> res = new ArrayList<>();
@@ -385,11 +468,11 @@ public class JimpleICFG implements IJimpleICFG {
 				res.trimToSize();
 				return Collections.unmodifiableList(res);
 			}
-		});
+		}, COLLECTION_WEIGHER);
 	}
 	
 	protected static LoadingCache<SootMethod,Map<SootField,Set<DefinitionStmt>>> getNewMethodToFieldReads() {
-		return IDESolver.DEFAULT_CACHE_BUILDER.build( new CacheLoader<SootMethod,Map<SootField,Set<DefinitionStmt>>>() {
+		return ICFGCacheBudget.v().newCache("MethodToFieldReads", new CacheLoader<SootMethod,Map<SootField,Set<DefinitionStmt>>>() {
 			@Override
 			public Map<SootField,Set<DefinitionStmt>> load(SootMethod m) throws Exception {
 				Map<SootField,Set<DefinitionStmt>> ret = new HashMap<>();
@@ -418,84 +501,59 @@ public class JimpleICFG implements IJimpleICFG {
 				return ret.isEmpty() ? Collections.<SootField,Set<DefinitionStmt>>emptyMap() : 
 					Collections.<SootField,Set<DefinitionStmt>>unmodifiableMap(ret);
 			}
-		});
+		}, FIELD_READS_WEIGHER);
 	}
 	
-	protected static LoadingCache<SootMethod,Map<SootField,Set<DefinitionStmt>>> getNewMethodToAllFieldReads(final IJimpleICFG icfg) {
+	protected static LoadingCache<SootMethod,Map<SootField,Set<DefinitionStmt>>> getNewMethodToAllFieldReads(final IJimpleICFG icfg, 
+			final FieldReadSummaries summaries) {
 		if(icfg == null)
 			return null;
-		return IDESolver.DEFAULT_CACHE_BUILDER.build( new CacheLoader<SootMethod,Map<SootField,Set<DefinitionStmt>>>() {
+		return ICFGCacheBudget.v().newCache("MethodToAllFieldReads", new CacheLoader<SootMethod,Map<SootField,Set<DefinitionStmt>>>() {
 			@Override
 			public Map<SootField,Set<DefinitionStmt>> load(SootMethod m) throws Exception {
-				Map<SootField,Set<DefinitionStmt>> ret = new HashMap<>();
-				IBasicEdgePredicate edgePred = icfg.getEdgePredicate();
-				if(m.hasActiveBody()) {
-					Set<SootMethod> visited = new HashSet<>();
-					Queue<SootMethod> toVisit = new ArrayDeque<>();
-					toVisit.add(m);
-					while(!toVisit.isEmpty()) {
-						SootMethod cur = toVisit.poll();
-						if(visited.add(cur) && !edgePred.getExcludeHandler().isExcludedMethodWithOverride(cur)) {
-							Map<SootField,Set<DefinitionStmt>> localFieldReads = icfg.getFieldReadsForMethod(cur);
-							for(SootField f : localFieldReads.keySet()) {
-								Set<DefinitionStmt> temp = ret.get(f);
-								if(temp == null) {
-									temp = new HashSet<>();
-									ret.put(f, temp);
-								}
-								temp.addAll(localFieldReads.get(f));
-							}
-							Iterator<Edge> it = new Filter(edgePred).wrap(icfg.getCallGraph().edgesOutOf(cur));
-							while(it.hasNext())
-								toVisit.add(it.next().tgt());
-						}
-					}
-					for(SootField f : ret.keySet()) {
-						ret.put(f, Collections.unmodifiableSet(ret.get(f)));
-					}
-				}
-				return ret.isEmpty() ? Collections.<SootField,Set<DefinitionStmt>>emptyMap() : 
-					Collections.<SootField,Set<DefinitionStmt>>unmodifiableMap(ret);
+				if(m.hasActiveBody())
+					return summaries.getSummaryAsMap(m);
+				return Collections.<SootField,Set<DefinitionStmt>>emptyMap();
 			}
-		});
+		}, FIELD_READS_WEIGHER);
 	}
 	
-	protected static LoadingCache<Unit,Map<SootField,Set<DefinitionStmt>>> getNewAllFieldReadsAtCache(final IJimpleICFG icfg) {
+	protected static LoadingCache<Unit,Map<SootField,Set<DefinitionStmt>>> getNewAllFieldReadsAtCache(final IJimpleICFG icfg, 
+			final FieldReadSummaries summaries) {
 		if(icfg == null)
 			return null;
-		return IDESolver.DEFAULT_CACHE_BUILDER.build( new CacheLoader<Unit,Map<SootField,Set<DefinitionStmt>>>() {
+		return ICFGCacheBudget.v().newCache("AllFieldReadsAt", new CacheLoader<Unit,Map<SootField,Set<DefinitionStmt>>>() {
 			@Override
 			public Map<SootField,Set<DefinitionStmt>> load(Unit start) throws Exception {
-				return getAllFieldReads(icfg,start,false);
+				return getAllFieldReads(icfg,summaries,start,false);
 			}
-		});
+		}, FIELD_READS_WEIGHER);
 	}
 	
-	protected static LoadingCache<Unit,Map<SootField,Set<DefinitionStmt>>> getNewAllFieldReadsAfterCache(final IJimpleICFG icfg) {
+	protected static LoadingCache<Unit,Map<SootField,Set<DefinitionStmt>>> getNewAllFieldReadsAfterCache(final IJimpleICFG icfg, 
+			final FieldReadSummaries summaries) {
 		if(icfg == null)
 			return null;
-		return IDESolver.DEFAULT_CACHE_BUILDER.build( new CacheLoader<Unit,Map<SootField,Set<DefinitionStmt>>>() {
+		return ICFGCacheBudget.v().newCache("AllFieldReadsAfter", new CacheLoader<Unit,Map<SootField,Set<DefinitionStmt>>>() {
 			@Override
 			public Map<SootField,Set<DefinitionStmt>> load(Unit start) throws Exception {
-				return getAllFieldReads(icfg,start,true);
+				return getAllFieldReads(icfg,summaries,start,true);
 			}
-		});
+		}, FIELD_READS_WEIGHER);
 	}
 	
-	protected static Map<SootField,Set<DefinitionStmt>> getAllFieldReads(IJimpleICFG icfg, Unit start, boolean forward) {
-		Map<SootField,Set<DefinitionStmt>> ret = new HashMap<>();
+	protected static Map<SootField,Set<DefinitionStmt>> getAllFieldReads(IJimpleICFG icfg, FieldReadSummaries summaries, Unit start, 
+			boolean forward) {
+		FieldReadSummaries.Index index = summaries.getIndex();
+		BitSet ret = new BitSet();
 		SootMethod startM = icfg.getMethodOf(start);
 		UnitGraph g = icfg.getOrCreateUnitGraph(startM);
 		//We only grab the field reads for the current method because for any method invoked 
 		//we need to include all of its field reads in a interprocedural manner and we already 
 		//have a method for that. Of course if this is backwards, we need all the reads for the 
-		Map<SootField,Set<DefinitionStmt>> startReads = icfg.getFieldReadsForMethod(startM);
-		Map<DefinitionStmt,SootField> allReadsRev = new HashMap<>();
-		for(SootField f : startReads.keySet()) {
-			for(DefinitionStmt def : startReads.get(f)) {
-				allReadsRev.put(def, f);
-			}
-		}
+		//methods we move up into as well.
+		BitSet allReads = new BitSet();
+		allReads.or(index.getLocalReads(startM, icfg.getFieldReadsForMethod(startM)));
 		
 		Queue<Unit> toVisit = new ArrayDeque<>();
 		Set<Unit> visited = new HashSet<>();
@@ -511,37 +569,21 @@ public class JimpleICFG implements IJimpleICFG {
 					//Need to move up the callgraph when we reach the head of a method
 					for(Unit callerStmt : icfg.getCallersOf(icfg.getMethodOf(cur))) {
 						//Need the field reads for the method we moved up into
-						Map<SootField,Set<DefinitionStmt>> reads = icfg.getFieldReadsForMethod(icfg.getMethodOf(callerStmt));
-						for(SootField f : reads.keySet()) {
-							for(DefinitionStmt def : reads.get(f)) {
-								allReadsRev.put(def, f);
-							}
-						}
+						SootMethod callerM = icfg.getMethodOf(callerStmt);
+						allReads.or(index.getLocalReads(callerM, icfg.getFieldReadsForMethod(callerM)));
 						//skip over the call site in the caller so we don't include all the field reads since these should be partial
 						toVisit.addAll(icfg.getPredsOfCallAt(callerStmt));
 					}
 				}
-				if(allReadsRev.keySet().contains(cur)) {
-					SootField f = allReadsRev.get(cur);
-					Set<DefinitionStmt> defs = ret.get(f);
-					if(defs == null) {
-						defs = new HashSet<>();
-						ret.put(f, defs);
-					}
-					defs.add((DefinitionStmt)cur);
+				if(cur instanceof DefinitionStmt) {
+					int id = index.getId((DefinitionStmt)cur);
+					if(id >= 0 && allReads.get(id))
+						ret.set(id);
 				}
 				if(((Stmt)cur).containsInvokeExpr()) {
-					for(SootMethod m : icfg.getCalleesOfCallAt(cur)) {
-						Map<SootField,Set<DefinitionStmt>> otherMMap = icfg.getAllFieldReadsForMethod(m);
-						for(SootField f : otherMMap.keySet()) {
-							Set<DefinitionStmt> defs = ret.get(f);
-							if(defs == null) {
-								defs = new HashSet<>();
-								ret.put(f, defs);
-							}
-							defs.addAll(otherMMap.get(f));
-						}
-					}
+					//Callees are always non-excluded methods with bodies so their summaries match getAllFieldReadsForMethod
+					for(SootMethod m : icfg.getCalleesOfCallAt(cur))
+						ret.or(summaries.getSummary(m));
 				}
 				if(forward)
 					toVisit.addAll(g.getSuccsOf(cur));
@@ -549,16 +591,12 @@ public class JimpleICFG implements IJimpleICFG {
 					toVisit.addAll(g.getPredsOf(cur));	
 			}
 		}
-		for(SootField f : ret.keySet()) {
-			ret.put(f, Collections.unmodifiableSet(ret.get(f)));
-		}
-		return ret.isEmpty() ? Collections.<SootField,Set<DefinitionStmt>>emptyMap() : 
-			Collections.<SootField,Set<DefinitionStmt>>unmodifiableMap(ret);
+		return index.toMap(ret);
 	}
 	
 	protected static LoadingCache<Unit,Map<Local,Set<DefinitionStmt>>> getNewUnitToDefsForUsedLocals(final IJimpleICFG icfg, 
 			final LoadingCache<Body,AdvLocalDefs> advLocalDefs) {
-		return IDESolver.DEFAULT_CACHE_BUILDER.build(new CacheLoader<Unit,Map<Local,Set<DefinitionStmt>>>() {
+		return ICFGCacheBudget.v().newCache("UnitToDefsForUsedLocals", new CacheLoader<Unit,Map<Local,Set<DefinitionStmt>>>() {
 			@Override
 			public Map<Local,Set<DefinitionStmt>> load(Unit u) throws Exception {
 				//Contains all values and the values inside those values so it should contain all locals
@@ -583,11 +621,11 @@ public class JimpleICFG implements IJimpleICFG {
 					return Collections.emptyMap();
 				}
 			}
-		});
+		}, DEFS_FOR_USED_LOCALS_WEIGHER);
 	}
 	
 	protected static LoadingCache<Body,Set<Loop>> getNewBodyToLoopsCache() {
-		return IDESolver.DEFAULT_CACHE_BUILDER.build(new CacheLoader<Body,Set<Loop>>() {
+		return ICFGCacheBudget.v().newCache("BodyToLoops", new CacheLoader<Body,Set<Loop>>() {
 			@Override
 			public Set<Loop> load(Body body) throws Exception {
 				return Collections.unmodifiableSet(new LoopFinder(body).getLoops());
@@ -0,0 +1,432 @@
+package org.sag.soot.callgraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.sag.acminer.database.excludedelements.IExcludeHandler;
+import org.sag.acminer.phases.entrypoints.EntryPoint;
+import org.sag.soot.callgraph.CallGraphSnapshot.IMethodFilter;
+
+import soot.SootMethod;
+
+/** Answers reachability queries over a {@link CallGraphSnapshot} without traversing the call graph from scratch for
+ * every entry point. The call graph (restricted to the edges kept by a {@link JimpleICFG.BasicEdgePredicate}) is
+ * condensed into its strongly connected components and the transitive closure of each component is computed once in
+ * topological order. The components are numbered in the order Tarjan's algorithm completes them, which is a post order
+ * of the condensed graph, so the closure of a component is mostly made up of long runs of consecutive component ids.
+ * The closures are therefore stored as run-length encoded bitsets (i.e. sorted pairs of start and end ids), which in
+ * practice take a small fraction of the memory of plain bitsets.
+ * <br><br>
+ * Exclusions are applied per query using a {@link Mask} of the excluded methods. An excluded method is reachable but
+ * the edges out of it are not followed, as with {@link ExcludingJimpleICFG.ExcludingEdgePredicate}. Any component
+ * whose closure contains no excluded method has its entire closure added in one step, so only the part of the call
+ * graph that leads to excluded methods is ever traversed method by method. The results are exact. Methods whose edges
+ * should never be followed by any query (e.g. constructors) are given to the index when it is built instead of being
+ * part of every mask, as a mask containing such a common set of methods touches nearly every closure. The masks of an
+ * {@link IExcludeHandler} are cached, with the excluded methods shared by all handlers masked only once.
+ */
+public final class ReachabilityIndex {
+
+	private static final int[] EMPTY = new int[0];
+
+	private static volatile ReachabilityIndex current;
+
+	private final CallGraphSnapshot cg;
+	private final boolean includeReflectiveCalls;
+	//Methods whose outgoing edges are never followed
+	private final BitSet leaves;
+	//Method id to component id
+	private final int[] sccOf;
+	//The methods of component i are sccMembers[sccStarts[i]] to sccMembers[sccStarts[i+1]]
+	private final int[] sccStarts;
+	private final int[] sccMembers;
+	//Run-length encoded closure of each component, including the component itself
+	private final int[][] closures;
+	private final Map<IExcludeHandler,Mask> handlerMasks;
+	private volatile BaseMask baseMask;
+
+	private ReachabilityIndex(CallGraphSnapshot cg, boolean includeReflectiveCalls, IMethodFilter filter) {
+		this.cg = cg;
+		this.includeReflectiveCalls = includeReflectiveCalls;
+		int size = cg.getMethodCount();
+		this.leaves = new BitSet(size);
+		if(filter != null) {
+			for(int i = 0; i < size; i++) {
+				if(!filter.traverse(cg.getMethod(i)))
+					leaves.set(i);
+			}
+		}
+		this.handlerMasks = Collections.synchronizedMap(new WeakHashMap<IExcludeHandler,Mask>());
+		this.sccOf = new int[size];
+		this.sccMembers = new int[size];
+		List<Integer> starts = new ArrayList<>();
+		int sccCount = computeSccs(starts);
+		this.sccStarts = new int[sccCount + 1];
+		for(int i = 0; i < sccCount; i++)
+			sccStarts[i] = starts.get(i);
+		sccStarts[sccCount] = size;
+
+		//Successors complete before their predecessors so their closures are always computed first
+		this.closures = new int[sccCount][];
+		BitSet work = new BitSet(sccCount);
+		BitSet succs = new BitSet(sccCount);
+		for(int s = 0; s < sccCount; s++) {
+			work.clear();
+			succs.clear();
+			work.set(s);
+			for(int i = sccStarts[s]; i < sccStarts[s + 1]; i++) {
+				int m = sccMembers[i];
+				if(leaves.get(m))
+					continue;
+				for(int e = cg.getOutStart(m); e < cg.getOutEnd(m); e++) {
+					if(cg.isBasicEdge(e, includeReflectiveCalls))
+						succs.set(sccOf[cg.getTarget(e)]);
+				}
+			}
+			succs.clear(s);
+			for(int t = succs.nextSetBit(0); t >= 0; t = succs.nextSetBit(t + 1)) {
+				if(!work.get(t))
+					setRuns(work, closures[t]);
+			}
+			closures[s] = encode(work);
+		}
+	}
+
+	//Iterative Tarjan over the method ids of the snapshot
+	private int computeSccs(List<Integer> starts) {
+		int size = cg.getMethodCount();
+		int[] index = new int[size];
+		int[] low = new int[size];
+		int[] nextEdge = new int[size];
+		boolean[] onStack = new boolean[size];
+		int[] stack = new int[size];
+		int[] callStack = new int[size];
+		int sp = 0;
+		int csp = 0;
+		int count = 1;
+		int sccCount = 0;
+		int memberCount = 0;
+		for(int root = 0; root < size; root++) {
+			if(index[root] != 0)
+				continue;
+			index[root] = low[root] = count++;
+			nextEdge[root] = leaves.get(root) ? cg.getOutEnd(root) : cg.getOutStart(root);
+			stack[sp++] = root;
+			onStack[root] = true;
+			callStack[csp++] = root;
+			while(csp > 0) {
+				int cur = callStack[csp - 1];
+				if(nextEdge[cur] < cg.getOutEnd(cur)) {
+					int e = nextEdge[cur]++;
+					if(!cg.isBasicEdge(e, includeReflectiveCalls))
+						continue;
+					int tgt = cg.getTarget(e);
+					if(index[tgt] == 0) {
+						index[tgt] = low[tgt] = count++;
+						nextEdge[tgt] = leaves.get(tgt) ? cg.getOutEnd(tgt) : cg.getOutStart(tgt);
+						stack[sp++] = tgt;
+						onStack[tgt] = true;
+						callStack[csp++] = tgt;
+					} else if(onStack[tgt]) {
+						low[cur] = Math.min(low[cur], index[tgt]);
+					}
+				} else {
+					csp--;
+					if(csp > 0) {
+						int parent = callStack[csp - 1];
+						low[parent] = Math.min(low[parent], low[cur]);
+					}
+					if(low[cur] == index[cur]) {
+						starts.add(memberCount);
+						int m;
+						do {
+							m = stack[--sp];
+							onStack[m] = false;
+							sccOf[m] = sccCount;
+							sccMembers[memberCount++] = m;
+						} while(m != cur);
+						sccCount++;
+					}
+				}
+			}
+		}
+		return sccCount;
+	}
+
+	private static int[] encode(BitSet bits) {
+		int runs = 0;
+		for(int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(bits.nextClearBit(i)))
+			runs++;
+		if(runs == 0)
+			return EMPTY;
+		int[] ret = new int[runs * 2];
+		int j = 0;
+		for(int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i)) {
+			int end = bits.nextClearBit(i);
+			ret[j++] = i;
+			ret[j++] = end;
+			i = end;
+		}
+		return ret;
+	}
+
+	private static void setRuns(BitSet bits, int[] runs) {
+		for(int i = 0; i < runs.length; i += 2)
+			bits.set(runs[i], runs[i + 1]);
+	}
+
+	private static boolean intersects(int[] runs, BitSet bits) {
+		for(int i = 0; i < runs.length; i += 2) {
+			int next = bits.nextSetBit(runs[i]);
+			if(next >= 0 && next < runs[i + 1])
+				return true;
+		}
+		return false;
+	}
+
+	private static boolean contains(int[] runs, int id) {
+		int lo = 0;
+		int hi = runs.length / 2 - 1;
+		while(lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if(id < runs[mid * 2])
+				hi = mid - 1;
+			else if(id >= runs[mid * 2 + 1])
+				lo = mid + 1;
+			else
+				return true;
+		}
+		return false;
+	}
+
+	public static ReachabilityIndex build(CallGraphSnapshot cg, boolean includeReflectiveCalls) {
+		return new ReachabilityIndex(cg, includeReflectiveCalls, null);
+	}
+
+	/** Builds an index that never follows the edges out of the methods for which the filter returns false. Such methods
+	 * are still reachable. A null filter follows the edges out of all methods.
+	 */
+	public static ReachabilityIndex build(CallGraphSnapshot cg, boolean includeReflectiveCalls, IMethodFilter filter) {
+		return new ReachabilityIndex(cg, includeReflectiveCalls, filter);
+	}
+
+	/** Returns the index over the non-reflective basic edges of {@link CallGraphSnapshot#v()}, building it if it does not
+	 * exist or if the snapshot has changed.
+	 */
+	public static ReachabilityIndex v() {
+		CallGraphSnapshot cg = CallGraphSnapshot.v();
+		ReachabilityIndex ret = current;
+		if(ret == null || ret.cg != cg) {
+			synchronized(ReachabilityIndex.class) {
+				ret = current;
+				if(ret == null || ret.cg != cg) {
+					ret = build(cg, false);
+					current = ret;
+				}
+			}
+		}
+		return ret;
+	}
+
+	public static void reset() {
+		current = null;
+	}
+
+	public CallGraphSnapshot getCallGraph() {
+		return cg;
+	}
+
+	public int getSccCount() {
+		return closures.length;
+	}
+
+	/** Returns the number of ints used to store all the closures. */
+	public long getClosureSize() {
+		long ret = 0;
+		for(int[] c : closures)
+			ret += c.length;
+		return ret;
+	}
+
+	/** The methods whose outgoing edges are not followed when computing reachability, along with the components
+	 * containing them. A mask is cheap to create as it only touches the ids of the excluded methods.
+	 */
+	public final class Mask {
+		private final BitSet methods;
+		private final BitSet sccs;
+		private Mask() {
+			this.methods = new BitSet(sccOf.length);
+			this.sccs = new BitSet(closures.length);
+		}
+		private Mask(Mask base) {
+			this.methods = (BitSet)base.methods.clone();
+			this.sccs = (BitSet)base.sccs.clone();
+		}
+		private void add(SootMethod m) {
+			int id = cg.getId(m);
+			if(id >= 0) {
+				methods.set(id);
+				sccs.set(sccOf[id]);
+			}
+		}
+	}
+
+	//The mask of the excluded methods shared by the handlers of all entry points keyed by the identity of the set
+	private static final class BaseMask {
+		private final Set<SootMethod> excluded;
+		private final Mask mask;
+		public BaseMask(Set<SootMethod> excluded, Mask mask) {
+			this.excluded = excluded;
+			this.mask = mask;
+		}
+	}
+
+	/** Returns the mask of the excluded methods of the handler. The masks are cached per handler. The excluded methods of
+	 * a handler that are not overrides are the same set for the handlers of all entry points, so their mask is only
+	 * built once and each handler only adds its override methods to a copy of it.
+	 */
+	public Mask getMask(IExcludeHandler excludeHandler) {
+		if(excludeHandler == null)
+			return getMask(Collections.<SootMethod>emptySet());
+		Mask ret = handlerMasks.get(excludeHandler);
+		if(ret == null) {
+			Set<SootMethod> excluded = excludeHandler.getExcludedMethods();
+			BaseMask base = baseMask;
+			if(base == null || base.excluded != excluded) {
+				base = new BaseMask(excluded, getMask(excluded));
+				baseMask = base;
+			}
+			Set<SootMethod> overrides = excludeHandler.getExcludedOverrideMethods();
+			if(overrides.isEmpty()) {
+				ret = base.mask;
+			} else {
+				ret = new Mask(base.mask);
+				for(SootMethod m : overrides)
+					ret.add(m);
+			}
+			handlerMasks.put(excludeHandler, ret);
+		}
+		return ret;
+	}
+
+	public Mask getMask(Collection<SootMethod> excluded) {
+		Mask ret = new Mask();
+		for(SootMethod m : excluded)
+			ret.add(m);
+		return ret;
+	}
+
+	/** Returns a new mask that excludes all the methods of the given masks. */
+	public Mask union(Mask a, Mask b) {
+		Mask ret = new Mask();
+		ret.methods.or(a.methods);
+		ret.methods.or(b.methods);
+		ret.sccs.or(a.sccs);
+		ret.sccs.or(b.sccs);
+		return ret;
+	}
+
+	/** Returns the ids of all methods reachable from the start method, including the start method. */
+	public BitSet getReachableIds(int start, Mask mask) {
+		BitSet ret = new BitSet(sccOf.length);
+		BitSet doneSccs = new BitSet(closures.length);
+		//Components whose closure is known to contain a masked component so the check is done once per component
+		BitSet partialSccs = new BitSet(closures.length);
+		int[] stack = new int[16];
+		int sp = 0;
+		ret.set(start);
+		stack[sp++] = start;
+		while(sp > 0) {
+			int m = stack[--sp];
+			if(mask.methods.get(m))
+				continue;
+			int s = sccOf[m];
+			if(doneSccs.get(s))
+				continue;
+			int[] closure = closures[s];
+			if(!partialSccs.get(s) && !intersects(closure, mask.sccs)) {
+				//Nothing in the closure is excluded so all of it is reachable
+				for(int i = 0; i < closure.length; i += 2) {
+					for(int t = doneSccs.nextClearBit(closure[i]); t < closure[i + 1]; t = doneSccs.nextClearBit(t + 1)) {
+						doneSccs.set(t);
+						for(int j = sccStarts[t]; j < sccStarts[t + 1]; j++)
+							ret.set(sccMembers[j]);
+					}
+				}
+			} else {
+				partialSccs.set(s);
+				if(leaves.get(m))
+					continue;
+				for(int e = cg.getOutStart(m); e < cg.getOutEnd(m); e++) {
+					if(cg.isBasicEdge(e, includeReflectiveCalls)) {
+						int tgt = cg.getTarget(e);
+						if(!ret.get(tgt)) {
+							ret.set(tgt);
+							if(sp == stack.length)
+								stack = Arrays.copyOf(stack, sp * 2);
+							stack[sp++] = tgt;
+						}
+					}
+				}
+			}
+		}
+		return ret;
+	}
+
+	/** Returns all methods reachable from the start method, including the start method, in method id order. */
+	public Set<SootMethod> getReachable(SootMethod start, Mask mask) {
+		int id = cg.getId(start);
+		if(id < 0)
+			return Collections.singleton(start);
+		BitSet ids = getReachableIds(id, mask);
+		Set<SootMethod> ret = new LinkedHashSet<>();
+		for(int i = ids.nextSetBit(0); i >= 0; i = ids.nextSetBit(i + 1))
+			ret.add(cg.getMethod(i));
+		return ret;
+	}
+
+	/** Returns the methods reachable from the entry point under the exclusions of its exclude handler. */
+	public Set<SootMethod> getReachable(EntryPoint ep, IExcludeHandler excludeHandler) {
+		return getReachable(ep.getEntryPoint(), getMask(excludeHandler));
+	}
+
+	/** Returns true if the target is reachable from the start ignoring all exclusions. */
+	public boolean isReachable(SootMethod start, SootMethod target) {
+		int s = cg.getId(start);
+		int t = cg.getId(target);
+		if(s < 0 || t < 0)
+			return s >= 0 ? false : start.equals(target);
+		return contains(closures[sccOf[s]], sccOf[t]);
+	}
+
+	/** Returns true if the target is reachable from the start under the exclusions of the mask. */
+	public boolean isReachable(SootMethod start, SootMethod target, Mask mask) {
+		if(!isReachable(start, target))
+			return false;
+		int s = cg.getId(start);
+		if(s < 0 || !intersects(closures[sccOf[s]], mask.sccs))
+			return true;
+		return getReachableIds(s, mask).get(cg.getId(target));
+	}
+
+	/** Returns the entry points from which the method is reachable under the exclusions of each entry point. Entry points
+	 * whose closure does not contain the method are rejected without a traversal.
+	 */
+	public Set<EntryPoint> getEntryPointsReaching(SootMethod m, Map<EntryPoint,IExcludeHandler> eps) {
+		Set<EntryPoint> ret = new LinkedHashSet<>();
+		for(EntryPoint ep : eps.keySet()) {
+			if(isReachable(ep.getEntryPoint(), m) && isReachable(ep.getEntryPoint(), m, getMask(eps.get(ep))))
+				ret.add(ep);
+		}
+		return ret;
+	}
+
+}